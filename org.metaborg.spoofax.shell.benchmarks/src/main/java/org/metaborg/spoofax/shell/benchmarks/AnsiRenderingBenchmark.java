@@ -0,0 +1,84 @@
+package org.metaborg.spoofax.shell.benchmarks;
+
+import java.awt.Color;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.metaborg.core.style.Style;
+import org.metaborg.spoofax.shell.client.console.impl.TerminalUserInterface;
+import org.metaborg.spoofax.shell.client.console.impl.history.JLine2InputHistory;
+import org.metaborg.spoofax.shell.output.StyledText;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.io.ByteStreams;
+
+import jline.TerminalSupport;
+import jline.console.ConsoleReader;
+import jline.console.history.MemoryHistory;
+
+/**
+ * Benchmarks rendering a {@link StyledText} as ANSI escape sequences by the console
+ * {@link TerminalUserInterface}. The rendered output is discarded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnsiRenderingBenchmark {
+    private static final Color[] COLORS = { Color.RED, Color.ORANGE, new Color(0x2060C0), null };
+
+    /** The number of fragments in the rendered text. */
+    @Param({ "10", "1000" })
+    protected int fragments;
+
+    private TerminalUserInterface ui;
+    private StyledText text;
+
+    /**
+     * Create a {@link TerminalUserInterface} writing to a null stream, and the text it renders.
+     *
+     * @throws IOException
+     *             When the {@link ConsoleReader} cannot be created.
+     */
+    @Setup
+    public void setUp() throws IOException {
+        OutputStream out = ByteStreams.nullOutputStream();
+        ConsoleReader reader = new ConsoleReader(new ByteArrayInputStream(new byte[0]), out,
+                                                 new TerminalSupport(true) {
+                                                 });
+        ui = new TerminalUserInterface(reader, out, out,
+                                       new JLine2InputHistory(reader, new MemoryHistory()));
+
+        text = new StyledText();
+        for (int i = 0; i < fragments; i++) {
+            Color color = COLORS[i % COLORS.length];
+            if (color == null) {
+                text.append("plain ");
+            } else {
+                text.append(new Style(color, null, i % 2 == 0, false, false, false), "styled ");
+            }
+        }
+    }
+
+    /**
+     * Render the text to the terminal.
+     */
+    @Benchmark
+    public void render() {
+        ui.displayStyledText(text);
+    }
+}
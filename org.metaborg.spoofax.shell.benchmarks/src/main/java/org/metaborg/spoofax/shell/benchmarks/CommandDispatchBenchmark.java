@@ -0,0 +1,92 @@
+package org.metaborg.spoofax.shell.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.metaborg.spoofax.shell.commands.IReplCommand;
+import org.metaborg.spoofax.shell.invoker.CommandNotFoundException;
+import org.metaborg.spoofax.shell.invoker.ICommandInvoker;
+import org.metaborg.spoofax.shell.invoker.SpoofaxCommandInvoker;
+import org.metaborg.spoofax.shell.output.IResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks dispatching input to commands through {@link ICommandInvoker#execute(String)}. The
+ * default command is an evaluation command built by a
+ * {@link org.metaborg.spoofax.shell.commands.CommandBuilder} over stubbed functions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandDispatchBenchmark {
+    private static final IResult RESULT = (visitor) -> { };
+
+    /** The number of registered commands, as loading a language adds one per transformation. */
+    @Param({ "4", "64" })
+    protected int commands;
+
+    private ICommandInvoker invoker;
+
+    /**
+     * Create an {@link ICommandInvoker} with the given number of commands.
+     */
+    @Setup
+    public void setUp() {
+        Map<String, IReplCommand> defaults = new HashMap<>();
+        for (int i = 0; i < commands; i++) {
+            defaults.put("command" + i, new IReplCommand() {
+                @Override
+                public String description() {
+                    return "";
+                }
+
+                @Override
+                public IResult execute(String... args) {
+                    return RESULT;
+                }
+            });
+        }
+
+        StubFunctionFactory factory = new StubFunctionFactory("none");
+        IReplCommand eval = factory.createBuilder(null, null).evalParsed().build();
+        invoker = new SpoofaxCommandInvoker(defaults, eval);
+    }
+
+    /**
+     * Dispatch a prefixed command with an argument.
+     *
+     * @return The result of the command.
+     * @throws CommandNotFoundException
+     *             Never.
+     */
+    @Benchmark
+    public IResult command() throws CommandNotFoundException {
+        return invoker.execute(":command0 some argument");
+    }
+
+    /**
+     * Dispatch an expression to the default evaluation command.
+     *
+     * @return The result of the command.
+     * @throws CommandNotFoundException
+     *             Never.
+     */
+    @Benchmark
+    public IResult evaluate() throws CommandNotFoundException {
+        return invoker.execute("1 + 1");
+    }
+}
@@ -0,0 +1,97 @@
+package org.metaborg.spoofax.shell.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.metaborg.spoofax.shell.functions.FailableFunction;
+import org.metaborg.spoofax.shell.functions.FunctionComposer;
+import org.metaborg.spoofax.shell.output.EvaluateResult;
+import org.metaborg.spoofax.shell.output.FailOrSuccessResult;
+import org.metaborg.spoofax.shell.output.IResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks composing the pipeline with a {@link FunctionComposer} and executing the composed
+ * pipeline, with stubbed stages.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineBenchmark {
+    private static final String INPUT = "1 + 1";
+
+    /** The stage that fails, or "none" to execute the complete pipeline. */
+    @Param({ "none", StubFunctionFactory.PARSE, StubFunctionFactory.EVALUATE })
+    protected String failAt;
+
+    private StubFunctionFactory factory;
+    private FailableFunction<String, EvaluateResult, IResult> pEvaluate;
+    private FailableFunction<String, EvaluateResult, IResult> aEvaluate;
+
+    /**
+     * Compose the pipelines that are executed by the benchmarks.
+     */
+    @Setup
+    public void setUp() {
+        factory = new StubFunctionFactory(failAt);
+        FunctionComposer composer = factory.createComposer(null, null);
+        pEvaluate = composer.pEvaluateFunction();
+        aEvaluate = composer.aEvaluateFunction();
+    }
+
+    /**
+     * Compose all pipelines that are needed for evaluation with a fresh {@link FunctionComposer}.
+     *
+     * @return The composed functions, so that they are not eliminated.
+     */
+    @Benchmark
+    public Object compose() {
+        FunctionComposer composer = factory.createComposer(null, null);
+        return new Object[] { composer.pEvaluateFunction(), composer.aEvaluateFunction(),
+                              composer.pStyleFunction() };
+    }
+
+    /**
+     * Execute input, parse and evaluate.
+     *
+     * @return The result of the pipeline.
+     */
+    @Benchmark
+    public FailOrSuccessResult<EvaluateResult, IResult> executeParsed() {
+        return pEvaluate.apply(INPUT);
+    }
+
+    /**
+     * Execute input, parse, analyze and evaluate.
+     *
+     * @return The result of the pipeline.
+     */
+    @Benchmark
+    public FailOrSuccessResult<EvaluateResult, IResult> executeAnalyzed() {
+        return aEvaluate.apply(INPUT);
+    }
+
+    /**
+     * Compose input, parse and evaluate on every call, as was done before pipelines were reused.
+     *
+     * @return The result of the pipeline.
+     */
+    @Benchmark
+    public FailOrSuccessResult<EvaluateResult, IResult> composeAndExecute() {
+        return factory.createInputFunction(null, null)
+            .kleisliCompose(factory.createParseFunction(null, null))
+            .kleisliCompose(factory.createEvaluateFunction(null, null)).apply(INPUT);
+    }
+}
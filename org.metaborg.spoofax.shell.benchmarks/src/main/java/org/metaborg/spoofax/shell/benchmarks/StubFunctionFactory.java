@@ -0,0 +1,133 @@
+package org.metaborg.spoofax.shell.benchmarks;
+
+import java.util.Map;
+
+import org.metaborg.core.action.ITransformAction;
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.project.IProject;
+import org.metaborg.spoofax.shell.commands.CommandBuilder;
+import org.metaborg.spoofax.shell.core.IEvaluationStrategy;
+import org.metaborg.spoofax.shell.functions.FailableFunction;
+import org.metaborg.spoofax.shell.functions.FunctionComposer;
+import org.metaborg.spoofax.shell.functions.IFunctionFactory;
+import org.metaborg.spoofax.shell.output.AnalyzeResult;
+import org.metaborg.spoofax.shell.output.EvaluateResult;
+import org.metaborg.spoofax.shell.output.FailOrSuccessResult;
+import org.metaborg.spoofax.shell.output.IResult;
+import org.metaborg.spoofax.shell.output.ISpoofaxTermResult;
+import org.metaborg.spoofax.shell.output.InputResult;
+import org.metaborg.spoofax.shell.output.ParseResult;
+import org.metaborg.spoofax.shell.output.StyleResult;
+import org.metaborg.spoofax.shell.output.StyledText;
+import org.metaborg.spoofax.shell.output.TransformResult;
+
+/**
+ * An {@link IFunctionFactory} whose functions do not call Spoofax, but immediately return a
+ * precomputed result. One stage can be made to fail, to measure short-circuiting.
+ */
+public class StubFunctionFactory implements IFunctionFactory {
+    /** Name of the input stage. */
+    public static final String INPUT = "input";
+    /** Name of the parse stage. */
+    public static final String PARSE = "parse";
+    /** Name of the analysis stage. */
+    public static final String ANALYZE = "analyze";
+    /** Name of the final stage: evaluation, transformation or styling. */
+    public static final String EVALUATE = "evaluate";
+
+    private static final IResult FAILURE =
+        (visitor) -> visitor.visitMessage(new StyledText("stub failure"));
+
+    private final String failingStage;
+
+    /**
+     * Instantiate a new {@link StubFunctionFactory}.
+     *
+     * @param failingStage
+     *            The name of the stage that fails, or any other string for no failing stage.
+     */
+    public StubFunctionFactory(String failingStage) {
+        this.failingStage = failingStage;
+    }
+
+    private <In, Success extends IResult> FailableFunction<In, Success, IResult>
+        stage(String name) {
+        FailOrSuccessResult<Success, IResult> result;
+        if (name.equals(failingStage)) {
+            result = FailOrSuccessResult.failed(FAILURE);
+        } else {
+            result = FailOrSuccessResult.successful(null);
+        }
+        return (input) -> result;
+    }
+
+    @Override
+    public FailableFunction<String, InputResult, IResult>
+        createInputFunction(IProject project, ILanguageImpl lang) {
+        return stage(INPUT);
+    }
+
+    @Override
+    public FailableFunction<String, InputResult, IResult>
+        createOpenInputFunction(IProject project, ILanguageImpl lang) {
+        return stage(INPUT);
+    }
+
+    @Override
+    public FailableFunction<InputResult, ParseResult, IResult>
+        createParseFunction(IProject project, ILanguageImpl lang) {
+        return stage(PARSE);
+    }
+
+    @Override
+    public FailableFunction<ParseResult, AnalyzeResult, IResult>
+        createAnalyzeFunction(IProject project, ILanguageImpl lang) {
+        return stage(ANALYZE);
+    }
+
+    @Override
+    public FailableFunction<ParseResult, TransformResult, IResult>
+        createPTransformFunction(IProject project, ILanguageImpl lang, ITransformAction action) {
+        return stage(EVALUATE);
+    }
+
+    @Override
+    public FailableFunction<AnalyzeResult, TransformResult, IResult>
+        createATransformFunction(IProject project, ILanguageImpl lang, ITransformAction action) {
+        return stage(EVALUATE);
+    }
+
+    @Override
+    public FailableFunction<ISpoofaxTermResult<?>, EvaluateResult, IResult>
+        createEvaluateFunction(IProject project, ILanguageImpl lang) {
+        return stage(EVALUATE);
+    }
+
+    @Override
+    public FailableFunction<ISpoofaxTermResult<?>, EvaluateResult, IResult>
+        createEvaluateFunction(IProject project, ILanguageImpl lang,
+                               Map<String, IEvaluationStrategy> strategies) {
+        return stage(EVALUATE);
+    }
+
+    @Override
+    public FailableFunction<ParseResult, StyleResult, IResult>
+        createStyleFunction(IProject project, ILanguageImpl lang) {
+        return stage(EVALUATE);
+    }
+
+    @Override
+    public CommandBuilder<?> createBuilder(IProject project, ILanguageImpl lang) {
+        return createBuilder(createComposer(project, lang));
+    }
+
+    @Override
+    public CommandBuilder<?> createBuilder(FunctionComposer composer) {
+        return new CommandBuilder<>(composer);
+    }
+
+    @Override
+    public FunctionComposer createComposer(IProject project, ILanguageImpl lang) {
+        return new FunctionComposer(this, project, lang);
+    }
+}
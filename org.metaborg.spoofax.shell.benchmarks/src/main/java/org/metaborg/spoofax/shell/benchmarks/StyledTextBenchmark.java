@@ -0,0 +1,84 @@
+package org.metaborg.spoofax.shell.benchmarks;
+
+import java.awt.Color;
+import java.util.concurrent.TimeUnit;
+
+import org.metaborg.core.style.IStyle;
+import org.metaborg.core.style.Style;
+import org.metaborg.spoofax.shell.output.StyledText;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks building a {@link StyledText} from many fragments, as is done when highlighting
+ * input or printing a large result.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StyledTextBenchmark {
+    private static final String FRAGMENT = "fragment";
+    /** The number of different kinds of fragments: unstyled, colored and styled. */
+    private static final int KINDS = 3;
+    private static final IStyle STYLE = new Style(Color.BLUE, null, true, false, false, false);
+
+    /** The number of appended fragments. */
+    @Param({ "10", "100", "1000" })
+    protected int fragments;
+
+    private StyledText built;
+
+    /**
+     * Build the text that is read by {@link #render()}.
+     */
+    @Setup
+    public void setUp() {
+        built = build();
+    }
+
+    /**
+     * Append alternately unstyled, colored and styled fragments.
+     *
+     * @return The built text.
+     */
+    @Benchmark
+    public StyledText build() {
+        StyledText text = new StyledText();
+        for (int i = 0; i < fragments; i++) {
+            switch (i % KINDS) {
+                case 0:
+                    text.append(FRAGMENT);
+                    break;
+                case 1:
+                    text.append(Color.RED, FRAGMENT);
+                    break;
+                default:
+                    text.append(STYLE, FRAGMENT);
+                    break;
+            }
+        }
+        return text;
+    }
+
+    /**
+     * Convert a built text to a plain string.
+     *
+     * @return The plain string.
+     */
+    @Benchmark
+    public String render() {
+        return built.toString();
+    }
+}
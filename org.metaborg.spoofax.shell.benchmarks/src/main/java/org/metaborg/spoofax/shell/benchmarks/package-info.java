@@ -0,0 +1,6 @@
+/**
+ * JMH benchmarks for the core REPL pipeline: command dispatch, function composition and
+ * execution, and building and rendering styled output. Spoofax itself is stubbed out, so that
+ * the benchmarks run offline and only measure the overhead added by the shell.
+ */
+package org.metaborg.spoofax.shell.benchmarks;
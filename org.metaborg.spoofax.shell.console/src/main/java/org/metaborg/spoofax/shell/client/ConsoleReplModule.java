@@ -5,6 +5,7 @@ import java.io.OutputStream;
 
 import org.metaborg.spoofax.shell.ReplModule;
 import org.metaborg.spoofax.shell.client.console.commands.ExitCommand;
+import org.metaborg.spoofax.shell.client.console.commands.UnloadCommand;
 import org.metaborg.spoofax.shell.client.console.impl.ConsoleRepl;
 import org.metaborg.spoofax.shell.client.console.impl.TerminalUserInterface;
 import org.metaborg.spoofax.shell.client.console.impl.history.JLine2InputHistory;
@@ -25,6 +26,28 @@ import jline.console.ConsoleReader;
  * Bindings for the console REPL.
  */
 public class ConsoleReplModule extends ReplModule {
+	private static final int DYNSEM_VM_CACHE_SIZE = 4;
+	private final boolean loadInBackground;
+
+	/**
+	 * Instantiate the bindings for an interactive console REPL, which loads languages in the
+	 * background so that the prompt stays responsive.
+	 */
+	public ConsoleReplModule() {
+		this(true);
+	}
+
+	/**
+	 * Instantiate the bindings for a console REPL.
+	 *
+	 * @param loadInBackground
+	 *            {@code true} to load languages in the background, {@code false} to load them
+	 *            before {@code :load} returns, e.g. when the next input depends on the language
+	 */
+	public ConsoleReplModule(boolean loadInBackground) {
+		this.loadInBackground = loadInBackground;
+	}
+
 	@Override
 	protected void configure() {
 		super.configure();
@@ -40,6 +63,7 @@ public class ConsoleReplModule extends ReplModule {
 		// always uses the same unique rwSemanticComponents to evaluate in
 		// context.
 		bind(DynSemEvaluationStrategy.class).in(Singleton.class);
+		bindConstant().annotatedWith(Names.named("dynSemVMCacheSize")).to(DYNSEM_VM_CACHE_SIZE);
 		evalStrategyBinder.addBinding("dynsem").to(DynSemEvaluationStrategy.class);
 	}
 
@@ -47,6 +71,13 @@ public class ConsoleReplModule extends ReplModule {
 	protected void bindCommands(MapBinder<String, IReplCommand> commandBinder) {
 		super.bindCommands(commandBinder);
 		commandBinder.addBinding("exit").to(ExitCommand.class).in(Singleton.class);
+		commandBinder.addBinding("unload").to(UnloadCommand.class);
+	}
+
+	@Override
+	protected void bindLanguageLoading() {
+		bind(BackgroundResults.class).in(Singleton.class);
+		bindConstant().annotatedWith(Names.named("loadInBackground")).to(loadInBackground);
 	}
 
 	/**
@@ -0,0 +1,120 @@
+package org.metaborg.spoofax.shell.client.console;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Records the classes that are loaded while starting the console REPL and loading languages into
+ * a class data sharing archive. The JVM maps the classes in the archive instead of loading and
+ * verifying them again, which shortens the start of later sessions that pass the
+ * {@link #launchOptions(Path) launch options} for the archive.
+ *
+ * <p>
+ * The classes are recorded by a separate JVM that loads the languages and exits. On Java 13 and
+ * newer, that JVM writes the archive itself when it exits, as it is started with
+ * {@code -XX:ArchiveClassesAtExit}. On older versions, it writes the list of classes it loaded,
+ * as it is started with {@code -XX:DumpLoadedClassList}, after which a third JVM dumps the classes
+ * in that list with {@code -Xshare:dump}. Up to Java 10, application classes are only archived by
+ * JVMs that support {@code -XX:+UseAppCDS}, such as the Oracle JDK; other JVMs only archive the
+ * classes of the JDK itself.
+ * </p>
+ */
+public final class ClassDataSnapshot {
+    private static final int AT_EXIT_JAVA_VERSION = 13;
+    private static final int APP_CDS_JAVA_VERSION = 11;
+    // Ignored by the JVMs that do not know them, which then only archive the classes of the JDK.
+    private static final List<String> APP_CDS_OPTIONS = Arrays.asList(
+        "-XX:+IgnoreUnrecognizedVMOptions", "-XX:+UnlockCommercialFeatures", "-XX:+UseAppCDS");
+
+    private ClassDataSnapshot() {
+    }
+
+    private static int javaVersion() {
+        String version = System.getProperty("java.specification.version");
+        // Up to Java 8, the version is 1.x.
+        return Integer.parseInt(version.startsWith("1.") ? version.substring(2) : version);
+    }
+
+    private static List<String> appCdsOptions() {
+        return javaVersion() < APP_CDS_JAVA_VERSION ? APP_CDS_OPTIONS : Collections.emptyList();
+    }
+
+    /**
+     * @param archive
+     *            The class data sharing archive.
+     * @return The options with which to start later sessions that use the archive.
+     */
+    public static String launchOptions(Path archive) {
+        List<String> options = new ArrayList<>(appCdsOptions());
+        options.add("-XX:SharedArchiveFile=" + archive);
+        return String.join(" ", options);
+    }
+
+    /**
+     * Run a session that loads languages and exits, and record the classes it loads.
+     *
+     * @param archive
+     *            The class data sharing archive to write.
+     * @param languages
+     *            The paths to the languages that the session loads.
+     * @return The exit code of the last JVM that ran, which is zero when the archive was written.
+     * @throws IOException
+     *             When a JVM cannot be started.
+     * @throws InterruptedException
+     *             When interrupted while waiting for a JVM to exit.
+     */
+    public static int record(Path archive, String... languages)
+        throws IOException, InterruptedException {
+        if (javaVersion() >= AT_EXIT_JAVA_VERSION) {
+            return java(Collections.singletonList(
+                "-XX:ArchiveClassesAtExit=" + archive.toAbsolutePath()), languages);
+        }
+
+        Path classList = Files.createTempFile("spoofax-shell", ".classlist");
+        try {
+            List<String> options = new ArrayList<>(appCdsOptions());
+            options.add("-XX:DumpLoadedClassList=" + classList.toAbsolutePath());
+            int exit = java(options, languages);
+            if (exit != 0) {
+                return exit;
+            }
+
+            options = new ArrayList<>(appCdsOptions());
+            options.addAll(Arrays.asList("-Xshare:dump",
+                "-XX:SharedClassListFile=" + classList.toAbsolutePath(),
+                "-XX:SharedArchiveFile=" + archive.toAbsolutePath()));
+            return java(options);
+        } finally {
+            Files.deleteIfExists(classList);
+        }
+    }
+
+    /**
+     * Run a JVM with the class path of this one, and wait for it to exit.
+     *
+     * @param options
+     *            The options of the JVM.
+     * @param languages
+     *            The paths to the languages that a session loads before it exits, or none to run
+     *            the JVM without a session, e.g. for {@code -Xshare:dump}.
+     */
+    private static int java(List<String> options, String... languages)
+        throws IOException, InterruptedException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        List<String> command = new ArrayList<>(Collections.singletonList(java));
+        command.addAll(options);
+        command.addAll(Arrays.asList("-cp", System.getProperty("java.class.path")));
+        if (languages.length > 0) {
+            command.add(Main.class.getName());
+            command.addAll(Arrays.asList(languages));
+            command.add(Main.EXIT);
+        }
+        return new ProcessBuilder(command).inheritIO().start().waitFor();
+    }
+}
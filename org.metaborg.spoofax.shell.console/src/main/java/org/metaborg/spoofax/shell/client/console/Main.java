@@ -1,12 +1,17 @@
 package org.metaborg.spoofax.shell.client.console;
 
 import java.awt.Color;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
 
 import org.metaborg.core.MetaborgException;
 import org.metaborg.spoofax.core.Spoofax;
 import org.metaborg.spoofax.shell.client.ConsoleReplModule;
 import org.metaborg.spoofax.shell.client.IDisplay;
 import org.metaborg.spoofax.shell.client.console.impl.ConsoleRepl;
+import org.metaborg.spoofax.shell.functions.StartSymbolSelector;
 import org.metaborg.spoofax.shell.output.StyledText;
 
 import com.google.inject.Injector;
@@ -17,9 +22,18 @@ import com.google.inject.Injector;
 // CHECKSTYLE.OFF: HideUtilityClassConstructor - No need for private constructor
 public final class Main {
 	// CHECKSTYLE.ON
-	private static final String ERROR = "Invalid commandline parameters: %s%nThe only argument "
-			+ "accepted is the path to a language implementation "
-			+ "location, using any filesystem supported by Apache VFS";
+	private static final String ERROR = "Invalid commandline parameters: %s%nThe only arguments "
+			+ "accepted are the paths to language implementation "
+			+ "locations, using any filesystem supported by Apache VFS, optionally followed by "
+			+ "\"--batch [--parallel] <file>\" or \"--exit\", "
+			+ "or \"--snapshot <archive> <path>...\". "
+			+ "Any of these may be combined with \"--startup-stats\"";
+	private static final String OPTION = "--";
+	private static final String BATCH = "--batch";
+	private static final String SNAPSHOT = "--snapshot";
+	private static final String STARTUP_STATS = "--startup-stats";
+	/** Loads the language and exits, e.g. to record a {@link ClassDataSnapshot}. */
+	static final String EXIT = "--exit";
 
 	private static StyledText error(String[] args) {
 		StringBuilder invalidArgs = new StringBuilder();
@@ -31,34 +45,136 @@ public final class Main {
 		return new StyledText(Color.RED, String.format(ERROR, invalidArgs.toString()));
 	}
 
+	private static int paths(String[] args) {
+		int paths = 0;
+		while (paths < args.length && !args[paths].startsWith(OPTION)) {
+			paths++;
+		}
+		return paths;
+	}
+
+	private static boolean isBatch(String[] args) {
+		int paths = paths(args);
+		return paths > 0 && args.length > paths + 1 && args.length <= paths + 3
+				&& args[paths].equals(BATCH);
+	}
+
+	private static boolean isLoadAndExit(String[] args) {
+		int paths = paths(args);
+		return paths > 0 && args.length == paths + 1 && args[paths].equals(EXIT);
+	}
+
 	/**
-	 * Instantiates and runs a new {@link ConsoleRepl}.
+	 * Create the {@code :load} command for the languages given on the command line.
 	 *
 	 * @param args
-	 *            The path to a language implementation location, using any filesystem supported by
-	 *            Apache VFS.
+	 *            The command line arguments.
+	 * @return The command, or {@code null} if the arguments are not valid.
+	 */
+	private static String load(String[] args) {
+		int paths = paths(args);
+		if (paths == 0 || paths < args.length && !isBatch(args) && !isLoadAndExit(args)) {
+			return null;
+		}
+		return ":load " + String.join(" ", Arrays.copyOfRange(args, 0, paths));
+	}
+
+	private static void snapshot(String[] args) {
+		if (args.length < 3) {
+			System.err.println(error(args));
+		} else {
+			try {
+				Path archive = Paths.get(args[1]);
+				if (ClassDataSnapshot.record(archive,
+						Arrays.copyOfRange(args, 2, args.length)) == 0) {
+					System.out.println("Recorded the classes of a session in " + archive
+							+ ", start the shell with " + ClassDataSnapshot.launchOptions(archive)
+							+ " to use them.");
+				}
+			} catch (IOException e) {
+				System.err.println("Cannot record the classes of a session: " + e.getMessage());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Instantiates and runs a new {@link ConsoleRepl}. Several languages can be given, which are
+	 * loaded at the same time, and the last of which is used. When the languages are followed by
+	 * {@code --batch [--parallel] <file>}, the expressions in the file are evaluated with the
+	 * {@code :batch} command instead, after which the REPL exits. When they are followed by
+	 * {@code --exit}, the REPL exits right after loading the languages. With
+	 * {@code --snapshot <archive> <path>...}, the classes loaded by such a session are recorded in
+	 * a {@link ClassDataSnapshot}. With {@code --startup-stats}, the time taken by every phase of
+	 * the startup is shown before the first prompt.
+	 *
+	 * @param args
+	 *            The paths to language implementation locations, using any filesystem supported by
+	 *            Apache VFS, optionally followed by {@code --batch [--parallel] <file>} or
+	 *            {@code --exit}, or {@code --snapshot <archive> <path>...}.
 	 * @throws MetaborgException
 	 *             When Spoofax initialization fails.
 	 */
 	public static void main(String[] args) throws MetaborgException {
+		final StartupStats stats = new StartupStats();
 		System.setProperty("org.apache.commons.logging.Log",
 				"org.apache.commons.logging.impl.NoOpLog");
 
-		try (final Spoofax spoofax = new Spoofax(new ConsoleReplModule())) {
-			final Injector injector = spoofax.injector;
-			final IDisplay display = injector.getInstance(IDisplay.class);
-			final ConsoleRepl repl = injector.getInstance(ConsoleRepl.class);
+		final boolean showStats = Arrays.asList(args).contains(STARTUP_STATS);
+		args = Arrays.stream(args).filter(arg -> !arg.equals(STARTUP_STATS))
+				.toArray(String[]::new);
+		if (args.length > 0 && args[0].equals(SNAPSHOT)) {
+			snapshot(args);
+			return;
+		}
 
-			if (args.length == 1) {
-				final String arg = args[0];
-				if (arg.equals("--exit")) {
-					return;
-				}
-				repl.runOnce(":load " + args[0]);
-			} else if (args.length > 1) {
-				display.displayStyledText(error(args));
-			}
+		// A batch evaluates right after loading, so it has to wait until the language is loaded.
+		final ConsoleReplModule module =
+				new ConsoleReplModule(!isBatch(args) && !isLoadAndExit(args));
+		try (final Spoofax spoofax = new Spoofax(module);
+				final StartSymbolSelector selector =
+						spoofax.injector.getInstance(StartSymbolSelector.class)) {
+			stats.mark("Spoofax");
+			run(spoofax.injector, args, showStats ? stats : null);
+		}
+	}
+
+	/**
+	 * Create the REPL, load the languages given on the command line, and run the REPL or a batch.
+	 *
+	 * @param injector
+	 *            The {@link Injector} of the {@link ConsoleReplModule}.
+	 * @param args
+	 *            The command line arguments, without {@code --startup-stats}.
+	 * @param stats
+	 *            The {@link StartupStats} to show before the first prompt, or {@code null}.
+	 */
+	private static void run(Injector injector, String[] args, StartupStats stats) {
+		final IDisplay display = injector.getInstance(IDisplay.class);
+		final ConsoleRepl repl = injector.getInstance(ConsoleRepl.class);
+		if (stats != null) {
+			stats.mark("REPL");
+		}
+		if (args.length == 1 && args[0].equals(EXIT)) {
+			return;
+		}
+		final String load = load(args);
+		if (load != null) {
+			repl.runOnce(load);
+		} else if (args.length > 0) {
+			display.displayStyledText(error(args));
+		}
+		if (stats != null) {
+			// In the background, the language may still be loading at the first prompt.
+			stats.mark(isBatch(args) || isLoadAndExit(args) ? ":load" : "scheduled :load");
+			display.displayStyledText(stats.report());
+		}
 
+		if (isBatch(args)) {
+			String[] batchArgs = Arrays.copyOfRange(args, paths(args) + 1, args.length);
+			repl.runOnce(":batch " + String.join(" ", batchArgs));
+		} else if (!isLoadAndExit(args)) {
 			repl.run();
 		}
 	}
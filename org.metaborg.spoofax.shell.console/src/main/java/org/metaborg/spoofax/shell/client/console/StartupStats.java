@@ -0,0 +1,59 @@
+package org.metaborg.spoofax.shell.client.console;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.metaborg.spoofax.shell.output.StyledText;
+
+/**
+ * Measures how long the phases of starting the console REPL take, from the start of the JVM up to
+ * the first prompt.
+ */
+public class StartupStats {
+    private final long jvmMillis;
+    private final Map<String, Long> phases;
+    private long last;
+
+    /**
+     * Start measuring. The time between the start of the JVM and this call is reported as the
+     * first phase.
+     */
+    public StartupStats() {
+        this.jvmMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        this.phases = new LinkedHashMap<>();
+        this.last = System.nanoTime();
+    }
+
+    /**
+     * End a phase, which started when the previous phase ended.
+     *
+     * @param phase
+     *            The name of the phase.
+     */
+    public void mark(String phase) {
+        long now = System.nanoTime();
+        phases.put(phase, now - last);
+        last = now;
+    }
+
+    /**
+     * @return The duration of every phase, the total, and the number of loaded classes.
+     */
+    public StyledText report() {
+        StringBuilder report = new StringBuilder("Startup:");
+        report.append(String.format("%n  %-28s %6d ms", "JVM", jvmMillis));
+        long total = TimeUnit.MILLISECONDS.toNanos(jvmMillis);
+        for (Map.Entry<String, Long> phase : phases.entrySet()) {
+            total += phase.getValue();
+            report.append(String.format("%n  %-28s %6d ms", phase.getKey(),
+                                        TimeUnit.NANOSECONDS.toMillis(phase.getValue())));
+        }
+        report.append(String.format("%n  %-28s %6d ms", "total",
+                                    TimeUnit.NANOSECONDS.toMillis(total)));
+        report.append(String.format("%n  %d classes loaded", ManagementFactory
+            .getClassLoadingMXBean().getLoadedClassCount()));
+        return new StyledText(report.toString());
+    }
+}
@@ -0,0 +1,65 @@
+package org.metaborg.spoofax.shell.client.console.commands;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.metaborg.core.MetaborgException;
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.spoofax.shell.client.console.strategies.DynSemEvaluationStrategy;
+import org.metaborg.spoofax.shell.commands.IReplCommand;
+import org.metaborg.spoofax.shell.output.ExceptionResult;
+import org.metaborg.spoofax.shell.output.IResult;
+import org.metaborg.spoofax.shell.output.StyledText;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+
+/**
+ * Unload the cached DynSem interpreters of all languages, or of one language.
+ */
+public class UnloadCommand implements IReplCommand {
+
+    private final Provider<DynSemEvaluationStrategy> dynSem;
+
+    /**
+     * Instantiates a new UnloadCommand.
+     *
+     * @param dynSem
+     *            The {@link DynSemEvaluationStrategy} that caches the interpreters. It is only
+     *            created when the command is executed, so that it does not slow down startup.
+     */
+    @Inject
+    public UnloadCommand(Provider<DynSemEvaluationStrategy> dynSem) {
+        this.dynSem = dynSem;
+    }
+
+    @Override
+    public String description() {
+        return "Unload the DynSem interpreters of all languages,\n"
+               + "or of the language with the given identifier.";
+    }
+
+    @Override
+    public IResult execute(String... args) {
+        if (args.length > 1) {
+            return new ExceptionResult(new MetaborgException("Syntax: :unload [<language id>]"));
+        }
+
+        DynSemEvaluationStrategy strategy = dynSem.get();
+        List<ILanguageImpl> unload = strategy.loaded();
+        if (args.length == 1) {
+            String id = args[0].trim();
+            unload = unload.stream()
+                .filter(lang -> lang.id().toString().equals(id) || lang.id().id.equals(id))
+                .collect(Collectors.toList());
+            if (unload.isEmpty()) {
+                return new ExceptionResult(
+                    new MetaborgException("No interpreter is loaded for language " + id));
+            }
+        }
+        unload.forEach(strategy::unload);
+
+        String message = "Unloaded " + unload.size() + " interpreter(s)";
+        return (visitor) -> visitor.visitMessage(new StyledText(message));
+    }
+}
@@ -2,25 +2,42 @@ package org.metaborg.spoofax.shell.client.console.impl;
 
 import java.io.IOException;
 
+import org.metaborg.spoofax.shell.client.BackgroundResults;
 import org.metaborg.spoofax.shell.client.IDisplay;
 import org.metaborg.spoofax.shell.client.IRepl;
+import org.metaborg.spoofax.shell.core.EvaluationExecutor;
 import org.metaborg.spoofax.shell.invoker.ICommandInvoker;
 import org.metaborg.spoofax.shell.services.IEditorServices;
 
 import com.google.inject.Inject;
+import com.google.inject.Provider;
+
+// CHECKSTYLE.OFF: IllegalImport - There is no public API for handling Ctrl-C (SIGINT).
+import sun.misc.Signal;
+import sun.misc.SignalHandler;
+// CHECKSTYLE.ON: IllegalImport
 
 /**
  * A console based REPL.
  *
  * It uses a GNU Readline-like input buffer with multiline editing capabilities, keyboard shortcuts
- * and persistent history. ANSI color codes are used to display colors.
+ * and persistent history. ANSI color codes are used to display colors. Pressing Ctrl-C while
+ * evaluating cancels the evaluation and returns to the prompt. Pressing it while nothing can be
+ * cancelled, such as while parsing, analyzing or running a command, exits the shell as usual.
  */
 public class ConsoleRepl implements IRepl {
+    private static final Signal INTERRUPT = new Signal("INT");
+    // The exit status of a process that is killed by SIGINT (128 + 2).
+    private static final int EXIT_INTERRUPTED = 130;
+
     private final ICommandInvoker invoker;
     private final TerminalUserInterface iface;
     private final IDisplay display;
     private boolean running;
-    private final IEditorServices services;
+    private final Provider<IEditorServices> services;
+    private final EvaluationExecutor executor;
+    private BackgroundResults background;
+    private SignalHandler previousInterrupt;
 
     /**
      * Instantiates a new ConsoleRepl.
@@ -32,15 +49,33 @@ public class ConsoleRepl implements IRepl {
      * @param invoker
      *            The {@link ICommandInvoker} for executing user input.
      * @param services
-     *            The {@link IEditorServices} for requesting editor features.
+     *            The {@link IEditorServices} for requesting editor features, which are only
+     *            created when they are first requested.
+     * @param executor
+     *            The {@link EvaluationExecutor} of which evaluations are cancelled on Ctrl-C.
      */
     @Inject
     public ConsoleRepl(TerminalUserInterface iface, IDisplay display, ICommandInvoker invoker,
-            IEditorServices services) {
+            Provider<IEditorServices> services, EvaluationExecutor executor) {
         this.invoker = invoker;
         this.iface = iface;
         this.display = display;
         this.services = services;
+        this.executor = executor;
+    }
+
+    /**
+     * Set the {@link BackgroundResults}, such as the outcome of loading or warming up a language in
+     * the background. They are shown above the prompt as soon as they are posted, or before the
+     * next prompt when they are posted while evaluating.
+     *
+     * @param background
+     *            The {@link BackgroundResults}.
+     */
+    @Inject(optional = true)
+    public void setBackgroundResults(BackgroundResults background) {
+        this.background = background;
+        background.setListener(() -> iface.displayAbovePrompt(() -> background.showAll(display)));
     }
 
     /**
@@ -63,7 +98,12 @@ public class ConsoleRepl implements IRepl {
      *            The input to evaluate.
      */
     public void runOnce(String input) {
-        eval(input).accept(display);
+        iface.setInterruptible(true);
+        try {
+            eval(input).accept(display);
+        } finally {
+            iface.setInterruptible(false);
+        }
     }
 
     /**
@@ -73,18 +113,53 @@ public class ConsoleRepl implements IRepl {
      * @see ConsoleRepl#setRunning(boolean)
      */
     public void run() {
+        previousInterrupt = handleInterrupt(this::interrupt);
         try {
             this.iface.history().loadFromDisk();
 
             String input;
             setRunning(true);
-            while (running && (input = this.iface.getInput()) != null) {
+            while (running && (input = nextInput()) != null) {
                 runOnce(input);
             }
 
             this.iface.history().persistToDisk();
         } catch (IOException e) {
             this.display.visitException(e);
+        } finally {
+            handleInterrupt(previousInterrupt);
+        }
+    }
+
+    private void interrupt(Signal signal) {
+        if (executor.cancel()) {
+            return;
+        }
+        try {
+            previousInterrupt.handle(signal);
+        } catch (UnsupportedOperationException e) {
+            // The previous handler is a native one, such as the default handler.
+            System.exit(EXIT_INTERRUPTED);
+        }
+    }
+
+    private String nextInput() {
+        // Results posted while evaluating are shown here, below the output of the evaluation.
+        if (background != null) {
+            background.showAll(display);
+        }
+        return this.iface.getInput();
+    }
+
+    private SignalHandler handleInterrupt(SignalHandler handler) {
+        if (handler == null) {
+            return null;
+        }
+        try {
+            return Signal.handle(INTERRUPT, handler);
+        } catch (IllegalArgumentException e) {
+            // The JVM does not allow handling SIGINT (e.g. with -Xrs), so Ctrl-C keeps exiting.
+            return null;
         }
     }
 
@@ -95,7 +170,7 @@ public class ConsoleRepl implements IRepl {
 
     @Override
     public IEditorServices getServices() {
-        return this.services;
+        return this.services.get();
     }
 
 }
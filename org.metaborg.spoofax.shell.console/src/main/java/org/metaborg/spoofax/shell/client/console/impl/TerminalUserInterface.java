@@ -11,12 +11,15 @@ import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.fusesource.jansi.Ansi;
+import org.metaborg.core.messages.IMessage;
 import org.metaborg.core.style.IStyle;
+import org.metaborg.spoofax.shell.client.HiddenMessages;
 import org.metaborg.spoofax.shell.client.IDisplay;
 import org.metaborg.spoofax.shell.client.IInputHistory;
 import org.metaborg.spoofax.shell.output.StyledText;
@@ -25,6 +28,7 @@ import com.google.inject.Inject;
 import com.google.inject.name.Named;
 
 import jline.console.ConsoleReader;
+import jline.console.UserInterruptException;
 
 /**
  * A terminal UI, offering a way of entering input and implementing {@link IDisplay} to
@@ -38,6 +42,8 @@ public class TerminalUserInterface implements IDisplay {
     private final IInputHistory hist;
     private StyledText prompt;
     private StyledText continuationPrompt;
+    private boolean reading;
+    private HiddenMessages hidden;
 
     /**
      * @param reader
@@ -70,6 +76,27 @@ public class TerminalUserInterface implements IDisplay {
         this.setContinuationPrompt(new StyledText("[...]: "));
     }
 
+    /**
+     * Set the {@link HiddenMessages} in which the messages of a failure that are not shown are
+     * kept. When not set, they are dropped.
+     *
+     * @param hidden
+     *            The {@link HiddenMessages}.
+     */
+    @Inject(optional = true)
+    public void setHiddenMessages(HiddenMessages hidden) {
+        this.hidden = hidden;
+    }
+
+    @Override
+    public boolean keepHiddenMessages(List<IMessage> messages) {
+        if (hidden == null) {
+            return false;
+        }
+        hidden.keep(messages);
+        return true;
+    }
+
     /**
      * Save this line as the end of the multiline input.
      *
@@ -103,12 +130,14 @@ public class TerminalUserInterface implements IDisplay {
     /**
      * Get input from the user. This method blocks until the user presses the Return key.
      *
-     * @return The input as typed by the user, or {@code null} in case of an exception.
+     * @return The input as typed by the user, an empty string when the user pressed Ctrl-C, or
+     *         {@code null} in case of an exception.
      */
     public String getInput() {
         String input = null;
         String lastLine;
         reader.setPrompt(ansi(prompt));
+        setReading(true);
         try {
             // While the input is not empty, keep asking.
             while ((lastLine = reader.readLine()) != null && lastLine.trim().length() > 0) {
@@ -120,13 +149,69 @@ public class TerminalUserInterface implements IDisplay {
             input = lastLine == null ? null : lines.stream().collect(Collectors.joining("\n"));
             // Clear the lines for next input.
             lines.clear();
+        } catch (UserInterruptException e) {
+            // Ctrl-C discards the input typed so far, but keeps the REPL running.
+            lines.clear();
+            input = "";
         } catch (IOException e) {
             err.println("An error occured: " + e.getMessage() + "\nExiting...");
             err.flush();
+        } finally {
+            setReading(false);
         }
         return input;
     }
 
+    private synchronized void setReading(boolean reading) {
+        this.reading = reading;
+    }
+
+    /**
+     * Display output from another thread while {@link #getInput()} waits for the user, such as the
+     * outcome of work done in the background. The line that is being typed is cleared, the output
+     * is displayed in its place, and the prompt and the input typed so far are drawn again below
+     * it.
+     *
+     * @param display
+     *            Displays the output on this user interface.
+     * @return {@code true} if the output was displayed, or {@code false} if no input is being
+     *         read, in which case nothing is displayed, so that the output does not end up in the
+     *         middle of the results of the REPL.
+     */
+    public synchronized boolean displayAbovePrompt(Runnable display) {
+        if (!reading) {
+            return false;
+        }
+        out.print('\r');
+        out.print(Ansi.ansi().eraseLine());
+        out.flush();
+        display.run();
+        try {
+            reader.redrawLine();
+            reader.flush();
+        } catch (IOException e) {
+            err.println("An error occured: " + e.getMessage());
+            err.flush();
+        }
+        return true;
+    }
+
+    /**
+     * Set whether Ctrl-C raises an interrupt signal, which is what should happen while evaluating.
+     * Otherwise, Ctrl-C is read as input and discards the input typed so far.
+     *
+     * @param interruptible
+     *            {@code true} to let Ctrl-C raise an interrupt signal, {@code false} to read it as
+     *            input.
+     */
+    public void setInterruptible(boolean interruptible) {
+        if (interruptible) {
+            reader.getTerminal().enableInterruptCharacter();
+        } else {
+            reader.getTerminal().disableInterruptCharacter();
+        }
+    }
+
     /**
      * Return the {@link IInputHistory} kept by this user interface.
      *
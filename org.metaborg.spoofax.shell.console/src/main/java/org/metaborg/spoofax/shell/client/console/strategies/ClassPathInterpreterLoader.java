@@ -37,6 +37,11 @@ public class ClassPathInterpreterLoader implements IInterpreterLoader {
 		}
 	}
 
+	@Override
+	public String interpreterPackage(ILanguageImpl langImpl) throws MetaborgException {
+		return targetPackage(loadDynSemProperties(langImpl));
+	}
+
 	private static String langName(Properties props) {
 		return props.getProperty("source.langname");
 	}
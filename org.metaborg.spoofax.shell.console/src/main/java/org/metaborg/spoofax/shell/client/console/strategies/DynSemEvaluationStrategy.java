@@ -1,6 +1,12 @@
 package org.metaborg.spoofax.shell.client.console.strategies;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.metaborg.core.MetaborgException;
 import org.metaborg.core.context.IContext;
@@ -8,25 +14,75 @@ import org.metaborg.core.language.ILanguageImpl;
 import org.metaborg.meta.lang.dynsem.interpreter.DynSemVM;
 import org.metaborg.meta.lang.dynsem.interpreter.nodes.rules.RuleResult;
 import org.metaborg.spoofax.core.terms.ITermFactoryService;
+import org.metaborg.spoofax.shell.core.EvaluationAbortedException;
+import org.metaborg.spoofax.shell.core.EvaluationExecutor;
 import org.metaborg.spoofax.shell.core.IEvaluationStrategy;
+import org.metaborg.spoofax.shell.core.LanguageArtifact;
 import org.spoofax.interpreter.core.Tools;
 import org.spoofax.interpreter.terms.IStrategoAppl;
 import org.spoofax.interpreter.terms.IStrategoTerm;
 import org.spoofax.interpreter.terms.ITermFactory;
 
 import com.google.inject.Inject;
+import com.google.inject.name.Named;
 
 /**
  * An {@link IEvaluationStrategy} for DynSem-based languages.
+ *
+ * <p>
+ * The {@link DynSemVM} and the read/write semantic components of a language are kept in a bounded
+ * cache, so that switching back to a recently used language does not recreate its interpreter.
+ * The least recently used language is evicted when the cache is full, or explicitly with
+ * {@link #unload(ILanguageImpl)}.
+ * </p>
+ *
+ * <p>
+ * Evaluations run on the {@link EvaluationExecutor}, so that they can time out or be cancelled.
+ * The semantic components from before an evaluation are its snapshot: DynSem terms are immutable
+ * and its maps are persistent, so a rule returns updated components instead of changing the ones
+ * it is given, and it is given a copy of the array that holds them. The components are only
+ * replaced when the evaluation completes, so an aborted evaluation rolls back to the snapshot and
+ * the interpreter is kept. Only when the abandoned evaluation could not be
+ * {@link EvaluationAbortedException#stopped() stopped}, and thus still runs on the interpreter,
+ * the language is {@link #unload(ILanguageImpl) unloaded}. Components of native sorts that a
+ * language implements with mutable Java objects are not copied, so changes to them are not rolled
+ * back.
+ * </p>
+ *
+ * <p>
+ * Native operations of a language may have side effects that cannot be seen from the outside, so
+ * DynSem evaluations are never memoized.
+ * </p>
+ *
+ * <p>
+ * The result of an evaluation is converted to an {@link IStrategoTerm} by a
+ * {@link DynSemTermConverter}, so that it is only rendered as text when it is displayed.
+ * </p>
  */
 public class DynSemEvaluationStrategy implements IEvaluationStrategy {
+	private static final float LOAD_FACTOR = 0.75f;
+
 	private final IInterpreterLoader interpLoader;
+	private final EvaluationExecutor executor;
 	private final ITermFactory termFactory;
+	private final DynSemTermConverter converter;
 	private final IStrategoAppl initAppl;
+	private final int maxVMs;
+	private final Map<ILanguageImpl, Session> sessions;
+	// Read by the profiler while an evaluation holds the lock, so kept outside of the sessions.
+	private final Map<ILanguageImpl, String> packages;
 
-	private DynSemVM vm;
-	private Object[] rwSemanticComponents;
-	private ILanguageImpl langImpl;
+	/**
+	 * The interpreter of a language, together with its current semantic components.
+	 */
+	private static final class Session {
+		private final DynSemVM vm;
+		private Object[] rwSemanticComponents;
+
+		private Session(DynSemVM vm) {
+			this.vm = vm;
+		}
+	}
 
 	/**
 	 * Construct a new {@link DynSemEvaluationStrategy}.
@@ -38,13 +94,58 @@ public class DynSemEvaluationStrategy implements IEvaluationStrategy {
 	 *            The loader for a generated DynSem interpreter.
 	 * @param termFactoryService
 	 *            The {@link ITermFactoryService} for retrieving an {@link ITermFactory}.
+	 * @param executor
+	 *            The {@link EvaluationExecutor} to run evaluations on.
+	 * @param maxVMs
+	 *            The maximum number of languages of which the interpreter is kept.
 	 */
 	@Inject
 	public DynSemEvaluationStrategy(IInterpreterLoader interpLoader,
-			ITermFactoryService termFactoryService) {
+			ITermFactoryService termFactoryService, EvaluationExecutor executor,
+			@Named("dynSemVMCacheSize") int maxVMs) {
+		this(interpLoader, termFactoryService.getGeneric(), executor, maxVMs);
+	}
+
+	private DynSemEvaluationStrategy(IInterpreterLoader interpLoader, ITermFactory termFactory,
+			EvaluationExecutor executor, int maxVMs) {
 		this.interpLoader = interpLoader;
-		this.termFactory = termFactoryService.getGeneric();
+		this.executor = executor;
+		this.termFactory = termFactory;
+		this.maxVMs = maxVMs;
+		this.converter = new DynSemTermConverter(termFactory);
 		this.initAppl = termFactory.makeAppl(termFactory.makeConstructor("ShellInit", 0));
+		this.packages = new ConcurrentHashMap<>();
+		this.sessions = new LinkedHashMap<ILanguageImpl, Session>(maxVMs, LOAD_FACTOR, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<ILanguageImpl, Session> eldest) {
+				if (size() > Math.max(maxVMs, 1)) {
+					packages.remove(eldest.getKey());
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * @return The languages of which an interpreter is currently kept, least recently used first.
+	 */
+	public synchronized List<ILanguageImpl> loaded() {
+		return new ArrayList<>(sessions.keySet());
+	}
+
+	/**
+	 * Drop the interpreter and semantic components of a language.
+	 *
+	 * @param langImpl
+	 *            The language to unload.
+	 * @return {@code true} if an interpreter was loaded for the language.
+	 */
+	public synchronized boolean unload(ILanguageImpl langImpl) {
+		packages.remove(langImpl);
+		return sessions.remove(langImpl) != null;
 	}
 
 	@Override
@@ -52,17 +153,62 @@ public class DynSemEvaluationStrategy implements IEvaluationStrategy {
 		return "dynsem";
 	}
 
+	/**
+	 * Unload the interpreter of a language when it was regenerated. Its semantic components
+	 * belong to the old interpreter, so they cannot be kept.
+	 */
+	@Override
+	public void invalidate(ILanguageImpl langImpl, Set<LanguageArtifact> changed) {
+		if (changed.contains(LanguageArtifact.DYNSEM)) {
+			unload(langImpl);
+		}
+	}
+
+	/**
+	 * Name the frames of the classes of the generated interpreter of a language, which implement
+	 * its rules and are named after them.
+	 */
 	@Override
-	public IStrategoTerm evaluate(IStrategoTerm term, IContext context) throws MetaborgException {
-		ensureVMAndInit(context.language());
-		Callable<RuleResult> rule = vm.getRuleCallable("shell", toAppl(term), rwSemanticComponents);
+	public String frameName(ILanguageImpl langImpl, StackTraceElement frame) {
+		String interpreterPackage = packages.get(langImpl);
+		String className = frame.getClassName();
+		if (interpreterPackage == null || !className.startsWith(interpreterPackage + '.')) {
+			return null;
+		}
+		return className.substring(interpreterPackage.length() + 1) + '.' + frame.getMethodName();
+	}
+
+	/**
+	 * Create a {@link DynSemEvaluationStrategy} with its own {@link EvaluationExecutor} and its own
+	 * interpreters. An interpreter cannot be shared between threads and its semantic components
+	 * belong to it, so the new instance initializes the semantic components of each language anew.
+	 *
+	 * @return The new {@link DynSemEvaluationStrategy}.
+	 */
+	@Override
+	public IEvaluationStrategy fork() {
+		return new DynSemEvaluationStrategy(interpLoader, termFactory,
+				new EvaluationExecutor(executor.timeout()), maxVMs);
+	}
+
+	@Override
+	public synchronized IStrategoTerm evaluate(IStrategoTerm term, IContext context)
+			throws MetaborgException {
+		Session session = ensureVMAndInit(context.language());
+		Callable<RuleResult> rule = session.vm.getRuleCallable("shell", toAppl(term),
+				session.rwSemanticComponents.clone());
+		RuleResult result;
 		try {
-			RuleResult result = rule.call();
-			rwSemanticComponents = result.components;
-			return termFactory.makeString(result.result.toString());
-		} catch (Exception e) {
-			throw new MetaborgException(e);
+			result = executor.execute(rule);
+		} catch (EvaluationAbortedException e) {
+			if (!e.stopped()) {
+				// An interpreter cannot be shared with the abandoned evaluation.
+				unload(context.language());
+			}
+			throw e;
 		}
+		session.rwSemanticComponents = result.components;
+		return converter.convert(result.result);
 	}
 
 	private IStrategoAppl toAppl(IStrategoTerm term) throws MetaborgException {
@@ -74,17 +220,19 @@ public class DynSemEvaluationStrategy implements IEvaluationStrategy {
 		return (IStrategoAppl) term;
 	}
 
-	private void ensureVMAndInit(ILanguageImpl langImpl) throws MetaborgException {
-		if (vm == null || !langImpl.equals(this.langImpl)) {
-			rwSemanticComponents = null;
-			vm = interpLoader.createInterpreterForLanguage(langImpl);
-			this.langImpl = langImpl;
+	private Session ensureVMAndInit(ILanguageImpl langImpl) throws MetaborgException {
+		Session session = sessions.get(langImpl);
+		if (session == null) {
+			session = new Session(interpLoader.createInterpreterForLanguage(langImpl));
+			sessions.put(langImpl, session);
+			packages.put(langImpl, interpLoader.interpreterPackage(langImpl));
 		}
-		if (rwSemanticComponents == null) {
+		if (session.rwSemanticComponents == null) {
 			try {
-				Callable<RuleResult> initRule = vm.getRuleCallable("init", initAppl, new Object[0]);
+				Callable<RuleResult> initRule =
+						session.vm.getRuleCallable("init", initAppl, new Object[0]);
 				RuleResult ruleResult = initRule.call();
-				rwSemanticComponents = ruleResult.components;
+				session.rwSemanticComponents = ruleResult.components;
 			} catch (Exception e) {
 				throw new MetaborgException("No shell initialization rule found.\n"
 						+ "Initialize the semantic components for the"
@@ -92,6 +240,7 @@ public class DynSemEvaluationStrategy implements IEvaluationStrategy {
 						+ "\"ShellInit() -init-> ShellInit() :: <RW>*\".", e);
 			}
 		}
+		return session;
 	}
 
 }
\ No newline at end of file
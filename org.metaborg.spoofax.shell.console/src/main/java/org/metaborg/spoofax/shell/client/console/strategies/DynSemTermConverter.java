@@ -0,0 +1,160 @@
+package org.metaborg.spoofax.shell.client.console.strategies;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.metaborg.meta.lang.dynsem.interpreter.terms.IConTerm;
+import org.metaborg.meta.lang.dynsem.interpreter.terms.IListTerm;
+import org.metaborg.meta.lang.dynsem.interpreter.terms.ITerm;
+import org.metaborg.meta.lang.dynsem.interpreter.terms.ITupleTerm;
+import org.spoofax.interpreter.terms.IStrategoTerm;
+import org.spoofax.interpreter.terms.ITermFactory;
+
+/**
+ * Converts the runtime values of a DynSem interpreter to {@link IStrategoTerm}s, so that the
+ * result of an evaluation keeps its structure instead of being flattened to a string.
+ *
+ * <p>
+ * The conversion uses an explicit stack, so that deeply nested values (e.g. long cons-lists) do
+ * not overflow the call stack. A value that occurs more than once in the result is converted only
+ * once and its {@link IStrategoTerm} is shared, and values that still carry the term they were
+ * created from reuse that term. Values that have no term representation (e.g. closures) are
+ * converted to a string.
+ * </p>
+ */
+public class DynSemTermConverter {
+	private final ITermFactory termFactory;
+
+	/**
+	 * A value of which the children are being converted.
+	 */
+	private static final class Frame {
+		private final Object value;
+		private final Object[] children;
+		private final IStrategoTerm[] converted;
+		private int next;
+
+		private Frame(Object value, Object[] children) {
+			this.value = value;
+			this.children = children;
+			this.converted = new IStrategoTerm[children.length];
+		}
+	}
+
+	/**
+	 * Construct a new {@link DynSemTermConverter}.
+	 *
+	 * @param termFactory
+	 *            The {@link ITermFactory} to create the terms with.
+	 */
+	public DynSemTermConverter(ITermFactory termFactory) {
+		this.termFactory = termFactory;
+	}
+
+	/**
+	 * Convert a DynSem value to an {@link IStrategoTerm}.
+	 *
+	 * @param value
+	 *            The value to convert.
+	 * @return The converted term.
+	 */
+	public IStrategoTerm convert(Object value) {
+		Map<Object, IStrategoTerm> shared = new IdentityHashMap<>();
+		Deque<Frame> stack = new ArrayDeque<>();
+		IStrategoTerm result = leaf(value, shared);
+		if (result != null) {
+			return result;
+		}
+		stack.push(new Frame(value, children(value)));
+
+		while (!stack.isEmpty()) {
+			Frame frame = stack.peek();
+			if (frame.next < frame.children.length) {
+				next(frame, stack, shared);
+				continue;
+			}
+
+			stack.pop();
+			result = build(frame.value, frame.converted);
+			shared.put(frame.value, result);
+			Frame parent = stack.peek();
+			if (parent != null) {
+				parent.converted[parent.next++] = result;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Convert the next child of a frame, or push a frame for it if its children have to be
+	 * converted first.
+	 */
+	private void next(Frame frame, Deque<Frame> stack, Map<Object, IStrategoTerm> shared) {
+		Object child = frame.children[frame.next];
+		IStrategoTerm term = leaf(child, shared);
+		if (term == null) {
+			stack.push(new Frame(child, children(child)));
+		} else {
+			frame.converted[frame.next++] = term;
+		}
+	}
+
+	/**
+	 * Convert a value without children, or a value that was converted before.
+	 *
+	 * @return The converted term, or {@code null} if the children of the value have to be
+	 *         converted first.
+	 */
+	private IStrategoTerm leaf(Object value, Map<Object, IStrategoTerm> shared) {
+		if (value instanceof IStrategoTerm) {
+			return (IStrategoTerm) value;
+		}
+		if (value instanceof ITerm) {
+			IStrategoTerm term = shared.get(value);
+			if (term != null) {
+				return term;
+			}
+			ITerm dynSemTerm = (ITerm) value;
+			if (dynSemTerm.hasStrategoTerm()) {
+				return dynSemTerm.getStrategoTerm();
+			}
+			return value instanceof IConTerm || value instanceof ITupleTerm
+				|| value instanceof IListTerm ? null : termFactory.makeString(value.toString());
+		}
+		if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+			return termFactory.makeInt(((Number) value).intValue());
+		}
+		if (value instanceof Double || value instanceof Float) {
+			return termFactory.makeReal(((Number) value).doubleValue());
+		}
+		if (value instanceof Boolean) {
+			String name = (Boolean) value ? "True" : "False";
+			return termFactory.makeAppl(termFactory.makeConstructor(name, 0));
+		}
+		return termFactory.makeString(String.valueOf(value));
+	}
+
+	private Object[] children(Object value) {
+		if (value instanceof IConTerm) {
+			return ((IConTerm) value).allSubterms();
+		}
+		if (value instanceof ITupleTerm) {
+			return ((ITupleTerm) value).allSubterms();
+		}
+		return ((IListTerm<?>) value).toArray();
+	}
+
+	private IStrategoTerm build(Object value, IStrategoTerm[] children) {
+		if (value instanceof IConTerm) {
+			IConTerm con = (IConTerm) value;
+			return termFactory.makeAppl(termFactory.makeConstructor(con.name(), children.length),
+					children);
+		}
+		if (value instanceof ITupleTerm) {
+			return termFactory.makeTuple(children);
+		}
+		return termFactory.makeList(children);
+	}
+}
@@ -20,4 +20,16 @@ public interface IInterpreterLoader {
      */
     DynSemVM createInterpreterForLanguage(ILanguageImpl langImpl) throws MetaborgException;
 
+    /**
+     * Returns the Java package of the generated DynSem interpreter for the given language
+     * implementation, which contains the classes that implement its rules.
+     *
+     * @param langImpl
+     *            A language implementation with a DynSem specification.
+     * @return The name of the package.
+     * @throws MetaborgException
+     *             When the configuration of the interpreter cannot be read.
+     */
+    String interpreterPackage(ILanguageImpl langImpl) throws MetaborgException;
+
 }
\ No newline at end of file
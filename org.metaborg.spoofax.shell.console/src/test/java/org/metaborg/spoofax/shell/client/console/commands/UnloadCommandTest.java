@@ -0,0 +1,75 @@
+package org.metaborg.spoofax.shell.client.console.commands;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.language.LanguageIdentifier;
+import org.metaborg.core.language.LanguageVersion;
+import org.metaborg.spoofax.shell.client.console.strategies.DynSemEvaluationStrategy;
+import org.metaborg.spoofax.shell.output.IResultVisitor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+/**
+ * Tests the functionality of the {@link UnloadCommand}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class UnloadCommandTest {
+    @Mock private DynSemEvaluationStrategy dynSem;
+    @Mock private ILanguageImpl lang1;
+    @Mock private ILanguageImpl lang2;
+    @Mock private IResultVisitor visitor;
+
+    private UnloadCommand unloadCommand;
+
+    /**
+     * Set up a strategy with two loaded languages.
+     */
+    @Before
+    public void setup() {
+        LanguageVersion version = new LanguageVersion(0, 0, 0, "snap");
+        when(lang1.id()).thenReturn(new LanguageIdentifier("org.borg", "one", version));
+        when(lang2.id()).thenReturn(new LanguageIdentifier("org.borg", "two", version));
+        when(dynSem.loaded()).thenReturn(Arrays.asList(lang1, lang2));
+        unloadCommand = new UnloadCommand(() -> dynSem);
+    }
+
+    /**
+     * Test unloading all languages.
+     */
+    @Test
+    public void testUnloadAll() {
+        unloadCommand.execute().accept(visitor);
+        verify(dynSem).unload(lang1);
+        verify(dynSem).unload(lang2);
+        verify(visitor).visitMessage(any());
+    }
+
+    /**
+     * Test unloading a language by its identifier.
+     */
+    @Test
+    public void testUnloadOne() {
+        unloadCommand.execute("two").accept(visitor);
+        verify(dynSem, never()).unload(lang1);
+        verify(dynSem).unload(lang2);
+    }
+
+    /**
+     * Test that an unknown language results in an exception.
+     */
+    @Test
+    public void testUnloadUnknown() {
+        unloadCommand.execute("three").accept(visitor);
+        verify(dynSem, never()).unload(any());
+        verify(visitor).visitException(any());
+    }
+}
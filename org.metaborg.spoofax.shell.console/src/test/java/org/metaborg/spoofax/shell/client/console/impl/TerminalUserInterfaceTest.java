@@ -1,7 +1,9 @@
 package org.metaborg.spoofax.shell.client.console.impl;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.ByteArrayInputStream;
@@ -9,6 +11,12 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Test;
 import org.metaborg.spoofax.shell.output.StyledText;
@@ -25,6 +33,7 @@ public class TerminalUserInterfaceTest {
     public static final String PROMPT = "<TEST>";
     public static final String CONT_PROMPT = ".TEST.";
     private static final char C_A = '\001';
+    private static final char C_C = '\003';
     public static final char C_D = '\004';
     private static final char C_E = '\005';
     private static final char ESC = '\033';
@@ -35,6 +44,8 @@ public class TerminalUserInterfaceTest {
     /* ... */ + ENTER
     /* >>> */ + "qwerty" + ENTER
     /* ... */ + ENTER;
+    private static final long TIMEOUT_MILLIS = 5000;
+    private static final long POLL_MILLIS = 10;
     private TerminalUserInterface ui;
     private ByteArrayOutputStream out;
 
@@ -83,6 +94,23 @@ public class TerminalUserInterfaceTest {
         }
     }
 
+    /**
+     * Test whether entering CTRL + C discards the input typed so far, without exiting.
+     */
+    @Test
+    public void testCtrlC() {
+        try {
+            setUp(/* >>> */"asdf" + ENTER
+            /* ... */ + "qwe" + C_C
+            /* >>> */ + "hjkl" + ENTER
+            /* ... */ + ENTER);
+            assertEquals("", ui.getInput());
+            assertEquals("hjkl", ui.getInput());
+        } catch (IOException e) {
+            fail("Should not happen");
+        }
+    }
+
     /**
      * Test keyboard shortcuts (CTRL + A, CTRL + E).
      */
@@ -178,4 +206,43 @@ public class TerminalUserInterfaceTest {
             fail("Should not happen");
         }
     }
+
+    /**
+     * Test that output from another thread is only displayed while waiting for input, and that the
+     * prompt is drawn again below it.
+     *
+     * @throws IOException
+     *             When an IO error occurs while simulating user input.
+     * @throws InterruptedException
+     *             When interrupted while waiting for the input.
+     * @throws ExecutionException
+     *             When reading the input fails.
+     */
+    @Test(timeout = TIMEOUT_MILLIS)
+    public void testDisplayAbovePrompt()
+        throws IOException, InterruptedException, ExecutionException {
+        PipedOutputStream typing = new PipedOutputStream();
+        out = new ByteArrayOutputStream();
+        Injector injector = Guice.createInjector(
+            new UserInputSimulationModule(new PipedInputStream(typing), out));
+        ui = injector.getInstance(TerminalUserInterface.class);
+        ui.setPrompt(new StyledText(PROMPT));
+        assertFalse(ui.displayAbovePrompt(() -> fail("Should not display without a prompt")));
+
+        ExecutorService reading = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> input = reading.submit(ui::getInput);
+            while (!ui.displayAbovePrompt(() -> ui.displayStyledText(new StyledText("loaded")))) {
+                Thread.sleep(POLL_MILLIS);
+            }
+            typing.write(("asdf" + ENTER + ENTER).getBytes("UTF-8"));
+            typing.flush();
+            assertEquals("asdf", input.get());
+        } finally {
+            reading.shutdownNow();
+        }
+        String output = out.toString("UTF-8");
+        assertTrue(output.contains("loaded"));
+        assertTrue(output.indexOf("loaded") < output.lastIndexOf(PROMPT));
+    }
 }
@@ -0,0 +1,93 @@
+package org.metaborg.spoofax.shell.client.console.strategies;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.Test;
+import org.metaborg.meta.lang.dynsem.interpreter.terms.IConTerm;
+import org.metaborg.meta.lang.dynsem.interpreter.terms.IListTerm;
+import org.metaborg.meta.lang.dynsem.interpreter.terms.ITerm;
+import org.spoofax.interpreter.terms.IStrategoTerm;
+import org.spoofax.interpreter.terms.ITermFactory;
+import org.spoofax.terms.TermFactory;
+
+/**
+ * Tests the conversion of DynSem values by the {@link DynSemTermConverter}.
+ */
+public class DynSemTermConverterTest {
+    private static final int DEPTH = 20_000;
+
+    private final ITermFactory termFactory = new TermFactory();
+    private final DynSemTermConverter converter = new DynSemTermConverter(termFactory);
+
+    private IConTerm con(String name, Object... children) {
+        IConTerm con = mock(IConTerm.class);
+        when(con.name()).thenReturn(name);
+        when(con.allSubterms()).thenReturn(children);
+        return con;
+    }
+
+    /**
+     * Test that primitive values are converted to their Stratego counterparts.
+     */
+    @Test
+    public void testPrimitives() {
+        assertEquals(termFactory.makeInt(1), converter.convert(1));
+        assertEquals(termFactory.makeReal(1.5), converter.convert(1.5));
+        assertEquals(termFactory.makeString("s"), converter.convert("s"));
+        assertEquals(termFactory.makeAppl(termFactory.makeConstructor("True", 0)),
+                     converter.convert(true));
+    }
+
+    /**
+     * Test that constructors and lists keep their structure, and that a value that occurs twice
+     * is converted to the same term.
+     */
+    @Test
+    public void testStructureAndSharing() {
+        IConTerm leaf = con("Leaf", 1);
+        @SuppressWarnings("unchecked")
+        IListTerm<Object> list = mock(IListTerm.class);
+        when(list.toArray()).thenReturn(new Object[] { leaf, "s" });
+
+        IStrategoTerm term = converter.convert(con("Node", leaf, list));
+        assertEquals("Node(Leaf(1),[Leaf(1),\"s\"])", term.toString());
+        assertSame(term.getSubterm(0), term.getSubterm(1).getSubterm(0));
+    }
+
+    /**
+     * Test that a value that carries its original term is converted to that term.
+     */
+    @Test
+    public void testOriginalTerm() {
+        IStrategoTerm original = termFactory.makeString("original");
+        ITerm term = mock(IConTerm.class);
+        when(term.hasStrategoTerm()).thenReturn(true);
+        when(term.getStrategoTerm()).thenReturn(original);
+        assertSame(original, converter.convert(term));
+    }
+
+    /**
+     * Test that deeply nested values do not overflow the stack.
+     */
+    @Test
+    public void testDeepNesting() {
+        Object value = 0;
+        for (int i = 0; i < DEPTH; i++) {
+            IConTerm con = mock(IConTerm.class);
+            when(con.name()).thenReturn("S");
+            when(con.allSubterms()).thenReturn(new Object[] { value });
+            value = con;
+        }
+
+        IStrategoTerm term = converter.convert(value);
+        int depth = 0;
+        while (term.getSubtermCount() > 0) {
+            term = term.getSubterm(0);
+            depth++;
+        }
+        assertEquals(DEPTH, depth);
+    }
+}
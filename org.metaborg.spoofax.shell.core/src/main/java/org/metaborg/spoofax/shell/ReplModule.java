@@ -1,29 +1,52 @@
 package org.metaborg.spoofax.shell;
 
+import java.nio.file.Paths;
+import java.util.UUID;
+
 import org.apache.commons.vfs2.FileObject;
 import org.metaborg.core.MetaborgException;
 import org.metaborg.core.project.IProject;
 import org.metaborg.core.project.ISimpleProjectService;
 import org.metaborg.core.resource.IResourceService;
 import org.metaborg.core.resource.ResourceService;
+import org.metaborg.spoofax.shell.client.BackgroundResults;
+import org.metaborg.spoofax.shell.client.HiddenMessages;
 import org.metaborg.spoofax.shell.client.IDisplay;
 import org.metaborg.spoofax.shell.client.IRepl;
 import org.metaborg.spoofax.shell.commands.DefaultCommand;
 import org.metaborg.spoofax.shell.commands.HelpCommand;
+import org.metaborg.spoofax.shell.commands.ICommandFactory;
 import org.metaborg.spoofax.shell.commands.IReplCommand;
+import org.metaborg.spoofax.shell.commands.LanguageArchiveCache;
 import org.metaborg.spoofax.shell.commands.LanguageCommand;
+import org.metaborg.spoofax.shell.commands.LanguageDiscoveryCache;
+import org.metaborg.spoofax.shell.commands.LanguageWatcher;
+import org.metaborg.spoofax.shell.commands.LoadedLanguages;
+import org.metaborg.spoofax.shell.commands.MessagesCommand;
+import org.metaborg.spoofax.shell.commands.RestoreEnvironmentCommand;
+import org.metaborg.spoofax.shell.commands.SaveEnvironmentCommand;
+import org.metaborg.spoofax.shell.commands.StatsCommand;
+import org.metaborg.spoofax.shell.commands.TimeoutCommand;
+import org.metaborg.spoofax.shell.commands.UseCommand;
+import org.metaborg.spoofax.shell.core.EvaluationExecutor;
 import org.metaborg.spoofax.shell.core.IEvaluationStrategy;
 import org.metaborg.spoofax.shell.core.StrategoEvaluationStrategy;
 import org.metaborg.spoofax.shell.functions.ATransformFunction;
 import org.metaborg.spoofax.shell.functions.AnalyzeFunction;
 import org.metaborg.spoofax.shell.functions.EvaluateFunction;
+import org.metaborg.spoofax.shell.functions.EvaluationMemo;
 import org.metaborg.spoofax.shell.functions.FailableFunction;
 import org.metaborg.spoofax.shell.functions.IFunctionFactory;
+import org.metaborg.spoofax.shell.functions.IParseCache;
 import org.metaborg.spoofax.shell.functions.InputFunction;
+import org.metaborg.spoofax.shell.functions.LruParseCache;
 import org.metaborg.spoofax.shell.functions.OpenInputFunction;
 import org.metaborg.spoofax.shell.functions.PTransformFunction;
 import org.metaborg.spoofax.shell.functions.ParseFunction;
+import org.metaborg.spoofax.shell.functions.StartSymbolSelector;
 import org.metaborg.spoofax.shell.functions.StyleFunction;
+import org.metaborg.spoofax.shell.functions.WarmUp;
+import org.metaborg.spoofax.shell.functions.WarmUpFunctionFactory;
 import org.metaborg.spoofax.shell.invoker.ICommandInvoker;
 import org.metaborg.spoofax.shell.invoker.SpoofaxCommandInvoker;
 import org.metaborg.spoofax.shell.output.AnalyzeResult;
@@ -40,6 +63,8 @@ import org.metaborg.spoofax.shell.services.IEditorServices;
 import org.metaborg.spoofax.shell.services.IServicesStrategyFactory;
 import org.metaborg.spoofax.shell.services.SpoofaxEditorServices;
 import org.metaborg.spoofax.shell.services.SpoofaxServicesStrategyFactory;
+import org.metaborg.spoofax.shell.statistics.EvaluationProfiler;
+import org.metaborg.spoofax.shell.statistics.PipelineStatistics;
 
 import com.google.common.io.Files;
 import com.google.inject.AbstractModule;
@@ -48,6 +73,7 @@ import com.google.inject.Singleton;
 import com.google.inject.TypeLiteral;
 import com.google.inject.assistedinject.FactoryModuleBuilder;
 import com.google.inject.multibindings.MapBinder;
+import com.google.inject.name.Named;
 import com.google.inject.name.Names;
 
 /**
@@ -58,6 +84,17 @@ import com.google.inject.name.Names;
  * (which is also an {@link IResultVisitor}).
  */
 public abstract class ReplModule extends AbstractModule {
+	private static final int PARSE_CACHE_ENTRIES = 256;
+	private static final long PARSE_CACHE_BYTES = 16L * 1024 * 1024;
+	private static final long EVALUATION_TIMEOUT = 0L;
+	private static final int EVALUATION_MEMO_ENTRIES = 1024;
+	private static final long PROFILE_INTERVAL_MICROS = 1000L;
+	private static final int WARM_UP_INPUTS = 32;
+	private static final long ARCHIVE_CACHE_BYTES = 512L * 1024 * 1024;
+	private static final String CACHE_DIRECTORY_PROPERTY = "spoofax.shell.cacheDirectory";
+	private static final long WATCH_QUIET_MILLIS = 300;
+	private static final int LOAD_THREADS = 4;
+
 	@Override
 	protected void configure() {
 		MapBinder<String, IReplCommand> commandBinder = MapBinder.newMapBinder(binder(),
@@ -68,6 +105,13 @@ public abstract class ReplModule extends AbstractModule {
 		bindEvalStrategies(evalStrategyBinder);
 		bindFactories();
 		bindEditorServices();
+		bindStatistics();
+		bindWarmUp();
+		bindLanguageLoading();
+		bindLoadThreads();
+		bindDiscoveryCache();
+		bindWatcher();
+		bindProject();
 	}
 
 	/**
@@ -79,6 +123,16 @@ public abstract class ReplModule extends AbstractModule {
 	protected void bindCommands(MapBinder<String, IReplCommand> commandBinder) {
 		commandBinder.addBinding("help").to(HelpCommand.class);
 		commandBinder.addBinding("load").to(LanguageCommand.class);
+		commandBinder.addBinding("use").to(UseCommand.class);
+		// A singleton, so that :load and :use share the loaded languages.
+		bind(LoadedLanguages.class).in(Singleton.class);
+		commandBinder.addBinding("stats").to(StatsCommand.class);
+		commandBinder.addBinding("env-save").to(SaveEnvironmentCommand.class);
+		commandBinder.addBinding("env-restore").to(RestoreEnvironmentCommand.class);
+		commandBinder.addBinding("timeout").to(TimeoutCommand.class);
+		commandBinder.addBinding("messages").to(MessagesCommand.class);
+		// A singleton, so that :messages shows the messages hidden by the display.
+		bind(HiddenMessages.class).in(Singleton.class);
 		bind(IReplCommand.class).annotatedWith(Names.named("default_command"))
 				.to(DefaultCommand.class);
 		bind(ICommandInvoker.class).to(SpoofaxCommandInvoker.class);
@@ -91,14 +145,31 @@ public abstract class ReplModule extends AbstractModule {
 	 *            The {@link MapBinder} for binding the strategies to their names.
 	 */
 	protected void bindEvalStrategies(MapBinder<String, IEvaluationStrategy> evalStrategyBinder) {
+		// A singleton, so that the environments of all languages are kept for the whole session
+		// and can be saved and restored.
+		bind(StrategoEvaluationStrategy.class).in(Singleton.class);
 		evalStrategyBinder.addBinding("stratego").to(StrategoEvaluationStrategy.class);
+
+		// A singleton, so that a running evaluation can be cancelled from the client.
+		bind(EvaluationExecutor.class).in(Singleton.class);
+		bindConstant().annotatedWith(Names.named("evaluationTimeout")).to(EVALUATION_TIMEOUT);
+
+		// A singleton, so that all evaluate functions share the remembered results.
+		bind(EvaluationMemo.class).in(Singleton.class);
+		bindConstant().annotatedWith(Names.named("evaluationMemoEntries"))
+				.to(EVALUATION_MEMO_ENTRIES);
 	}
 
 	/**
-	 * Binds implementations for the {@link IResultFactory} and the {@link IFunctionFactory}.
+	 * Binds implementations for the {@link IResultFactory}, the {@link IFunctionFactory} and the
+	 * {@link ICommandFactory}, and the {@link IParseCache} used by the created functions. Override
+	 * {@link #bindParseCache()} to change the capacity of the cache or to disable it.
 	 */
 	// CHECKSTYLE.OFF: MethodLength - There simply are many function bindings.
 	protected void bindFactories() {
+		bindParseCache();
+		bindStartSymbolSelector();
+
 		install(new FactoryModuleBuilder()
 				.implement(TransformResult.class, Names.named("parsed"),
 						TransformResult.Parsed.class)
@@ -128,9 +199,121 @@ public abstract class ReplModule extends AbstractModule {
 				.implement(new TypeLiteral<FailableFunction<ParseResult, StyleResult, IResult>>() {
 				}, StyleFunction.class).build(IFunctionFactory.class));
 		// CHECKSTYLE.ON: LineLength
+
+		install(new FactoryModuleBuilder().build(ICommandFactory.class));
 	}
 	// CHECKSTYLE.ON: MethodLength
 
+	/**
+	 * Binds the {@link IParseCache} that is shared by all {@link ParseFunction}s. A capacity of
+	 * zero entries disables caching.
+	 */
+	protected void bindParseCache() {
+		bind(IParseCache.class).to(LruParseCache.class).in(Singleton.class);
+		bindConstant().annotatedWith(Names.named("parseCacheEntries")).to(PARSE_CACHE_ENTRIES);
+		bindConstant().annotatedWith(Names.named("parseCacheBytes")).to(PARSE_CACHE_BYTES);
+	}
+
+	/**
+	 * Binds the {@link StartSymbolSelector} that remembers which start symbol works for which
+	 * input. Bind {@code parallelStartSymbols} to {@code true} to try both start symbols at once.
+	 */
+	protected void bindStartSymbolSelector() {
+		bind(StartSymbolSelector.class).in(Singleton.class);
+		bindConstant().annotatedWith(Names.named("parallelStartSymbols")).to(false);
+	}
+
+	/**
+	 * Binds the {@link PipelineStatistics} shared by all functions and the command invoker, and
+	 * the {@link EvaluationProfiler} used by {@code :profile}. Bind {@code collectStatistics} to
+	 * {@code true} to collect statistics from startup instead of after {@code :stats on}.
+	 */
+	protected void bindStatistics() {
+		bind(PipelineStatistics.class).in(Singleton.class);
+		bindConstant().annotatedWith(Names.named("collectStatistics")).to(false);
+
+		// A singleton, so that the evaluation executor reports to the profiler of the commands.
+		bind(EvaluationProfiler.class).in(Singleton.class);
+		bindConstant().annotatedWith(Names.named("profileInterval")).to(PROFILE_INTERVAL_MICROS);
+	}
+
+	/**
+	 * Binds the {@link WarmUp} that warms up a language after {@code :load}, and the
+	 * {@link WarmUpFunctionFactory} that creates its functions. Bind {@code warmUpInputs} to
+	 * {@code 0} to disable warming up.
+	 */
+	protected void bindWarmUp() {
+		// A singleton, so that loading a language cancels the warm-up of the previous one.
+		bind(WarmUp.class).in(Singleton.class);
+		bind(IFunctionFactory.class).annotatedWith(Names.named("warmUp"))
+				.to(WarmUpFunctionFactory.class);
+		bindConstant().annotatedWith(Names.named("warmUpInputs")).to(WARM_UP_INPUTS);
+	}
+
+	/**
+	 * Binds the {@link BackgroundResults} of work done in the background, such as warming up.
+	 * Bind {@code loadInBackground} to {@code true} to also load languages in the background,
+	 * which requires a client that shows the {@link BackgroundResults}.
+	 */
+	protected void bindLanguageLoading() {
+		// A singleton, so that the client shows the results posted by any background work.
+		bind(BackgroundResults.class).in(Singleton.class);
+		bindConstant().annotatedWith(Names.named("loadInBackground")).to(false);
+	}
+
+	/**
+	 * Binds {@code loadThreads}, the maximum number of languages that {@code :load} loads at the
+	 * same time when it is given several paths.
+	 */
+	protected void bindLoadThreads() {
+		bindConstant().annotatedWith(Names.named("loadThreads")).to(LOAD_THREADS);
+	}
+
+	/**
+	 * Binds the {@link LanguageWatcher} that reloads languages loaded with {@code :load --watch}
+	 * once no changes arrived for {@code watchQuietMillis}. It posts its results to the
+	 * {@link BackgroundResults}.
+	 */
+	protected void bindWatcher() {
+		// A singleton, so that loading a language again replaces its previous watch.
+		bind(LanguageWatcher.class).in(Singleton.class);
+		bindConstant().annotatedWith(Names.named("watchQuietMillis")).to(WATCH_QUIET_MILLIS);
+	}
+
+	/**
+	 * Binds the {@link LanguageDiscoveryCache} that remembers the languages discovered in
+	 * archives across sessions, stored at {@code discoveryCachePath}, and the
+	 * {@link LanguageArchiveCache} that extracts archives to {@code archiveCachePath}. Both are
+	 * opt-in, as they write to disk: they are only bound when the system property
+	 * {@code spoofax.shell.cacheDirectory} names the directory to store them in.
+	 */
+	protected void bindDiscoveryCache() {
+		String cacheDirectory = System.getProperty(CACHE_DIRECTORY_PROPERTY);
+		if (cacheDirectory == null) {
+			// Without the caches, the LanguageCommand scans every archive and reads it through VFS.
+			return;
+		}
+
+		// A singleton, so that all loads share the entries read from disk.
+		bind(LanguageDiscoveryCache.class).in(Singleton.class);
+		bindConstant().annotatedWith(Names.named("discoveryCachePath"))
+				.to(Paths.get(cacheDirectory, "discovery").toString());
+
+		bind(LanguageArchiveCache.class).in(Singleton.class);
+		bindConstant().annotatedWith(Names.named("archiveCachePath"))
+				.to(Paths.get(cacheDirectory, "languages").toString());
+		bindConstant().annotatedWith(Names.named("archiveCacheBytes")).to(ARCHIVE_CACHE_BYTES);
+	}
+
+	/**
+	 * Binds whether the {@link IProject} lives in memory. Bind {@code inMemoryProject} to
+	 * {@code false} for languages that need the files of the project to exist on disk, for
+	 * instance because they are passed to external tools.
+	 */
+	protected void bindProject() {
+		bindConstant().annotatedWith(Names.named("inMemoryProject")).to(true);
+	}
+
 	/**
 	 * FIXME: hardcoded project returned here.
 	 *
@@ -138,14 +321,23 @@ public abstract class ReplModule extends AbstractModule {
 	 *            the Spoofax {@link ResourceService}
 	 * @param projectService
 	 *            the Spoofax {@link ISimpleProjectService}
+	 * @param inMemory
+	 *            {@code true} to create the project in a {@code ram://} file system, {@code false}
+	 *            to create it in a new temporary directory
 	 * @return an {@link IProject}
 	 * @throws MetaborgException
 	 *             when creating a project failed
 	 */
 	@Provides
 	protected IProject project(IResourceService resourceService,
-			ISimpleProjectService projectService) throws MetaborgException {
-		FileObject resolve = resourceService.resolve(Files.createTempDir());
+			ISimpleProjectService projectService, @Named("inMemoryProject") boolean inMemory)
+			throws MetaborgException {
+		FileObject resolve;
+		if (inMemory) {
+			resolve = resourceService.resolve("ram:///spoofax-shell/" + UUID.randomUUID());
+		} else {
+			resolve = resourceService.resolve(Files.createTempDir());
+		}
 		return projectService.create(resolve);
 	}
 
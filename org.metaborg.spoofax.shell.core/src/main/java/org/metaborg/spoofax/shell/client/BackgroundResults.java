@@ -0,0 +1,68 @@
+package org.metaborg.spoofax.shell.client;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.metaborg.spoofax.shell.output.IResult;
+import org.metaborg.spoofax.shell.output.IResultVisitor;
+
+/**
+ * Collects the {@link IResult}s of work that completes in the background, such as loading or
+ * warming up a language, until the client can show them.
+ *
+ * <p>
+ * A client shows the results when it is not waiting for input, e.g. right before showing the
+ * next prompt, because writing to a terminal while the user is typing would garble the input.
+ * A client that can show results while waiting for input, e.g. by drawing the prompt again below
+ * them, sets a {@link #setListener(Runnable) listener} to show them as soon as they are posted.
+ * </p>
+ */
+public class BackgroundResults {
+    private final Queue<IResult> results;
+    private volatile Runnable listener;
+
+    /**
+     * Instantiate new, empty {@link BackgroundResults}.
+     */
+    public BackgroundResults() {
+        this.results = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * Add the result of background work.
+     *
+     * @param result
+     *            The {@link IResult} to show.
+     */
+    public void post(IResult result) {
+        results.add(result);
+        Runnable notify = listener;
+        if (notify != null) {
+            notify.run();
+        }
+    }
+
+    /**
+     * Set the listener that is notified whenever a result is posted. It runs on the thread that
+     * posts the result, and may {@link #showAll(IResultVisitor) show} the results right away.
+     *
+     * @param listener
+     *            The listener, or {@code null} to remove it.
+     */
+    public void setListener(Runnable listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Show and remove all results collected so far, oldest first.
+     *
+     * @param visitor
+     *            The {@link IResultVisitor}, typically the {@link IDisplay}, to show them with.
+     */
+    public void showAll(IResultVisitor visitor) {
+        IResult result;
+        while ((result = results.poll()) != null) {
+            result.accept(visitor);
+        }
+    }
+}
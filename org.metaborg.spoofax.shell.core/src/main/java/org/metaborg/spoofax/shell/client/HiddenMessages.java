@@ -0,0 +1,36 @@
+package org.metaborg.spoofax.shell.client;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.metaborg.core.messages.IMessage;
+
+/**
+ * Keeps the messages of the last failure that an {@link IDisplay} did not show because there were
+ * more than {@link IDisplay#maxMessages()}, so that {@code :messages} can show them on request.
+ * The messages are only formatted when they are shown.
+ */
+public class HiddenMessages {
+    private volatile List<IMessage> messages = Collections.emptyList();
+
+    /**
+     * Keep the given messages, replacing the messages kept before.
+     *
+     * @param hidden
+     *            The messages that were not shown.
+     */
+    public void keep(List<IMessage> hidden) {
+        this.messages = hidden;
+    }
+
+    /**
+     * Return the kept messages and forget them, so that they are shown only once.
+     *
+     * @return The messages that were not shown, possibly empty.
+     */
+    public List<IMessage> take() {
+        List<IMessage> hidden = messages;
+        messages = Collections.emptyList();
+        return hidden;
+    }
+}
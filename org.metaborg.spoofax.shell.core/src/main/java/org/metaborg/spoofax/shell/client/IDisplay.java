@@ -1,9 +1,8 @@
 package org.metaborg.spoofax.shell.client;
 
 import java.awt.Color;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
 
 import org.metaborg.core.messages.IMessage;
 import org.metaborg.core.source.ISourceRegion;
@@ -41,16 +40,54 @@ public interface IDisplay extends IResultVisitor {
         visitMessage(result.styled());
     }
 
+    /**
+     * The default maximum number of messages shown for a failure, see {@link #maxMessages()}.
+     */
+    int MAX_MESSAGES = 100;
+
+    /**
+     * Return the maximum number of messages that is shown for a failure. Messages beyond this
+     * number are neither highlighted in the source nor formatted; only their count is shown, and
+     * they are passed to {@link #keepHiddenMessages(List)}.
+     *
+     * @return The maximum number of messages, {@link #MAX_MESSAGES} by default.
+     */
+    default int maxMessages() {
+        return MAX_MESSAGES;
+    }
+
+    /**
+     * Keep the messages of a failure beyond {@link #maxMessages()}, so that they can be shown on
+     * request. By default, they are dropped.
+     *
+     * @param hidden
+     *            The messages that are not shown.
+     * @return Whether the messages are kept, so that {@code :messages} shows them.
+     */
+    default boolean keepHiddenMessages(List<IMessage> hidden) {
+        return false;
+    }
+
     @Override
     default void visitFailure(FailResult errorResult) {
         ISpoofaxResult<?> cause = errorResult.getCause();
-        String sourceText = cause.sourceText();
         List<IMessage> messages = cause.messages();
-        StyledText styled = highlightMessagesInSource(sourceText, messages);
+        List<IMessage> shown = messages.subList(0, Math.min(messages.size(), maxMessages()));
+        StyledText styled = highlightMessagesInSource(cause.sourceText(), shown);
 
-        String concat =
-            messages.stream().map(IMessage::message).collect(Collectors.joining("\n"));
-        visitMessage(styled.append("\n").append(Color.RED, concat));
+        StringBuilder concat = new StringBuilder();
+        for (IMessage message : shown) {
+            if (concat.length() > 0) {
+                concat.append('\n');
+            }
+            concat.append(message.message());
+        }
+        if (shown.size() < messages.size()) {
+            List<IMessage> hidden = messages.subList(shown.size(), messages.size());
+            concat.append(String.format("\n(%d more messages not shown%s)", hidden.size(),
+                                        keepHiddenMessages(hidden) ? ", see :messages" : ""));
+        }
+        visitMessage(styled.append("\n").append(Color.RED, concat.toString()));
     }
 
     /**
@@ -64,12 +101,14 @@ public interface IDisplay extends IResultVisitor {
      * @return The highlighted {@link StyledText}
      */
     default StyledText highlightMessagesInSource(String sourceText, List<IMessage> messages) {
-        List<ISourceRegion> regions = messages.stream().map(IMessage::region)
-            .filter(Objects::nonNull).collect(Collectors.toList());
-        StyledText styled = new StyledText();
+        List<ISourceRegion> regions = new ArrayList<>(messages.size());
+        for (IMessage message : messages) {
+            if (message.region() != null) {
+                regions.add(message.region());
+            }
+        }
         IStyle style = new Style(Color.RED, null, true, false, false, false);
-        styled.append(regions, style, sourceText);
-        return styled;
+        return new StyledText().append(regions, style, sourceText);
     }
 
     @Override
@@ -0,0 +1,226 @@
+package org.metaborg.spoofax.shell.commands;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.apache.commons.io.IOUtils;
+import org.metaborg.core.MetaborgException;
+import org.metaborg.core.MetaborgRuntimeException;
+import org.metaborg.core.analysis.AnalyzerFacet;
+import org.metaborg.core.resource.IResourceService;
+import org.metaborg.spoofax.shell.core.IEvaluationStrategy;
+import org.metaborg.spoofax.shell.functions.FailableFunction;
+import org.metaborg.spoofax.shell.functions.FunctionComposer;
+import org.metaborg.spoofax.shell.output.EvaluateResult;
+import org.metaborg.spoofax.shell.output.ExceptionResult;
+import org.metaborg.spoofax.shell.output.FailOrSuccessResult;
+import org.metaborg.spoofax.shell.output.FailOrSuccessVisitor;
+import org.metaborg.spoofax.shell.output.IResult;
+import org.metaborg.spoofax.shell.output.ISpoofaxTermResult;
+import org.metaborg.spoofax.shell.output.StyledText;
+
+import com.google.inject.assistedinject.Assisted;
+import com.google.inject.assistedinject.AssistedInject;
+
+/**
+ * Evaluates all expressions in a file, which are separated by blank lines just like interactive
+ * input is. Every expression is parsed (and analyzed) and then evaluated before its analysis can
+ * be overwritten, since analyses are kept per resource and the REPL has only one.
+ *
+ * <p>
+ * By default, the expressions are evaluated one by one in the order of the file, in the
+ * environment of the REPL. With {@code --parallel}, they are evaluated on the common
+ * {@link ForkJoinPool}, so that no threads are created or left behind per batch, by workers that
+ * each have their own resource and their own {@link IEvaluationStrategy#fork() forked} evaluation
+ * strategies. The results are shown in the order of the file in both cases, followed by the
+ * throughput.
+ * </p>
+ */
+public class BatchCommand implements IReplCommand {
+    /**
+     * The description, which is known before the command is built.
+     */
+    static final String DESCRIPTION = "Evaluate the blank line separated expressions in a file.\n"
+        + "Use \":batch --parallel <file>\" to also evaluate them in parallel, each worker in its"
+        + " own environment.";
+    private static final String SYNTAX = "Syntax: :batch [--parallel] <file>";
+    private static final String PARALLEL = "--parallel";
+    private static final Pattern BLANK_LINES = Pattern.compile("\\R(?:[ \\t]*\\R)+");
+    private static final double NANOS_PER_MILLI = 1e6;
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final IResourceService resourceService;
+    private final Map<String, IEvaluationStrategy> strategies;
+    private final FunctionComposer composer;
+    private final boolean analyzed;
+    private final FailableFunction<String, ? extends ISpoofaxTermResult<?>, IResult> front;
+    private final Queue<FailableFunction<String, ? extends ISpoofaxTermResult<?>, IResult>> fronts;
+
+    /**
+     * Counts the results that are not successful.
+     */
+    private static final class FailureCounter
+            implements FailOrSuccessVisitor<EvaluateResult, IResult> {
+        private int failures;
+
+        @Override
+        public void visitSuccess(EvaluateResult result) {
+        }
+
+        @Override
+        public void visitFailure(IResult result) {
+            failures++;
+        }
+
+        @Override
+        public void visitException(ExceptionResult result) {
+            failures++;
+        }
+    }
+
+    /**
+     * Instantiates a new {@link BatchCommand}.
+     *
+     * @param resourceService
+     *            The {@link IResourceService} for resolving the file.
+     * @param strategies
+     *            The shared {@link IEvaluationStrategy} implementations, grouped by their names as
+     *            keys, which are forked for parallel evaluation.
+     * @param composer
+     *            The {@link FunctionComposer} of the language in which to evaluate.
+     */
+    @AssistedInject
+    public BatchCommand(IResourceService resourceService,
+                        Map<String, IEvaluationStrategy> strategies,
+                        @Assisted FunctionComposer composer) {
+        this.resourceService = resourceService;
+        this.strategies = strategies;
+        this.composer = composer;
+        this.analyzed = composer.lang().hasFacet(AnalyzerFacet.class);
+        if (analyzed) {
+            this.front = composer.analyzeFunction();
+        } else {
+            this.front = composer.parseFunction();
+        }
+        this.fronts = new ConcurrentLinkedQueue<>();
+    }
+
+    @Override
+    public String description() {
+        return DESCRIPTION;
+    }
+
+    @Override
+    public IResult execute(String... args) {
+        if (args.length != 1) {
+            return new ExceptionResult(new MetaborgException(SYNTAX));
+        }
+        // The invoker passes everything after the command name as a single argument.
+        String[] words = args[0].trim().split("\\s+", 2);
+        boolean parallel = words.length == 2 && PARALLEL.equals(words[0]);
+        if (words[0].isEmpty() || words.length == 2 && !parallel) {
+            return new ExceptionResult(new MetaborgException(SYNTAX));
+        }
+
+        try {
+            List<String> units = units(read(words[words.length - 1]));
+            long start = System.nanoTime();
+            List<FailOrSuccessResult<EvaluateResult, IResult>> results = run(units, parallel);
+            StyledText summary = summary(results, System.nanoTime() - start);
+
+            return (visitor) -> {
+                results.forEach(result -> result.accept(visitor));
+                visitor.visitMessage(summary);
+            };
+        } catch (IOException | MetaborgRuntimeException e) {
+            return new ExceptionResult(e);
+        }
+    }
+
+    private String read(String path) throws IOException {
+        try (InputStream in = resourceService.resolve(path).getContent().getInputStream()) {
+            return IOUtils.toString(in);
+        }
+    }
+
+    /**
+     * Split the contents of a file into the expressions it contains.
+     *
+     * @param contents
+     *            The contents of the file.
+     * @return The expressions, in the order of the file.
+     */
+    public static List<String> units(String contents) {
+        return Arrays.stream(BLANK_LINES.split(contents)).map(String::trim)
+            .filter(unit -> !unit.isEmpty()).collect(Collectors.toList());
+    }
+
+    private List<FailOrSuccessResult<EvaluateResult, IResult>> run(List<String> units,
+                                                                   boolean parallel) {
+        if (parallel) {
+            return runParallel(units);
+        }
+
+        FailableFunction<ISpoofaxTermResult<?>, EvaluateResult, IResult> evaluate =
+            composer.evaluateFunction();
+        return units.stream().map(unit -> front.apply(unit).flatMap(evaluate))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Evaluate every expression right after analyzing it. A worker takes an idle evaluation
+     * function with its own forked strategies, or forks new ones if there is none, so that there
+     * are never more forks than workers. Nothing is kept per thread, so the forks do not outlive
+     * the batch.
+     */
+    private List<FailOrSuccessResult<EvaluateResult, IResult>> runParallel(List<String> units) {
+        Queue<FailableFunction<ISpoofaxTermResult<?>, EvaluateResult, IResult>> idle =
+            new ConcurrentLinkedQueue<>();
+        return units.parallelStream().map(unit -> {
+            FailableFunction<ISpoofaxTermResult<?>, EvaluateResult, IResult> evaluate = idle.poll();
+            if (evaluate == null) {
+                evaluate = composer.evaluateFunction(IEvaluationStrategy.forkAll(strategies));
+            }
+            FailableFunction<String, ? extends ISpoofaxTermResult<?>, IResult> own = front();
+            try {
+                return own.apply(unit).flatMap(evaluate);
+            } finally {
+                fronts.add(own);
+                idle.add(evaluate);
+            }
+        }).collect(Collectors.toList());
+    }
+
+    /**
+     * Take an idle front of a worker, or compose a new one with its own resource if there is none,
+     * so that workers do not overwrite each other's analyses. The fronts are kept across batches,
+     * so that there are never more resources than workers.
+     */
+    private FailableFunction<String, ? extends ISpoofaxTermResult<?>, IResult> front() {
+        FailableFunction<String, ? extends ISpoofaxTermResult<?>, IResult> idle = fronts.poll();
+        if (idle != null) {
+            return idle;
+        }
+        // Parsing is not kept per resource, so the shared front will do.
+        return analyzed ? composer.analyzeFunctionWithOwnInput() : front;
+    }
+
+    private StyledText summary(List<FailOrSuccessResult<EvaluateResult, IResult>> results,
+                               long nanos) {
+        FailureCounter counter = new FailureCounter();
+        results.forEach(result -> result.accept(counter));
+        double perSecond = nanos == 0 ? 0 : results.size() * NANOS_PER_SECOND / nanos;
+        return new StyledText(String.format("Evaluated %d expression(s), %d failed, in %.1f ms"
+                                            + " (%.1f expressions/s).", results.size(),
+                                            counter.failures, nanos / NANOS_PER_MILLI,
+                                            perSecond));
+    }
+}
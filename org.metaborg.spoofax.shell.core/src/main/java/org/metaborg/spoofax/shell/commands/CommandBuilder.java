@@ -47,20 +47,14 @@ import com.google.inject.assistedinject.AssistedInject;
  *            the return type of the created command
  */
 public class CommandBuilder<R extends IResult> {
-    private final IFunctionFactory functionFactory;
-    private final ILanguageImpl lang;
-    private final IProject project;
     private final FunctionComposer composer;
 
     private final String description;
     private final @Nullable FailableFunction<String[], R, IResult> function;
 
-    private CommandBuilder(IFunctionFactory functionFactory, IProject project, ILanguageImpl lang,
-                           String description, FailableFunction<String[], R, IResult> function) {
-        this.functionFactory = functionFactory;
-        this.composer = functionFactory.createComposer(project, lang);
-        this.project = project;
-        this.lang = lang;
+    private CommandBuilder(FunctionComposer composer, String description,
+                           FailableFunction<String[], R, IResult> function) {
+        this.composer = composer;
         this.description = description;
         this.function = function;
     }
@@ -78,7 +72,19 @@ public class CommandBuilder<R extends IResult> {
     @AssistedInject
     public CommandBuilder(IFunctionFactory functionFactory, @Assisted IProject project,
                           @Assisted ILanguageImpl lang) {
-        this(functionFactory, project, lang, "", null);
+        this(functionFactory.createComposer(project, lang));
+    }
+
+    /**
+     * Constructs a new {@link CommandBuilder} that shares its composed functions with the given
+     * {@link FunctionComposer}.
+     *
+     * @param composer
+     *            the {@link FunctionComposer} providing the functions of all created commands
+     */
+    @AssistedInject
+    public CommandBuilder(@Assisted FunctionComposer composer) {
+        this(composer, "", null);
     }
 
     /**
@@ -93,7 +99,7 @@ public class CommandBuilder<R extends IResult> {
      */
     private CommandBuilder(CommandBuilder<?> parent, String description,
                            FailableFunction<String[], R, IResult> function) {
-        this(parent.functionFactory, parent.project, parent.lang, description, function);
+        this(parent.composer, description, function);
     }
 
     /**
@@ -169,9 +175,7 @@ public class CommandBuilder<R extends IResult> {
      * @return the builder
      */
     public CommandBuilder<EvaluateResult> evalPOpen() {
-        return function(functionFactory.createOpenInputFunction(project, lang)
-                .kleisliCompose(functionFactory.createParseFunction(project, lang))
-                .kleisliCompose(functionFactory.createEvaluateFunction(project, lang)));
+        return function(composer.pOpenEvaluateFunction());
     }
 
     /**
@@ -180,10 +184,7 @@ public class CommandBuilder<R extends IResult> {
      * @return the builder
      */
     public CommandBuilder<EvaluateResult> evalAOpen() {
-        return function(functionFactory.createOpenInputFunction(project, lang)
-                .kleisliCompose(functionFactory.createParseFunction(project, lang))
-                .kleisliCompose(functionFactory.createAnalyzeFunction(project, lang))
-                .kleisliCompose(functionFactory.createEvaluateFunction(project, lang)));
+        return function(composer.aOpenEvaluateFunction());
     }
 
     /**
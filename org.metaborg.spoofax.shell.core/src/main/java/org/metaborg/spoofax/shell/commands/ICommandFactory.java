@@ -0,0 +1,37 @@
+package org.metaborg.spoofax.shell.commands;
+
+import org.metaborg.spoofax.shell.functions.FunctionComposer;
+
+/**
+ * Factory for creating the {@link IReplCommand}s of a language that are not composed by a
+ * {@link CommandBuilder}, but use the functions of its {@link FunctionComposer} themselves.
+ */
+public interface ICommandFactory {
+
+    /**
+     * Factory method for creating a {@link BatchCommand} that evaluates files with the functions
+     * composed by the given {@link FunctionComposer}.
+     *
+     * @param composer  The {@link FunctionComposer} to take the functions from
+     * @return          a {@link BatchCommand}
+     */
+    BatchCommand createBatchCommand(FunctionComposer composer);
+
+    /**
+     * Factory method for creating a {@link MemoCommand} that controls the memoization of
+     * evaluations in the language of the given {@link FunctionComposer}.
+     *
+     * @param composer  The {@link FunctionComposer} of the language
+     * @return          a {@link MemoCommand}
+     */
+    MemoCommand createMemoCommand(FunctionComposer composer);
+
+    /**
+     * Factory method for creating a {@link ProfileCommand} that profiles evaluations with the
+     * functions composed by the given {@link FunctionComposer}.
+     *
+     * @param composer  The {@link FunctionComposer} to take the functions from
+     * @return          a {@link ProfileCommand}
+     */
+    ProfileCommand createProfileCommand(FunctionComposer composer);
+}
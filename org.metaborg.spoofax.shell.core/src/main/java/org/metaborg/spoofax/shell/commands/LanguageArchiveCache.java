@@ -0,0 +1,387 @@
+package org.metaborg.spoofax.shell.commands;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.Selectors;
+import org.metaborg.core.resource.IResourceService;
+
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+
+/**
+ * Extracts language archives into a content-addressed cache directory, so that a language is
+ * loaded from the plain file system instead of through the archive layer of VFS. The archive
+ * layer decompresses an entry again for every read of, e.g., a parse table or a Stratego CTree.
+ *
+ * <p>
+ * An archive is extracted into a directory named after the SHA-256 hash of its contents, which is
+ * computed from a memory-mapped view of the archive. Loading the same archive again, even from
+ * another path, reuses the extracted directory, and a changed archive is extracted anew. The
+ * extraction goes to a temporary directory that is moved into place when it is complete, so a
+ * directory is never used half-extracted. When the cache grows beyond its maximum size, the
+ * directories that were used least recently are deleted.
+ * </p>
+ *
+ * <p>
+ * A directory is never deleted while it is in use. A process that uses a directory holds a shared
+ * lock on its lock file, next to the directory, until the directory is {@link #release(FileObject)
+ * released}. The clean up only deletes a directory when it gets an exclusive lock, so neither the
+ * languages of this process, nor those that are still being loaded, nor those of another process
+ * lose their files. The directories of extractions that are still in progress are skipped as well.
+ * The lock files of deleted directories are deleted once they have not been locked for a day.
+ * </p>
+ */
+public class LanguageArchiveCache {
+    private static final String HASH = "SHA-256";
+    private static final long MAP_CHUNK_BYTES = 64L * 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String LOCK_SUFFIX = ".lock";
+    private static final int DIGEST_LENGTH = 64;
+    // Partial directories and lock files this old were left behind by a crashed extraction.
+    private static final long STALE_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    private final IResourceService resourceService;
+    private final Path directory;
+    private final long maxBytes;
+    private final Map<Path, FileLock> locks;
+
+    /**
+     * Instantiate a new {@link LanguageArchiveCache}.
+     *
+     * @param resourceService
+     *            The {@link IResourceService} for resolving the extracted directories.
+     * @param path
+     *            The path of the cache directory.
+     * @param maxBytes
+     *            The maximum size of the cache directory, in bytes. The most recently used
+     *            archive is kept even if it is larger.
+     */
+    @Inject
+    public LanguageArchiveCache(IResourceService resourceService,
+                                @Named("archiveCachePath") String path,
+                                @Named("archiveCacheBytes") long maxBytes) {
+        this.resourceService = resourceService;
+        // Absolute, so that the directories match the locations that are released.
+        this.directory = Paths.get(path).toAbsolutePath();
+        this.maxBytes = maxBytes;
+        this.locks = new HashMap<>();
+    }
+
+    /**
+     * Compute the SHA-256 hash of the contents of a file. Files on the local file system are read
+     * through a memory-mapped view.
+     *
+     * @param file
+     *            The file.
+     * @return The hash, as lower case hexadecimal digits.
+     * @throws IOException
+     *             When reading the file fails.
+     */
+    public static String sha256(FileObject file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(HASH);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256.
+            throw new IllegalStateException(e);
+        }
+
+        Path local = localPath(file);
+        if (local != null) {
+            digestMapped(digest, local);
+        } else {
+            try (InputStream in = file.getContent().getInputStream()) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+        }
+
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private static void digestMapped(MessageDigest digest, Path local) throws IOException {
+        try (FileChannel channel = FileChannel.open(local, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += MAP_CHUNK_BYTES) {
+                long length = Math.min(MAP_CHUNK_BYTES, size - position);
+                digest.update(channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+            }
+        }
+    }
+
+    /**
+     * Find the path of a file on the local file system.
+     *
+     * @param file
+     *            The file.
+     * @return The local {@link Path}, or {@code null} if the file is not on the local file system.
+     */
+    static Path localPath(FileObject file) {
+        if (!"file".equals(file.getName().getScheme())) {
+            return null;
+        }
+        return Paths.get(file.getName().getPath());
+    }
+
+    /**
+     * Extract an archive, unless its contents were extracted before. The extracted directory is
+     * in use until it is {@link #release(FileObject) released}.
+     *
+     * @param root
+     *            The root of the archive, such as {@code zip:lang.spoofax-language!/}.
+     * @param digest
+     *            The {@link #sha256(FileObject) SHA-256 hash} of the archive.
+     * @return The extracted directory, or {@code root} if extracting failed.
+     */
+    public FileObject extract(FileObject root, String digest) {
+        Path extracted = directory.resolve(digest);
+        try {
+            lock(extracted);
+            if (Files.isDirectory(extracted)) {
+                // Marks the directory as recently used, for the clean up.
+                FileTime now = FileTime.fromMillis(System.currentTimeMillis());
+                Files.setLastModifiedTime(extracted, now);
+            } else {
+                extractTo(extracted, root);
+                cleanUp();
+            }
+            return resourceService.resolve(extracted.toFile());
+        } catch (IOException e) {
+            // Extracting is an optimization, so the archive is loaded through VFS instead.
+            unlock(extracted);
+            return root;
+        }
+    }
+
+    /**
+     * Stop using an extracted directory, e.g. because the language in it was reloaded from a
+     * rebuilt archive, so that the clean up may delete it.
+     *
+     * @param location
+     *            The extracted directory, as returned by {@link #extract(FileObject, String)}.
+     */
+    public void release(FileObject location) {
+        Path local = localPath(location);
+        if (local != null) {
+            unlock(local);
+        }
+    }
+
+    private synchronized void unlock(Path extracted) {
+        FileLock lock = locks.remove(extracted);
+        if (lock == null) {
+            return;
+        }
+        try {
+            lock.acquiredBy().close();
+        } catch (IOException e) {
+            // Closing the channel releases the lock, even when closing fails otherwise.
+            return;
+        }
+    }
+
+    /**
+     * Take a shared lock on the lock file of a directory, which keeps every process from deleting
+     * the directory until it is released. Waits while another process is deleting it.
+     */
+    private synchronized void lock(Path extracted) throws IOException {
+        if (locks.containsKey(extracted)) {
+            return;
+        }
+        Files.createDirectories(directory);
+        Path lockFile = lockFile(extracted);
+        FileChannel channel = open(lockFile);
+        try {
+            // Marks the lock file as recently used, so that it is not deleted as orphaned.
+            Files.setLastModifiedTime(lockFile, FileTime.fromMillis(System.currentTimeMillis()));
+            locks.put(extracted, channel.lock(0, Long.MAX_VALUE, true));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static FileChannel open(Path lockFile) throws IOException {
+        return FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                StandardOpenOption.WRITE);
+    }
+
+    private static Path lockFile(Path extracted) {
+        return extracted.resolveSibling(extracted.getFileName() + LOCK_SUFFIX);
+    }
+
+    private void extractTo(Path extracted, FileObject root) throws IOException {
+        Files.createDirectories(directory);
+        Path partial = Files.createTempDirectory(directory, extracted.getFileName() + ".");
+        try {
+            resourceService.resolve(partial.toFile()).copyFrom(root, Selectors.SELECT_ALL);
+            try {
+                Files.move(partial, extracted, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                // Another process may have extracted the same archive in the meantime.
+                if (!Files.isDirectory(extracted)) {
+                    throw e;
+                }
+            }
+        } finally {
+            if (Files.exists(partial)) {
+                delete(partial);
+            }
+        }
+    }
+
+    private synchronized void cleanUp() throws IOException {
+        List<Path> extracted = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                if (Files.isDirectory(entry) && (complete(entry) || stale(entry))) {
+                    extracted.add(entry);
+                }
+            }
+        }
+        long total = 0;
+        for (Path entry : extracted) {
+            total += size(entry);
+        }
+
+        extracted.sort(Comparator.comparingLong(LanguageArchiveCache::lastUsed));
+        for (Path entry : extracted) {
+            if (total <= maxBytes) {
+                break;
+            }
+            long size = size(entry);
+            if (complete(entry) ? deleteUnused(entry) : delete(entry)) {
+                total -= size;
+            }
+        }
+        deleteOrphanedLocks();
+    }
+
+    /**
+     * Delete the lock files of directories that no longer exist and that have not been locked for
+     * a day, unless this or another process locks them.
+     */
+    private void deleteOrphanedLocks() throws IOException {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory,
+                                                                      "*" + LOCK_SUFFIX)) {
+            for (Path lockFile : entries) {
+                String name = lockFile.getFileName().toString();
+                Path extracted = lockFile.resolveSibling(
+                    name.substring(0, name.length() - LOCK_SUFFIX.length()));
+                if (!locks.containsKey(extracted) && !Files.exists(extracted) && stale(lockFile)) {
+                    deleteUnusedLock(lockFile, extracted);
+                }
+            }
+        }
+    }
+
+    private static void deleteUnusedLock(Path lockFile, Path extracted) {
+        try (FileChannel channel = open(lockFile); FileLock lock = channel.tryLock()) {
+            // Another process may have extracted the directory in the meantime.
+            if (lock != null && !Files.exists(extracted)) {
+                Files.delete(lockFile);
+            }
+        } catch (IOException | OverlappingFileLockException e) {
+            // E.g. on platforms that do not delete open files, the lock file is kept.
+            return;
+        }
+    }
+
+    /**
+     * @return {@code true} if the directory was moved into place, {@code false} if it is the
+     *         partial directory of an extraction.
+     */
+    private static boolean complete(Path entry) {
+        return entry.getFileName().toString().length() == DIGEST_LENGTH;
+    }
+
+    private static boolean stale(Path entry) {
+        return System.currentTimeMillis() - lastUsed(entry) > STALE_MILLIS;
+    }
+
+    /**
+     * Delete an extracted directory, unless this or another process uses it.
+     *
+     * @return {@code true} if the directory was deleted.
+     */
+    private boolean deleteUnused(Path entry) throws IOException {
+        if (locks.containsKey(entry)) {
+            return false;
+        }
+        // The lock file is kept, another process may be waiting for a lock on it.
+        try (FileChannel channel = open(lockFile(entry)); FileLock lock = channel.tryLock()) {
+            return lock != null && delete(entry);
+        } catch (OverlappingFileLockException e) {
+            return false;
+        }
+    }
+
+    private static long lastUsed(Path entry) {
+        try {
+            return Files.getLastModifiedTime(entry).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static long size(Path root) throws IOException {
+        AtomicLong size = new AtomicLong();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                size.addAndGet(attrs.size());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return size.get();
+    }
+
+    private static boolean delete(Path root) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+                throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return true;
+    }
+}
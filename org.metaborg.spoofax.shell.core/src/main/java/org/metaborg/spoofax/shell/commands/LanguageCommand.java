@@ -1,42 +1,105 @@
 package org.metaborg.spoofax.shell.commands;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystem;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.FileSystemManager;
+import org.apache.commons.vfs2.impl.DefaultFileSystemManager;
 import org.metaborg.core.MetaborgException;
 import org.metaborg.core.MetaborgRuntimeException;
 import org.metaborg.core.action.ITransformAction;
 import org.metaborg.core.analysis.AnalyzerFacet;
+import org.metaborg.core.language.ILanguageComponent;
 import org.metaborg.core.language.ILanguageDiscoveryService;
 import org.metaborg.core.language.ILanguageImpl;
 import org.metaborg.core.menu.IMenuService;
 import org.metaborg.core.project.IProject;
 import org.metaborg.core.resource.IResourceService;
+import org.metaborg.core.syntax.ParseException;
+import org.metaborg.spoofax.core.syntax.ISpoofaxSyntaxService;
+import org.metaborg.spoofax.core.unit.ISpoofaxUnitService;
+import org.metaborg.spoofax.shell.client.BackgroundResults;
 import org.metaborg.spoofax.shell.functions.FunctionComposer;
 import org.metaborg.spoofax.shell.functions.IFunctionFactory;
+import org.metaborg.spoofax.shell.functions.WarmUp;
 import org.metaborg.spoofax.shell.invoker.ICommandInvoker;
 import org.metaborg.spoofax.shell.output.ExceptionResult;
 import org.metaborg.spoofax.shell.output.IResult;
 import org.metaborg.spoofax.shell.output.StyledText;
 import org.metaborg.spoofax.shell.output.TransformResult;
-import org.metaborg.spoofax.shell.services.IEditorServices;
 
 import com.google.inject.Inject;
+import com.google.inject.name.Named;
 
 /**
  * Represents a command that loads a Spoofax language.
+ *
+ * <p>
+ * When loading in the background is enabled, the language is loaded on a separate thread and
+ * the outcome of loading every language is posted to the {@link BackgroundResults} as soon as it
+ * is known. The commands that do not depend on a
+ * language, such as {@code :help}, stay usable in the meantime, as do the commands of the
+ * previously loaded language. Expressions are rejected until the commands of the new language
+ * replace the old ones all at once.
+ * </p>
+ *
+ * <p>
+ * With {@code --watch}, the location of the language is watched by the {@link LanguageWatcher},
+ * which reloads the language whenever it is rebuilt. A language that cannot be watched is not
+ * used, so that it is never active without being watched.
+ * </p>
+ *
+ * <p>
+ * Several languages can be loaded at once. They are extracted, their commands are composed and
+ * their parse tables are loaded on at most {@code loadThreads} threads at the same time, after
+ * which they are added in the given order, so that the last one is used. Only the discovery of
+ * the languages is serialized, because Spoofax's language service is not safe to change from
+ * several threads at once.
+ * </p>
  */
 public class LanguageCommand implements IReplCommand {
 
 	private static final String[] ARCHIVES = { "zip", "jar", "tar", "tgz", "tbz2", };
+	private static final String THREAD_NAME = "spoofax-shell-language-loader";
+	private static final String WATCH = "--watch";
+	private static final String SYNTAX = "Syntax: :load [--watch] <path> [<path>...]";
+	// Spoofax's language service is not safe to change from several threads at once.
+	private static final Object DISCOVERY = new Object();
 	private final ILanguageDiscoveryService langDiscoveryService;
 	private final IResourceService resourceService;
 	private final IMenuService menuService;
 	private final ICommandInvoker invoker;
 	private final IProject project;
 	private final IFunctionFactory factory;
-	private final IEditorServices editorServices;
+	private final LoadedLanguages languages;
+	private ICommandFactory commandFactory;
+	private WarmUp warmUp;
+	private LanguageDiscoveryCache discoveryCache;
+	private LanguageArchiveCache archiveCache;
+	private LanguageWatcher watcher;
+	private ISpoofaxSyntaxService syntaxService;
+	private ISpoofaxUnitService unitService;
+	private BackgroundResults results;
+	private ExecutorService loader;
+	private Future<?> loading;
+	private int loadThreads = 1;
 
 	/**
 	 * Instantiate a {@link LanguageCommand}. Loads all commands applicable to a language.
@@ -49,8 +112,8 @@ public class LanguageCommand implements IReplCommand {
 	 *            the {@link ICommandInvoker}
 	 * @param factory
 	 *            the {@link IFunctionFactory}
-	 * @param editorServices
-	 *            the {@link IEditorServices}
+	 * @param languages
+	 *            the {@link LoadedLanguages} to which loaded languages are added
 	 * @param menuService
 	 *            the {@link IMenuService}
 	 * @param project
@@ -59,20 +122,138 @@ public class LanguageCommand implements IReplCommand {
 	@Inject
 	public LanguageCommand(ILanguageDiscoveryService langDiscoveryService,
 			IResourceService resourceService, IMenuService menuService, ICommandInvoker invoker,
-			IEditorServices editorServices, IFunctionFactory factory, IProject project) {
+			LoadedLanguages languages, IFunctionFactory factory, IProject project) {
 		// FIXME: don't use the hardcoded @Provides
 		this.langDiscoveryService = langDiscoveryService;
 		this.resourceService = resourceService;
 		this.menuService = menuService;
 		this.invoker = invoker;
-		this.editorServices = editorServices;
+		this.languages = languages;
 		this.factory = factory;
 		this.project = project;
 	}
 
+	/**
+	 * Set the {@link ICommandFactory} that creates the {@code :batch}, {@code :memo} and
+	 * {@code :profile} commands of every language. When not set, languages do not have these
+	 * commands.
+	 *
+	 * @param commandFactory
+	 *            the {@link ICommandFactory}
+	 */
+	@Inject(optional = true)
+	public void setCommandFactory(ICommandFactory commandFactory) {
+		this.commandFactory = commandFactory;
+	}
+
+	/**
+	 * Set the {@link WarmUp} that warms up a language after it is loaded. When not set, languages
+	 * are not warmed up.
+	 *
+	 * @param warmUp
+	 *            the {@link WarmUp}
+	 */
+	@Inject(optional = true)
+	public void setWarmUp(WarmUp warmUp) {
+		this.warmUp = warmUp;
+	}
+
+	/**
+	 * Set the services with which the parse tables of languages that are loaded at the same time
+	 * are loaded in advance. When not set, a parse table is loaded when the language first parses.
+	 *
+	 * @param syntaxService
+	 *            the {@link ISpoofaxSyntaxService}
+	 * @param unitService
+	 *            the {@link ISpoofaxUnitService}
+	 */
+	@Inject(optional = true)
+	public void setParser(ISpoofaxSyntaxService syntaxService, ISpoofaxUnitService unitService) {
+		this.syntaxService = syntaxService;
+		this.unitService = unitService;
+	}
+
+	/**
+	 * Set the {@link LanguageDiscoveryCache} that remembers the languages discovered in archives.
+	 * When not set, every archive is scanned.
+	 *
+	 * @param discoveryCache
+	 *            the {@link LanguageDiscoveryCache}
+	 */
+	@Inject(optional = true)
+	public void setDiscoveryCache(LanguageDiscoveryCache discoveryCache) {
+		this.discoveryCache = discoveryCache;
+	}
+
+	/**
+	 * Set the {@link LanguageArchiveCache} that extracts archives, so that their languages are
+	 * loaded from the plain file system. When not set, archives are read through VFS.
+	 *
+	 * @param archiveCache
+	 *            the {@link LanguageArchiveCache}
+	 */
+	@Inject(optional = true)
+	public void setArchiveCache(LanguageArchiveCache archiveCache) {
+		this.archiveCache = archiveCache;
+	}
+
+	/**
+	 * Set the {@link LanguageWatcher} that reloads languages loaded with {@code --watch}. When not
+	 * set, languages cannot be watched.
+	 *
+	 * @param watcher
+	 *            the {@link LanguageWatcher}
+	 */
+	@Inject(optional = true)
+	public void setWatcher(LanguageWatcher watcher) {
+		this.watcher = watcher;
+	}
+
+	/**
+	 * Set the maximum number of languages that are loaded at the same time when several paths are
+	 * given. When not set, they are loaded one after another.
+	 *
+	 * @param loadThreads
+	 *            the maximum number of threads that load languages
+	 */
+	@Inject(optional = true)
+	public void setLoadThreads(@Named("loadThreads") int loadThreads) {
+		this.loadThreads = Math.max(1, loadThreads);
+	}
+
+	/**
+	 * Enable or disable loading languages in the background.
+	 *
+	 * @param background
+	 *            {@code true} to load languages in the background
+	 * @param results
+	 *            the {@link BackgroundResults} to which the result of loading is posted
+	 */
+	@Inject(optional = true)
+	public synchronized void setBackground(@Named("loadInBackground") boolean background,
+			BackgroundResults results) {
+		if (!background) {
+			this.results = null;
+			return;
+		}
+		this.results = results;
+		if (loader == null) {
+			loader = Executors.newSingleThreadExecutor(daemonThreads());
+		}
+	}
+
+	private static ThreadFactory daemonThreads() {
+		return runnable -> {
+			Thread thread = new Thread(runnable, THREAD_NAME);
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
 	@Override
 	public String description() {
-		return "Load a language from a path.";
+		return "Load languages from paths, at the same time.\n"
+				+ "With --watch, reload them whenever they are rebuilt.";
 	}
 
 	/**
@@ -85,8 +266,29 @@ public class LanguageCommand implements IReplCommand {
 	 *             when loading fails
 	 */
 	public ILanguageImpl load(FileObject langloc) throws MetaborgException {
-		Set<ILanguageImpl> langs = langDiscoveryService.scanLanguagesInDirectory(langloc);
+		if (langloc == null) {
+			throw new MetaborgException("Cannot resolve the location of the language");
+		}
+		FileObject archive = archive(langloc);
+		// Hashed once, for both the archive cache and the discovery cache.
+		String digest = archive != null && (archiveCache != null || discoveryCache != null)
+				? digest(archive) : null;
+		FileObject location = langloc;
+		if (digest != null && archiveCache != null) {
+			location = archiveCache.extract(langloc, digest);
+		}
+
+		try {
+			return single(discover(archive, location, digest));
+		} catch (MetaborgException e) {
+			if (location != langloc) {
+				archiveCache.release(location);
+			}
+			throw e;
+		}
+	}
 
+	private static ILanguageImpl single(Set<ILanguageImpl> langs) throws MetaborgException {
 		if (langs == null || langs.isEmpty()) {
 			throw new MetaborgException("Cannot find a language implementation");
 		}
@@ -100,6 +302,42 @@ public class LanguageCommand implements IReplCommand {
 		return langs.iterator().next();
 	}
 
+	private static String digest(FileObject archive) {
+		try {
+			return LanguageArchiveCache.sha256(archive);
+		} catch (IOException e) {
+			// Without a hash, the archive is neither extracted nor recorded in the caches.
+			return null;
+		}
+	}
+
+	private Set<ILanguageImpl> discover(FileObject archive, FileObject location, String digest)
+			throws MetaborgException {
+		synchronized (DISCOVERY) {
+			if (archive != null && discoveryCache != null) {
+				return discoveryCache.scanLanguages(archive, location, digest);
+			}
+			return langDiscoveryService.scanLanguagesInDirectory(location);
+		}
+	}
+
+	/**
+	 * Find the archive of which a location is the root, such as {@code lang.zip} for
+	 * {@code zip:lang.zip!/}.
+	 *
+	 * @param langloc
+	 *            the location of a language
+	 * @return the archive file, or {@code null} if the location is not in an archive
+	 */
+	private static FileObject archive(FileObject langloc) {
+		try {
+			FileObject archive = langloc.getFileSystem().getParentLayer();
+			return archive != null && archive.isFile() ? archive : null;
+		} catch (FileSystemException e) {
+			return null;
+		}
+	}
+
 	private FileObject resolveLanguage(String path) {
 		String extension = resourceService.resolveToName(path).getExtension();
 		for (String archive : ARCHIVES) {
@@ -110,29 +348,17 @@ public class LanguageCommand implements IReplCommand {
 		return resourceService.resolve(path);
 	}
 
-	/**
-	 * Initializes the {@link IEditorServices} based on the language
-	 * implementation.
-	 *
-	 * @param lang
-	 *            {@link ILanguageImpl} The language implementation.
-	 */
-	private void loadEditorServices(ILanguageImpl lang) {
-		FunctionComposer composer = factory.createComposer(project, lang);
-		editorServices.load(composer);
-	}
-
-	private void loadCommands(ILanguageImpl lang) {
+	private LoadedLanguages.Language loadCommands(ILanguageImpl lang, FunctionComposer composer) {
 		boolean analyze = lang.hasFacet(AnalyzerFacet.class);
-		CommandBuilder<?> builder = factory.createBuilder(project, lang);
+		CommandBuilder<?> builder = factory.createBuilder(composer);
 
 		IReplCommand eval, open;
 		Function<ITransformAction, CommandBuilder<TransformResult>> transform;
 
-		invoker.resetCommands();
-		invoker.addCommand("parse", builder.parse().description("Parse the expression").build());
+		Map<String, IReplCommand> commands = new LinkedHashMap<>();
+		commands.put("parse", builder.parse().description("Parse the expression").build());
 		if (analyze) {
-			invoker.addCommand("analyze",
+			commands.put("analyze",
 					builder.analyze().description("Analyze the expression").build());
 
 			eval = builder.evalAnalyzed().description("Evaluate an analyzed expression").build();
@@ -143,30 +369,331 @@ public class LanguageCommand implements IReplCommand {
 			open = builder.evalPOpen().description("Evaluate and parse a file").build();
 			transform = builder::transformParsed;
 		}
-		invoker.addCommand("eval", eval);
-		invoker.addCommand("open", open);
+		commands.put("eval", eval);
+		commands.put("open", open);
+		putEvaluationCommands(commands, composer);
+		putTransformCommands(commands, lang, transform);
+
+		return new LoadedLanguages.Language(composer, commands, eval);
+	}
+
+	private void putEvaluationCommands(Map<String, IReplCommand> commands,
+			FunctionComposer composer) {
+		if (commandFactory == null) {
+			return;
+		}
+		// Built when they are first used, because they create the evaluation strategies.
+		commands.put("batch", new LazyCommand(BatchCommand.DESCRIPTION,
+				() -> commandFactory.createBatchCommand(composer)));
+		commands.put("memo", commandFactory.createMemoCommand(composer));
+		commands.put("profile", new LazyCommand(ProfileCommand.DESCRIPTION,
+				() -> commandFactory.createProfileCommand(composer)));
+	}
+
+	private void putTransformCommands(Map<String, IReplCommand> commands, ILanguageImpl lang,
+			Function<ITransformAction, CommandBuilder<TransformResult>> transform) {
+		// Only the names of the actions are needed up front, the transformations are composed
+		// when they are used first, so that loading does not depend on the size of the menu.
+		new TransformVisitor(menuService).getActions(lang).forEach((key, action) -> commands
+				.put(key, new LazyCommand(action.name(),
+						() -> transform.apply(action).description(action.name()).build())));
+	}
+
+	/**
+	 * Load the language at the given path and use it. The previously loaded languages stay
+	 * loaded, see {@link UseCommand}.
+	 *
+	 * @param path
+	 *            the path to the language
+	 * @param watch
+	 *            whether to reload the language whenever it is rebuilt
+	 * @return the message to show once the language is loaded
+	 * @throws MetaborgException
+	 *             when loading fails
+	 */
+	private IResult loadLanguage(String path, boolean watch) throws MetaborgException {
+		LoadedLanguages.Language language = prepare(path);
+		String message = "Loaded language " + language.lang().id().toString();
+		// Watched first, so that a language that cannot be watched is not used either.
+		if (watch) {
+			watch(path, language.lang());
+			message += ", watching it for changes";
+		}
+		languages.add(language, invoker);
+		if (warmUp != null && warmUp.start(language.composer(), invoker.commandPrefix())) {
+			message += ", warming up the JIT compiler in the background";
+		}
+		StyledText loaded = new StyledText(message);
+		return (visitor) -> visitor.visitMessage(loaded);
+	}
+
+	/**
+	 * Find a language and build its commands, without using it yet. This is safe to call from
+	 * several threads at the same time.
+	 *
+	 * @param path
+	 *            the path to the language
+	 * @return the loaded language
+	 * @throws MetaborgException
+	 *             when loading fails
+	 */
+	private LoadedLanguages.Language prepare(String path) throws MetaborgException {
+		ILanguageImpl lang = load(resolveLanguage(path));
+		// The commands and editor services of a language share one composer.
+		return loadCommands(lang, factory.createComposer(project, lang));
+	}
+
+	/**
+	 * Load the languages at the given paths at the same time, and use the last one. A language
+	 * that fails to load does not keep the others from loading.
+	 *
+	 * @param paths
+	 *            the paths to the languages
+	 * @param watch
+	 *            whether to reload the languages whenever they are rebuilt
+	 * @param report
+	 *            receives the outcome of loading every language, in the given order, as soon as
+	 *            it is added
+	 */
+	private void loadConcurrently(List<String> paths, boolean watch, Consumer<IResult> report) {
+		ExecutorService pool =
+				Executors.newFixedThreadPool(Math.min(paths.size(), loadThreads), daemonThreads());
+		List<Future<LoadedLanguages.Language>> loads = new ArrayList<>();
+		for (String path : paths) {
+			loads.add(pool.submit(() -> preload(prepare(path))));
+		}
+		pool.shutdown();
 
-		invoker.setDefault(eval);
+		LoadedLanguages.Language previous = languages.active();
+		for (int i = 0; i < paths.size(); i++) {
+			report.accept(add(paths.get(i), loads.get(i), watch));
+		}
+		LoadedLanguages.Language active = languages.active();
+		if (active != previous && warmUp != null
+				&& warmUp.start(active.composer(), invoker.commandPrefix())) {
+			StyledText message = new StyledText("Warming up the JIT compiler for "
+					+ active.lang().id() + " in the background");
+			report.accept((visitor) -> visitor.visitMessage(message));
+		}
+	}
 
-		new TransformVisitor(menuService).getActions(lang).forEach((key, action) -> invoker
-				.addCommand(key, transform.apply(action).description(action.name()).build()));
+	/**
+	 * Parse an empty input with the parse service, which loads the parse table of a language. The
+	 * functions of the REPL are bypassed, so that no input resource, cached parse, statistics or
+	 * start symbol are recorded for the empty input.
+	 *
+	 * @param language
+	 *            the loaded language
+	 * @return the same language
+	 */
+	private LoadedLanguages.Language preload(LoadedLanguages.Language language) {
+		if (syntaxService == null || unitService == null) {
+			return language;
+		}
+		try {
+			syntaxService.parse(unitService.inputUnit("", language.lang(), null));
+		} catch (ParseException | MetaborgRuntimeException e) {
+			// Only loading the parse table matters, not whether the empty input parses. A parse
+			// table that fails to load fails again when the language first parses.
+			return language;
+		}
+		return language;
+	}
+
+	private IResult add(String path, Future<LoadedLanguages.Language> load, boolean watch) {
+		try {
+			LoadedLanguages.Language language = load.get();
+			String message = "Loaded language " + language.lang().id().toString();
+			if (watch) {
+				watch(path, language.lang());
+				message += ", watching it for changes";
+			}
+			languages.add(language, invoker);
+			StyledText loaded = new StyledText(message);
+			return (visitor) -> visitor.visitMessage(loaded);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return new ExceptionResult(e);
+		} catch (ExecutionException e) {
+			return failure(path, e.getCause());
+		} catch (MetaborgException | MetaborgRuntimeException e) {
+			return failure(path, e);
+		}
+	}
+
+	private static IResult failure(String path, Throwable cause) {
+		return new ExceptionResult(new MetaborgException(
+				"Cannot load the language from " + path + ": " + cause.getMessage(), cause));
+	}
+
+	private void watch(String path, ILanguageImpl lang) throws MetaborgException {
+		FileObject langloc = resolveLanguage(path);
+		FileObject archive = archive(langloc);
+		Path location = LanguageArchiveCache.localPath(archive != null ? archive : langloc);
+		if (location == null) {
+			throw new MetaborgException("Only languages on the local file system can be watched");
+		}
+		try {
+			watcher.watch(location, lang, () -> reload(path));
+		} catch (IOException e) {
+			throw new MetaborgException("Cannot watch " + path, e);
+		}
+	}
+
+	/**
+	 * Load a watched language again. Its commands are rebuilt, which is cheap, while the state
+	 * that does not depend on the changed artifacts is kept by the {@link LanguageWatcher}.
+	 *
+	 * @param path
+	 *            the path to the language
+	 * @return the reloaded {@link ILanguageImpl}
+	 * @throws MetaborgException
+	 *             when loading fails
+	 */
+	private ILanguageImpl reload(String path) throws MetaborgException {
+		forget(resolveLanguage(path));
+		// Resolved again, so that an archive is read from a new file system.
+		ILanguageImpl lang = load(resolveLanguage(path));
+		LoadedLanguages.Language reloaded =
+				loadCommands(lang, factory.createComposer(project, lang));
+		LoadedLanguages.Language previous = languages.replace(reloaded, invoker);
+		if (previous != null && archiveCache != null) {
+			release(previous.lang(), lang);
+		}
+		return lang;
+	}
+
+	/**
+	 * Release the extracted directories of a language that are not used by its reloaded version,
+	 * so that the {@link LanguageArchiveCache} can clean them up.
+	 *
+	 * @param previous
+	 *            the language before reloading
+	 * @param reloaded
+	 *            the reloaded language
+	 */
+	private void release(ILanguageImpl previous, ILanguageImpl reloaded) {
+		Set<FileObject> used = new HashSet<>();
+		reloaded.components().forEach(component -> used.add(component.location()));
+		for (ILanguageComponent component : previous.components()) {
+			if (!used.contains(component.location())) {
+				archiveCache.release(component.location());
+			}
+		}
+	}
+
+	/**
+	 * Close the file system of an archive, because VFS reads the entries of an archive only once.
+	 *
+	 * @param langloc
+	 *            the location of a language
+	 */
+	private static void forget(FileObject langloc) {
+		if (archive(langloc) == null) {
+			return;
+		}
+		FileSystem fileSystem = langloc.getFileSystem();
+		FileSystemManager manager = fileSystem.getFileSystemManager();
+		if (manager instanceof DefaultFileSystemManager) {
+			((DefaultFileSystemManager) manager).closeFileSystem(fileSystem);
+		}
+	}
+
+	private synchronized IResult loadInBackground(List<String> paths, boolean watch) {
+		if (loading != null && !loading.isDone()) {
+			return new ExceptionResult(new MetaborgException(
+					"Another language is still being loaded, try again once it is loaded."));
+		}
+
+		String path = String.join(" ", paths);
+		IReplCommand previous = invoker.getDefault();
+		Loading rejecting = new Loading(path);
+		invoker.setDefault(rejecting);
+		loading = loader.submit(() -> {
+			// Posted one by one, so that the client can show each outcome as soon as it is known.
+			loadLanguages(paths, watch, results::post);
+			if (invoker.getDefault() == rejecting) {
+				// No language was loaded.
+				invoker.setDefault(previous);
+			}
+		});
+
+		StyledText message = new StyledText("Loading language from " + path
+				+ " in the background.");
+		return (visitor) -> visitor.visitMessage(message);
+	}
+
+	/**
+	 * Load the languages at the given paths and use the last one.
+	 *
+	 * @param paths
+	 *            the paths to the languages
+	 * @param watch
+	 *            whether to reload the languages whenever they are rebuilt
+	 * @param report
+	 *            receives the outcome of loading, as soon as it is known
+	 */
+	private void loadLanguages(List<String> paths, boolean watch, Consumer<IResult> report) {
+		try {
+			if (watch && watcher == null) {
+				throw new MetaborgException("Watching languages is not supported by this client");
+			}
+			if (paths.size() == 1) {
+				report.accept(loadLanguage(paths.get(0), watch));
+			} else {
+				loadConcurrently(paths, watch, report);
+			}
+		} catch (MetaborgException | MetaborgRuntimeException e) {
+			report.accept(new ExceptionResult(e));
+		}
 	}
 
 	@Override
 	public IResult execute(String... args) {
 		if (args.length == 0 || args.length > 1) {
-			return new ExceptionResult(new MetaborgException("Syntax: :load <path>"));
+			return new ExceptionResult(new MetaborgException(SYNTAX));
 		}
 
-		try {
-			ILanguageImpl lang = load(resolveLanguage(args[0]));
-			loadCommands(lang);
-			loadEditorServices(lang);
+		String path = args[0].trim();
+		boolean watch = path.equals(WATCH) || path.startsWith(WATCH + " ");
+		if (watch) {
+			path = path.substring(WATCH.length()).trim();
+		}
+		if (path.isEmpty()) {
+			return new ExceptionResult(new MetaborgException(SYNTAX));
+		}
 
-			return (visitor) -> visitor
-					.visitMessage(new StyledText("Loaded language " + lang.id().toString()));
-		} catch (MetaborgException | MetaborgRuntimeException e) {
-			return new ExceptionResult(e);
+		List<String> paths = Arrays.asList(path.split("\\s+"));
+		synchronized (this) {
+			if (results != null) {
+				return loadInBackground(paths, watch);
+			}
+		}
+		List<IResult> outcomes = new ArrayList<>();
+		loadLanguages(paths, watch, outcomes::add);
+		return (visitor) -> outcomes.forEach(outcome -> outcome.accept(visitor));
+	}
+
+	/**
+	 * The default command while a language is loaded in the background, which rejects
+	 * expressions instead of evaluating them in the previously loaded language.
+	 */
+	private static class Loading implements IReplCommand {
+		private final String path;
+
+		Loading(String path) {
+			this.path = path;
+		}
+
+		@Override
+		public String description() {
+			return "Reject expressions while a language is loading.";
+		}
+
+		@Override
+		public IResult execute(String... args) {
+			return new ExceptionResult(new MetaborgException("Still loading the language from "
+					+ path + ", the input was not evaluated."));
 		}
 	}
 }
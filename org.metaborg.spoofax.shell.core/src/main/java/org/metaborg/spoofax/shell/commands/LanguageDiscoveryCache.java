@@ -0,0 +1,202 @@
+package org.metaborg.spoofax.shell.commands;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+
+import org.apache.commons.vfs2.FileContent;
+import org.apache.commons.vfs2.FileObject;
+import org.metaborg.core.MetaborgException;
+import org.metaborg.core.MetaborgRuntimeException;
+import org.metaborg.core.language.ILanguageComponent;
+import org.metaborg.core.language.ILanguageDiscoveryService;
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.resource.IResourceService;
+
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+
+/**
+ * A persistent cache of the languages discovered in language archives. It lets a repeated
+ * {@code :load} of the same archive skip walking all the entries of the archive.
+ *
+ * <p>
+ * For every archive, the cache records its size, modification time and SHA-256 hash, together
+ * with the identifier of the discovered language and the locations of its components. When the
+ * archive is loaded again with the same size, modification time and hash, the components are
+ * created from the recorded locations directly. Any change to the archive invalidates its entry.
+ * </p>
+ */
+public class LanguageDiscoveryCache {
+    private static final String SEPARATOR = "\n";
+    private static final int SIZE = 0;
+    private static final int MODIFIED = 1;
+    private static final int DIGEST = 2;
+    private static final int LANGUAGE = 3;
+    private static final int LOCATIONS = 4;
+
+    private final ILanguageDiscoveryService discoveryService;
+    private final IResourceService resourceService;
+    private final Path file;
+    private Properties entries;
+
+    /**
+     * Instantiate a new {@link LanguageDiscoveryCache}.
+     *
+     * @param discoveryService
+     *            The {@link ILanguageDiscoveryService} that discovers the languages.
+     * @param resourceService
+     *            The {@link IResourceService} for resolving the recorded component locations.
+     * @param path
+     *            The path of the file in which the cache is stored.
+     */
+    @Inject
+    public LanguageDiscoveryCache(ILanguageDiscoveryService discoveryService,
+                                  IResourceService resourceService,
+                                  @Named("discoveryCachePath") String path) {
+        this.discoveryService = discoveryService;
+        this.resourceService = resourceService;
+        this.file = Paths.get(path);
+    }
+
+    /**
+     * Discover the languages in an archive, like
+     * {@link ILanguageDiscoveryService#scanLanguagesInDirectory(FileObject)}. When the archive
+     * was scanned before and is unchanged, the recorded components are created instead of
+     * scanning the archive again.
+     *
+     * @param archive
+     *            The archive file, which guards the recorded components.
+     * @param location
+     *            The location of the languages of the archive, such as
+     *            {@code zip:lang.spoofax-language!/} or the directory to which it was extracted.
+     * @param digest
+     *            The {@link LanguageArchiveCache#sha256(FileObject) SHA-256 hash} of the archive,
+     *            which the caller computed already, or {@code null} if hashing it failed. Without
+     *            a hash, the archive is scanned and nothing is recorded.
+     * @return The discovered {@link ILanguageImpl}s.
+     * @throws MetaborgException
+     *             When discovering the languages fails.
+     */
+    public Set<ILanguageImpl> scanLanguages(FileObject archive, FileObject location,
+                                            String digest)
+        throws MetaborgException {
+        long size;
+        long modified;
+        try {
+            FileContent content = archive.getContent();
+            size = content.getSize();
+            modified = content.getLastModifiedTime();
+        } catch (IOException e) {
+            return discoveryService.scanLanguagesInDirectory(location);
+        }
+
+        String key = archive.getName().getURI();
+        String[] entry = entry(key);
+        if (unchanged(entry, size, modified)) {
+            Set<ILanguageImpl> cached = cached(entry, digest);
+            if (!cached.isEmpty()) {
+                return cached;
+            }
+        }
+
+        Set<ILanguageImpl> langs = discoveryService.scanLanguagesInDirectory(location);
+        if (langs != null && langs.size() == 1 && digest != null) {
+            record(key, size, modified, digest, langs.iterator().next());
+        }
+        return langs;
+    }
+
+    private static boolean unchanged(String[] entry, long size, long modified) {
+        return entry != null && entry[SIZE].equals(Long.toString(size))
+               && entry[MODIFIED].equals(Long.toString(modified));
+    }
+
+    /**
+     * Create the recorded components of an archive, if it still has the recorded digest.
+     *
+     * @return The recorded {@link ILanguageImpl}s, or an empty set if the archive changed or the
+     *         recorded components cannot be created.
+     */
+    private Set<ILanguageImpl> cached(String[] entry, String digest) {
+        if (digest == null || !entry[DIGEST].equals(digest)) {
+            return new HashSet<>();
+        }
+        return fromLocations(entry);
+    }
+
+    private Set<ILanguageImpl> fromLocations(String[] entry) {
+        Set<ILanguageImpl> langs = new HashSet<>();
+        try {
+            for (String location : Arrays.copyOfRange(entry, LOCATIONS, entry.length)) {
+                ILanguageComponent component =
+                    discoveryService.componentFromDirectory(resourceService.resolve(location));
+                if (component == null) {
+                    return new HashSet<>();
+                }
+                for (ILanguageImpl lang : component.contributesTo()) {
+                    if (lang.id().toString().equals(entry[LANGUAGE])) {
+                        langs.add(lang);
+                    }
+                }
+            }
+        } catch (MetaborgException | MetaborgRuntimeException e) {
+            // A stale entry is not an error, the archive is scanned instead.
+            return new HashSet<>();
+        }
+        return langs;
+    }
+
+    private synchronized String[] entry(String key) {
+        String value = entries().getProperty(key);
+        if (value == null) {
+            return null;
+        }
+        String[] entry = value.split(SEPARATOR);
+        return entry.length > LOCATIONS ? entry : null;
+    }
+
+    private synchronized void record(String key, long size, long modified, String digest,
+                                     ILanguageImpl lang) {
+        StringBuilder value = new StringBuilder().append(size).append(SEPARATOR).append(modified)
+            .append(SEPARATOR).append(digest).append(SEPARATOR).append(lang.id());
+        for (ILanguageComponent component : lang.components()) {
+            value.append(SEPARATOR).append(component.location().getName().getURI());
+        }
+        entries().setProperty(key, value.toString());
+
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            try (OutputStream out = Files.newOutputStream(file)) {
+                entries.store(out, "Languages discovered by the Spoofax REPL");
+            }
+        } catch (IOException e) {
+            // The cache is best effort, so the next start scans the archive again.
+            return;
+        }
+    }
+
+    private Properties entries() {
+        if (entries == null) {
+            entries = new Properties();
+            if (Files.isRegularFile(file)) {
+                try (InputStream in = Files.newInputStream(file)) {
+                    entries.load(in);
+                } catch (IOException | IllegalArgumentException e) {
+                    // An unreadable cache is discarded and rebuilt.
+                    entries = new Properties();
+                }
+            }
+        }
+        return entries;
+    }
+}
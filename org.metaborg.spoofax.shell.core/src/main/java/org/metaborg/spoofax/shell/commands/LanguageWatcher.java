@@ -0,0 +1,284 @@
+package org.metaborg.spoofax.shell.commands;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.metaborg.core.MetaborgException;
+import org.metaborg.core.MetaborgRuntimeException;
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.spoofax.shell.client.BackgroundResults;
+import org.metaborg.spoofax.shell.core.IEvaluationStrategy;
+import org.metaborg.spoofax.shell.core.LanguageArtifact;
+import org.metaborg.spoofax.shell.functions.EvaluationMemo;
+import org.metaborg.spoofax.shell.functions.IParseCache;
+import org.metaborg.spoofax.shell.functions.StartSymbolSelector;
+import org.metaborg.spoofax.shell.output.ExceptionResult;
+import org.metaborg.spoofax.shell.output.StyledText;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.name.Named;
+
+/**
+ * Watches the locations of loaded languages and reloads a language when it is rebuilt.
+ *
+ * <p>
+ * The changed files are sorted into {@link LanguageArtifact}s, and only the state that depends on
+ * a changed artifact is thrown away: the cached parse results and remembered start symbols when
+ * the parse table changed, the Stratego runtimes or DynSem interpreter when those changed, and so
+ * on. The state is thrown away after the language is reloaded, so that no results of the old
+ * language that were computed while reloading survive. The evaluation
+ * environments, the history and all other caches are kept. Changes are collected until none
+ * arrived for {@code watchQuietMillis}, so that a build that writes many files causes a single
+ * reload. The outcome of a reload is posted to the {@link BackgroundResults}.
+ * </p>
+ */
+public class LanguageWatcher {
+    private static final String THREAD_NAME = "spoofax-shell-language-watcher";
+
+    private final Provider<Map<String, IEvaluationStrategy>> strategies;
+    private final IParseCache parseCache;
+    private final StartSymbolSelector selector;
+    private final EvaluationMemo memo;
+    private final BackgroundResults results;
+    private final long quietMillis;
+    private final ExecutorService watchers;
+    private final Map<Path, Future<?>> watches;
+
+    /**
+     * Reloads a watched language.
+     */
+    @FunctionalInterface
+    public interface Reloader {
+        /**
+         * Load the language again and replace the loaded one.
+         *
+         * @return The reloaded {@link ILanguageImpl}.
+         * @throws MetaborgException
+         *             When loading fails.
+         */
+        ILanguageImpl reload() throws MetaborgException;
+    }
+
+    /**
+     * Instantiates a new {@link LanguageWatcher}.
+     *
+     * @param strategies
+     *            The {@link IEvaluationStrategy} implementations, grouped by their names as keys.
+     *            They are only created when the first language is reloaded.
+     * @param parseCache
+     *            The {@link IParseCache} of which the entries of a language are removed when its
+     *            parse table changed.
+     * @param selector
+     *            The {@link StartSymbolSelector} which forgets the start symbols of a language when
+     *            its parse table changed.
+     * @param memo
+     *            The {@link EvaluationMemo} of which the results of a language are forgotten when
+     *            its semantics changed.
+     * @param results
+     *            The {@link BackgroundResults} to which the outcome of a reload is posted.
+     * @param quietMillis
+     *            The number of milliseconds without changes after which a language is reloaded.
+     */
+    @Inject
+    public LanguageWatcher(Provider<Map<String, IEvaluationStrategy>> strategies,
+                           IParseCache parseCache, StartSymbolSelector selector,
+                           EvaluationMemo memo,
+                           BackgroundResults results,
+                           @Named("watchQuietMillis") long quietMillis) {
+        this.strategies = strategies;
+        this.parseCache = parseCache;
+        this.selector = selector;
+        this.memo = memo;
+        this.results = results;
+        this.quietMillis = quietMillis;
+        this.watches = new HashMap<>();
+        this.watchers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, THREAD_NAME);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Start watching the location of a language. A previous watch of the same location is
+     * stopped.
+     *
+     * @param location
+     *            The directory of the language, which is watched with all its subdirectories, or
+     *            the archive that contains it.
+     * @param lang
+     *            The loaded {@link ILanguageImpl}.
+     * @param reloader
+     *            The {@link Reloader} that loads the language again.
+     * @throws IOException
+     *             When the location cannot be watched.
+     */
+    public synchronized void watch(Path location, ILanguageImpl lang, Reloader reloader)
+        throws IOException {
+        Path key = location.toAbsolutePath().normalize();
+        stop(key);
+
+        WatchService service = key.getFileSystem().newWatchService();
+        try {
+            if (Files.isDirectory(key)) {
+                register(service, key);
+            } else {
+                // Only directories can be watched, so watch the one that contains the archive.
+                key.getParent().register(service, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+            }
+        } catch (IOException e) {
+            service.close();
+            throw e;
+        }
+        watches.put(key, watchers.submit(() -> run(service, key, lang, reloader)));
+    }
+
+    /**
+     * Stop watching the location of a language.
+     *
+     * @param location
+     *            The watched location.
+     * @return {@code true} if the location was watched.
+     */
+    public synchronized boolean stop(Path location) {
+        Future<?> watch = watches.remove(location.toAbsolutePath().normalize());
+        if (watch == null) {
+            return false;
+        }
+        watch.cancel(true);
+        return true;
+    }
+
+    private static void register(WatchService service, Path directory) throws IOException {
+        // A WatchService only reports changes to the direct children of a directory.
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+                throws IOException {
+                dir.register(service, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void run(WatchService service, Path location, ILanguageImpl watched,
+                     Reloader reloader) {
+        ILanguageImpl lang = watched;
+        try (WatchService closing = service) {
+            while (!Thread.currentThread().isInterrupted()) {
+                Set<LanguageArtifact> changed = EnumSet.noneOf(LanguageArtifact.class);
+                WatchKey key = service.take();
+                while (key != null) {
+                    collect(service, key, location, changed);
+                    key = service.poll(quietMillis, TimeUnit.MILLISECONDS);
+                }
+                if (!changed.isEmpty()) {
+                    lang = reload(lang, changed, reloader);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            results.post(new ExceptionResult(e));
+        }
+    }
+
+    /**
+     * Sort the changes reported by a {@link WatchKey} into {@link LanguageArtifact}s, and watch
+     * the directories that were created.
+     *
+     * @param service
+     *            The {@link WatchService}.
+     * @param key
+     *            The signalled {@link WatchKey}.
+     * @param location
+     *            The watched language directory or archive.
+     * @param changed
+     *            The changed {@link LanguageArtifact}s, to which the changes are added.
+     * @throws IOException
+     *             When a created directory cannot be watched.
+     */
+    static void collect(WatchService service, WatchKey key, Path location,
+                        Set<LanguageArtifact> changed) throws IOException {
+        Path directory = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                changed.addAll(EnumSet.allOf(LanguageArtifact.class));
+                continue;
+            }
+            Path file = directory.resolve((Path) event.context());
+            if (!Files.isDirectory(location)) {
+                // Any change to the archive can change any artifact.
+                if (file.equals(location)) {
+                    changed.addAll(EnumSet.allOf(LanguageArtifact.class));
+                }
+            } else if (event.kind() == ENTRY_CREATE && Files.isDirectory(file)) {
+                register(service, file);
+            } else {
+                changed.addAll(LanguageArtifact.of(file));
+            }
+        }
+        key.reset();
+    }
+
+    private ILanguageImpl reload(ILanguageImpl lang, Set<LanguageArtifact> changed,
+                                 Reloader reloader) {
+        ILanguageImpl reloaded = lang;
+        try {
+            reloaded = reloader.reload();
+            StyledText message = new StyledText("Reloaded language " + reloaded.id()
+                                                + " after changes to the " + describe(changed));
+            results.post((visitor) -> visitor.visitMessage(message));
+        } catch (MetaborgException | MetaborgRuntimeException e) {
+            results.post(new ExceptionResult(e));
+        }
+
+        // Also when reloading failed, because the rebuilt files are read from disk again anyway.
+        invalidate(lang, changed);
+        if (reloaded != lang) {
+            invalidate(reloaded, changed);
+        }
+        return reloaded;
+    }
+
+    private void invalidate(ILanguageImpl lang, Set<LanguageArtifact> changed) {
+        for (IEvaluationStrategy strategy : strategies.get().values()) {
+            strategy.invalidate(lang, changed);
+        }
+        if (changed.contains(LanguageArtifact.PARSE_TABLE)) {
+            parseCache.clear(lang);
+            selector.forget(lang);
+        }
+        if (!EnumSet.of(LanguageArtifact.EDITOR).containsAll(changed)) {
+            memo.clear(lang);
+        }
+    }
+
+    private static String describe(Set<LanguageArtifact> changed) {
+        return changed.stream().map(LanguageArtifact::description)
+            .collect(Collectors.joining(", "));
+    }
+}
@@ -0,0 +1,39 @@
+package org.metaborg.spoofax.shell.commands;
+
+import java.util.function.Supplier;
+
+import org.metaborg.spoofax.shell.output.IResult;
+
+import com.google.common.base.Suppliers;
+
+/**
+ * A command that is only built when it is executed for the first time. Its description is known
+ * up front, so that {@code :help} can list it without building it.
+ */
+public class LazyCommand implements IReplCommand {
+    private final String description;
+    private final Supplier<IReplCommand> command;
+
+    /**
+     * Instantiates a new {@link LazyCommand}.
+     *
+     * @param description
+     *            The description of the command.
+     * @param build
+     *            Builds the command. It is called at most once.
+     */
+    public LazyCommand(String description, Supplier<IReplCommand> build) {
+        this.description = description;
+        this.command = Suppliers.memoize(build::get)::get;
+    }
+
+    @Override
+    public String description() {
+        return description;
+    }
+
+    @Override
+    public IResult execute(String... args) {
+        return command.get().execute(args);
+    }
+}
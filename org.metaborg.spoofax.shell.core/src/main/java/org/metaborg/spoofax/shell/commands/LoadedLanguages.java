@@ -0,0 +1,198 @@
+package org.metaborg.spoofax.shell.commands;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.spoofax.shell.functions.FunctionComposer;
+import org.metaborg.spoofax.shell.invoker.ICommandInvoker;
+import org.metaborg.spoofax.shell.services.IEditorServices;
+
+import com.google.inject.Inject;
+
+/**
+ * The languages that were loaded in this session, of which one is in use. Every language keeps
+ * its own {@link FunctionComposer} and commands, so switching to another loaded language does not
+ * load it again, and its composed functions, contexts and evaluation environments are kept.
+ *
+ * <p>
+ * The language in use is served by the {@link IEditorServices} once they {@link #serve(
+ * IEditorServices) register} themselves, which they do when a client first requests them. Using a
+ * language before that does not create the editor services.
+ * </p>
+ */
+public class LoadedLanguages {
+    private final Map<String, Language> languages;
+    private Language active;
+    private IEditorServices editorServices;
+
+    /**
+     * A loaded language with its commands.
+     */
+    public static final class Language {
+        private final FunctionComposer composer;
+        private final Map<String, IReplCommand> commands;
+        private final IReplCommand defaultCommand;
+
+        /**
+         * Instantiate a new {@link Language}.
+         *
+         * @param composer
+         *            The {@link FunctionComposer} of the language.
+         * @param commands
+         *            The commands of the language, with their names as keys (without prefix).
+         * @param defaultCommand
+         *            The command that evaluates an expression in the language.
+         */
+        public Language(FunctionComposer composer, Map<String, IReplCommand> commands,
+                        IReplCommand defaultCommand) {
+            this.composer = composer;
+            this.commands = Collections.unmodifiableMap(new LinkedHashMap<>(commands));
+            this.defaultCommand = defaultCommand;
+        }
+
+        /**
+         * @return The {@link ILanguageImpl}.
+         */
+        public ILanguageImpl lang() {
+            return composer.lang();
+        }
+
+        /**
+         * @return The {@link FunctionComposer} of the language.
+         */
+        public FunctionComposer composer() {
+            return composer;
+        }
+
+        /**
+         * @return The commands of the language, with their names as keys (without prefix).
+         */
+        public Map<String, IReplCommand> commands() {
+            return commands;
+        }
+
+        /**
+         * @return The command that evaluates an expression in the language.
+         */
+        public IReplCommand defaultCommand() {
+            return defaultCommand;
+        }
+
+        private boolean matches(String name) {
+            return lang().id().toString().equals(name) || lang().id().id.equals(name);
+        }
+    }
+
+    /**
+     * Instantiate a new, empty {@link LoadedLanguages}.
+     */
+    @Inject
+    public LoadedLanguages() {
+        this.languages = new LinkedHashMap<>();
+    }
+
+    /**
+     * Serve the language in use with the given {@link IEditorServices}, now and whenever another
+     * language is used.
+     *
+     * @param services
+     *            The {@link IEditorServices}.
+     */
+    public synchronized void serve(IEditorServices services) {
+        this.editorServices = services;
+        if (active != null) {
+            services.load(active.composer());
+        }
+    }
+
+    /**
+     * Add a language and use it. A previously loaded language with the same identifier is
+     * replaced.
+     *
+     * @param language
+     *            The loaded {@link Language}.
+     * @param invoker
+     *            The {@link ICommandInvoker} to which the commands of the language are added.
+     */
+    public synchronized void add(Language language, ICommandInvoker invoker) {
+        // Removed first, so that the language is the most recently loaded one.
+        languages.remove(language.lang().id().toString());
+        languages.put(language.lang().id().toString(), language);
+        use(language, invoker);
+    }
+
+    /**
+     * Replace a loaded language by a reloaded version of it. It is only used if the language it
+     * replaces was in use, so that reloading does not switch away from another language.
+     *
+     * @param language
+     *            The reloaded {@link Language}.
+     * @param invoker
+     *            The {@link ICommandInvoker} to which the commands of the language are added.
+     * @return The replaced {@link Language}, or {@code null} if it was not loaded.
+     */
+    public synchronized Language replace(Language language, ICommandInvoker invoker) {
+        String id = language.lang().id().toString();
+        Language previous = languages.put(id, language);
+        if (previous == null || previous == active) {
+            use(language, invoker);
+        }
+        return previous;
+    }
+
+    /**
+     * Use a loaded language: replace the commands of the language in use by its commands, and
+     * serve it with the editor services, if they were created.
+     *
+     * @param language
+     *            The loaded {@link Language}.
+     * @param invoker
+     *            The {@link ICommandInvoker} to which the commands of the language are added.
+     */
+    public synchronized void use(Language language, ICommandInvoker invoker) {
+        if (editorServices != null) {
+            editorServices.load(language.composer());
+        }
+        invoker.replaceCommands(language.commands(), language.defaultCommand());
+        active = language;
+    }
+
+    /**
+     * Find a loaded language by its full identifier, such as {@code org.borg:lang:1.0.0}, or by
+     * its name, such as {@code lang}. When several versions of a language are loaded, its name
+     * finds the most recently loaded one.
+     *
+     * @param name
+     *            The identifier or name of the language.
+     * @return The loaded {@link Language}, or {@code null} if it is not loaded.
+     */
+    public synchronized Language find(String name) {
+        Language found = languages.get(name);
+        if (found == null) {
+            for (Language language : languages.values()) {
+                if (language.matches(name)) {
+                    found = language;
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return The loaded languages, in the order in which they were loaded.
+     */
+    public synchronized List<Language> all() {
+        return new ArrayList<>(languages.values());
+    }
+
+    /**
+     * @return The language in use, or {@code null} if no language was loaded yet.
+     */
+    public synchronized Language active() {
+        return active;
+    }
+}
@@ -0,0 +1,77 @@
+package org.metaborg.spoofax.shell.commands;
+
+import org.metaborg.core.MetaborgException;
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.spoofax.shell.functions.EvaluationMemo;
+import org.metaborg.spoofax.shell.functions.FunctionComposer;
+import org.metaborg.spoofax.shell.output.ExceptionResult;
+import org.metaborg.spoofax.shell.output.IResult;
+import org.metaborg.spoofax.shell.output.StyledText;
+
+import com.google.inject.assistedinject.Assisted;
+import com.google.inject.assistedinject.AssistedInject;
+
+/**
+ * Enables, disables or resets the memoization of pure evaluations in the loaded language, or shows
+ * how often the {@link EvaluationMemo} could be used.
+ */
+public class MemoCommand implements IReplCommand {
+    private static final String SYNTAX = "Syntax: :memo [on|off|reset]";
+    private static final double PERCENT = 100;
+
+    private final EvaluationMemo memo;
+    private final ILanguageImpl lang;
+
+    /**
+     * Instantiates a new {@link MemoCommand}.
+     *
+     * @param memo
+     *            The {@link EvaluationMemo} to control.
+     * @param composer
+     *            The {@link FunctionComposer} of the loaded language.
+     */
+    @AssistedInject
+    public MemoCommand(EvaluationMemo memo, @Assisted FunctionComposer composer) {
+        this.memo = memo;
+        this.lang = composer.lang();
+    }
+
+    @Override
+    public String description() {
+        return "Show the hit rate of remembered evaluation results.\n"
+               + "Use \":memo on\", \":memo off\" or \":memo reset\" to remember the results of"
+               + " evaluations that do not change the environment.";
+    }
+
+    @Override
+    public IResult execute(String... args) {
+        if (args.length > 1) {
+            return new ExceptionResult(new MetaborgException(SYNTAX));
+        }
+        if (args.length == 1) {
+            switch (args[0].trim()) {
+                case "on":
+                    memo.setEnabled(lang, true);
+                    break;
+                case "off":
+                    memo.setEnabled(lang, false);
+                    break;
+                case "reset":
+                    memo.clear();
+                    break;
+                default:
+                    return new ExceptionResult(new MetaborgException(SYNTAX));
+            }
+        }
+        return (visitor) -> visitor.visitMessage(new StyledText(status()));
+    }
+
+    private String status() {
+        long hits = memo.hits();
+        long lookups = hits + memo.misses();
+        double rate = lookups == 0 ? 0 : PERCENT * hits / lookups;
+        return String.format("Memoization in %s is %s. %d result(s) remembered, %d hit(s) in %d"
+                             + " lookup(s) (%.1f%% hit rate).", lang.id(),
+                             memo.enabled(lang) ? "on" : "off", memo.size(), hits, lookups, rate);
+    }
+}
@@ -0,0 +1,50 @@
+package org.metaborg.spoofax.shell.commands;
+
+import java.awt.Color;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.metaborg.core.MetaborgException;
+import org.metaborg.core.messages.IMessage;
+import org.metaborg.spoofax.shell.client.HiddenMessages;
+import org.metaborg.spoofax.shell.output.ExceptionResult;
+import org.metaborg.spoofax.shell.output.IResult;
+import org.metaborg.spoofax.shell.output.StyledText;
+
+import com.google.inject.Inject;
+
+/**
+ * Shows the messages of the last failure that were not shown, see {@link HiddenMessages}.
+ */
+public class MessagesCommand implements IReplCommand {
+    private final HiddenMessages hidden;
+
+    /**
+     * Instantiates a new {@link MessagesCommand}.
+     *
+     * @param hidden
+     *            The {@link HiddenMessages} to show.
+     */
+    @Inject
+    public MessagesCommand(HiddenMessages hidden) {
+        this.hidden = hidden;
+    }
+
+    @Override
+    public String description() {
+        return "Show the messages of the last failure that were not shown.";
+    }
+
+    @Override
+    public IResult execute(String... args) {
+        if (args.length > 0) {
+            return new ExceptionResult(new MetaborgException("Syntax: :messages"));
+        }
+        List<IMessage> messages = hidden.take();
+        if (messages.isEmpty()) {
+            return (visitor) -> visitor.visitMessage(new StyledText("No messages were hidden."));
+        }
+        String text = messages.stream().map(IMessage::message).collect(Collectors.joining("\n"));
+        return (visitor) -> visitor.visitMessage(new StyledText(Color.RED, text));
+    }
+}
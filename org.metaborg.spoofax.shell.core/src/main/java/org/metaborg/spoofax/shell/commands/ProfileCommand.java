@@ -0,0 +1,188 @@
+package org.metaborg.spoofax.shell.commands;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.metaborg.core.MetaborgException;
+import org.metaborg.core.MetaborgRuntimeException;
+import org.metaborg.core.analysis.AnalyzerFacet;
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.resource.IResourceService;
+import org.metaborg.core.style.IStyle;
+import org.metaborg.core.style.Style;
+import org.metaborg.spoofax.shell.core.IEvaluationStrategy;
+import org.metaborg.spoofax.shell.functions.FailableFunction;
+import org.metaborg.spoofax.shell.functions.FunctionComposer;
+import org.metaborg.spoofax.shell.output.EvaluateResult;
+import org.metaborg.spoofax.shell.output.ExceptionResult;
+import org.metaborg.spoofax.shell.output.FailOrSuccessResult;
+import org.metaborg.spoofax.shell.output.IResult;
+import org.metaborg.spoofax.shell.output.StyledText;
+import org.metaborg.spoofax.shell.statistics.EvaluationProfile;
+import org.metaborg.spoofax.shell.statistics.EvaluationProfile.Frame;
+import org.metaborg.spoofax.shell.statistics.EvaluationProfiler;
+
+import com.google.inject.assistedinject.Assisted;
+import com.google.inject.assistedinject.AssistedInject;
+
+/**
+ * Evaluates an expression while the {@link EvaluationProfiler} samples the evaluation, and shows
+ * the rules or strategies in which the most time was spent. With {@code --flame <file>}, the
+ * sampled stacks are also written to a file in the collapsed format of flame graph tools.
+ */
+public class ProfileCommand implements IReplCommand {
+    /**
+     * The description, which is known before the command is built.
+     */
+    static final String DESCRIPTION =
+        "Evaluate an expression and show the rules or strategies that took the most time.\n"
+        + "Use \":profile --flame <file> <expression>\" to also write the sampled stacks for a"
+        + " flame graph.";
+    private static final String SYNTAX = "Syntax: :profile [--flame <file>] <expression>";
+    private static final String FLAME = "--flame";
+    private static final int FLAME_ARGS = 3;
+    private static final int ROWS = 20;
+    private static final String ROW = "%-48s %10s %7s %10s %7s %8s";
+    private static final double NANOS_PER_MILLI = 1e6;
+    private static final double PERCENT = 100;
+    private static final IStyle HEADER = new Style(null, null, true, false, false, false);
+
+    private final EvaluationProfiler profiler;
+    private final IResourceService resourceService;
+    private final Collection<IEvaluationStrategy> strategies;
+    private final ILanguageImpl lang;
+    private final FailableFunction<String, EvaluateResult, IResult> evaluate;
+
+    /**
+     * Instantiates a new {@link ProfileCommand}.
+     *
+     * @param profiler
+     *            The {@link EvaluationProfiler} that samples the evaluation.
+     * @param resourceService
+     *            The {@link IResourceService} for resolving the flame graph file.
+     * @param strategies
+     *            The {@link IEvaluationStrategy} implementations, which name the sampled frames.
+     * @param composer
+     *            The {@link FunctionComposer} of the language in which to evaluate.
+     */
+    @AssistedInject
+    public ProfileCommand(EvaluationProfiler profiler, IResourceService resourceService,
+                          Map<String, IEvaluationStrategy> strategies,
+                          @Assisted FunctionComposer composer) {
+        this.profiler = profiler;
+        this.resourceService = resourceService;
+        this.strategies = strategies.values();
+        this.lang = composer.lang();
+        if (lang.hasFacet(AnalyzerFacet.class)) {
+            this.evaluate = composer.aEvaluateFunction();
+        } else {
+            this.evaluate = composer.pEvaluateFunction();
+        }
+    }
+
+    @Override
+    public String description() {
+        return DESCRIPTION;
+    }
+
+    @Override
+    public IResult execute(String... args) {
+        if (args.length != 1 || args[0].trim().isEmpty()) {
+            return new ExceptionResult(new MetaborgException(SYNTAX));
+        }
+        String expression = args[0].trim();
+        String flame = null;
+        if (expression.startsWith(FLAME)) {
+            String[] words = expression.split("\\s+", FLAME_ARGS);
+            if (words.length != FLAME_ARGS || !FLAME.equals(words[0])) {
+                return new ExceptionResult(new MetaborgException(SYNTAX));
+            }
+            flame = words[1];
+            expression = words[2];
+        }
+        return profile(expression, flame);
+    }
+
+    /**
+     * Evaluate an expression while sampling it.
+     *
+     * @param expression
+     *            The expression to evaluate.
+     * @param flame
+     *            The file to write the collapsed stacks to, or {@code null}.
+     * @return The result of the evaluation, followed by the table of the most expensive frames.
+     */
+    private IResult profile(String expression, String flame) {
+        FailOrSuccessResult<EvaluateResult, IResult> evaluated;
+        EvaluationProfile profile;
+        profiler.start(this::frameName);
+        try {
+            evaluated = evaluate.apply(expression);
+        } finally {
+            profile = profiler.stop();
+        }
+
+        try {
+            if (flame != null) {
+                write(flame, profile.collapsedStacks());
+            }
+        } catch (IOException | MetaborgRuntimeException e) {
+            return new ExceptionResult(e);
+        }
+        FailOrSuccessResult<EvaluateResult, IResult> result = evaluated;
+        StyledText table = table(profile);
+        return (visitor) -> {
+            result.accept(visitor);
+            visitor.visitMessage(table);
+        };
+    }
+
+    private String frameName(StackTraceElement frame) {
+        return strategies.stream().map(strategy -> strategy.frameName(lang, frame))
+            .filter(Objects::nonNull).findFirst().orElse(null);
+    }
+
+    private void write(String path, String contents) throws IOException {
+        try (OutputStream out = resourceService.resolve(path).getContent().getOutputStream();
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+            writer.write(contents);
+        }
+    }
+
+    private StyledText table(EvaluationProfile profile) {
+        if (profile.samples() == 0) {
+            return new StyledText("No samples were taken. The evaluation took less than "
+                                  + profiler.interval() + " us or its result was remembered.");
+        }
+
+        StyledText table = new StyledText(String.format("%d sample(s) in %.2f ms, every %d us.",
+                                                        profile.samples(),
+                                                        profile.nanos() / NANOS_PER_MILLI,
+                                                        profiler.interval()));
+        table.append("\n").append(HEADER, String.format(ROW, "rule/strategy", "self (ms)",
+                                                        "self", "total (ms)", "total", "calls"));
+        List<Frame> frames = profile.frames();
+        frames.stream().limit(ROWS).forEach(frame -> table.append("\n").append(String.format(ROW,
+            frame.name(), millis(frame.selfNanos()), percent(frame.selfNanos(), profile),
+            millis(frame.totalNanos()), percent(frame.totalNanos(), profile), frame.calls())));
+        if (frames.size() > ROWS) {
+            table.append(String.format("\n(%d more)", frames.size() - ROWS));
+        }
+        return table;
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.2f", nanos / NANOS_PER_MILLI);
+    }
+
+    private static String percent(long nanos, EvaluationProfile profile) {
+        return String.format("%.1f%%", PERCENT * nanos / profile.nanos());
+    }
+}
@@ -0,0 +1,49 @@
+package org.metaborg.spoofax.shell.commands;
+
+import java.nio.file.Paths;
+
+import org.metaborg.core.MetaborgException;
+import org.metaborg.spoofax.shell.core.StrategoEnvironmentSnapshots;
+import org.metaborg.spoofax.shell.output.ExceptionResult;
+import org.metaborg.spoofax.shell.output.IResult;
+import org.metaborg.spoofax.shell.output.StyledText;
+
+import com.google.inject.Inject;
+
+/**
+ * Restores Stratego evaluation environments saved by the {@link SaveEnvironmentCommand}.
+ */
+public class RestoreEnvironmentCommand implements IReplCommand {
+    private final StrategoEnvironmentSnapshots snapshots;
+
+    /**
+     * Instantiates a new {@link RestoreEnvironmentCommand}.
+     *
+     * @param snapshots
+     *            The {@link StrategoEnvironmentSnapshots} for reading the environments.
+     */
+    @Inject
+    public RestoreEnvironmentCommand(StrategoEnvironmentSnapshots snapshots) {
+        this.snapshots = snapshots;
+    }
+
+    @Override
+    public String description() {
+        return "Restore an evaluation environment saved with :env-save.";
+    }
+
+    @Override
+    public IResult execute(String... args) {
+        if (args.length != 1) {
+            return new ExceptionResult(new MetaborgException("Syntax: :env-restore <file>"));
+        }
+
+        try {
+            int restored = snapshots.restore(Paths.get(args[0].trim()));
+            return (visitor) -> visitor.visitMessage(
+                new StyledText("Restored " + restored + " environment(s) from " + args[0].trim()));
+        } catch (MetaborgException e) {
+            return new ExceptionResult(e);
+        }
+    }
+}
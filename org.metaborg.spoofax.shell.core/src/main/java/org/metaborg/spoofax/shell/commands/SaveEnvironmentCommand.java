@@ -0,0 +1,49 @@
+package org.metaborg.spoofax.shell.commands;
+
+import java.nio.file.Paths;
+
+import org.metaborg.core.MetaborgException;
+import org.metaborg.spoofax.shell.core.StrategoEnvironmentSnapshots;
+import org.metaborg.spoofax.shell.output.ExceptionResult;
+import org.metaborg.spoofax.shell.output.IResult;
+import org.metaborg.spoofax.shell.output.StyledText;
+
+import com.google.inject.Inject;
+
+/**
+ * Saves the Stratego evaluation environments of all languages to a file.
+ */
+public class SaveEnvironmentCommand implements IReplCommand {
+    private final StrategoEnvironmentSnapshots snapshots;
+
+    /**
+     * Instantiates a new {@link SaveEnvironmentCommand}.
+     *
+     * @param snapshots
+     *            The {@link StrategoEnvironmentSnapshots} for writing the environments.
+     */
+    @Inject
+    public SaveEnvironmentCommand(StrategoEnvironmentSnapshots snapshots) {
+        this.snapshots = snapshots;
+    }
+
+    @Override
+    public String description() {
+        return "Save the evaluation environment to a file.";
+    }
+
+    @Override
+    public IResult execute(String... args) {
+        if (args.length != 1) {
+            return new ExceptionResult(new MetaborgException("Syntax: :env-save <file>"));
+        }
+
+        try {
+            int saved = snapshots.save(Paths.get(args[0].trim()));
+            return (visitor) -> visitor.visitMessage(
+                new StyledText("Saved " + saved + " environment(s) to " + args[0].trim()));
+        } catch (MetaborgException e) {
+            return new ExceptionResult(e);
+        }
+    }
+}
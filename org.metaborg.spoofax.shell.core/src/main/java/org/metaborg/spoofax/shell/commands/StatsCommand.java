@@ -0,0 +1,102 @@
+package org.metaborg.spoofax.shell.commands;
+
+import java.util.Map;
+
+import org.metaborg.core.MetaborgException;
+import org.metaborg.spoofax.shell.output.ExceptionResult;
+import org.metaborg.spoofax.shell.output.IResult;
+import org.metaborg.spoofax.shell.output.StyledText;
+import org.metaborg.spoofax.shell.statistics.Histogram;
+import org.metaborg.spoofax.shell.statistics.PipelineStatistics;
+import org.metaborg.spoofax.shell.statistics.StageStatistics;
+
+import com.google.inject.Inject;
+
+/**
+ * Shows the latency percentiles of every pipeline stage and every command, or enables, disables
+ * or resets the collection of these {@link PipelineStatistics}.
+ */
+public class StatsCommand implements IReplCommand {
+    private static final double NANOS_PER_MILLI = 1e6;
+    private static final double BYTES_PER_KIBI = 1024;
+    private static final double[] PERCENTILES = { 50, 95, 99 };
+    private static final String ROW = "%-16s %8s %26s %26s %26s";
+    private static final String CELL = "%8.2f/%8.2f/%8.2f";
+
+    private final PipelineStatistics statistics;
+
+    /**
+     * Instantiates a new {@link StatsCommand}.
+     *
+     * @param statistics
+     *            The {@link PipelineStatistics} to show.
+     */
+    @Inject
+    public StatsCommand(PipelineStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    @Override
+    public String description() {
+        return "Show p50/p95/p99 latencies per stage and command.\n"
+               + "Use \":stats on\", \":stats off\" or \":stats reset\" to control collection.";
+    }
+
+    @Override
+    public IResult execute(String... args) {
+        if (args.length > 1) {
+            return new ExceptionResult(new MetaborgException("Syntax: :stats [on|off|reset]"));
+        }
+        if (args.length == 0) {
+            return (visitor) -> visitor.visitMessage(new StyledText(format()));
+        }
+
+        String message;
+        switch (args[0].trim()) {
+            case "on":
+                statistics.setEnabled(true);
+                message = "Statistics collection enabled.";
+                break;
+            case "off":
+                statistics.setEnabled(false);
+                message = "Statistics collection disabled.";
+                break;
+            case "reset":
+                statistics.reset();
+                message = "Statistics reset.";
+                break;
+            default:
+                return new ExceptionResult(new MetaborgException("Syntax: :stats [on|off|reset]"));
+        }
+        return (visitor) -> visitor.visitMessage(new StyledText(message));
+    }
+
+    /**
+     * Format the collected statistics as a table.
+     *
+     * @return The formatted table.
+     */
+    public String format() {
+        StringBuilder table = new StringBuilder();
+        if (!statistics.enabled()) {
+            table.append("Statistics collection is disabled, use \":stats on\" to enable it.\n");
+        }
+        table.append(String.format(ROW, "stage/command", "count", "wall p50/p95/p99 (ms)",
+                                   "cpu p50/p95/p99 (ms)", "alloc p50/p95/p99 (KiB)"));
+        appendRows(table, statistics.stages());
+        appendRows(table, statistics.commands());
+        return table.toString();
+    }
+
+    private void appendRows(StringBuilder table, Map<String, StageStatistics> rows) {
+        rows.forEach((name, stats) -> table.append('\n').append(String.format(ROW, name,
+            stats.wallTime().count(), cell(stats.wallTime(), NANOS_PER_MILLI),
+            cell(stats.cpuTime(), NANOS_PER_MILLI), cell(stats.allocated(), BYTES_PER_KIBI))));
+    }
+
+    private String cell(Histogram histogram, double unit) {
+        return String.format(CELL, histogram.percentile(PERCENTILES[0]) / unit,
+                             histogram.percentile(PERCENTILES[1]) / unit,
+                             histogram.percentile(PERCENTILES[2]) / unit);
+    }
+}
@@ -0,0 +1,56 @@
+package org.metaborg.spoofax.shell.commands;
+
+import org.metaborg.core.MetaborgException;
+import org.metaborg.spoofax.shell.core.EvaluationExecutor;
+import org.metaborg.spoofax.shell.output.ExceptionResult;
+import org.metaborg.spoofax.shell.output.IResult;
+import org.metaborg.spoofax.shell.output.StyledText;
+
+import com.google.inject.Inject;
+
+/**
+ * Shows or changes the maximum time an evaluation run by the {@link EvaluationExecutor} may take.
+ */
+public class TimeoutCommand implements IReplCommand {
+    private static final String SYNTAX = "Syntax: :timeout [<milliseconds>|off]";
+
+    private final EvaluationExecutor executor;
+
+    /**
+     * Instantiates a new {@link TimeoutCommand}.
+     *
+     * @param executor
+     *            The {@link EvaluationExecutor} of which the timeout is shown or changed.
+     */
+    @Inject
+    public TimeoutCommand(EvaluationExecutor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public String description() {
+        return "Show or set the evaluation timeout in milliseconds.\n"
+               + "Use \":timeout off\" to let evaluations run until they finish or are cancelled.\n"
+               + "Applies to Stratego and DynSem evaluations, not to parsing, analysis or"
+               + " commands.";
+    }
+
+    @Override
+    public IResult execute(String... args) {
+        if (args.length > 1) {
+            return new ExceptionResult(new MetaborgException(SYNTAX));
+        }
+        if (args.length == 1) {
+            String arg = args[0].trim();
+            try {
+                executor.setTimeout("off".equals(arg) ? 0 : Long.parseLong(arg));
+            } catch (NumberFormatException e) {
+                return new ExceptionResult(new MetaborgException(SYNTAX));
+            }
+        }
+        long timeout = executor.timeout();
+        String message = timeout > 0 ? "Evaluation timeout: " + timeout + " ms."
+            : "Evaluation timeout: off.";
+        return (visitor) -> visitor.visitMessage(new StyledText(message));
+    }
+}
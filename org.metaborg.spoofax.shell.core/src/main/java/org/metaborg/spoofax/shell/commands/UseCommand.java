@@ -0,0 +1,75 @@
+package org.metaborg.spoofax.shell.commands;
+
+import java.util.List;
+
+import org.metaborg.core.MetaborgException;
+import org.metaborg.spoofax.shell.commands.LoadedLanguages.Language;
+import org.metaborg.spoofax.shell.invoker.ICommandInvoker;
+import org.metaborg.spoofax.shell.output.ExceptionResult;
+import org.metaborg.spoofax.shell.output.IResult;
+import org.metaborg.spoofax.shell.output.StyledText;
+
+import com.google.inject.Inject;
+
+/**
+ * Switches to another loaded language, or lists the loaded languages.
+ */
+public class UseCommand implements IReplCommand {
+    private final LoadedLanguages languages;
+    private final ICommandInvoker invoker;
+
+    /**
+     * Instantiates a new {@link UseCommand}.
+     *
+     * @param languages
+     *            The {@link LoadedLanguages}.
+     * @param invoker
+     *            The {@link ICommandInvoker} to which the commands of the language are added.
+     */
+    @Inject
+    public UseCommand(LoadedLanguages languages, ICommandInvoker invoker) {
+        this.languages = languages;
+        this.invoker = invoker;
+    }
+
+    @Override
+    public String description() {
+        return "Use a loaded language, given its identifier or name,\n"
+               + "or list the loaded languages.";
+    }
+
+    @Override
+    public IResult execute(String... args) {
+        if (args.length > 1) {
+            return new ExceptionResult(new MetaborgException("Syntax: :use [<language>]"));
+        }
+        if (args.length == 0 || args[0].trim().isEmpty()) {
+            return list();
+        }
+
+        String name = args[0].trim();
+        Language language = languages.find(name);
+        if (language == null) {
+            return new ExceptionResult(new MetaborgException("Language " + name
+                                                             + " is not loaded, use :load"));
+        }
+        languages.use(language, invoker);
+        StyledText message = new StyledText("Using language " + language.lang().id());
+        return (visitor) -> visitor.visitMessage(message);
+    }
+
+    private IResult list() {
+        List<Language> all = languages.all();
+        if (all.isEmpty()) {
+            return (visitor) -> visitor.visitMessage(new StyledText("No language is loaded yet."));
+        }
+        Language active = languages.active();
+        StringBuilder list = new StringBuilder("Loaded languages:");
+        for (Language language : all) {
+            list.append('\n').append(language == active ? "* " : "  ")
+                .append(language.lang().id());
+        }
+        StyledText message = new StyledText(list.toString());
+        return (visitor) -> visitor.visitMessage(message);
+    }
+}
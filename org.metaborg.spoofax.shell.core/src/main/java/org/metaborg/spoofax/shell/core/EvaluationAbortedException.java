@@ -0,0 +1,35 @@
+package org.metaborg.spoofax.shell.core;
+
+import org.metaborg.core.MetaborgException;
+
+/**
+ * Thrown by the {@link EvaluationExecutor} when an evaluation timed out or was cancelled. Unless
+ * the evaluation has {@link #stopped()}, it may still be running on its abandoned thread, so any
+ * state that it uses should not be used for further evaluations.
+ */
+public class EvaluationAbortedException extends MetaborgException {
+	private static final long serialVersionUID = 1L;
+
+	private final boolean stopped;
+
+	/**
+	 * Instantiates a new {@link EvaluationAbortedException}.
+	 *
+	 * @param message
+	 *            The reason why the evaluation was aborted.
+	 * @param stopped
+	 *            Whether the evaluation has stopped.
+	 */
+	public EvaluationAbortedException(String message, boolean stopped) {
+		super(message);
+		this.stopped = stopped;
+	}
+
+	/**
+	 * @return {@code true} if the aborted evaluation has stopped, so that the state it used no
+	 *         longer changes. It may have been stopped halfway, though.
+	 */
+	public boolean stopped() {
+		return stopped;
+	}
+}
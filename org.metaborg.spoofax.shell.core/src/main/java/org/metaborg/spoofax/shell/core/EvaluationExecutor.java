@@ -0,0 +1,206 @@
+package org.metaborg.spoofax.shell.core;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.metaborg.core.MetaborgException;
+import org.metaborg.spoofax.shell.statistics.EvaluationProfiler;
+
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+
+/**
+ * Runs evaluations on a dedicated thread, so that they can be bounded in time and cancelled from
+ * the thread that is waiting for them (e.g. when the user presses Ctrl-C).
+ *
+ * <p>
+ * An aborted evaluation is interrupted, and its thread is abandoned: its result is never used, so
+ * the caller can continue with a fresh evaluation thread. Interpreters generally do not react to
+ * being interrupted, so an abandoned evaluation that is still running after a grace period is
+ * stopped with {@link Thread#stop()}. The {@link EvaluationAbortedException} tells the caller
+ * whether it has {@link EvaluationAbortedException#stopped() stopped}. Until then, it may still
+ * change the state it was given.
+ * </p>
+ *
+ * <p>
+ * Only evaluations run on this executor can time out or be cancelled, which are those of the
+ * {@link StrategoEvaluationStrategy} and the DynSem evaluation strategy. Parsing, analysis and
+ * commands run on the calling thread.
+ * </p>
+ */
+public class EvaluationExecutor {
+	private static final String THREAD_NAME = "spoofax-shell-evaluation";
+	private static final long IDLE_SECONDS = 60;
+	private static final long STOP_GRACE_MILLIS = 1000;
+
+	private volatile long timeoutMillis;
+	private EvaluationProfiler profiler;
+	private ExecutorService executor;
+	private Future<?> current;
+	private Thread thread;
+
+	/**
+	 * Construct a new {@link EvaluationExecutor}.
+	 *
+	 * @param timeoutMillis
+	 *            The maximum time an evaluation may take in milliseconds, or {@code 0} to let
+	 *            evaluations run until they finish or are cancelled.
+	 */
+	@Inject
+	public EvaluationExecutor(@Named("evaluationTimeout") long timeoutMillis) {
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	/**
+	 * @return The maximum time an evaluation may take in milliseconds, or {@code 0} if there is no
+	 *         limit.
+	 */
+	public long timeout() {
+		return timeoutMillis;
+	}
+
+	/**
+	 * @param timeoutMillis
+	 *            The maximum time an evaluation may take in milliseconds, or {@code 0} to remove
+	 *            the limit.
+	 */
+	public void setTimeout(long timeoutMillis) {
+		this.timeoutMillis = Math.max(timeoutMillis, 0);
+	}
+
+	/**
+	 * Set the {@link EvaluationProfiler} that samples the evaluation thread while a profile is
+	 * being taken. When not set, evaluations cannot be profiled.
+	 *
+	 * @param profiler
+	 *            The {@link EvaluationProfiler}.
+	 */
+	@Inject(optional = true)
+	public void setProfiler(EvaluationProfiler profiler) {
+		this.profiler = profiler;
+	}
+
+	/**
+	 * Run an evaluation on the evaluation thread and wait for its result.
+	 *
+	 * @param evaluation
+	 *            The evaluation to run.
+	 * @param <T>
+	 *            The type of the result.
+	 * @return The result of the evaluation.
+	 * @throws EvaluationAbortedException
+	 *             When the evaluation times out or is cancelled. This is thrown once the
+	 *             evaluation has stopped, or once the grace period for stopping it has passed.
+	 * @throws MetaborgException
+	 *             When the evaluation fails.
+	 */
+	public <T> T execute(Callable<T> evaluation) throws MetaborgException {
+		Future<T> future = submit(evaluation);
+		long timeout = timeoutMillis;
+		try {
+			return timeout > 0 ? future.get(timeout, TimeUnit.MILLISECONDS) : future.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof MetaborgException) {
+				throw (MetaborgException) cause;
+			}
+			throw new MetaborgException(cause);
+		} catch (TimeoutException e) {
+			throw aborted(future, "Evaluation timed out after " + timeout + " ms.");
+		} catch (CancellationException e) {
+			throw aborted(future, "Evaluation interrupted.");
+		} catch (InterruptedException e) {
+			EvaluationAbortedException aborted = aborted(future, "Evaluation interrupted.");
+			Thread.currentThread().interrupt();
+			throw aborted;
+		} finally {
+			finished(future);
+		}
+	}
+
+	/**
+	 * Cancel the running evaluation, if any. The thread waiting in
+	 * {@link #execute(Callable)} returns with an exception.
+	 *
+	 * @return {@code true} if an evaluation was running.
+	 */
+	public synchronized boolean cancel() {
+		return current != null && current.cancel(true);
+	}
+
+	private synchronized <T> Future<T> submit(Callable<T> evaluation) {
+		if (executor == null) {
+			ThreadPoolExecutor pool = new ThreadPoolExecutor(1, 1, IDLE_SECONDS, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<>(), runnable -> {
+						// Created while submitting, so while holding the lock.
+						thread = new Thread(runnable, THREAD_NAME);
+						thread.setDaemon(true);
+						return thread;
+					});
+			// Do not keep a thread around for an executor that is no longer used.
+			pool.allowCoreThreadTimeOut(true);
+			executor = pool;
+		}
+		Future<T> future =
+				executor.submit(profiler != null ? profiler.track(evaluation) : evaluation);
+		current = future;
+		return future;
+	}
+
+	private synchronized void finished(Future<?> future) {
+		if (current == future) {
+			current = null;
+		}
+	}
+
+	private EvaluationAbortedException aborted(Future<?> future, String message) {
+		return new EvaluationAbortedException(message, stop(abort(future)));
+	}
+
+	/**
+	 * Abandon the thread of an aborted evaluation.
+	 *
+	 * @return The abandoned thread.
+	 */
+	private synchronized Thread abort(Future<?> future) {
+		future.cancel(true);
+		// The evaluation may not respond to the interrupt, so do not queue anything behind it.
+		Thread abandoned = thread;
+		if (executor != null) {
+			executor.shutdownNow();
+			executor = null;
+			thread = null;
+		}
+		return abandoned;
+	}
+
+	/**
+	 * Wait for an abandoned thread to end, and stop it when it does not end within the grace
+	 * period, so that an evaluation that ignores being interrupted does not keep running forever.
+	 *
+	 * @return {@code true} if the thread has ended.
+	 */
+	@SuppressWarnings("deprecation")
+	private static boolean stop(Thread abandoned) {
+		if (abandoned == null) {
+			return true;
+		}
+		try {
+			abandoned.join(STOP_GRACE_MILLIS);
+			if (abandoned.isAlive()) {
+				abandoned.stop();
+				abandoned.join(STOP_GRACE_MILLIS);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return !abandoned.isAlive();
+	}
+}
@@ -1,7 +1,12 @@
 package org.metaborg.spoofax.shell.core;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
 import org.metaborg.core.MetaborgException;
 import org.metaborg.core.context.IContext;
+import org.metaborg.core.language.ILanguageImpl;
 import org.spoofax.interpreter.terms.IStrategoTerm;
 
 /**
@@ -29,4 +34,74 @@ public interface IEvaluationStrategy {
 	 */
 	IStrategoTerm evaluate(IStrategoTerm term, IContext context) throws MetaborgException;
 
+	/**
+	 * Create an instance of this strategy that evaluates independently from this one, so that
+	 * both can be used on different threads at the same time. The new instance starts out with a
+	 * copy of the state of this one. Strategies without state may return themselves.
+	 *
+	 * @return The independent {@link IEvaluationStrategy}.
+	 */
+	default IEvaluationStrategy fork() {
+		return this;
+	}
+
+	/**
+	 * {@link #fork() Fork} all given strategies.
+	 *
+	 * @param strategies
+	 *            The {@link IEvaluationStrategy} implementations, grouped by their names as keys.
+	 * @return The forked strategies, grouped by the same names.
+	 */
+	static Map<String, IEvaluationStrategy> forkAll(Map<String, IEvaluationStrategy> strategies) {
+		Map<String, IEvaluationStrategy> forked = new HashMap<>();
+		strategies.forEach((name, strategy) -> forked.put(name, strategy.fork()));
+		return forked;
+	}
+
+	/**
+	 * Identify the current evaluation environment of a language, so that the results of
+	 * evaluations that do not change it can be remembered. The returned object must be
+	 * {@link Object#equals(Object) equal} to an earlier one exactly when the environment has not
+	 * changed since. It is only compared when memoization is enabled for the language, so
+	 * strategies should not compare environments themselves. A strategy whose environment can
+	 * change in ways it cannot detect must return {@code null}.
+	 *
+	 * @param lang
+	 *            The {@link ILanguageImpl} of the environment.
+	 * @return An object identifying the environment, or {@code null} if it is unknown, in which
+	 *         case evaluations in the language are not memoized.
+	 */
+	default Object environmentVersion(ILanguageImpl lang) {
+		return null;
+	}
+
+	/**
+	 * Name the rule or strategy of a language that a Java stack frame executes, so that the
+	 * frame can be shown in a profile. This is called from a sampling thread while an evaluation
+	 * may be running, so it must not block.
+	 *
+	 * @param lang
+	 *            The {@link ILanguageImpl} that is being evaluated.
+	 * @param frame
+	 *            The Java stack frame.
+	 * @return The name of the rule or strategy, or {@code null} if the frame does not execute
+	 *         one.
+	 */
+	default String frameName(ILanguageImpl lang, StackTraceElement frame) {
+		return null;
+	}
+
+	/**
+	 * Throw away the state of a language that depends on artifacts that changed on disk, so that
+	 * the next evaluation uses the rebuilt artifacts. The state that does not depend on them, such
+	 * as the evaluation environment, should be kept.
+	 *
+	 * @param lang
+	 *            The {@link ILanguageImpl} that is reloaded.
+	 * @param changed
+	 *            The {@link LanguageArtifact}s that changed.
+	 */
+	default void invalidate(ILanguageImpl lang, Set<LanguageArtifact> changed) {
+	}
+
 }
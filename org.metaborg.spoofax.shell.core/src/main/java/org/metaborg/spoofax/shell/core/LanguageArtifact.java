@@ -0,0 +1,66 @@
+package org.metaborg.spoofax.shell.core;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * The parts of a built language that can change independently of each other, such that only the
+ * state that depends on a changed part has to be thrown away when the language is reloaded.
+ */
+public enum LanguageArtifact {
+    /** The parse table, such as {@code sdf.tbl} or {@code table.bin}. */
+    PARSE_TABLE("parse table"),
+    /** The compiled Stratego code, such as {@code stratego.ctree} or {@code stratego.jar}. */
+    STRATEGO("Stratego"),
+    /** The generated DynSem interpreter, its classes and {@code dynsem.properties}. */
+    DYNSEM("DynSem interpreter"),
+    /** The editor services, such as the compiled ESV in {@code editor.esv.af}. */
+    EDITOR("editor services");
+
+    private final String description;
+
+    LanguageArtifact(String description) {
+        this.description = description;
+    }
+
+    /**
+     * @return A description of the artifact, to show to the user.
+     */
+    public String description() {
+        return description;
+    }
+
+    /**
+     * Determine which artifacts a file of a built language belongs to, by its name.
+     *
+     * @param file
+     *            The changed file.
+     * @return The artifacts that the file belongs to, which is empty for files that are not part
+     *         of a built language, such as sources.
+     */
+    public static Set<LanguageArtifact> of(Path file) {
+        String name = file.getFileName().toString();
+        if (name.equals("metaborg.component.yaml")) {
+            return EnumSet.allOf(LanguageArtifact.class);
+        }
+        if (name.endsWith(".tbl") || name.equals("table.bin")) {
+            return EnumSet.of(PARSE_TABLE);
+        }
+        if (name.endsWith(".ctree")) {
+            return EnumSet.of(STRATEGO);
+        }
+        if (name.endsWith(".jar") || name.endsWith(".class")) {
+            // Both the Stratego strategies and the DynSem interpreter are compiled to Java.
+            return EnumSet.of(STRATEGO, DYNSEM);
+        }
+        if (name.equals("dynsem.properties")) {
+            return EnumSet.of(DYNSEM);
+        }
+        if (name.endsWith(".esv") || name.endsWith(".af")) {
+            return EnumSet.of(EDITOR);
+        }
+        return Collections.emptySet();
+    }
+}
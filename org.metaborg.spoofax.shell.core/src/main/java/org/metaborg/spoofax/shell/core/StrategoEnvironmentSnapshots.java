@@ -0,0 +1,162 @@
+package org.metaborg.spoofax.shell.core;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.metaborg.core.MetaborgException;
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.language.ILanguageService;
+import org.metaborg.core.language.LanguageIdentifier;
+import org.metaborg.spoofax.core.terms.ITermFactoryService;
+import org.spoofax.interpreter.core.Tools;
+import org.spoofax.interpreter.terms.IStrategoTerm;
+import org.spoofax.interpreter.terms.ITermFactory;
+import org.spoofax.terms.io.binary.SAFWriter;
+import org.spoofax.terms.io.binary.TermReader;
+
+import com.google.inject.Inject;
+
+/**
+ * Saves the environments of the {@link StrategoEvaluationStrategy} to a file and restores them.
+ *
+ * <p>
+ * A snapshot is a list of {@code (language identifier, environment)} tuples in the compact
+ * binary (SAF) ATerm format. Files are written through a buffered stream and read through a
+ * memory-mapped buffer.
+ * </p>
+ */
+public class StrategoEnvironmentSnapshots {
+	private static final int BYTE_MASK = 0xFF;
+
+	private final StrategoEvaluationStrategy strategy;
+	private final ILanguageService languageService;
+	private final ITermFactory termFactory;
+
+	/**
+	 * Construct a new {@link StrategoEnvironmentSnapshots}.
+	 *
+	 * @param strategy
+	 *            The {@link StrategoEvaluationStrategy} of which the environments are saved.
+	 * @param languageService
+	 *            The {@link ILanguageService} for finding the languages of restored environments.
+	 * @param termFactoryService
+	 *            The {@link ITermFactoryService} for retrieving an {@link ITermFactory}.
+	 */
+	@Inject
+	public StrategoEnvironmentSnapshots(StrategoEvaluationStrategy strategy,
+			ILanguageService languageService, ITermFactoryService termFactoryService) {
+		this.strategy = strategy;
+		this.languageService = languageService;
+		this.termFactory = termFactoryService.getGeneric();
+	}
+
+	/**
+	 * Save the environments of all languages to a file, replacing it if it exists.
+	 *
+	 * @param file
+	 *            The file to write to.
+	 * @return The number of saved environments.
+	 * @throws MetaborgException
+	 *             When writing the file fails.
+	 */
+	public int save(Path file) throws MetaborgException {
+		Map<ILanguageImpl, IStrategoTerm> envs = strategy.environments();
+		List<IStrategoTerm> entries = new ArrayList<>(envs.size());
+		envs.forEach((lang, env) -> entries
+				.add(termFactory.makeTuple(termFactory.makeString(lang.id().toString()), env)));
+		IStrategoTerm snapshot = termFactory.makeList(entries);
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			// Stream straight into the file, without holding the serialized snapshot in memory.
+			OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel));
+			SAFWriter.writeTermToSAFStream(snapshot, out);
+			out.flush();
+			channel.force(false);
+		} catch (IOException e) {
+			throw new MetaborgException("Cannot save the environment to " + file, e);
+		}
+		return entries.size();
+	}
+
+	/**
+	 * Restore the environments in a file, replacing the current environments of their languages.
+	 * Environments of languages that are not loaded are skipped.
+	 *
+	 * @param file
+	 *            The file to read from.
+	 * @return The number of restored environments.
+	 * @throws MetaborgException
+	 *             When reading the file fails, or when it does not contain a snapshot.
+	 */
+	public int restore(Path file) throws MetaborgException {
+		IStrategoTerm snapshot;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+			snapshot = new TermReader(termFactory).parseFromStream(new BufferInputStream(buffer));
+		} catch (IOException | RuntimeException e) {
+			throw new MetaborgException("Cannot restore the environment from " + file, e);
+		}
+
+		if (snapshot == null || !Tools.isTermList(snapshot)) {
+			throw new MetaborgException(file + " does not contain a saved environment.");
+		}
+		int restored = 0;
+		for (IStrategoTerm entry : snapshot.getAllSubterms()) {
+			if (!Tools.isTermTuple(entry) || entry.getSubtermCount() != 2
+				|| !Tools.isTermString(entry.getSubterm(0))) {
+				throw new MetaborgException(file + " does not contain a saved environment.");
+			}
+			ILanguageImpl lang = languageService
+					.getImpl(LanguageIdentifier.parse(Tools.asJavaString(entry.getSubterm(0))));
+			if (lang != null) {
+				strategy.setEnvironment(lang, entry.getSubterm(1));
+				restored++;
+			}
+		}
+		return restored;
+	}
+
+	/**
+	 * An {@link InputStream} reading from a {@link ByteBuffer}, without copying it.
+	 */
+	private static final class BufferInputStream extends InputStream {
+		private final ByteBuffer buffer;
+
+		private BufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & BYTE_MASK : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (!buffer.hasRemaining()) {
+				return -1;
+			}
+			int n = Math.min(len, buffer.remaining());
+			buffer.get(b, off, n);
+			return n;
+		}
+
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
+	}
+}
@@ -1,50 +1,149 @@
 package org.metaborg.spoofax.shell.core;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
 import org.metaborg.core.MetaborgException;
 import org.metaborg.core.context.IContext;
+import org.metaborg.core.language.FacetContribution;
+import org.metaborg.core.language.ILanguageImpl;
 import org.metaborg.spoofax.core.stratego.IStrategoCommon;
+import org.metaborg.spoofax.core.stratego.IStrategoRuntimeService;
+import org.metaborg.spoofax.core.stratego.StrategoRuntimeFacet;
 import org.metaborg.spoofax.core.terms.ITermFactoryService;
 import org.spoofax.interpreter.core.Tools;
+import org.spoofax.interpreter.library.IOperatorRegistry;
+import org.spoofax.interpreter.library.ssl.SSLLibrary;
 import org.spoofax.interpreter.terms.IStrategoTerm;
 import org.spoofax.interpreter.terms.ITermFactory;
+import org.strategoxt.HybridInterpreter;
 
 import com.google.inject.Inject;
 
 
 /**
  * An {@link IEvaluationStrategy} for Stratego-based languages.
+ *
+ * <p>
+ * The Stratego runtimes of a language are prepared on its first evaluation and reused for all
+ * following evaluations in the same {@link IContext}, instead of creating a new runtime for every
+ * input. Before every invocation of {@code shell_init} or {@code shell_eval}, the dynamic rules
+ * and the global hash tables of the {@link SSLLibrary} are cleared, so that every input starts
+ * out as it would in a new runtime, and the environment term is the only state that is passed
+ * from one evaluation to the next. What does persist across inputs is the loaded code of the
+ * language, the terms shared by the term factory, the streams opened by strategies and the
+ * static state of compiled strategies, which a new runtime shares as well.
+ * </p>
+ *
+ * <p>
+ * Evaluations run on the {@link EvaluationExecutor}, so that they can time out or be cancelled.
+ * The environment of a language is only replaced when an evaluation completes, so an aborted
+ * evaluation leaves it as it was before. Its prepared runtimes are dropped, as they may have been
+ * stopped halfway through a strategy, or may still be in use by the abandoned evaluation.
+ * </p>
  */
 public class StrategoEvaluationStrategy implements IEvaluationStrategy {
 
 	// TODO: hardcoded init and eval terms
 	private static final String INIT_TERM = "shell_init";
 	private static final String EVAL_TERM = "shell_eval";
+	// Compiled strategies are classes named after the strategy and its arities, e.g. eval_0_1.
+	private static final Pattern COMPILED_STRATEGY = Pattern.compile(".+_\\d+_\\d+");
+	private static final String INVOKE = "invoke";
 
 	private final IStrategoCommon strategoCommon;
+	private final IStrategoRuntimeService runtimeService;
 	private final ITermFactory termFactory;
+	private final EvaluationExecutor executor;
+	private final Map<ILanguageImpl, PreparedRuntime> runtimes;
+
+	/**
+	 * We keep track of an environment per language.
+	 * It is expected to be passed along all eval iterations of that language.
+	 */
+	private final Map<ILanguageImpl, IStrategoTerm> envs;
 
 	/**
-	 * We keep track of a global environment.
-	 * It is expected to be passed along all eval iterations.
+	 * The Stratego runtimes of the components of a language, prepared for one {@link IContext}.
+	 * A runtime is not thread-safe, so invocations synchronize on the prepared runtime.
 	 */
-	private IStrategoTerm env;
+	private static final class PreparedRuntime {
+		private final IContext context;
+		private final List<HybridInterpreter> interpreters;
+
+		private PreparedRuntime(IContext context, List<HybridInterpreter> interpreters) {
+			this.context = context;
+			this.interpreters = interpreters;
+		}
+	}
 
 	/**
 	 * Construct a new {@link StrategoEvaluationStrategy}.
-	 * On the first {@link #evaluate(IStrategoTerm, IContext) call an
-	 * environment is initialised and subsequent calls will use this
-	 * envirnonment.
+	 * On the first {@link #evaluate(IStrategoTerm, IContext) call for a
+	 * language an environment is initialised and subsequent calls for that
+	 * language will use this environment.
 	 *
 	 * @param strategoCommon
 	 *            The interface for all Statego related functionality.
+	 * @param runtimeService
+	 *            The {@link IStrategoRuntimeService} for preparing the runtimes of a language.
 	 * @param termFactoryService
 	 *            The {@link ITermFactoryService} for retrieving an {@link ITermFactory}.
+	 * @param executor
+	 *            The {@link EvaluationExecutor} to run evaluations on.
 	 */
 	@Inject
 	public StrategoEvaluationStrategy(IStrategoCommon strategoCommon,
-			ITermFactoryService termFactoryService) {
+			IStrategoRuntimeService runtimeService, ITermFactoryService termFactoryService,
+			EvaluationExecutor executor) {
+		this(strategoCommon, runtimeService, termFactoryService.getGeneric(), executor,
+				Collections.emptyMap());
+	}
+
+	private StrategoEvaluationStrategy(IStrategoCommon strategoCommon,
+			IStrategoRuntimeService runtimeService, ITermFactory termFactory,
+			EvaluationExecutor executor, Map<ILanguageImpl, IStrategoTerm> envs) {
 		this.strategoCommon = strategoCommon;
-		this.termFactory = termFactoryService.getGeneric();
+		this.runtimeService = runtimeService;
+		this.termFactory = termFactory;
+		this.executor = executor;
+		this.envs = new ConcurrentHashMap<>(envs);
+		this.runtimes = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * @return A snapshot of the environments of all languages that have been evaluated in.
+	 */
+	public Map<ILanguageImpl, IStrategoTerm> environments() {
+		return Collections.unmodifiableMap(new HashMap<>(envs));
+	}
+
+	/**
+	 * Replace the environment of a language, e.g. with a restored one.
+	 *
+	 * @param lang
+	 *            The {@link ILanguageImpl} of the environment.
+	 * @param env
+	 *            The new environment.
+	 */
+	public void setEnvironment(ILanguageImpl lang, IStrategoTerm env) {
+		envs.put(lang, env);
+	}
+
+	/**
+	 * Discard the environment of a language, so that the next evaluation initialises a new one.
+	 *
+	 * @param lang
+	 *            The {@link ILanguageImpl} of the environment.
+	 */
+	public void resetEnvironment(ILanguageImpl lang) {
+		envs.remove(lang);
 	}
 
 	@Override
@@ -52,23 +151,87 @@ public class StrategoEvaluationStrategy implements IEvaluationStrategy {
 		return "stratego";
 	}
 
+	/**
+	 * Drop the prepared runtimes of a language when its Stratego code changed. Its environment is
+	 * kept, so that the definitions made in this session survive the reload.
+	 */
+	@Override
+	public void invalidate(ILanguageImpl lang, Set<LanguageArtifact> changed) {
+		if (changed.contains(LanguageArtifact.STRATEGO)) {
+			runtimes.remove(lang);
+		}
+	}
+
+	@Override
+	public Object environmentVersion(ILanguageImpl lang) {
+		return envs.get(lang);
+	}
+
+	/**
+	 * Name the frames of compiled strategies, which are invoked through the {@code invoke} method
+	 * of a class that is named after the strategy. Strategies that are interpreted from a CTree
+	 * cannot be told apart by their Java frames, and are not named.
+	 */
+	@Override
+	public String frameName(ILanguageImpl lang, StackTraceElement frame) {
+		if (!INVOKE.equals(frame.getMethodName())) {
+			return null;
+		}
+		String className = frame.getClassName();
+		String simpleName = className.substring(className.lastIndexOf('.') + 1);
+		return COMPILED_STRATEGY.matcher(simpleName).matches() ? simpleName : null;
+	}
+
+	/**
+	 * Create a {@link StrategoEvaluationStrategy} with its own {@link EvaluationExecutor}, that
+	 * starts out with the current environments of this one, but keeps its own environments and
+	 * prepares its own runtimes afterwards.
+	 *
+	 * @return The new {@link StrategoEvaluationStrategy}.
+	 */
+	@Override
+	public IEvaluationStrategy fork() {
+		return new StrategoEvaluationStrategy(strategoCommon, runtimeService, termFactory,
+				new EvaluationExecutor(executor.timeout()), envs);
+	}
+
 	@Override
 	public IStrategoTerm evaluate(IStrategoTerm term, IContext context) throws MetaborgException {
+		ILanguageImpl lang = context.language();
+		PreparedRuntime runtime = prepare(lang, context);
+		IStrategoTerm env = envs.get(lang);
 		// initialize the environment
 		if (env == null) {
-			env = strategoCommon.invoke(context.language(), context, term, INIT_TERM);
+			env = execute(lang, runtime, term, INIT_TERM);
+			envs.put(lang, env);
 		}
 
-		IStrategoTerm result = strategoCommon.invoke(context.language(), context,
-				termFactory.makeTuple(term, env), EVAL_TERM);
+		IStrategoTerm result =
+				execute(lang, runtime, termFactory.makeTuple(term, env), EVAL_TERM);
+		return unwrap(lang, result);
+	}
 
+	/**
+	 * Invoke a strategy on the {@link EvaluationExecutor}. The environment is only replaced on the
+	 * calling thread, so an abandoned evaluation can never replace it.
+	 */
+	private IStrategoTerm execute(ILanguageImpl lang, PreparedRuntime runtime,
+			IStrategoTerm input, String strategy) throws MetaborgException {
+		try {
+			return executor.execute(() -> invoke(runtime, input, strategy));
+		} catch (EvaluationAbortedException e) {
+			runtimes.remove(lang, runtime);
+			throw e;
+		}
+	}
+
+	private IStrategoTerm unwrap(ILanguageImpl lang, IStrategoTerm result)
+			throws MetaborgException {
 		if (Tools.isTermTuple(result)) {
 			int subterms = result.getSubtermCount();
 			if (subterms == 2) {
-				IStrategoTerm newEnv = result.getSubterm(1);
-				IStrategoTerm value = result.getSubterm(0);
-				env = newEnv;
-				return value;
+				envs.put(lang, result.getSubterm(1));
+				return result.getSubterm(0);
 			} else {
 				throw new MetaborgException(String.format(
 						"Evaluation result expected: Tuple of 2. Found: Tuple of %d", subterms));
@@ -82,4 +245,46 @@ public class StrategoEvaluationStrategy implements IEvaluationStrategy {
 
 	}
 
+	private PreparedRuntime prepare(ILanguageImpl lang, IContext context) throws MetaborgException {
+		PreparedRuntime runtime = runtimes.get(lang);
+		if (runtime == null || runtime.context != context) {
+			List<HybridInterpreter> interpreters = new ArrayList<>();
+			for (FacetContribution<StrategoRuntimeFacet> contribution : lang
+					.facetContributions(StrategoRuntimeFacet.class)) {
+				interpreters.add(runtimeService.runtime(contribution.contributor, context, false));
+			}
+			runtime = new PreparedRuntime(context, interpreters);
+			runtimes.put(lang, runtime);
+		}
+		return runtime;
+	}
+
+	private IStrategoTerm invoke(PreparedRuntime runtime, IStrategoTerm input, String strategy)
+			throws MetaborgException {
+		synchronized (runtime) {
+			for (HybridInterpreter interpreter : runtime.interpreters) {
+				reset(interpreter);
+				IStrategoTerm result = strategoCommon.invoke(interpreter, input, strategy);
+				if (result != null) {
+					return result;
+				}
+			}
+		}
+		throw new MetaborgException(
+				String.format("Invoking Stratego strategy %s failed.", strategy));
+	}
+
+	/**
+	 * Forget the dynamic rules and the global hash tables that earlier invocations left in a
+	 * runtime. Scoped dynamic rules are already gone once their scope is left.
+	 */
+	private static void reset(HybridInterpreter interpreter) {
+		IOperatorRegistry registry =
+				interpreter.getContext().getOperatorRegistry(SSLLibrary.REGISTRY_NAME);
+		if (registry instanceof SSLLibrary) {
+			((SSLLibrary) registry).getDynamicRuleTable().clear();
+			((SSLLibrary) registry).getTableTable().clear();
+		}
+	}
+
 }
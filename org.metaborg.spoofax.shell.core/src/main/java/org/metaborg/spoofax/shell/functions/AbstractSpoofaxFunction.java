@@ -7,6 +7,8 @@ import org.metaborg.spoofax.shell.output.FailOrSuccessResult;
 import org.metaborg.spoofax.shell.output.IResult;
 import org.metaborg.spoofax.shell.output.IResultFactory;
 import org.metaborg.spoofax.shell.output.ISpoofaxResult;
+import org.metaborg.spoofax.shell.statistics.PipelineStatistics;
+import org.metaborg.spoofax.shell.statistics.PipelineStatistics.Sample;
 
 import com.google.inject.Inject;
 
@@ -25,6 +27,7 @@ public abstract class AbstractSpoofaxFunction<In, Success extends ISpoofaxResult
     protected final IResultFactory resultFactory;
     protected final IProject project;
     protected final ILanguageImpl lang;
+    private PipelineStatistics statistics;
 
     /**
      * Instantiate a {@link AbstractSpoofaxFunction}.
@@ -44,6 +47,28 @@ public abstract class AbstractSpoofaxFunction<In, Success extends ISpoofaxResult
         this.lang = lang;
     }
 
+    /**
+     * Set the {@link PipelineStatistics} to which the latency of this function is reported. When
+     * not set, nothing is measured.
+     *
+     * @param statistics
+     *            The {@link PipelineStatistics}.
+     */
+    @Inject(optional = true)
+    public void setStatistics(PipelineStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * @return The name of the pipeline stage implemented by this function, as reported to the
+     *         {@link PipelineStatistics}.
+     */
+    protected String stageName() {
+        String name = getClass().getSimpleName();
+        return name.endsWith("Function") ? name.substring(0, name.length() - "Function".length())
+                                         : name;
+    }
+
     /**
      * Apply the argument, optionally throwing an exception. The exception is caught in the
      * {@link #apply(Object)} function, to be returned as an {@link ExceptionResult}.
@@ -58,10 +83,15 @@ public abstract class AbstractSpoofaxFunction<In, Success extends ISpoofaxResult
 
     @Override
     public FailOrSuccessResult<Success, IResult> apply(In a) {
+        Sample sample = statistics != null ? statistics.start() : null;
         try {
             return this.applyThrowing(a);
         } catch (Exception e) {
             return FailOrSuccessResult.excepted(new ExceptionResult(e));
+        } finally {
+            if (sample != null) {
+                statistics.recordStage(stageName(), sample);
+            }
         }
     }
 }
\ No newline at end of file
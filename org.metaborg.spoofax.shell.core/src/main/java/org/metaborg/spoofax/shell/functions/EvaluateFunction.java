@@ -1,6 +1,7 @@
 package org.metaborg.spoofax.shell.functions;
 
 import java.util.Map;
+import java.util.Optional;
 
 import org.metaborg.core.MetaborgException;
 import org.metaborg.core.context.IContext;
@@ -19,6 +20,7 @@ import org.spoofax.interpreter.terms.IStrategoTerm;
 
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
+import com.google.inject.assistedinject.AssistedInject;
 
 /**
  * Creates an {@link EvaluateResult} from a given {@link AnalyzeResult}.
@@ -26,6 +28,8 @@ import com.google.inject.assistedinject.Assisted;
 public class EvaluateFunction extends ContextualSpoofaxFunction<ISpoofaxTermResult<?>,
                                                                 EvaluateResult> {
     private final Map<String, IEvaluationStrategy> evaluationStrategies;
+    private EvaluationMemo memo;
+    private boolean shared;
 
     /**
      * Instantiate an {@link AEvalFunction}.
@@ -41,12 +45,49 @@ public class EvaluateFunction extends ContextualSpoofaxFunction<ISpoofaxTermResu
      * @param lang
      *            The {@link ILanguageImpl} to which this command applies.
      */
-    @Inject
+    @AssistedInject
     public EvaluateFunction(Map<String, IEvaluationStrategy> evaluationStrategies,
                             IContextService contextService, IResultFactory resultFactory,
                             @Assisted IProject project, @Assisted ILanguageImpl lang) {
         super(contextService, resultFactory, project, lang);
         this.evaluationStrategies = evaluationStrategies;
+        this.shared = true;
+    }
+
+    /**
+     * Instantiate an {@link EvaluateFunction} that evaluates with the given strategies instead of
+     * the shared ones, e.g. with {@link IEvaluationStrategy#fork() forked} strategies. Their
+     * environments are not the ones of the REPL, so their results are never memoized.
+     *
+     * @param contextService
+     *            The {@link IContextService}.
+     * @param resultFactory
+     *            The {@link IResultFactory} for creating delegate commands.
+     * @param project
+     *            The {@link IProject} in which this command should operate.
+     * @param lang
+     *            The {@link ILanguageImpl} to which this command applies.
+     * @param evaluationStrategies
+     *            The {@link IEvaluationStrategy} implementations, grouped by their names as keys.
+     */
+    @AssistedInject
+    public EvaluateFunction(IContextService contextService, IResultFactory resultFactory,
+                            @Assisted IProject project, @Assisted ILanguageImpl lang,
+                            @Assisted Map<String, IEvaluationStrategy> evaluationStrategies) {
+        this(evaluationStrategies, contextService, resultFactory, project, lang);
+        this.shared = false;
+    }
+
+    /**
+     * Set the {@link EvaluationMemo} that remembers the results of pure evaluations, for the
+     * languages for which it is enabled. When not set, nothing is remembered.
+     *
+     * @param memo
+     *            The {@link EvaluationMemo}.
+     */
+    @Inject(optional = true)
+    public void setMemo(EvaluationMemo memo) {
+        this.memo = memo;
     }
 
     @Override
@@ -59,11 +100,31 @@ public class EvaluateFunction extends ContextualSpoofaxFunction<ISpoofaxTermResu
 
         IEvaluationStrategy evalStrategy = evaluationStrategy(facet.getEvaluationMethod());
 
-        IStrategoTerm result = evalStrategy.evaluate(a.ast().get(), context);
+        IStrategoTerm result = evaluate(evalStrategy, a.ast().get(), context);
 
         return FailOrSuccessResult.ofSpoofaxResult(resultFactory.createEvaluateResult(a, result));
     }
 
+    private IStrategoTerm evaluate(IEvaluationStrategy evalStrategy, IStrategoTerm ast,
+                                   IContext context) throws MetaborgException {
+        ILanguageImpl langImpl = context.language();
+        Object environment = evalStrategy.environmentVersion(langImpl);
+        if (memo == null || !shared || environment == null || !memo.enabled(langImpl)) {
+            return evalStrategy.evaluate(ast, context);
+        }
+
+        Optional<IStrategoTerm> remembered = memo.get(langImpl, ast, environment);
+        if (remembered.isPresent()) {
+            return remembered.get();
+        }
+        IStrategoTerm result = evalStrategy.evaluate(ast, context);
+        // Only an evaluation that left the environment unchanged can be replayed.
+        if (environment.equals(evalStrategy.environmentVersion(langImpl))) {
+            memo.put(langImpl, ast, environment, result);
+        }
+        return result;
+    }
+
     private ShellFacet shellFacet(ILanguageImpl langImpl) throws MetaborgException {
         ShellFacet facet = langImpl.facet(ShellFacet.class);
         if (facet == null) {
@@ -0,0 +1,217 @@
+package org.metaborg.spoofax.shell.functions;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.spoofax.shell.core.IEvaluationStrategy;
+import org.spoofax.interpreter.terms.IStrategoTerm;
+
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+
+/**
+ * Remembers the results of pure evaluations, i.e. evaluations that left the environment of their
+ * language unchanged, so that evaluating the same AST in the same environment again does not run
+ * the evaluation a second time.
+ *
+ * <p>
+ * An entry is keyed on the structure of the AST and on the version of the environment, as given by
+ * {@link IEvaluationStrategy#environmentVersion(ILanguageImpl)}. Memoization is enabled per
+ * language, and entries are evicted in least recently used order when there are more than the
+ * configured number of entries. A bound of zero entries disables memoization altogether.
+ * </p>
+ */
+public class EvaluationMemo {
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private final int maxEntries;
+    private final LinkedHashMap<Key, IStrategoTerm> entries;
+    private final Set<ILanguageImpl> enabled;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+
+    /**
+     * Instantiate a new {@link EvaluationMemo}.
+     *
+     * @param maxEntries
+     *            The maximum number of remembered results. Zero disables memoization.
+     */
+    @Inject
+    public EvaluationMemo(@Named("evaluationMemoEntries") int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<Key, IStrategoTerm>(Math.max(maxEntries, 1), LOAD_FACTOR,
+                                                             true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, IStrategoTerm> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.enabled = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+    }
+
+    /**
+     * @param lang
+     *            The {@link ILanguageImpl} of the evaluations.
+     * @return {@code true} if evaluations in the language are memoized.
+     */
+    public boolean enabled(ILanguageImpl lang) {
+        return maxEntries > 0 && enabled.contains(lang);
+    }
+
+    /**
+     * Enable or disable memoizing evaluations in a language. Disabling drops the remembered
+     * results of the language.
+     *
+     * @param lang
+     *            The {@link ILanguageImpl} of the evaluations.
+     * @param enable
+     *            {@code true} to memoize evaluations in the language.
+     */
+    public void setEnabled(ILanguageImpl lang, boolean enable) {
+        if (enable) {
+            enabled.add(lang);
+        } else {
+            enabled.remove(lang);
+            synchronized (entries) {
+                entries.keySet().removeIf(key -> key.lang.equals(lang));
+            }
+        }
+    }
+
+    /**
+     * Look up the result of evaluating an AST in an environment.
+     *
+     * @param lang
+     *            The {@link ILanguageImpl} of the evaluation.
+     * @param ast
+     *            The evaluated AST.
+     * @param environment
+     *            The version of the environment in which the AST is evaluated.
+     * @return The remembered result, if any.
+     */
+    public Optional<IStrategoTerm> get(ILanguageImpl lang, IStrategoTerm ast, Object environment) {
+        IStrategoTerm result;
+        synchronized (entries) {
+            result = entries.get(new Key(lang, ast, environment));
+        }
+        if (result != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return Optional.ofNullable(result);
+    }
+
+    /**
+     * Remember the result of a pure evaluation.
+     *
+     * @param lang
+     *            The {@link ILanguageImpl} of the evaluation.
+     * @param ast
+     *            The evaluated AST.
+     * @param environment
+     *            The version of the environment in which the AST was evaluated, which is also the
+     *            version after the evaluation.
+     * @param result
+     *            The result of the evaluation.
+     */
+    public void put(ILanguageImpl lang, IStrategoTerm ast, Object environment,
+                    IStrategoTerm result) {
+        if (!enabled(lang) || result == null) {
+            return;
+        }
+        synchronized (entries) {
+            entries.put(new Key(lang, ast, environment), result);
+        }
+    }
+
+    /**
+     * Forget all remembered results and reset the hit and miss counts.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+        hits.set(0);
+        misses.set(0);
+    }
+
+    /**
+     * Forget the remembered results of one language, for instance because its semantics changed.
+     *
+     * @param lang
+     *            The {@link ILanguageImpl} of which the results are forgotten.
+     */
+    public void clear(ILanguageImpl lang) {
+        synchronized (entries) {
+            entries.keySet().removeIf(key -> key.lang.equals(lang));
+        }
+    }
+
+    /**
+     * @return The number of remembered results.
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * @return The number of lookups that found a result.
+     */
+    public long hits() {
+        return hits.get();
+    }
+
+    /**
+     * @return The number of lookups that did not find a result.
+     */
+    public long misses() {
+        return misses.get();
+    }
+
+    /**
+     * The key of a remembered result. The AST and the version of the environment are compared by
+     * equality. Terms cache their hash, and are usually the same object when they are equal.
+     */
+    private static final class Key {
+        private final ILanguageImpl lang;
+        private final IStrategoTerm ast;
+        private final Object environment;
+        private final int hash;
+
+        private Key(ILanguageImpl lang, IStrategoTerm ast, Object environment) {
+            this.lang = lang;
+            this.ast = ast;
+            this.environment = environment;
+            this.hash = Objects.hash(lang, ast, environment);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash && lang.equals(other.lang) && ast.equals(other.ast)
+                   && environment.equals(other.environment);
+        }
+    }
+}
@@ -1,28 +1,55 @@
 package org.metaborg.spoofax.shell.functions;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
 import org.metaborg.core.action.ITransformAction;
 import org.metaborg.core.language.ILanguageImpl;
 import org.metaborg.core.project.IProject;
+import org.metaborg.spoofax.shell.core.IEvaluationStrategy;
 import org.metaborg.spoofax.shell.output.AnalyzeResult;
 import org.metaborg.spoofax.shell.output.EvaluateResult;
 import org.metaborg.spoofax.shell.output.IResult;
+import org.metaborg.spoofax.shell.output.ISpoofaxTermResult;
 import org.metaborg.spoofax.shell.output.InputResult;
 import org.metaborg.spoofax.shell.output.ParseResult;
 import org.metaborg.spoofax.shell.output.StyleResult;
 import org.metaborg.spoofax.shell.output.TransformResult;
 
+import com.google.common.base.Suppliers;
 import com.google.inject.assistedinject.Assisted;
 import com.google.inject.assistedinject.AssistedInject;
 
 /**
  * Provides function compositions based on the {@link IFunctionFactory}.
  *
+ * <p>
+ * Each composition is created only once, upon its first request, and is reused afterwards. The
+ * composed functions are stateless, so they can safely be shared between threads. A composer is
+ * bound to one project and language; create a new composer when another language is loaded.
+ * </p>
  */
 public class FunctionComposer {
 
-    private IFunctionFactory functionFactory;
-    private IProject project;
-    private ILanguageImpl lang;
+    private final IFunctionFactory functionFactory;
+    private final IProject project;
+    private final ILanguageImpl lang;
+
+    private final Supplier<FailableFunction<String, InputResult, IResult>> input;
+    private final Supplier<FailableFunction<String, ParseResult, IResult>> parse;
+    private final Supplier<FailableFunction<String, AnalyzeResult, IResult>> analyze;
+    private final Supplier<FailableFunction<ISpoofaxTermResult<?>, EvaluateResult, IResult>>
+        evaluate;
+    private final Supplier<FailableFunction<String, EvaluateResult, IResult>> pEvaluate;
+    private final Supplier<FailableFunction<String, EvaluateResult, IResult>> aEvaluate;
+    private final Supplier<FailableFunction<String, EvaluateResult, IResult>> pOpenEvaluate;
+    private final Supplier<FailableFunction<String, EvaluateResult, IResult>> aOpenEvaluate;
+    private final Supplier<FailableFunction<String, StyleResult, IResult>> pStyle;
+    private final Map<ITransformAction,
+                      FailableFunction<String, TransformResult, IResult>> pTransform;
+    private final Map<ITransformAction,
+                      FailableFunction<String, TransformResult, IResult>> aTransform;
 
     /**
      * Constructs a new {@link FunctionComposer} from the given parameters.
@@ -37,9 +64,49 @@ public class FunctionComposer {
     @AssistedInject
     public FunctionComposer(IFunctionFactory functionFactory, @Assisted IProject project,
             @Assisted ILanguageImpl lang) {
-                this.functionFactory = functionFactory;
-                this.project = project;
-                this.lang = lang;
+        this.functionFactory = functionFactory;
+        this.project = project;
+        this.lang = lang;
+
+        this.input = memoize(() -> functionFactory.createInputFunction(project, lang));
+        this.parse = memoize(() -> inputFunction()
+            .kleisliCompose(functionFactory.createParseFunction(project, lang)));
+        this.analyze = memoize(() -> parseFunction()
+            .kleisliCompose(functionFactory.createAnalyzeFunction(project, lang)));
+        this.evaluate = memoize(() -> functionFactory.createEvaluateFunction(project, lang));
+        this.pEvaluate = memoize(() -> parseFunction()
+            .kleisliCompose(functionFactory.createEvaluateFunction(project, lang)));
+        this.aEvaluate = memoize(() -> analyzeFunction()
+            .kleisliCompose(functionFactory.createEvaluateFunction(project, lang)));
+        this.pOpenEvaluate = memoize(() -> functionFactory.createOpenInputFunction(project, lang)
+            .kleisliCompose(functionFactory.createParseFunction(project, lang))
+            .kleisliCompose(functionFactory.createEvaluateFunction(project, lang)));
+        this.aOpenEvaluate = memoize(() -> functionFactory.createOpenInputFunction(project, lang)
+            .kleisliCompose(functionFactory.createParseFunction(project, lang))
+            .kleisliCompose(functionFactory.createAnalyzeFunction(project, lang))
+            .kleisliCompose(functionFactory.createEvaluateFunction(project, lang)));
+        this.pStyle = memoize(() -> parseFunction()
+            .kleisliCompose(functionFactory.createStyleFunction(project, lang)));
+        this.pTransform = new ConcurrentHashMap<>();
+        this.aTransform = new ConcurrentHashMap<>();
+    }
+
+    private static <T> Supplier<T> memoize(Supplier<T> supplier) {
+        return Suppliers.memoize(supplier::get)::get;
+    }
+
+    /**
+     * @return The {@link IProject} associated with all composed functions.
+     */
+    public IProject project() {
+        return project;
+    }
+
+    /**
+     * @return The {@link ILanguageImpl} associated with all composed functions.
+     */
+    public ILanguageImpl lang() {
+        return lang;
     }
 
 	/**
@@ -48,7 +115,7 @@ public class FunctionComposer {
 	 * @return {@link InputFunction} - The input function as defined in{@link IFunctionFactory}.
 	 */
     public FailableFunction<String, InputResult, IResult> inputFunction() {
-        return functionFactory.createInputFunction(project, lang);
+        return input.get();
     }
 
 	/**
@@ -57,7 +124,7 @@ public class FunctionComposer {
 	 * @return {@link ParseFunction} - The parse function defined in {@link IFunctionFactory}.
 	 */
     public FailableFunction<String, ParseResult, IResult> parseFunction() {
-        return inputFunction().kleisliCompose(functionFactory.createParseFunction(project, lang));
+        return parse.get();
     }
 
 	/**
@@ -66,7 +133,43 @@ public class FunctionComposer {
 	 * @return {@link AnalyzeFunction} - The analyze function defined in {@link IFunctionFactory}.
 	 */
     public FailableFunction<String, AnalyzeResult, IResult> analyzeFunction() {
-        return parseFunction().kleisliCompose(functionFactory.createAnalyzeFunction(project, lang));
+        return analyze.get();
+    }
+
+	/**
+	 * Expose the default {@link EvaluateFunction}, which evaluates a parsed or analyzed term.
+	 *
+	 * @return {@link EvaluateFunction} - The evaluate function defined in {@link IFunctionFactory}.
+	 */
+    public FailableFunction<ISpoofaxTermResult<?>, EvaluateResult, IResult> evaluateFunction() {
+        return evaluate.get();
+    }
+
+	/**
+	 * Create an {@link EvaluateFunction} that evaluates with the given strategies, e.g. with
+	 * {@link IEvaluationStrategy#fork() forked} strategies for evaluating on another thread. This
+	 * function is not memoized.
+	 *
+	 * @param strategies
+	 *            The {@link IEvaluationStrategy} implementations, grouped by their names as keys.
+	 * @return {@link EvaluateFunction} - The evaluate function.
+	 */
+    public FailableFunction<ISpoofaxTermResult<?>, EvaluateResult, IResult>
+            evaluateFunction(Map<String, IEvaluationStrategy> strategies) {
+        return functionFactory.createEvaluateFunction(project, lang, strategies);
+    }
+
+	/**
+	 * Compose an {@link AnalyzeFunction} with its own {@link InputFunction}, and thus its own
+	 * resource in the project, so that its analyses do not overwrite those of the default one,
+	 * e.g. for analyzing and evaluating on another thread. This function is not memoized.
+	 *
+	 * @return {@link AnalyzeFunction} - The analyze function.
+	 */
+    public FailableFunction<String, AnalyzeResult, IResult> analyzeFunctionWithOwnInput() {
+        return functionFactory.createInputFunction(project, lang)
+            .kleisliCompose(functionFactory.createParseFunction(project, lang))
+            .kleisliCompose(functionFactory.createAnalyzeFunction(project, lang));
     }
 
 	/**
@@ -78,8 +181,8 @@ public class FunctionComposer {
 	 */
     public FailableFunction<String, TransformResult, IResult>
             pTransformFunction(ITransformAction action) {
-        return parseFunction()
-            .kleisliCompose(functionFactory.createPTransformFunction(project, lang, action));
+        return pTransform.computeIfAbsent(action, a -> parseFunction()
+            .kleisliCompose(functionFactory.createPTransformFunction(project, lang, a)));
     }
 
 	/**
@@ -91,8 +194,8 @@ public class FunctionComposer {
 	 */
     public FailableFunction<String, TransformResult, IResult>
             aTransformFunction(ITransformAction action) {
-        return analyzeFunction()
-            .kleisliCompose(functionFactory.createATransformFunction(project, lang, action));
+        return aTransform.computeIfAbsent(action, a -> analyzeFunction()
+            .kleisliCompose(functionFactory.createATransformFunction(project, lang, a)));
     }
 
 	/**
@@ -101,8 +204,7 @@ public class FunctionComposer {
 	 * @return {@link EvaluateFunction} - The evaluation function.
 	 */
     public FailableFunction<String, EvaluateResult, IResult> pEvaluateFunction() {
-        return parseFunction()
-            .kleisliCompose(functionFactory.createEvaluateFunction(project, lang));
+        return pEvaluate.get();
     }
 
 	/**
@@ -111,8 +213,27 @@ public class FunctionComposer {
 	 * @return {@link EvaluateFunction} - The evaluation function.
 	 */
     public FailableFunction<String, EvaluateResult, IResult> aEvaluateFunction() {
-        return analyzeFunction()
-            .kleisliCompose(functionFactory.createEvaluateFunction(project, lang));
+        return aEvaluate.get();
+    }
+
+	/**
+	 * Compose an {@link EvaluateFunction} that evaluates the contents of a file after the parse
+	 * step.
+	 *
+	 * @return {@link EvaluateFunction} - The evaluation function, accepting a file path.
+	 */
+    public FailableFunction<String, EvaluateResult, IResult> pOpenEvaluateFunction() {
+        return pOpenEvaluate.get();
+    }
+
+	/**
+	 * Compose an {@link EvaluateFunction} that evaluates the contents of a file after the analyze
+	 * step.
+	 *
+	 * @return {@link EvaluateFunction} - The evaluation function, accepting a file path.
+	 */
+    public FailableFunction<String, EvaluateResult, IResult> aOpenEvaluateFunction() {
+        return aOpenEvaluate.get();
     }
 
 	/**
@@ -125,7 +246,6 @@ public class FunctionComposer {
 	 * @return {@link StyleFunction} - The style function.
 	 */
     public FailableFunction<String, StyleResult, IResult> pStyleFunction() {
-        return parseFunction()
-            .kleisliCompose(functionFactory.createStyleFunction(project, lang));
+        return pStyle.get();
     }
 }
@@ -1,5 +1,7 @@
 package org.metaborg.spoofax.shell.functions;
 
+import java.util.Map;
+
 import javax.inject.Named;
 
 import org.metaborg.core.action.ITransformAction;
@@ -7,6 +9,7 @@ import org.metaborg.core.language.ILanguageImpl;
 import org.metaborg.core.project.IProject;
 import org.metaborg.spoofax.shell.commands.CommandBuilder;
 import org.metaborg.spoofax.shell.commands.IReplCommand;
+import org.metaborg.spoofax.shell.core.IEvaluationStrategy;
 import org.metaborg.spoofax.shell.output.AnalyzeResult;
 import org.metaborg.spoofax.shell.output.EvaluateResult;
 import org.metaborg.spoofax.shell.output.IResult;
@@ -92,6 +95,18 @@ public interface IFunctionFactory {
     FailableFunction<ISpoofaxTermResult<?>, EvaluateResult, IResult>
     createEvaluateFunction(IProject project, ILanguageImpl lang);
 
+    /**
+     * Factory method for creating a {@link EvaluateFunction} that evaluates with the given
+     * strategies instead of the shared ones.
+     * @param project     The associated {@link IProject}
+     * @param lang        The associated {@link ILanguageImpl}
+     * @param strategies  The {@link IEvaluationStrategy} implementations, by name
+     * @return            an {@link EvaluateFunction}
+     */
+    FailableFunction<ISpoofaxTermResult<?>, EvaluateResult, IResult>
+    createEvaluateFunction(IProject project, ILanguageImpl lang,
+                           Map<String, IEvaluationStrategy> strategies);
+
     /**
      * Factory method for creating a {@link StyleFunction}.
      * @param project   The associated {@link IProject}
@@ -116,6 +131,15 @@ public interface IFunctionFactory {
      */
     CommandBuilder<?> createBuilder(IProject project, ILanguageImpl lang);
 
+    /**
+     * Factory method for creating a {@link CommandBuilder} that shares the functions composed by
+     * the given {@link FunctionComposer}, so that they are not created a second time.
+     *
+     * @param composer  The {@link FunctionComposer} to take the functions from
+     * @return          a {@link CommandBuilder}
+     */
+    CommandBuilder<?> createBuilder(FunctionComposer composer);
+
     /**
      * Factory method for creating a {@link FunctionComposer}.
      *
@@ -0,0 +1,64 @@
+package org.metaborg.spoofax.shell.functions;
+
+import java.util.Optional;
+
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.spoofax.core.unit.ISpoofaxInputUnit;
+import org.metaborg.spoofax.core.unit.ISpoofaxParseUnit;
+
+/**
+ * A cache for parse results, used by the {@link ParseFunction} to avoid parsing the same input
+ * more than once. Entries are keyed on the language, the start symbol and the source text of an
+ * {@link ISpoofaxInputUnit}.
+ */
+public interface IParseCache {
+
+    /**
+     * Look up the cached {@link ISpoofaxParseUnit} for the given input.
+     *
+     * @param input
+     *            The {@link ISpoofaxInputUnit} that is about to be parsed.
+     * @return The cached {@link ISpoofaxParseUnit}, or an {@link Optional#empty() empty Optional}
+     *         if the input was not parsed before (or its result has been evicted).
+     */
+    Optional<ISpoofaxParseUnit> get(ISpoofaxInputUnit input);
+
+    /**
+     * Store the result of parsing the given input.
+     *
+     * @param input
+     *            The {@link ISpoofaxInputUnit} that was parsed.
+     * @param parse
+     *            The resulting {@link ISpoofaxParseUnit}.
+     */
+    void put(ISpoofaxInputUnit input, ISpoofaxParseUnit parse);
+
+    /**
+     * Remove all entries from this cache. The hit and miss counters are left untouched.
+     */
+    void clear();
+
+    /**
+     * Remove the entries of one language from this cache, for instance because its parse table
+     * changed. The hit and miss counters are left untouched.
+     *
+     * @param lang
+     *            The {@link ILanguageImpl} of which the entries are removed.
+     */
+    void clear(ILanguageImpl lang);
+
+    /**
+     * @return The number of entries currently in this cache.
+     */
+    int size();
+
+    /**
+     * @return The number of lookups that returned a cached result.
+     */
+    long hits();
+
+    /**
+     * @return The number of lookups that did not return a cached result.
+     */
+    long misses();
+}
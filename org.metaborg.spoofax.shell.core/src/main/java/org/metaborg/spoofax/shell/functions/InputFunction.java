@@ -1,8 +1,11 @@
 package org.metaborg.spoofax.shell.functions;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 import javax.annotation.Nullable;
 
 import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemException;
 import org.metaborg.core.MetaborgException;
 import org.metaborg.core.language.ILanguageImpl;
 import org.metaborg.core.language.ResourceExtensionFacet;
@@ -20,8 +23,19 @@ import com.google.inject.assistedinject.Assisted;
 
 /**
  * Creates an {@link InputResult} from a given source string.
+ *
+ * <p>
+ * The input is given a resource in the project, which is resolved once and reused for all
+ * inputs. It is never written, and lives in memory unless the project is on disk, see
+ * {@code ReplModule#project}. Every function has its own resource, so that the inputs of
+ * different languages in one project do not clash.
+ * </p>
  */
 public class InputFunction extends AbstractSpoofaxFunction<String, InputResult> {
+    private static final AtomicLong FUNCTIONS = new AtomicLong();
+
+    private final String name;
+    private volatile FileObject file;
 
     /**
      * Instantiate a {@link InputFunction}.
@@ -37,6 +51,7 @@ public class InputFunction extends AbstractSpoofaxFunction<String, InputResult>
     public InputFunction(IResultFactory resultFactory, @Assisted IProject project,
                          @Assisted ILanguageImpl lang) {
         super(resultFactory, project, lang);
+        this.name = "input-" + FUNCTIONS.incrementAndGet();
     }
 
     @Override
@@ -47,14 +62,22 @@ public class InputFunction extends AbstractSpoofaxFunction<String, InputResult>
             throw new MetaborgException("Cannot find the shell facet.");
         }
 
-        String extension = getExtension();
-        FileObject file =
-            project.location().resolveFile("temp" + (extension != null ? "." + extension : ""));
         return FailOrSuccessResult.ofSpoofaxResult(resultFactory
-            .createInputResult(lang, file, source,
+            .createInputResult(lang, file(), source,
                                new JSGLRParserConfiguration(shellFacet.getShellStartSymbol())));
     }
 
+    private FileObject file() throws FileSystemException {
+        FileObject resolved = file;
+        if (resolved == null) {
+            String extension = getExtension();
+            resolved = project.location()
+                .resolveFile(name + (extension != null ? "." + extension : ""));
+            file = resolved;
+        }
+        return resolved;
+    }
+
     private @Nullable String getExtension() {
         ResourceExtensionFacet extensionFacet = lang.facet(ResourceExtensionFacet.class);
         if (extensionFacet != null) {
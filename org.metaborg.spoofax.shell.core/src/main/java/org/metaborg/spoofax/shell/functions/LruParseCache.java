@@ -0,0 +1,183 @@
+package org.metaborg.spoofax.shell.functions;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.vfs2.FileObject;
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.spoofax.core.syntax.JSGLRParserConfiguration;
+import org.metaborg.spoofax.core.unit.ISpoofaxInputUnit;
+import org.metaborg.spoofax.core.unit.ISpoofaxParseUnit;
+
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+
+/**
+ * Default implementation of an {@link IParseCache}. Entries are evicted in least recently used
+ * order as soon as either the number of entries or the (approximate) number of bytes taken up by
+ * the cached source texts exceeds its bound. A bound of zero entries disables the cache.
+ */
+public class LruParseCache implements IParseCache {
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final LinkedHashMap<Key, ISpoofaxParseUnit> entries;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private long bytes;
+
+    /**
+     * Instantiate a new {@link LruParseCache}.
+     *
+     * @param maxEntries
+     *            The maximum number of cached parse results. Zero disables the cache.
+     * @param maxBytes
+     *            The maximum number of bytes taken by the source texts of all cached parse results.
+     */
+    @Inject
+    public LruParseCache(@Named("parseCacheEntries") int maxEntries,
+                         @Named("parseCacheBytes") long maxBytes) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.entries = new LinkedHashMap<>(Math.max(maxEntries, 1), LOAD_FACTOR, true);
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+    }
+
+    private boolean enabled() {
+        return maxEntries > 0 && maxBytes > 0;
+    }
+
+    @Override
+    public Optional<ISpoofaxParseUnit> get(ISpoofaxInputUnit input) {
+        if (!enabled()) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+
+        ISpoofaxParseUnit parse;
+        synchronized (entries) {
+            parse = entries.get(new Key(input));
+        }
+        if (parse != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return Optional.ofNullable(parse);
+    }
+
+    @Override
+    public void put(ISpoofaxInputUnit input, ISpoofaxParseUnit parse) {
+        Key key = new Key(input);
+        if (!enabled() || key.bytes() > maxBytes) {
+            return;
+        }
+
+        synchronized (entries) {
+            ISpoofaxParseUnit previous = entries.put(key, parse);
+            if (previous == null) {
+                bytes += key.bytes();
+            }
+            evict();
+        }
+    }
+
+    private void evict() {
+        Iterator<Key> eldest = entries.keySet().iterator();
+        while (eldest.hasNext() && (entries.size() > maxEntries || bytes > maxBytes)) {
+            bytes -= eldest.next().bytes();
+            eldest.remove();
+        }
+    }
+
+    @Override
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            bytes = 0;
+        }
+    }
+
+    @Override
+    public void clear(ILanguageImpl lang) {
+        String id = lang.id().toString();
+        synchronized (entries) {
+            Iterator<Key> keys = entries.keySet().iterator();
+            while (keys.hasNext()) {
+                Key key = keys.next();
+                if (id.equals(key.lang)) {
+                    bytes -= key.bytes();
+                    keys.remove();
+                }
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    @Override
+    public long hits() {
+        return hits.get();
+    }
+
+    @Override
+    public long misses() {
+        return misses.get();
+    }
+
+    /**
+     * The cache key of an {@link ISpoofaxInputUnit}. The source text is kept so that two texts
+     * with colliding hashes never share an entry.
+     */
+    private static final class Key {
+        private final @Nullable String lang;
+        private final @Nullable String startSymbol;
+        private final @Nullable String source;
+        private final String text;
+        private final int hash;
+
+        private Key(ISpoofaxInputUnit unit) {
+            JSGLRParserConfiguration config = unit.config();
+            FileObject file = unit.source();
+
+            this.lang = unit.langImpl() != null ? unit.langImpl().id().toString() : null;
+            this.startSymbol = config != null ? config.overridingStartSymbol : null;
+            this.source = file != null ? file.getName().getURI() : null;
+            this.text = unit.text();
+            this.hash = Objects.hash(lang, startSymbol, source, text);
+        }
+
+        private long bytes() {
+            // Java strings take (up to) two bytes per character.
+            return 2L * text.length();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash && Objects.equals(lang, other.lang)
+                   && Objects.equals(startSymbol, other.startSymbol)
+                   && Objects.equals(source, other.source) && text.equals(other.text);
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package org.metaborg.spoofax.shell.functions;
 
+import java.util.Objects;
+import java.util.Optional;
+
 import org.metaborg.core.language.ILanguageImpl;
 import org.metaborg.core.project.IProject;
 import org.metaborg.core.syntax.IInputUnit;
@@ -24,6 +27,8 @@ import com.google.inject.assistedinject.Assisted;
 public class ParseFunction extends AbstractSpoofaxFunction<InputResult, ParseResult> {
     private final ISpoofaxSyntaxService syntaxService;
     private final ISpoofaxUnitService unitService;
+    private final IParseCache cache;
+    private final StartSymbolSelector selector;
 
     /**
      * Instantiate a {@link ParseFunction}.
@@ -33,6 +38,10 @@ public class ParseFunction extends AbstractSpoofaxFunction<InputResult, ParseRes
      * @param unitService
      *            The {@link ISpoofaxUnitService}, for creating a new {@link IInputUnit} when
      *            retrying with the default start symbol.
+     * @param cache
+     *            The {@link IParseCache} in which parse results are remembered.
+     * @param selector
+     *            The {@link StartSymbolSelector} that decides which start symbol to try first.
      * @param resultFactory
      *            The {@link IResultFactory}.
      * @param project
@@ -42,25 +51,38 @@ public class ParseFunction extends AbstractSpoofaxFunction<InputResult, ParseRes
      */
     @Inject
     public ParseFunction(ISpoofaxSyntaxService syntaxService, ISpoofaxUnitService unitService,
+                         IParseCache cache, StartSymbolSelector selector,
                          IResultFactory resultFactory, @Assisted IProject project,
                          @Assisted ILanguageImpl lang) {
         super(resultFactory, project, lang);
         this.syntaxService = syntaxService;
         this.unitService = unitService;
+        this.cache = cache;
+        this.selector = selector;
     }
 
     @Override
     protected FailOrSuccessResult<ParseResult, IResult> applyThrowing(InputResult a)
         throws ParseException {
-        ISpoofaxInputUnit unit = a.unit();
-        ISpoofaxParseUnit parse = syntaxService.parse(unit);
-
-        if (!parse.valid()) {
-            // Retry parsing with the default start symbol.
-            unit = unitService.inputUnit(unit.source(), unit.text(), unit.langImpl(), null);
-            parse = syntaxService.parse(unit);
+        ISpoofaxInputUnit input = a.unit();
+        Optional<ISpoofaxParseUnit> cached = cache.get(input);
+        if (cached.isPresent()) {
+            return FailOrSuccessResult
+                .ofSpoofaxResult(resultFactory.createParseResult(cached.get()));
         }
 
+        String shellSymbol = input.config() != null ? input.config().overridingStartSymbol : null;
+        ISpoofaxParseUnit parse = selector.parse(input, symbol -> {
+            if (Objects.equals(symbol, shellSymbol)) {
+                return syntaxService.parse(input);
+            }
+            // Parse with the default start symbol.
+            return syntaxService
+                .parse(unitService.inputUnit(input.source(), input.text(), input.langImpl(), null));
+        });
+        // Cache under the original input, so that a retry is remembered as well.
+        cache.put(input, parse);
+
         return FailOrSuccessResult.ofSpoofaxResult(resultFactory.createParseResult(parse));
     }
 }
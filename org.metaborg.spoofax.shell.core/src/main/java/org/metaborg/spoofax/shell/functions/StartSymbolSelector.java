@@ -0,0 +1,286 @@
+package org.metaborg.spoofax.shell.functions;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.annotation.Nullable;
+
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.syntax.ParseException;
+import org.metaborg.spoofax.core.syntax.JSGLRParserConfiguration;
+import org.metaborg.spoofax.core.unit.ISpoofaxInputUnit;
+import org.metaborg.spoofax.core.unit.ISpoofaxParseUnit;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+
+/**
+ * Decides in which order the start symbols of a language are tried when parsing REPL input.
+ *
+ * <p>
+ * Input is first parsed with the shell start symbol of the language and, when that fails, with the
+ * default start symbol of the language. The shell start symbol therefore always wins when both
+ * start symbols parse an input. This selector remembers, per {@link ILanguageImpl} and per input
+ * shape (the first token of the input), for which shapes the shell start symbol failed while the
+ * default start symbol succeeded. Input of such a shape is parsed with the default start symbol
+ * only, unless that fails too. Input of a shape that was not seen before is always parsed with the
+ * shell start symbol first. Optionally, both start symbols are tried in parallel. The results are
+ * then taken in the original order, shell start symbol first, so that the default start symbol
+ * never wins just because it was faster.
+ * </p>
+ *
+ * <p>
+ * The threads for parsing in parallel are stopped when the selector is {@link #close() closed}.
+ * A {@link #withoutRecording() view} that uses the remembered shapes, but does not change them,
+ * is used for parsing inputs that are not the user's, such as those of the {@link WarmUp}.
+ * </p>
+ */
+public class StartSymbolSelector implements AutoCloseable {
+    private static final int MAX_SHAPES = 1024;
+    private static final int MAX_TOKEN_LENGTH = 32;
+    private static final String EMPTY_SHAPE = "";
+
+    private final boolean parallel;
+    private final boolean recording;
+    private final Map<ILanguageImpl, Set<String>> shellFailures;
+    private ExecutorService executor;
+
+    /**
+     * Parses input with a given start symbol.
+     */
+    @FunctionalInterface
+    public interface Parser {
+        /**
+         * Parse the input with the given start symbol.
+         *
+         * @param startSymbol
+         *            The start symbol, or {@code null} for the default start symbol.
+         * @return The resulting {@link ISpoofaxParseUnit}.
+         * @throws ParseException
+         *             When parsing fails unexpectedly.
+         */
+        ISpoofaxParseUnit parse(@Nullable String startSymbol) throws ParseException;
+    }
+
+    /**
+     * Instantiate a new {@link StartSymbolSelector}.
+     *
+     * @param parallel
+     *            Whether to try both start symbols at the same time.
+     */
+    @Inject
+    public StartSymbolSelector(@Named("parallelStartSymbols") boolean parallel) {
+        this(parallel, true, new ConcurrentHashMap<>());
+    }
+
+    private StartSymbolSelector(boolean parallel, boolean recording,
+                                Map<ILanguageImpl, Set<String>> shellFailures) {
+        this.parallel = parallel;
+        this.recording = recording;
+        this.shellFailures = shellFailures;
+    }
+
+    /**
+     * Create a view of this selector that tries the start symbols in the same order, but does not
+     * remember which of them succeeded. The view parses serially, so that it has no threads of its
+     * own to stop.
+     *
+     * @return The non-recording {@link StartSymbolSelector}.
+     */
+    public StartSymbolSelector withoutRecording() {
+        return new StartSymbolSelector(false, false, shellFailures);
+    }
+
+    /**
+     * Parse the given input, with the shell start symbol first unless it is known to fail for the
+     * shape of the input. If neither start symbol results in a valid parse, the result of parsing
+     * with the default start symbol is returned.
+     *
+     * @param input
+     *            The {@link ISpoofaxInputUnit} to parse. Its {@link JSGLRParserConfiguration}
+     *            determines the shell start symbol.
+     * @param parser
+     *            The {@link Parser} that parses the input with a given start symbol.
+     * @return The resulting {@link ISpoofaxParseUnit}.
+     * @throws ParseException
+     *             When parsing fails unexpectedly.
+     */
+    public ISpoofaxParseUnit parse(ISpoofaxInputUnit input, Parser parser) throws ParseException {
+        JSGLRParserConfiguration config = input.config();
+        String shellSymbol = config != null ? config.overridingStartSymbol : null;
+        if (shellSymbol == null) {
+            return parser.parse(null);
+        }
+
+        Set<String> failures = failures(input.langImpl());
+        String shape = shape(input.text());
+        if (parallel) {
+            return parseParallel(input, failures, shape, shellSymbol, parser);
+        }
+        return parseSerial(failures, shape, candidates(failures, shape, shellSymbol), parser);
+    }
+
+    private ISpoofaxParseUnit parseSerial(Set<String> failures, String shape,
+                                          List<String> candidates, Parser parser)
+        throws ParseException {
+        ISpoofaxParseUnit fallback = null;
+        for (String symbol : candidates) {
+            ISpoofaxParseUnit parse = parser.parse(symbol);
+            if (parse.valid()) {
+                record(failures, shape, symbol);
+                return parse;
+            }
+            if (symbol == null) {
+                fallback = parse;
+            }
+        }
+        return fallback;
+    }
+
+    private ISpoofaxParseUnit parseParallel(ISpoofaxInputUnit input, Set<String> failures,
+                                            String shape, String shellSymbol, Parser parser)
+        throws ParseException {
+        ExecutorService executor = executor();
+        Map<Future<ISpoofaxParseUnit>, String> symbols = new LinkedHashMap<>();
+        for (String symbol : Arrays.asList(shellSymbol, null)) {
+            symbols.put(executor.submit(() -> parser.parse(symbol)), symbol);
+        }
+
+        try {
+            return first(symbols, failures, shape);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ParseException(input, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ParseException) {
+                throw (ParseException) e.getCause();
+            }
+            throw new ParseException(input, e.getCause());
+        } finally {
+            symbols.keySet().forEach(f -> f.cancel(true));
+        }
+    }
+
+    /**
+     * Wait for the parses in the order of the candidates, and take the first valid one. A later
+     * candidate that completes earlier is not used before the earlier candidates have failed.
+     *
+     * @return The first valid parse, or else the parse with the default start symbol.
+     */
+    private ISpoofaxParseUnit first(Map<Future<ISpoofaxParseUnit>, String> symbols,
+                                    Set<String> failures, String shape)
+        throws InterruptedException, ExecutionException {
+        ISpoofaxParseUnit fallback = null;
+        for (Map.Entry<Future<ISpoofaxParseUnit>, String> candidate : symbols.entrySet()) {
+            String symbol = candidate.getValue();
+            ISpoofaxParseUnit parse = candidate.getKey().get();
+            if (parse.valid()) {
+                record(failures, shape, symbol);
+                return parse;
+            }
+            if (symbol == null) {
+                fallback = parse;
+            }
+        }
+        return fallback;
+    }
+
+    private synchronized ExecutorService executor() {
+        if (executor == null || executor.isShutdown()) {
+            executor = Executors.newFixedThreadPool(2, new ThreadFactoryBuilder().setDaemon(true)
+                .setNameFormat("spoofax-repl-parse-%d").build());
+        }
+        return executor;
+    }
+
+    /**
+     * Stop the threads used for parsing in parallel, e.g. when the shell exits. Parsing in
+     * parallel afterwards starts new threads.
+     */
+    @Override
+    public synchronized void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * Forget for which input shapes the shell start symbol of a language failed, e.g. because its
+     * parse table changed.
+     *
+     * @param lang
+     *            The {@link ILanguageImpl}.
+     */
+    public void forget(ILanguageImpl lang) {
+        shellFailures.remove(lang);
+    }
+
+    private Set<String> failures(ILanguageImpl lang) {
+        return shellFailures.computeIfAbsent(lang, l -> Collections.newSetFromMap(
+            Collections.synchronizedMap(new LinkedHashMap<String, Boolean>(MAX_SHAPES, 1, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    return size() > MAX_SHAPES;
+                }
+            })));
+    }
+
+    private List<String> candidates(Set<String> failures, String shape, String shellSymbol) {
+        if (failures.contains(shape)) {
+            return Arrays.asList(null, shellSymbol);
+        }
+        return Arrays.asList(shellSymbol, null);
+    }
+
+    /**
+     * Record which start symbol parsed an input of the given shape. The default start symbol only
+     * wins when the shell start symbol failed, or is known to fail, for that shape.
+     */
+    private void record(Set<String> failures, String shape, @Nullable String symbol) {
+        if (!recording) {
+            return;
+        }
+        if (symbol == null) {
+            failures.add(shape);
+        } else {
+            failures.remove(shape);
+        }
+    }
+
+    /**
+     * Compute the shape of an input: its first token. This is either a (keyword or identifier
+     * like) word, or a single other character.
+     *
+     * @param text
+     *            The input text.
+     * @return The shape of the text.
+     */
+    static String shape(String text) {
+        String trimmed = text.trim();
+        if (trimmed.isEmpty()) {
+            return EMPTY_SHAPE;
+        }
+        if (!Character.isJavaIdentifierStart(trimmed.charAt(0))) {
+            return trimmed.substring(0, 1);
+        }
+        int end = 1;
+        while (end < trimmed.length() && end < MAX_TOKEN_LENGTH
+               && Character.isJavaIdentifierPart(trimmed.charAt(end))) {
+            end++;
+        }
+        return trimmed.substring(0, end);
+    }
+}
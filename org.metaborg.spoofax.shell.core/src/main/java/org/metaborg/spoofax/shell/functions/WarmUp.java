@@ -0,0 +1,238 @@
+package org.metaborg.spoofax.shell.functions;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.vfs2.FileObject;
+import org.metaborg.core.analysis.AnalyzerFacet;
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.project.IProject;
+import org.metaborg.spoofax.shell.client.BackgroundResults;
+import org.metaborg.spoofax.shell.client.IInputHistory;
+import org.metaborg.spoofax.shell.commands.BatchCommand;
+import org.metaborg.spoofax.shell.core.IEvaluationStrategy;
+import org.metaborg.spoofax.shell.output.EvaluateResult;
+import org.metaborg.spoofax.shell.output.IResult;
+import org.metaborg.spoofax.shell.output.ISpoofaxTermResult;
+import org.metaborg.spoofax.shell.output.StyledText;
+import org.metaborg.spoofax.shell.statistics.PipelineStatistics;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.name.Named;
+
+/**
+ * Warms up the JIT compiler of the JVM for a freshly loaded language in the background, so that
+ * the first evaluations of the user run compiled rather than interpreted code of the parser,
+ * analyzer and evaluation runtime.
+ *
+ * <p>
+ * The sample inputs are read from a {@value #SAMPLES_FILE} file in one of the locations of the
+ * language, separated by blank lines like the input of {@code :batch}. Without such a file, the
+ * most recent expressions in the {@link IInputHistory} are used instead. The inputs are parsed,
+ * analyzed if the language has an analyzer, and evaluated with {@link IEvaluationStrategy#fork()
+ * forked} evaluation strategies, so the environment of the REPL is not affected.
+ * </p>
+ *
+ * <p>
+ * Only the JIT compiler is warmed up. The forked strategies have an interpreter or VM of their
+ * own, which is discarded afterwards, so the interpreter and VM of the REPL are still initialized
+ * by the first evaluation of the user. They are not warmed up themselves, because they are not
+ * safe to use from the warm-up thread while the user evaluates.
+ * </p>
+ *
+ * <p>
+ * The inputs go through a pipeline of their own, composed in a project of their own, so that they
+ * are analyzed in another context than the input of the REPL. The functions are created by a
+ * {@link WarmUpFunctionFactory}, so they leave no traces in the state they share with the REPL
+ * either: no {@link PipelineStatistics} are recorded, nothing is put in the {@link IParseCache},
+ * and the {@link StartSymbolSelector} does not remember which start symbols succeeded.
+ * </p>
+ *
+ * <p>
+ * The warm-up runs on a low priority daemon thread, and loading another language cancels it.
+ * Once it is complete, a report is posted to the {@link BackgroundResults}.
+ * </p>
+ */
+public class WarmUp {
+    /**
+     * The name of the file with sample inputs next to a language.
+     */
+    public static final String SAMPLES_FILE = "shell-warmup.txt";
+
+    private static final String THREAD_NAME = "spoofax-shell-warm-up";
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    private final IFunctionFactory factory;
+    private final Provider<IProject> projects;
+    private final Provider<Map<String, IEvaluationStrategy>> strategies;
+    private final int maxInputs;
+    private final ExecutorService executor;
+    private final BackgroundResults results;
+    private IInputHistory history;
+    private Future<?> current;
+    // Only used on the warm-up thread.
+    private IProject project;
+
+    /**
+     * The thread on which languages are warmed up.
+     */
+    private static final class WarmUpThread extends Thread {
+        /**
+         * @param runnable
+         *            The task of the single thread executor.
+         */
+        private WarmUpThread(Runnable runnable) {
+            super(runnable, THREAD_NAME);
+            setDaemon(true);
+            setPriority(Thread.MIN_PRIORITY);
+        }
+    }
+
+    /**
+     * Instantiate a new {@link WarmUp}.
+     *
+     * @param factory
+     *            The {@link IFunctionFactory} for composing the pipeline of the warm-up, usually a
+     *            {@link WarmUpFunctionFactory}.
+     * @param projects
+     *            Creates the {@link IProject} of the warm-up, when the first language is warmed
+     *            up.
+     * @param strategies
+     *            The shared {@link IEvaluationStrategy} implementations, grouped by their names as
+     *            keys, which are forked for warming up. They are only created when the first
+     *            language is warmed up.
+     * @param maxInputs
+     *            The maximum number of sample inputs. Zero disables warming up.
+     * @param results
+     *            The {@link BackgroundResults} to which the report of a completed warm-up is
+     *            posted.
+     */
+    @Inject
+    public WarmUp(@Named("warmUp") IFunctionFactory factory, Provider<IProject> projects,
+                  Provider<Map<String, IEvaluationStrategy>> strategies,
+                  @Named("warmUpInputs") int maxInputs, BackgroundResults results) {
+        this.factory = factory;
+        this.projects = projects;
+        this.strategies = strategies;
+        this.maxInputs = maxInputs;
+        this.executor = Executors.newSingleThreadExecutor(WarmUpThread::new);
+        this.results = results;
+    }
+
+    /**
+     * Set the {@link IInputHistory} of which the most recent expressions are used as sample
+     * inputs, for languages without a {@value #SAMPLES_FILE} file. When not set, only such
+     * languages are warmed up.
+     *
+     * @param history
+     *            The {@link IInputHistory}.
+     */
+    @Inject(optional = true)
+    public void setHistory(IInputHistory history) {
+        this.history = history;
+    }
+
+    /**
+     * Start warming up a language in the background, cancelling the warm-up of the previously
+     * loaded language.
+     *
+     * @param composer
+     *            The {@link FunctionComposer} of the language in the REPL. The warm-up composes
+     *            a pipeline of its own for the same language.
+     * @param commandPrefix
+     *            The prefix of commands, which are left out of the sample inputs.
+     * @return {@code true} if there are sample inputs and the warm-up was started.
+     */
+    public synchronized boolean start(FunctionComposer composer, String commandPrefix) {
+        if (current != null) {
+            current.cancel(true);
+            current = null;
+        }
+
+        List<String> inputs = inputs(composer.lang(), commandPrefix);
+        if (inputs.isEmpty()) {
+            return false;
+        }
+        ILanguageImpl lang = composer.lang();
+        current = executor.submit(() -> run(lang, inputs));
+        return true;
+    }
+
+    private List<String> inputs(ILanguageImpl lang, String commandPrefix) {
+        if (maxInputs <= 0) {
+            return Collections.emptyList();
+        }
+        List<String> inputs = samples(lang);
+        if (inputs.isEmpty() && history != null) {
+            inputs = new ArrayList<>();
+            List<String> entries = history.allEntries();
+            for (int i = entries.size() - 1; i >= 0 && inputs.size() < maxInputs; i--) {
+                String entry = entries.get(i).trim();
+                if (!entry.isEmpty() && !entry.startsWith(commandPrefix)) {
+                    inputs.add(entry);
+                }
+            }
+            // Oldest first, as the expressions may have been entered in that order for a reason.
+            Collections.reverse(inputs);
+        }
+        return inputs.size() > maxInputs ? inputs.subList(0, maxInputs) : inputs;
+    }
+
+    private List<String> samples(ILanguageImpl lang) {
+        for (FileObject location : lang.locations()) {
+            try {
+                FileObject samples = location.getChild(SAMPLES_FILE);
+                if (samples != null) {
+                    try (InputStream in = samples.getContent().getInputStream()) {
+                        return BatchCommand.units(IOUtils.toString(in, StandardCharsets.UTF_8));
+                    }
+                }
+            } catch (IOException e) {
+                // Warming up is best effort, so an unreadable location is skipped.
+                continue;
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    private void run(ILanguageImpl lang, List<String> inputs) {
+        long start = System.nanoTime();
+        if (project == null) {
+            project = projects.get();
+        }
+        FunctionComposer composer = factory.createComposer(project, lang);
+        FailableFunction<String, ? extends ISpoofaxTermResult<?>, IResult> front;
+        if (lang.hasFacet(AnalyzerFacet.class)) {
+            front = composer.analyzeFunction();
+        } else {
+            front = composer.parseFunction();
+        }
+        FailableFunction<ISpoofaxTermResult<?>, EvaluateResult, IResult> evaluate =
+            composer.evaluateFunction(IEvaluationStrategy.forkAll(strategies.get()));
+
+        for (String input : inputs) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            // Failing inputs warm up just as well, so their results are discarded.
+            front.apply(input).flatMap(evaluate);
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            return;
+        }
+        StyledText report = new StyledText(String.format(
+            "Warmed up the JIT compiler for %s with %d input(s) in %.1f ms.", lang.id(),
+            inputs.size(), (System.nanoTime() - start) / NANOS_PER_MILLI));
+        results.post((visitor) -> visitor.visitMessage(report));
+    }
+}
@@ -0,0 +1,153 @@
+package org.metaborg.spoofax.shell.functions;
+
+import java.util.Map;
+
+import org.metaborg.core.action.ITransformAction;
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.project.IProject;
+import org.metaborg.spoofax.core.syntax.ISpoofaxSyntaxService;
+import org.metaborg.spoofax.core.unit.ISpoofaxUnitService;
+import org.metaborg.spoofax.shell.commands.CommandBuilder;
+import org.metaborg.spoofax.shell.core.IEvaluationStrategy;
+import org.metaborg.spoofax.shell.output.AnalyzeResult;
+import org.metaborg.spoofax.shell.output.EvaluateResult;
+import org.metaborg.spoofax.shell.output.IResult;
+import org.metaborg.spoofax.shell.output.IResultFactory;
+import org.metaborg.spoofax.shell.output.ISpoofaxTermResult;
+import org.metaborg.spoofax.shell.output.InputResult;
+import org.metaborg.spoofax.shell.output.ParseResult;
+import org.metaborg.spoofax.shell.output.StyleResult;
+import org.metaborg.spoofax.shell.output.TransformResult;
+import org.metaborg.spoofax.shell.statistics.PipelineStatistics;
+
+import com.google.inject.Inject;
+
+/**
+ * An {@link IFunctionFactory} for the pipeline of the {@link WarmUp}, whose functions leave no
+ * traces in the state they would otherwise share with the REPL. They record no
+ * {@link PipelineStatistics}, their parses are not put in the {@link IParseCache}, and their
+ * {@link StartSymbolSelector} uses, but does not change, the start symbols remembered by the REPL.
+ * All other functions are created by the {@link IFunctionFactory} of the REPL.
+ */
+public class WarmUpFunctionFactory implements IFunctionFactory {
+    private final IFunctionFactory functionFactory;
+    private final ISpoofaxSyntaxService syntaxService;
+    private final ISpoofaxUnitService unitService;
+    private final IResultFactory resultFactory;
+    private final IParseCache cache;
+    private final StartSymbolSelector selector;
+
+    /**
+     * Instantiate a new {@link WarmUpFunctionFactory}.
+     *
+     * @param functionFactory
+     *            The {@link IFunctionFactory} of the REPL, which creates the other functions.
+     * @param syntaxService
+     *            The {@link ISpoofaxSyntaxService} for parsing.
+     * @param unitService
+     *            The {@link ISpoofaxUnitService} for retrying with the default start symbol.
+     * @param resultFactory
+     *            The {@link IResultFactory}.
+     * @param selector
+     *            The {@link StartSymbolSelector} of the REPL, of which only a non-recording view
+     *            is used.
+     */
+    @Inject
+    public WarmUpFunctionFactory(IFunctionFactory functionFactory,
+                                 ISpoofaxSyntaxService syntaxService,
+                                 ISpoofaxUnitService unitService, IResultFactory resultFactory,
+                                 StartSymbolSelector selector) {
+        this.functionFactory = functionFactory;
+        this.syntaxService = syntaxService;
+        this.unitService = unitService;
+        this.resultFactory = resultFactory;
+        // A capacity of zero entries caches nothing.
+        this.cache = new LruParseCache(0, 0);
+        this.selector = selector.withoutRecording();
+    }
+
+    /**
+     * Unset the {@link PipelineStatistics} that the {@link IFunctionFactory} of the REPL sets on
+     * the functions it creates.
+     */
+    private static <In, Success extends IResult> FailableFunction<In, Success, IResult>
+            quiet(FailableFunction<In, Success, IResult> function) {
+        if (function instanceof AbstractSpoofaxFunction) {
+            ((AbstractSpoofaxFunction<?, ?>) function).setStatistics(null);
+        }
+        return function;
+    }
+
+    @Override
+    public FailableFunction<String, InputResult, IResult>
+            createInputFunction(IProject project, ILanguageImpl lang) {
+        return quiet(functionFactory.createInputFunction(project, lang));
+    }
+
+    @Override
+    public FailableFunction<String, InputResult, IResult>
+            createOpenInputFunction(IProject project, ILanguageImpl lang) {
+        return quiet(functionFactory.createOpenInputFunction(project, lang));
+    }
+
+    @Override
+    public FailableFunction<InputResult, ParseResult, IResult>
+            createParseFunction(IProject project, ILanguageImpl lang) {
+        return new ParseFunction(syntaxService, unitService, cache, selector, resultFactory,
+                                 project, lang);
+    }
+
+    @Override
+    public FailableFunction<ParseResult, AnalyzeResult, IResult>
+            createAnalyzeFunction(IProject project, ILanguageImpl lang) {
+        return quiet(functionFactory.createAnalyzeFunction(project, lang));
+    }
+
+    @Override
+    public FailableFunction<ParseResult, TransformResult, IResult>
+            createPTransformFunction(IProject project, ILanguageImpl lang,
+                                     ITransformAction action) {
+        return quiet(functionFactory.createPTransformFunction(project, lang, action));
+    }
+
+    @Override
+    public FailableFunction<AnalyzeResult, TransformResult, IResult>
+            createATransformFunction(IProject project, ILanguageImpl lang,
+                                     ITransformAction action) {
+        return quiet(functionFactory.createATransformFunction(project, lang, action));
+    }
+
+    @Override
+    public FailableFunction<ISpoofaxTermResult<?>, EvaluateResult, IResult>
+            createEvaluateFunction(IProject project, ILanguageImpl lang) {
+        return quiet(functionFactory.createEvaluateFunction(project, lang));
+    }
+
+    @Override
+    public FailableFunction<ISpoofaxTermResult<?>, EvaluateResult, IResult>
+            createEvaluateFunction(IProject project, ILanguageImpl lang,
+                                   Map<String, IEvaluationStrategy> strategies) {
+        return quiet(functionFactory.createEvaluateFunction(project, lang, strategies));
+    }
+
+    @Override
+    public FailableFunction<ParseResult, StyleResult, IResult>
+            createStyleFunction(IProject project, ILanguageImpl lang) {
+        return quiet(functionFactory.createStyleFunction(project, lang));
+    }
+
+    @Override
+    public CommandBuilder<?> createBuilder(IProject project, ILanguageImpl lang) {
+        return createBuilder(createComposer(project, lang));
+    }
+
+    @Override
+    public CommandBuilder<?> createBuilder(FunctionComposer composer) {
+        return new CommandBuilder<>(composer);
+    }
+
+    @Override
+    public FunctionComposer createComposer(IProject project, ILanguageImpl lang) {
+        return new FunctionComposer(this, project, lang);
+    }
+}
@@ -84,4 +84,17 @@ public interface ICommandInvoker {
      * Reset the list of available commands to its initial default list.
      */
     void resetCommands();
+
+    /**
+     * Replace the available commands by the initial default list plus the given commands, and set
+     * the default command. Other threads executing commands see either all old or all new named
+     * commands, never a mix of both.
+     *
+     * @param commands
+     *            The {@link IReplCommand}s to add to the initial default list, with their names
+     *            as keys (without prefix).
+     * @param defaultCommand
+     *            The new default {@link IReplCommand}.
+     */
+    void replaceCommands(Map<String, IReplCommand> commands, IReplCommand defaultCommand);
 }
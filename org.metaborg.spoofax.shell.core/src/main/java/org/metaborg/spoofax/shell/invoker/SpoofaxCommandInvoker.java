@@ -3,6 +3,9 @@ package org.metaborg.spoofax.shell.invoker;
 import java.util.Map;
 
 import org.metaborg.spoofax.shell.commands.IReplCommand;
+import org.metaborg.spoofax.shell.output.IResult;
+import org.metaborg.spoofax.shell.statistics.PipelineStatistics;
+import org.metaborg.spoofax.shell.statistics.PipelineStatistics.Sample;
 
 import com.google.common.collect.Maps;
 import com.google.inject.Inject;
@@ -13,8 +16,9 @@ import com.google.inject.name.Named;
  */
 public class SpoofaxCommandInvoker implements ICommandInvoker {
     private final Map<String, IReplCommand> defaults;
-    private final Map<String, IReplCommand> commands;
-    private IReplCommand defaultCommand;
+    private volatile Map<String, IReplCommand> commands;
+    private volatile IReplCommand defaultCommand;
+    private PipelineStatistics statistics;
 
     /**
      * Instantiates a new SpoofaxCommandInvoker.
@@ -29,16 +33,54 @@ public class SpoofaxCommandInvoker implements ICommandInvoker {
                                  @Named("default_command") IReplCommand defaultCommand) {
         this.defaults = defaults;
         this.defaultCommand = defaultCommand;
-        this.commands = Maps.newConcurrentMap();
         this.resetCommands();
     }
 
+    /**
+     * Set the {@link PipelineStatistics} to which the latency of executed commands is reported.
+     * When not set, nothing is measured.
+     *
+     * @param statistics
+     *            The {@link PipelineStatistics}.
+     */
+    @Inject(optional = true)
+    public void setStatistics(PipelineStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    @Override
+    public IResult execute(String optionallyPrefixedCommandName)
+        throws CommandNotFoundException {
+        String name = commandName(optionallyPrefixedCommandName);
+        Sample sample = statistics != null && name != null ? statistics.start() : null;
+        try {
+            return ICommandInvoker.super.execute(optionallyPrefixedCommandName);
+        } finally {
+            if (sample != null) {
+                statistics.recordCommand(name, sample);
+            }
+        }
+    }
+
+    /**
+     * @return The name under which the command is recorded, or {@code null} when no command has
+     *         this name, so that typos do not end up in the statistics.
+     */
+    private String commandName(String optionallyPrefixedCommandName) {
+        if (!optionallyPrefixedCommandName.startsWith(commandPrefix())) {
+            return "<default>";
+        }
+        String name = optionallyPrefixedCommandName.split("\\s+", 2)[0];
+        return commands.containsKey(name.substring(commandPrefix().length())) ? name : null;
+    }
+
     @Override
     public IReplCommand commandFromName(String commandName) throws CommandNotFoundException {
-        if (!commands.containsKey(commandName)) {
+        IReplCommand command = commands.get(commandName);
+        if (command == null) {
             throw new CommandNotFoundException(commandName);
         }
-        return commands.get(commandName);
+        return command;
     }
 
     @Override
@@ -68,7 +110,19 @@ public class SpoofaxCommandInvoker implements ICommandInvoker {
 
     @Override
     public void resetCommands() {
-        commands.clear();
-        commands.putAll(defaults);
+        Map<String, IReplCommand> reset = Maps.newConcurrentMap();
+        reset.putAll(defaults);
+        commands = reset;
+    }
+
+    @Override
+    public void replaceCommands(Map<String, IReplCommand> replacements,
+                                IReplCommand replacementDefault) {
+        Map<String, IReplCommand> replaced = Maps.newConcurrentMap();
+        replaced.putAll(defaults);
+        replaced.putAll(replacements);
+        // The commands are swapped before the default, as the default may depend on them.
+        commands = replaced;
+        defaultCommand = replacementDefault;
     }
 }
@@ -1,10 +1,10 @@
 package org.metaborg.spoofax.shell.output;
 
 import java.awt.Color;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
 import java.util.stream.IntStream;
-import java.util.stream.StreamSupport;
 
 import org.metaborg.core.source.ISourceRegion;
 import org.metaborg.core.source.SourceRegion;
@@ -14,16 +14,24 @@ import org.metaborg.core.style.RegionStyle;
 import org.metaborg.core.style.Style;
 
 import com.google.common.collect.Lists;
-import com.google.common.collect.Range;
-import com.google.common.collect.RangeSet;
-import com.google.common.collect.TreeRangeSet;
 
 /**
  * Represents a styled text containing several styled strings, each represented by an
  * {@link IRegionStyle}.
+ *
+ * <p>
+ * The length of the text is tracked while appending, so that appending is a constant time
+ * operation. The plain text returned by {@link #toString()} is computed once and cached until the
+ * next append.
+ * </p>
  */
 public class StyledText {
+    private static final int INITIAL_RANGES = 16;
+
     private final List<IRegionStyle<String>> source;
+    private final List<IRegionStyle<String>> view;
+    private int length;
+    private String plainText;
 
     /**
      * Create a styled text from a string with no style.
@@ -56,7 +64,7 @@ public class StyledText {
      *            The unstyled text.
      */
     public StyledText(IStyle style, String text) {
-        this.source = Lists.newArrayList();
+        this();
 
         this.append(style, text);
     }
@@ -68,7 +76,9 @@ public class StyledText {
      *            The list of styled strings.
      */
     public StyledText(Iterable<IRegionStyle<String>> sourceRegions) {
-        this.source = Lists.newArrayList(sourceRegions);
+        this();
+
+        sourceRegions.forEach(this::add);
     }
 
     /**
@@ -76,15 +86,23 @@ public class StyledText {
      */
     public StyledText() {
         this.source = Lists.newArrayList();
+        this.view = Collections.unmodifiableList(source);
     }
 
     /**
      * Return all the styled strings in this text.
      *
-     * @return All the styled strings in this text.
+     * @return A read-only view of all the styled strings in this text.
      */
     public List<IRegionStyle<String>> getSource() {
-        return source;
+        return view;
+    }
+
+    /**
+     * @return The length of the plain text, i.e. the length of {@link #toString()}.
+     */
+    public int length() {
+        return length;
     }
 
     /**
@@ -121,14 +139,32 @@ public class StyledText {
      * @return The styled text.
      */
     public StyledText append(IStyle style, String text) {
-        int start = this.toString().length();
-        return this.append(new SourceRegion(start, start + text.length() - 1), style, text);
+        return this.append(new SourceRegion(length, length + text.length() - 1), style, text);
+    }
+
+    /**
+     * Append all styled strings of another styled text to this styled text, keeping their styles.
+     *
+     * @param other
+     *            The styled text to append.
+     * @return The styled text.
+     */
+    public StyledText append(StyledText other) {
+        // Copy first, in case other is this.
+        List<IRegionStyle<String>> regions = Lists.newArrayList(other.source);
+        regions.forEach(e -> this.append(e.style(), e.fragment()));
+        return this;
     }
 
     /**
      * Append a string with multiple regions and a style to this styled text. All of the regions in
      * the given text will be styled with the given style, the rest of the text will have no style.
-     * Internally, the given regions will be sorted.
+     * Overlapping and adjacent regions are merged, and regions are clipped to the text.
+     *
+     * <p>
+     * The regions are sorted and merged in a single pass over a primitive array, so that styling
+     * a text with many (e.g. error) regions does not allocate per region.
+     * </p>
      *
      * @param regions
      *            The regions to style.
@@ -139,24 +175,58 @@ public class StyledText {
      * @return The styled text.
      */
     public StyledText append(Iterable<ISourceRegion> regions, IStyle style, String text) {
-        RangeSet<Integer> rangeSet = TreeRangeSet.create();
-        StreamSupport.stream(regions.spliterator(), false)
-            .map(r -> Range.closed(r.startOffset(), r.endOffset() + 1)).forEach(rangeSet::add);
-        List<Range<Integer>> sortedRanges = rangeSet.asRanges().stream()
-            .sorted((a, b) -> a.lowerEndpoint() - b.lowerEndpoint()).collect(Collectors.toList());
+        long[] ranges = sortedRanges(regions, text.length());
         int curOffset = 0;
-        for (Range<Integer> r : sortedRanges) {
-            String sub = text.substring(curOffset, r.lowerEndpoint());
-            this.append(sub);
-            String errorRegion = text.substring(r.lowerEndpoint(), r.upperEndpoint());
-            this.append(style, errorRegion);
-            curOffset = r.upperEndpoint();
+        int i = 0;
+        while (i < ranges.length) {
+            int start = rangeStart(ranges[i]);
+            int end = rangeEnd(ranges[i]);
+            for (i++; i < ranges.length && rangeStart(ranges[i]) <= end; i++) {
+                end = Math.max(end, rangeEnd(ranges[i]));
+            }
+
+            if (start > curOffset) {
+                this.append(text.substring(curOffset, start));
+            }
+            this.append(style, text.substring(start, end));
+            curOffset = end;
         }
         // Add the rest.
         this.append(text.substring(curOffset));
         return this;
     }
 
+    /**
+     * Encode the non-empty regions, clipped to {@code [0, length)}, as sorted {@code long}s with
+     * the start offset in the high and the (exclusive) end offset in the low 32 bits.
+     */
+    private static long[] sortedRanges(Iterable<ISourceRegion> regions, int length) {
+        long[] ranges = new long[INITIAL_RANGES];
+        int size = 0;
+        for (ISourceRegion region : regions) {
+            int start = Math.max(0, region.startOffset());
+            int end = Math.min(length, region.endOffset() + 1);
+            if (start >= end) {
+                continue;
+            }
+            if (size == ranges.length) {
+                ranges = Arrays.copyOf(ranges, size * 2);
+            }
+            ranges[size++] = (long) start << Integer.SIZE | end;
+        }
+        ranges = Arrays.copyOf(ranges, size);
+        Arrays.sort(ranges);
+        return ranges;
+    }
+
+    private static int rangeStart(long range) {
+        return (int) (range >>> Integer.SIZE);
+    }
+
+    private static int rangeEnd(long range) {
+        return (int) range;
+    }
+
     /**
      * Append a string with a region and a style to this styled text.
      *
@@ -169,11 +239,18 @@ public class StyledText {
      * @return The styled text.
      */
     public StyledText append(ISourceRegion region, IStyle style, String text) {
-        this.source.add(new RegionStyle<>(region, style, text));
+        this.add(new RegionStyle<>(region, style, text));
 
         return this;
     }
 
+    private void add(IRegionStyle<String> regionStyle) {
+        source.add(regionStyle);
+        // Matches toString(), which appends a null fragment as "null".
+        length += String.valueOf(regionStyle.fragment()).length();
+        plainText = null;
+    }
+
     private static IStyle colorStyle(Color fg, Color bg) {
         return new Style(fg, bg, false, false, false, false);
     }
@@ -213,6 +290,11 @@ public class StyledText {
 
     @Override
     public String toString() {
-        return source.stream().map(IRegionStyle::fragment).collect(Collectors.joining());
+        if (plainText == null) {
+            StringBuilder builder = new StringBuilder(length);
+            source.forEach(e -> builder.append(e.fragment()));
+            plainText = builder.toString();
+        }
+        return plainText;
     }
 }
@@ -1,5 +1,6 @@
 package org.metaborg.spoofax.shell.services;
 
+import org.metaborg.spoofax.shell.commands.LoadedLanguages;
 import org.metaborg.spoofax.shell.functions.FunctionComposer;
 import org.metaborg.spoofax.shell.output.FailOrSuccessResult;
 import org.metaborg.spoofax.shell.output.IResult;
@@ -30,6 +31,19 @@ public class SpoofaxEditorServices implements IEditorServices {
         this.strategy = strategyfactory.createUnloadedStrategy();
     }
 
+    /**
+     * Serve the language in use in the REPL, and every language that is used later on. Guice sets
+     * them when the editor services are first requested, so that a language is only loaded into
+     * the editor services once a client needs them.
+     *
+     * @param languages
+     *            The {@link LoadedLanguages} of the REPL.
+     */
+    @Inject(optional = true)
+    public void setLoadedLanguages(LoadedLanguages languages) {
+        languages.serve(this);
+    }
+
     @Override
     public FailOrSuccessResult<StyleResult, IResult> highlight(String source) {
         return strategy.highlight(source);
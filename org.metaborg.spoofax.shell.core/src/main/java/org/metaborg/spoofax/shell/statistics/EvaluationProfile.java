@@ -0,0 +1,156 @@
+package org.metaborg.spoofax.shell.statistics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * The samples taken by the {@link EvaluationProfiler} during one evaluation, aggregated per rule
+ * or strategy and per stack.
+ *
+ * <p>
+ * Every sample is attributed the wall time that passed since the previous sample. The self time
+ * of a frame is the time of the samples in which it was on top of the stack, and its total time
+ * is the time of the samples in which it was anywhere on the stack. Calls are estimated by
+ * comparing consecutive samples of a thread: a frame that was not on the stack of the previous
+ * sample at the same position is counted as a new call. Calls that start and finish between two
+ * samples are not seen, so the call counts are a lower bound.
+ * </p>
+ */
+public class EvaluationProfile {
+    private final Map<String, Frame> frames;
+    private final Map<String, Long> stacks;
+    private long samples;
+    private long nanos;
+
+    /**
+     * The time spent in one rule or strategy.
+     */
+    public static final class Frame {
+        private final String name;
+        private long selfNanos;
+        private long totalNanos;
+        private long calls;
+
+        private Frame(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @return The name of the rule or strategy.
+         */
+        public String name() {
+            return name;
+        }
+
+        /**
+         * @return The time spent in the rule or strategy itself, in nanoseconds.
+         */
+        public long selfNanos() {
+            return selfNanos;
+        }
+
+        /**
+         * @return The time spent in the rule or strategy and everything it called, in nanoseconds.
+         */
+        public long totalNanos() {
+            return totalNanos;
+        }
+
+        /**
+         * @return The estimated number of calls, which is a lower bound.
+         */
+        public long calls() {
+            return calls;
+        }
+    }
+
+    /**
+     * Create an empty {@link EvaluationProfile}.
+     */
+    public EvaluationProfile() {
+        this.frames = new HashMap<>();
+        this.stacks = new HashMap<>();
+    }
+
+    /**
+     * Record a sample of one thread.
+     *
+     * @param stack
+     *            The names of the frames on the stack, outermost first. May not be empty.
+     * @param previous
+     *            The stack of the previous sample of the same thread, or {@code null} if there is
+     *            none.
+     * @param elapsedNanos
+     *            The wall time since the previous sample, in nanoseconds.
+     */
+    public void record(List<String> stack, List<String> previous, long elapsedNanos) {
+        samples++;
+        nanos += elapsedNanos;
+        stacks.merge(String.join(";", stack), 1L, Long::sum);
+
+        int common = 0;
+        if (previous != null) {
+            int max = Math.min(stack.size(), previous.size());
+            while (common < max && stack.get(common).equals(previous.get(common))) {
+                common++;
+            }
+        }
+
+        // A recursive rule is on the stack more than once, but its total time is counted once.
+        Set<String> counted = new HashSet<>();
+        for (int i = 0; i < stack.size(); i++) {
+            Frame frame = frames.computeIfAbsent(stack.get(i), Frame::new);
+            if (counted.add(frame.name)) {
+                frame.totalNanos += elapsedNanos;
+            }
+            if (i >= common) {
+                frame.calls++;
+            }
+        }
+        frames.get(stack.get(stack.size() - 1)).selfNanos += elapsedNanos;
+    }
+
+    /**
+     * @return The number of samples.
+     */
+    public long samples() {
+        return samples;
+    }
+
+    /**
+     * @return The sum of the wall time attributed to the samples, in nanoseconds.
+     */
+    public long nanos() {
+        return nanos;
+    }
+
+    /**
+     * @return The sampled rules and strategies, the one with the highest self time first.
+     */
+    public List<Frame> frames() {
+        List<Frame> sorted = new ArrayList<>(frames.values());
+        sorted.sort(Comparator.comparingLong(Frame::selfNanos)
+            .thenComparingLong(Frame::totalNanos).reversed().thenComparing(Frame::name));
+        return sorted;
+    }
+
+    /**
+     * Format the sampled stacks in the collapsed format that flame graph tools read: one line per
+     * distinct stack, with the frames separated by semicolons and followed by the number of
+     * samples.
+     *
+     * @return The collapsed stacks.
+     */
+    public String collapsedStacks() {
+        StringBuilder collapsed = new StringBuilder();
+        new TreeMap<>(stacks).forEach((stack, count) -> collapsed.append(stack).append(' ')
+            .append(count).append('\n'));
+        return collapsed.toString();
+    }
+}
@@ -0,0 +1,197 @@
+package org.metaborg.spoofax.shell.statistics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.metaborg.spoofax.shell.core.EvaluationExecutor;
+import org.metaborg.spoofax.shell.core.IEvaluationStrategy;
+
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+
+/**
+ * A sampling profiler for evaluations. While profiling, the stacks of the tracked threads are
+ * sampled at a fixed interval and aggregated into an {@link EvaluationProfile}.
+ *
+ * <p>
+ * The thread that starts profiling is tracked, as are the threads that run a task wrapped with
+ * {@link #track(Callable)}, such as the evaluations of the {@link EvaluationExecutor}. Only
+ * threads that are runnable are sampled, so a thread waiting for an evaluation on another thread
+ * does not add samples of its own.
+ * </p>
+ *
+ * <p>
+ * The Java frames of a stack are named by a function, typically
+ * {@link IEvaluationStrategy#frameName(org.metaborg.core.language.ILanguageImpl,
+ * StackTraceElement)}, that recognizes the frames that execute a rule or strategy of the
+ * evaluated language. Other frames are left out. A sample in which no frame is recognized is
+ * attributed to {@value #OTHER}.
+ * </p>
+ */
+public class EvaluationProfiler {
+    /**
+     * The name of the frame to which samples without any recognized frame are attributed.
+     */
+    public static final String OTHER = "(other)";
+
+    private static final String THREAD_NAME = "spoofax-shell-profiler";
+    private static final long STOP_TIMEOUT_SECONDS = 1;
+
+    private final long intervalMicros;
+    private final Set<Thread> threads;
+    private Session session;
+
+    /**
+     * The state of a running profile. It is only used by the sampling thread until it is stopped.
+     */
+    private final class Session {
+        private final Function<StackTraceElement, String> namer;
+        private final ScheduledExecutorService sampler;
+        private final EvaluationProfile profile;
+        private final Map<String, Optional<String>> names;
+        private final Map<Thread, List<String>> previous;
+        private long last;
+
+        private Session(Function<StackTraceElement, String> namer) {
+            this.namer = namer;
+            this.sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, THREAD_NAME);
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.profile = new EvaluationProfile();
+            this.names = new HashMap<>();
+            this.previous = new HashMap<>();
+            this.last = System.nanoTime();
+        }
+
+        private void sample() {
+            long now = System.nanoTime();
+            long elapsed = now - last;
+            last = now;
+            for (Thread thread : threads) {
+                if (thread.getState() != Thread.State.RUNNABLE) {
+                    previous.remove(thread);
+                    continue;
+                }
+                List<String> stack = stack(thread.getStackTrace());
+                profile.record(stack, previous.get(thread), elapsed);
+                previous.put(thread, stack);
+            }
+        }
+
+        private List<String> stack(StackTraceElement[] trace) {
+            List<String> stack = new ArrayList<>();
+            // A stack trace starts with the innermost frame.
+            for (int i = trace.length - 1; i >= 0; i--) {
+                StackTraceElement frame = trace[i];
+                names.computeIfAbsent(frame.getClassName() + '#' + frame.getMethodName(),
+                                      key -> Optional.ofNullable(namer.apply(frame)))
+                    .ifPresent(stack::add);
+            }
+            return stack.isEmpty() ? Collections.singletonList(OTHER) : stack;
+        }
+    }
+
+    /**
+     * Instantiate a new {@link EvaluationProfiler}.
+     *
+     * @param intervalMicros
+     *            The time between two samples, in microseconds.
+     */
+    @Inject
+    public EvaluationProfiler(@Named("profileInterval") long intervalMicros) {
+        this.intervalMicros = Math.max(intervalMicros, 1);
+        this.threads = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    }
+
+    /**
+     * @return The time between two samples, in microseconds.
+     */
+    public long interval() {
+        return intervalMicros;
+    }
+
+    /**
+     * @return {@code true} if a profile is being taken.
+     */
+    public synchronized boolean profiling() {
+        return session != null;
+    }
+
+    /**
+     * Wrap a task so that the thread that runs it is sampled while it runs, if a profile is being
+     * taken at that time.
+     *
+     * @param task
+     *            The task to track.
+     * @param <T>
+     *            The type of the result of the task.
+     * @return The wrapped task.
+     */
+    public <T> Callable<T> track(Callable<T> task) {
+        return () -> {
+            if (!profiling()) {
+                return task.call();
+            }
+            Thread thread = Thread.currentThread();
+            threads.add(thread);
+            try {
+                return task.call();
+            } finally {
+                threads.remove(thread);
+            }
+        };
+    }
+
+    /**
+     * Start taking a profile of the current thread and of the tracked threads. A profile that is
+     * already being taken is discarded.
+     *
+     * @param namer
+     *            Names the frames that execute a rule or strategy, and returns {@code null} for
+     *            any other frame. It is called on the sampling thread and must not block.
+     */
+    public synchronized void start(Function<StackTraceElement, String> namer) {
+        if (session != null) {
+            stop();
+        }
+        Session started = new Session(namer);
+        threads.add(Thread.currentThread());
+        started.sampler.scheduleAtFixedRate(started::sample, intervalMicros, intervalMicros,
+                                            TimeUnit.MICROSECONDS);
+        session = started;
+    }
+
+    /**
+     * Stop taking the profile that was started with {@link #start(Function)}.
+     *
+     * @return The {@link EvaluationProfile}, which is empty if no profile was being taken.
+     */
+    public synchronized EvaluationProfile stop() {
+        if (session == null) {
+            return new EvaluationProfile();
+        }
+        Session stopped = session;
+        session = null;
+        stopped.sampler.shutdown();
+        try {
+            stopped.sampler.awaitTermination(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        threads.clear();
+        return stopped.profile;
+    }
+}
@@ -0,0 +1,133 @@
+package org.metaborg.spoofax.shell.statistics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of non-negative {@code long} values, in the style of an HDR histogram.
+ *
+ * <p>
+ * Values are counted in log-linear buckets: every power of two is split into a fixed number of
+ * linear sub-buckets, so that the relative error of a reported percentile is bounded (about 3%)
+ * regardless of the magnitude of the recorded values. Recording a value is a single atomic
+ * increment, so histograms can be shared between threads without locking.
+ * </p>
+ */
+public class Histogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = SUB_BUCKETS * (Long.SIZE - SUB_BUCKET_BITS);
+
+    private final AtomicLongArray counts;
+    private final AtomicLong total;
+    private final AtomicLong max;
+
+    /**
+     * Create an empty {@link Histogram}.
+     */
+    public Histogram() {
+        this.counts = new AtomicLongArray(BUCKETS);
+        this.total = new AtomicLong();
+        this.max = new AtomicLong();
+    }
+
+    /**
+     * Record a value. Negative values are recorded as zero.
+     *
+     * @param value
+     *            The value to record.
+     */
+    public void record(long value) {
+        long v = Math.max(0, value);
+        counts.incrementAndGet(index(v));
+        total.incrementAndGet();
+        max.accumulateAndGet(v, Math::max);
+    }
+
+    /**
+     * @return The number of recorded values.
+     */
+    public long count() {
+        return total.get();
+    }
+
+    /**
+     * @return The largest recorded value, or zero if no values were recorded.
+     */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * Return the (approximate) value below which the given percentage of the recorded values
+     * falls.
+     *
+     * @param percentile
+     *            The percentile, between 0 and 100.
+     * @return The highest value that is equivalent to the value at the given percentile, or zero
+     *         if no values were recorded.
+     */
+    public long percentile(double percentile) {
+        long count = count();
+        if (count == 0) {
+            return 0;
+        }
+        final double hundred = 100.0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / hundred * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestEquivalent(i), max());
+            }
+        }
+        return max();
+    }
+
+    /**
+     * Remove all recorded values.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        total.set(0);
+        max.set(0);
+    }
+
+    /**
+     * Compute the bucket of a value.
+     *
+     * @param value
+     *            A non-negative value.
+     * @return The index of the bucket counting the value.
+     */
+    static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int sub = (int) (value >>> shift) - SUB_BUCKETS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Compute the lowest value counted by a bucket.
+     *
+     * @param index
+     *            The index of the bucket.
+     * @return The lowest value counted by the bucket.
+     */
+    static long lowestEquivalent(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        int sub = (index - SUB_BUCKETS) % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + sub) << shift;
+    }
+
+    private static long highestEquivalent(int index) {
+        return index + 1 < BUCKETS ? lowestEquivalent(index + 1) - 1 : Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,163 @@
+package org.metaborg.spoofax.shell.statistics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.metaborg.spoofax.shell.functions.AbstractSpoofaxFunction;
+import org.metaborg.spoofax.shell.invoker.ICommandInvoker;
+
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+
+/**
+ * Collects {@link StageStatistics} for the stages of the pipeline (every
+ * {@link AbstractSpoofaxFunction}) and for the commands executed by the {@link ICommandInvoker}.
+ *
+ * <p>
+ * Collection is opt-in: while disabled, {@link #start()} returns {@code null} and nothing is
+ * measured. CPU time and allocated bytes are only recorded when the JVM supports measuring them
+ * for the current thread; otherwise they are recorded as zero.
+ * </p>
+ */
+public class PipelineStatistics {
+    private final Map<String, StageStatistics> stages;
+    private final Map<String, StageStatistics> commands;
+    private final ThreadMXBean threads;
+    private volatile boolean enabled;
+
+    /**
+     * Instantiate new {@link PipelineStatistics}.
+     *
+     * @param enabled
+     *            Whether to collect statistics from the start.
+     */
+    @Inject
+    public PipelineStatistics(@Named("collectStatistics") boolean enabled) {
+        this.stages = new ConcurrentHashMap<>();
+        this.commands = new ConcurrentHashMap<>();
+        this.threads = ManagementFactory.getThreadMXBean();
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return Whether statistics are being collected.
+     */
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * Enable or disable the collection of statistics.
+     *
+     * @param enabled
+     *            {@code true} to collect statistics, {@code false} to stop collecting them.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Start measuring the current thread.
+     *
+     * @return A {@link Sample} to pass to {@link #recordStage(String, Sample)} or
+     *         {@link #recordCommand(String, Sample)}, or {@code null} when disabled.
+     */
+    public Sample start() {
+        if (!enabled) {
+            return null;
+        }
+        return new Sample();
+    }
+
+    /**
+     * Record the measurement of a pipeline stage.
+     *
+     * @param stage
+     *            The name of the stage.
+     * @param sample
+     *            The {@link Sample} returned by {@link #start()}, may be {@code null}.
+     */
+    public void recordStage(String stage, Sample sample) {
+        record(stages, stage, sample);
+    }
+
+    /**
+     * Record the measurement of a command.
+     *
+     * @param command
+     *            The name of the command.
+     * @param sample
+     *            The {@link Sample} returned by {@link #start()}, may be {@code null}.
+     */
+    public void recordCommand(String command, Sample sample) {
+        record(commands, command, sample);
+    }
+
+    private void record(Map<String, StageStatistics> target, String name, Sample sample) {
+        if (sample != null) {
+            target.computeIfAbsent(name, n -> new StageStatistics()).record(
+                System.nanoTime() - sample.wall, cpuTime() - sample.cpu,
+                allocated() - sample.allocated);
+        }
+    }
+
+    /**
+     * @return The statistics per pipeline stage, sorted by name.
+     */
+    public SortedMap<String, StageStatistics> stages() {
+        return Collections.unmodifiableSortedMap(new TreeMap<>(stages));
+    }
+
+    /**
+     * @return The statistics per command, sorted by name.
+     */
+    public SortedMap<String, StageStatistics> commands() {
+        return Collections.unmodifiableSortedMap(new TreeMap<>(commands));
+    }
+
+    /**
+     * Remove all collected statistics.
+     */
+    public void reset() {
+        stages.clear();
+        commands.clear();
+    }
+
+    private long cpuTime() {
+        if (threads.isCurrentThreadCpuTimeSupported() && threads.isThreadCpuTimeEnabled()) {
+            return threads.getCurrentThreadCpuTime();
+        }
+        return 0;
+    }
+
+    private long allocated() {
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+            if (sunThreads.isThreadAllocatedMemorySupported()
+                && sunThreads.isThreadAllocatedMemoryEnabled()) {
+                return sunThreads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * The state of the current thread at the start of a measurement.
+     */
+    public final class Sample {
+        private final long wall;
+        private final long cpu;
+        private final long allocated;
+
+        private Sample() {
+            this.allocated = allocated();
+            this.cpu = cpuTime();
+            this.wall = System.nanoTime();
+        }
+    }
+}
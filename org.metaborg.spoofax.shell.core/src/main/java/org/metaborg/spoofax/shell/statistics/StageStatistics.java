@@ -0,0 +1,57 @@
+package org.metaborg.spoofax.shell.statistics;
+
+/**
+ * The {@link Histogram}s of the wall time, CPU time and allocated bytes of one pipeline stage or
+ * one command.
+ */
+public class StageStatistics {
+    private final Histogram wallTime;
+    private final Histogram cpuTime;
+    private final Histogram allocated;
+
+    /**
+     * Create empty {@link StageStatistics}.
+     */
+    public StageStatistics() {
+        this.wallTime = new Histogram();
+        this.cpuTime = new Histogram();
+        this.allocated = new Histogram();
+    }
+
+    /**
+     * Record one execution of the stage.
+     *
+     * @param wallNanos
+     *            The elapsed wall time, in nanoseconds.
+     * @param cpuNanos
+     *            The CPU time used by the executing thread, in nanoseconds.
+     * @param allocatedBytes
+     *            The number of bytes allocated by the executing thread.
+     */
+    public void record(long wallNanos, long cpuNanos, long allocatedBytes) {
+        wallTime.record(wallNanos);
+        cpuTime.record(cpuNanos);
+        allocated.record(allocatedBytes);
+    }
+
+    /**
+     * @return The {@link Histogram} of wall times, in nanoseconds.
+     */
+    public Histogram wallTime() {
+        return wallTime;
+    }
+
+    /**
+     * @return The {@link Histogram} of CPU times, in nanoseconds.
+     */
+    public Histogram cpuTime() {
+        return cpuTime;
+    }
+
+    /**
+     * @return The {@link Histogram} of allocated bytes.
+     */
+    public Histogram allocated() {
+        return allocated;
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Opt-in collection of latency statistics for the stages of the REPL pipeline and for commands.
+ */
+package org.metaborg.spoofax.shell.statistics;
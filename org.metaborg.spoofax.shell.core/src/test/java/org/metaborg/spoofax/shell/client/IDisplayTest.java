@@ -0,0 +1,107 @@
+package org.metaborg.spoofax.shell.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.metaborg.core.messages.IMessage;
+import org.metaborg.core.source.SourceRegion;
+import org.metaborg.spoofax.shell.output.FailResult;
+import org.metaborg.spoofax.shell.output.ISpoofaxResult;
+import org.metaborg.spoofax.shell.output.StyledText;
+
+/**
+ * Test the default rendering of failures by an {@link IDisplay}.
+ */
+public class IDisplayTest {
+    private static final String SOURCE = "Hello, world";
+    private static final int MAX_MESSAGES = 2;
+    private final List<StyledText> displayed = new ArrayList<>();
+    private final HiddenMessages hidden = new HiddenMessages();
+    private IDisplay display;
+
+    /**
+     * Create an {@link IDisplay} that remembers the displayed texts.
+     */
+    @Before
+    public void setUp() {
+        display = new IDisplay() {
+            @Override
+            public void displayStyledText(StyledText text) {
+                displayed.add(text);
+            }
+
+            @Override
+            public int maxMessages() {
+                return MAX_MESSAGES;
+            }
+
+            @Override
+            public boolean keepHiddenMessages(List<IMessage> messages) {
+                hidden.keep(messages);
+                return true;
+            }
+        };
+    }
+
+    private IMessage message(String text, int start, int end) {
+        IMessage message = mock(IMessage.class);
+        when(message.message()).thenReturn(text);
+        when(message.region()).thenReturn(new SourceRegion(start, end));
+        return message;
+    }
+
+    private void fail(List<IMessage> messages) {
+        ISpoofaxResult<?> cause = mock(ISpoofaxResult.class);
+        when(cause.sourceText()).thenReturn(SOURCE);
+        when(cause.messages()).thenReturn(messages);
+        display.visitFailure(new FailResult(cause));
+    }
+
+    /**
+     * Test that the regions of all messages are highlighted and all messages are shown.
+     */
+    @Test
+    public void testFailure() {
+        final int start = 7;
+        final int end = 11;
+        List<IMessage> messages = new ArrayList<>();
+        messages.add(message("first", 0, 1));
+        messages.add(message("second", start, end));
+        fail(messages);
+
+        assertEquals(1, displayed.size());
+        assertEquals(SOURCE + "\nfirst\nsecond", displayed.get(0).toString());
+        assertEquals("He", displayed.get(0).getSource().get(0).fragment());
+        assertEquals("world", displayed.get(0).getSource().get(2).fragment());
+    }
+
+    /**
+     * Test that messages beyond the maximum are neither highlighted nor shown, but kept.
+     */
+    @Test
+    public void testFailureCapped() {
+        final int messageCount = 5;
+        final int rest = 3;
+        List<IMessage> messages = new ArrayList<>();
+        for (int i = 0; i < messageCount; i++) {
+            messages.add(message("message " + i, i * 2, i * 2));
+        }
+        fail(messages);
+
+        String text = displayed.get(0).toString();
+        assertTrue(text.endsWith(
+            "message 0\nmessage 1\n(3 more messages not shown, see :messages)"));
+        // Two highlighted regions, with unstyled text in between and after them.
+        assertEquals("H", displayed.get(0).getSource().get(0).fragment());
+        assertEquals("l", displayed.get(0).getSource().get(2).fragment());
+        assertEquals("lo, world", displayed.get(0).getSource().get(rest).fragment());
+        assertEquals(messages.subList(MAX_MESSAGES, messageCount), hidden.take());
+    }
+}
@@ -0,0 +1,245 @@
+package org.metaborg.spoofax.shell.commands;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.vfs2.FileSystemException;
+import org.junit.Before;
+import org.junit.Test;
+import org.metaborg.core.analysis.AnalyzerFacet;
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.resource.IResourceService;
+import org.metaborg.spoofax.shell.core.IEvaluationStrategy;
+import org.metaborg.spoofax.shell.functions.FailableFunction;
+import org.metaborg.spoofax.shell.functions.FunctionComposer;
+import org.metaborg.spoofax.shell.output.AnalyzeResult;
+import org.metaborg.spoofax.shell.output.EvaluateResult;
+import org.metaborg.spoofax.shell.output.FailOrSuccessResult;
+import org.metaborg.spoofax.shell.output.FailResult;
+import org.metaborg.spoofax.shell.output.IResult;
+import org.metaborg.spoofax.shell.output.IResultVisitor;
+import org.metaborg.spoofax.shell.output.ISpoofaxTermResult;
+import org.metaborg.spoofax.shell.output.ParseResult;
+import org.metaborg.spoofax.shell.output.StyledText;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+
+/**
+ * Tests splitting the input of the {@link BatchCommand} into expressions, and evaluating them
+ * serially and in parallel.
+ */
+public class BatchCommandTest {
+    private static final String FILE = "batch.txt";
+    private static final List<String> UNITS = Arrays.asList("1", "2", "fail", "3");
+
+    private IResourceService resourceService;
+    private FunctionComposer composer;
+    private IEvaluationStrategy strategy;
+    private IResultVisitor visitor;
+    private List<EvaluateResult> evaluated;
+    private BatchCommand batchCommand;
+
+    /**
+     * Set up a file with four expressions, one of which fails to parse, and a composer of which
+     * the evaluation results are told apart by their parse results.
+     *
+     * @throws FileSystemException
+     *             Never.
+     */
+    @Before
+    public void setup() throws FileSystemException {
+        resourceService = mock(IResourceService.class, RETURNS_DEEP_STUBS);
+        when(resourceService.resolve(FILE).getContent().getInputStream())
+            .thenReturn(new ByteArrayInputStream(String.join("\n\n", UNITS)
+                .getBytes(StandardCharsets.UTF_8)));
+
+        Map<String, ParseResult> parsed = new HashMap<>();
+        Map<ISpoofaxTermResult<?>, EvaluateResult> results = new HashMap<>();
+        evaluated = Lists.newArrayList();
+        for (String unit : UNITS) {
+            parsed.put(unit, mock(ParseResult.class));
+            results.put(parsed.get(unit), mock(EvaluateResult.class));
+            if (!"fail".equals(unit)) {
+                evaluated.add(results.get(parsed.get(unit)));
+            }
+        }
+
+        composer = mock(FunctionComposer.class);
+        when(composer.lang()).thenReturn(mock(ILanguageImpl.class));
+        when(composer.parseFunction()).thenReturn(unit -> "fail".equals(unit)
+            ? FailOrSuccessResult.failed(mock(FailResult.class))
+            : FailOrSuccessResult.successful(parsed.get(unit)));
+        when(composer.evaluateFunction()).thenReturn(parse -> FailOrSuccessResult
+            .<EvaluateResult, IResult>successful(results.get(parse)));
+        when(composer.evaluateFunction(anyMapOf(String.class, IEvaluationStrategy.class)))
+            .thenReturn(parse -> FailOrSuccessResult
+                .<EvaluateResult, IResult>successful(results.get(parse)));
+
+        strategy = mock(IEvaluationStrategy.class);
+        when(strategy.fork()).thenReturn(strategy);
+        visitor = mock(IResultVisitor.class);
+        batchCommand = new BatchCommand(resourceService, ImmutableMap.of("test", strategy),
+                                        composer);
+    }
+
+    private String execute(String args) {
+        batchCommand.execute(args).accept(visitor);
+
+        InOrder order = inOrder(evaluated.toArray());
+        for (EvaluateResult result : evaluated) {
+            order.verify(result).accept(visitor);
+        }
+        ArgumentCaptor<StyledText> captor = ArgumentCaptor.forClass(StyledText.class);
+        verify(visitor).visitMessage(captor.capture());
+        return captor.getValue().toString();
+    }
+
+    /**
+     * Test that all expressions are evaluated in the environment of the REPL, and that their
+     * results are shown in the order of the file.
+     */
+    @Test
+    public void testExecute() {
+        String summary = execute(FILE);
+
+        assertTrue(summary.startsWith("Evaluated 4 expression(s), 1 failed"));
+        verify(composer, never()).evaluateFunction(anyMapOf(String.class,
+                                                            IEvaluationStrategy.class));
+    }
+
+    /**
+     * Test that with {@code --parallel} all expressions are evaluated with forked strategies, and
+     * that their results are still shown in the order of the file.
+     */
+    @Test
+    public void testExecuteParallel() {
+        String summary = execute("--parallel " + FILE);
+
+        assertTrue(summary.startsWith("Evaluated 4 expression(s), 1 failed"));
+        verify(composer, never()).evaluateFunction();
+        verify(strategy, atLeastOnce()).fork();
+    }
+
+    /**
+     * Mimic a shared resource: an analysis overwrites the expression that is analyzed in its
+     * resource, and an evaluation sees whatever expression was analyzed there last.
+     */
+    private void analyzeInResources(Map<String, EvaluateResult> results) {
+        Map<AnalyzeResult, String[]> resources = new ConcurrentHashMap<>();
+        when(composer.lang().hasFacet(AnalyzerFacet.class)).thenReturn(true);
+        when(composer.analyzeFunction()).thenReturn(analyzeIn(resources));
+        when(composer.analyzeFunctionWithOwnInput()).then(invocation -> analyzeIn(resources));
+
+        FailableFunction<ISpoofaxTermResult<?>, EvaluateResult, IResult> evaluate =
+            analysis -> FailOrSuccessResult.successful(results.get(resources.get(analysis)[0]));
+        when(composer.evaluateFunction()).thenReturn(evaluate);
+        when(composer.evaluateFunction(anyMapOf(String.class, IEvaluationStrategy.class)))
+            .thenReturn(evaluate);
+        batchCommand = new BatchCommand(resourceService, ImmutableMap.of("test", strategy),
+                                        composer);
+    }
+
+    private static FailableFunction<String, AnalyzeResult, IResult>
+            analyzeIn(Map<AnalyzeResult, String[]> resources) {
+        String[] resource = new String[1];
+        return unit -> {
+            AnalyzeResult analysis = mock(AnalyzeResult.class);
+            resource[0] = unit;
+            resources.put(analysis, resource);
+            return FailOrSuccessResult.successful(analysis);
+        };
+    }
+
+    private void testAnalyses(String args) {
+        Map<String, EvaluateResult> results = new HashMap<>();
+        evaluated.clear();
+        for (String unit : UNITS) {
+            results.put(unit, mock(EvaluateResult.class));
+            evaluated.add(results.get(unit));
+        }
+        analyzeInResources(results);
+
+        String summary = execute(args);
+
+        assertTrue(summary.startsWith("Evaluated 4 expression(s), 0 failed"));
+        for (EvaluateResult result : evaluated) {
+            verify(result).accept(visitor);
+        }
+    }
+
+    /**
+     * Test that every expression is evaluated with its own analysis, even though the REPL has only
+     * one resource in which the expressions are analyzed.
+     */
+    @Test
+    public void testAnalyses() {
+        testAnalyses(FILE);
+    }
+
+    /**
+     * Test that with {@code --parallel} every expression is evaluated with its own analysis, even
+     * though the workers analyze at the same time.
+     */
+    @Test
+    public void testAnalysesParallel() {
+        testAnalyses("--parallel " + FILE);
+    }
+
+    /**
+     * Test that invalid arguments result in an exception.
+     */
+    @Test
+    public void testSyntax() {
+        batchCommand.execute("--sequential " + FILE).accept(visitor);
+        batchCommand.execute(" ").accept(visitor);
+        verify(visitor, times(2)).visitException(any());
+    }
+
+    /**
+     * Test that expressions are separated by blank lines, and may span multiple lines.
+     */
+    @Test
+    public void testUnits() {
+        assertEquals(Arrays.asList("1 + 1", "let x = 1\nin x", "2"),
+                     BatchCommand.units("1 + 1\n\nlet x = 1\nin x\n  \n\n2\n"));
+    }
+
+    /**
+     * Test that Windows line endings separate expressions as well.
+     */
+    @Test
+    public void testWindowsLineEndings() {
+        assertEquals(Arrays.asList("1", "2"), BatchCommand.units("1\r\n\r\n2\r\n"));
+    }
+
+    /**
+     * Test that a file without expressions results in no expressions.
+     */
+    @Test
+    public void testEmpty() {
+        assertEquals(Collections.emptyList(), BatchCommand.units(""));
+        assertTrue(BatchCommand.units("\n \n\n").isEmpty());
+    }
+}
@@ -0,0 +1,184 @@
+package org.metaborg.spoofax.shell.commands;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.VFS;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.metaborg.core.resource.IResourceService;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+/**
+ * Test extracting archives into the content-addressed {@link LanguageArchiveCache}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class LanguageArchiveCacheTest {
+    private static final String ENTRY = "metaborg.component.yaml";
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    @Mock private IResourceService resourceService;
+
+    private File cacheDirectory;
+
+    /**
+     * Resolve local files with VFS.
+     *
+     * @throws FileSystemException
+     *             Never, the resource service is a mock.
+     */
+    @Before
+    public void setup() throws FileSystemException {
+        cacheDirectory = new File(folder.getRoot(), "cache");
+        when(resourceService.resolve(any(File.class))).thenAnswer(invocation -> VFS.getManager()
+            .toFileObject((File) invocation.getArguments()[0]));
+    }
+
+    private File archive(String name, String contents) throws IOException {
+        File archive = new File(folder.getRoot(), name);
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(archive))) {
+            out.putNextEntry(new ZipEntry(ENTRY));
+            out.write(contents.getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+        return archive;
+    }
+
+    private FileObject extract(LanguageArchiveCache cache, File archive) throws IOException {
+        return cache.extract(VFS.getManager().resolveFile("zip:" + archive.toURI() + "!/"),
+                             LanguageArchiveCache.sha256(VFS.getManager().toFileObject(archive)));
+    }
+
+    private static String read(FileObject directory) throws IOException {
+        return new String(Files.readAllBytes(Paths.get(directory.getName().getPath(), ENTRY)),
+                          StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Test that archives with the same contents share one extracted directory.
+     *
+     * @throws IOException
+     *             When writing or extracting an archive fails.
+     */
+    @Test
+    public void testSameContents() throws IOException {
+        LanguageArchiveCache cache =
+            new LanguageArchiveCache(resourceService, cacheDirectory.getPath(), Long.MAX_VALUE);
+        File first = archive("first.zip", "contents");
+        FileObject extracted = extract(cache, first);
+
+        assertEquals("file", extracted.getName().getScheme());
+        assertEquals("contents", read(extracted));
+        assertEquals(extracted, extract(cache, first));
+        Files.copy(first.toPath(), new File(folder.getRoot(), "second.zip").toPath());
+        assertEquals(extracted, extract(cache, new File(folder.getRoot(), "second.zip")));
+    }
+
+    /**
+     * Test that different contents are extracted into a different directory, and that the least
+     * recently used directory is removed when the cache is full, once it is released.
+     *
+     * @throws IOException
+     *             When writing or extracting an archive fails.
+     */
+    @Test
+    public void testChangedContents() throws IOException {
+        LanguageArchiveCache cache = new LanguageArchiveCache(resourceService,
+                                                              cacheDirectory.getPath(), 1);
+        FileObject first = extract(cache, archive("first.zip", "first"));
+        cache.release(first);
+        FileObject second = extract(cache, archive("second.zip", "second"));
+
+        assertNotEquals(first, second);
+        assertEquals("second", read(second));
+        assertFalse(Files.exists(Paths.get(first.getName().getPath())));
+        assertTrue(Files.exists(Paths.get(second.getName().getPath())));
+    }
+
+    /**
+     * Test that directories in use are not removed, neither those of this cache nor those of
+     * another cache on the same directory, such as the cache of another process.
+     *
+     * @throws IOException
+     *             When writing or extracting an archive fails.
+     */
+    @Test
+    public void testInUse() throws IOException {
+        LanguageArchiveCache cache = new LanguageArchiveCache(resourceService,
+                                                              cacheDirectory.getPath(), 1);
+        LanguageArchiveCache other = new LanguageArchiveCache(resourceService,
+                                                              cacheDirectory.getPath(), 1);
+        FileObject first = extract(cache, archive("first.zip", "first"));
+        FileObject second = extract(other, archive("second.zip", "second"));
+        FileObject third = extract(cache, archive("third.zip", "third"));
+
+        assertEquals("first", read(first));
+        assertEquals("second", read(second));
+        assertEquals("third", read(third));
+    }
+
+    /**
+     * Test that the partial directory of an extraction in progress is not removed.
+     *
+     * @throws IOException
+     *             When writing or extracting an archive fails.
+     */
+    @Test
+    public void testPartial() throws IOException {
+        LanguageArchiveCache cache = new LanguageArchiveCache(resourceService,
+                                                              cacheDirectory.getPath(), 1);
+        File partial = new File(cacheDirectory, "0123.partial");
+        assertTrue(partial.mkdirs());
+        Files.write(new File(partial, ENTRY).toPath(), "partial".getBytes(StandardCharsets.UTF_8));
+        extract(cache, archive("first.zip", "first"));
+
+        assertTrue(partial.isDirectory());
+    }
+
+    /**
+     * Test that the lock files of deleted directories are deleted once they have not been locked
+     * for a day, and that the other lock files are kept.
+     *
+     * @throws IOException
+     *             When writing or extracting an archive fails.
+     */
+    @Test
+    public void testOrphanedLocks() throws IOException {
+        LanguageArchiveCache cache = new LanguageArchiveCache(resourceService,
+                                                              cacheDirectory.getPath(), 1);
+        assertTrue(cacheDirectory.mkdirs());
+        File orphaned = new File(cacheDirectory, "0123.lock");
+        File recent = new File(cacheDirectory, "4567.lock");
+        assertTrue(orphaned.createNewFile());
+        assertTrue(recent.createNewFile());
+        long twoDaysAgo = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(2);
+        Files.setLastModifiedTime(orphaned.toPath(), FileTime.fromMillis(twoDaysAgo));
+        FileObject first = extract(cache, archive("first.zip", "first"));
+
+        assertFalse(orphaned.exists());
+        assertTrue(recent.exists());
+        assertTrue(new File(first.getName().getPath() + ".lock").exists());
+    }
+}
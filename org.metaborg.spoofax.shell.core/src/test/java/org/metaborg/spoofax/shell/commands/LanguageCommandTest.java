@@ -2,19 +2,33 @@ package org.metaborg.spoofax.shell.commands;
 
 import static org.hamcrest.CoreMatchers.isA;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyMapOf;
 import static org.mockito.Matchers.anyString;
-import static org.mockito.Matchers.eq;
-import static org.mockito.Mockito.atLeast;
+import static org.mockito.Matchers.contains;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemException;
@@ -25,6 +39,7 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 import org.junit.runners.Parameterized.Parameters;
 import org.metaborg.core.MetaborgException;
+import org.metaborg.core.MetaborgRuntimeException;
 import org.metaborg.core.analysis.AnalyzerFacet;
 import org.metaborg.core.language.ILanguageComponent;
 import org.metaborg.core.language.ILanguageDiscoveryService;
@@ -35,12 +50,15 @@ import org.metaborg.core.menu.IMenuService;
 import org.metaborg.core.project.IProject;
 import org.metaborg.core.resource.IResourceService;
 import org.metaborg.core.syntax.ParseException;
+import org.metaborg.spoofax.core.syntax.ISpoofaxSyntaxService;
 import org.metaborg.spoofax.core.unit.ISpoofaxParseUnit;
+import org.metaborg.spoofax.core.unit.ISpoofaxUnitService;
+import org.metaborg.spoofax.shell.client.BackgroundResults;
+import org.metaborg.spoofax.shell.functions.FunctionComposer;
 import org.metaborg.spoofax.shell.functions.IFunctionFactory;
 import org.metaborg.spoofax.shell.invoker.ICommandInvoker;
 import org.metaborg.spoofax.shell.output.IResultVisitor;
 import org.metaborg.spoofax.shell.output.StyledText;
-import org.metaborg.spoofax.shell.services.IEditorServices;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.Mock;
@@ -54,6 +72,8 @@ import com.google.common.collect.Lists;
  */
 @RunWith(Parameterized.class)
 public class LanguageCommandTest {
+	private static final long TIMEOUT_MILLIS = 5000;
+	private static final long POLL_MILLIS = 10;
 	private final String extension;
 
 	// Constructor mocks
@@ -66,8 +86,6 @@ public class LanguageCommandTest {
 	@Mock
 	private ICommandInvoker invoker;
 	@Mock
-	private IEditorServices editorServices;
-	@Mock
 	private IFunctionFactory functionFactory;
 
 	@Mock
@@ -84,6 +102,8 @@ public class LanguageCommandTest {
 	private IResultVisitor visitor;
 	@Captor
 	private ArgumentCaptor<StyledText> captor;
+	@Captor
+	private ArgumentCaptor<Map<String, IReplCommand>> commandsCaptor;
 
 	private FileObject langloc;
 	private LanguageCommand langCommand;
@@ -127,10 +147,12 @@ public class LanguageCommandTest {
 		Mockito.<Iterable<? extends ILanguageImpl>>when(langcomp.contributesTo())
 				.thenReturn(Lists.newArrayList(lang));
 		when(resourceService.resolveToName(anyString())).thenReturn(langloc.getName());
+		when(resourceService.resolve(anyString())).thenReturn(langloc);
 		when(lang.id()).thenReturn(
 				new LanguageIdentifier("org.borg", "lang", new LanguageVersion(0, 0, 0, "snap")));
 
-		when(functionFactory.createBuilder(any(), any())).thenAnswer((invocation) -> builder);
+		when(functionFactory.createBuilder(any(FunctionComposer.class)))
+				.thenAnswer((invocation) -> builder);
 		when(builder.description(anyString())).thenReturn(builder);
 		when(builder.parse()).thenReturn(builder);
 		when(builder.analyze()).thenReturn(builder);
@@ -142,7 +164,7 @@ public class LanguageCommandTest {
 		when(builder.evalAOpen()).thenReturn(builder);
 
 		langCommand = new LanguageCommand(langDiscoveryService, resourceService, menuService,
-				invoker, editorServices, functionFactory, project);
+				invoker, new LoadedLanguages(), functionFactory, project);
 	}
 
 	/**
@@ -185,6 +207,17 @@ public class LanguageCommandTest {
 		assertEquals(lang, actual);
 	}
 
+	/**
+	 * Test that a location that cannot be resolved is reported instead of failing unexpectedly.
+	 *
+	 * @throws MetaborgException
+	 *             when the location cannot be resolved
+	 */
+	@Test(expected = MetaborgException.class)
+	public void testLoadNullLocation() throws MetaborgException {
+		langCommand.load(null);
+	}
+
 	/**
 	 * Test execute with invalid input arguments.
 	 *
@@ -227,9 +260,9 @@ public class LanguageCommandTest {
 		String expected = "Loaded language org.borg:lang:0.0.0-snap";
 		langCommand.execute("res:paplj.zip").accept(visitor);
 		verify(visitor, times(1)).visitMessage(captor.capture());
-		verify(invoker, times(1)).resetCommands();
-		verify(invoker, atLeast(1)).addCommand(any(), any());
-		verify(invoker, never()).addCommand(eq("analyze"), any());
+		verify(invoker, times(1)).replaceCommands(commandsCaptor.capture(), any());
+		assertTrue(commandsCaptor.getValue().containsKey("eval"));
+		assertFalse(commandsCaptor.getValue().containsKey("analyze"));
 		assertEquals(expected, captor.getValue().toString());
 	}
 
@@ -248,10 +281,192 @@ public class LanguageCommandTest {
 		String expected = "Loaded language org.borg:lang:0.0.0-snap";
 		langCommand.execute("res:paplj.zip").accept(visitor);
 		verify(visitor, times(1)).visitMessage(captor.capture());
-		verify(invoker, times(1)).resetCommands();
-		verify(invoker, atLeast(1)).addCommand(any(), any());
-		verify(invoker, times(1)).addCommand(eq("analyze"), any());
+		verify(invoker, times(1)).replaceCommands(commandsCaptor.capture(), any());
+		assertTrue(commandsCaptor.getValue().containsKey("analyze"));
 		assertEquals(expected, captor.getValue().toString());
 	}
 
+	/**
+	 * Test that the {@code :batch}, {@code :memo} and {@code :profile} commands are only added
+	 * when there is an {@link ICommandFactory} to create them.
+	 *
+	 * @throws MetaborgException
+	 *             when language discovery fails
+	 */
+	@Test
+	public void testEvaluationCommands() throws MetaborgException {
+		when(langDiscoveryService.scanLanguagesInDirectory(any())).thenReturn(Sets.newSet(lang));
+		when(menuService.menuItems(any())).thenReturn(Lists.newArrayList());
+		ICommandFactory commandFactory = mock(ICommandFactory.class);
+
+		langCommand.execute("res:paplj.zip").accept(visitor);
+		langCommand.setCommandFactory(commandFactory);
+		langCommand.execute("res:paplj.zip").accept(visitor);
+		verify(invoker, times(2)).replaceCommands(commandsCaptor.capture(), any());
+		assertFalse(commandsCaptor.getAllValues().get(0).containsKey("memo"));
+		assertTrue(commandsCaptor.getAllValues().get(1).keySet()
+				.containsAll(Arrays.asList("batch", "memo", "profile")));
+		verify(commandFactory, times(1)).createMemoCommand(any());
+	}
+
+	/**
+	 * Test that a language that cannot be watched is not used.
+	 *
+	 * @throws MetaborgException
+	 *             when language discovery fails
+	 * @throws IOException
+	 *             never, the watcher is a mock
+	 */
+	@Test
+	public void testWatchFails() throws MetaborgException, IOException {
+		when(langDiscoveryService.scanLanguagesInDirectory(any())).thenReturn(Sets.newSet(lang));
+		when(menuService.menuItems(any())).thenReturn(Lists.newArrayList());
+		LanguageWatcher watcher = mock(LanguageWatcher.class);
+		doThrow(new IOException("Cannot register")).when(watcher).watch(any(), any(), any());
+		langCommand.setWatcher(watcher);
+
+		langCommand.execute("--watch res:paplj.zip").accept(visitor);
+		verify(visitor, times(1)).visitException(any());
+		verify(visitor, never()).visitMessage(any());
+		verify(invoker, never()).replaceCommands(anyMapOf(String.class, IReplCommand.class),
+				any());
+	}
+
+	/**
+	 * Test that loading in the background returns immediately, rejects expressions until the
+	 * language is loaded and posts the result of loading.
+	 *
+	 * @throws MetaborgException
+	 *             when language discovery fails
+	 * @throws InterruptedException
+	 *             when interrupted while waiting for the language to be loaded
+	 */
+	@Test
+	public void testExecuteInBackground() throws MetaborgException, InterruptedException {
+		when(langDiscoveryService.scanLanguagesInDirectory(any())).thenReturn(Sets.newSet(lang));
+		when(menuService.menuItems(any())).thenReturn(Lists.newArrayList());
+		ArgumentCaptor<IReplCommand> defaultCaptor = ArgumentCaptor.forClass(IReplCommand.class);
+		BackgroundResults results = new BackgroundResults();
+		List<String> messages = new CopyOnWriteArrayList<>();
+		doAnswer(invocation -> messages.add(invocation.getArguments()[0].toString()))
+				.when(visitor).visitMessage(any());
+		langCommand.setBackground(true, results);
+
+		langCommand.execute("res:paplj.zip").accept(visitor);
+		verify(invoker, times(1)).setDefault(defaultCaptor.capture());
+		defaultCaptor.getValue().execute("1").accept(visitor);
+		verify(visitor, times(1)).visitException(any(MetaborgException.class));
+
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS);
+		while (messages.size() < 2 && System.nanoTime() < deadline) {
+			Thread.sleep(POLL_MILLIS);
+			results.showAll(visitor);
+		}
+		verify(invoker, times(1)).replaceCommands(anyMapOf(String.class, IReplCommand.class),
+				any());
+		assertEquals(Arrays.asList("Loading language from res:paplj.zip in the background.",
+				"Loaded language org.borg:lang:0.0.0-snap"), messages);
+	}
+
+	/**
+	 * Test that loading several languages at once reports a failure per language, and still
+	 * loads the others.
+	 *
+	 * @throws MetaborgException
+	 *             when language discovery fails
+	 */
+	@Test
+	public void testExecuteSeveral() throws MetaborgException {
+		when(langDiscoveryService.scanLanguagesInDirectory(any())).thenReturn(Sets.newSet(lang));
+		when(menuService.menuItems(any())).thenReturn(Lists.newArrayList());
+		when(resourceService.resolve(contains("missing")))
+				.thenThrow(new MetaborgRuntimeException("Cannot resolve missing"));
+		FunctionComposer composer = mock(FunctionComposer.class, RETURNS_DEEP_STUBS);
+		when(functionFactory.createComposer(any(), any())).thenReturn(composer);
+		ArgumentCaptor<MetaborgException> exceptionCaptor =
+				ArgumentCaptor.forClass(MetaborgException.class);
+		langCommand.setLoadThreads(2);
+
+		langCommand.execute("res:paplj.zip missing res:paplj.zip").accept(visitor);
+		verify(visitor, times(2)).visitMessage(captor.capture());
+		verify(visitor, times(1)).visitException(exceptionCaptor.capture());
+		verify(invoker, times(2)).replaceCommands(anyMapOf(String.class, IReplCommand.class),
+				any());
+		assertEquals("Loaded language org.borg:lang:0.0.0-snap", captor.getValue().toString());
+		assertTrue(exceptionCaptor.getValue().getMessage().startsWith(
+				"Cannot load the language from missing:"));
+	}
+
+	/**
+	 * Test that loading several languages in the background posts the outcome of every language
+	 * on its own, so that the client can show it as soon as it is known.
+	 *
+	 * @throws MetaborgException
+	 *             when language discovery fails
+	 * @throws InterruptedException
+	 *             when interrupted while waiting for the languages to be loaded
+	 */
+	@Test
+	public void testExecuteSeveralInBackground() throws MetaborgException, InterruptedException {
+		when(langDiscoveryService.scanLanguagesInDirectory(any())).thenReturn(Sets.newSet(lang));
+		when(menuService.menuItems(any())).thenReturn(Lists.newArrayList());
+		when(resourceService.resolve(contains("missing")))
+				.thenThrow(new MetaborgRuntimeException("Cannot resolve missing"));
+		FunctionComposer composer = mock(FunctionComposer.class, RETURNS_DEEP_STUBS);
+		when(functionFactory.createComposer(any(), any())).thenReturn(composer);
+		BackgroundResults results = new BackgroundResults();
+		AtomicInteger posted = new AtomicInteger();
+		results.setListener(posted::incrementAndGet);
+		langCommand.setLoadThreads(2);
+		langCommand.setBackground(true, results);
+
+		langCommand.execute("res:paplj.zip missing res:paplj.zip").accept(visitor);
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS);
+		while (posted.get() < 3 && System.nanoTime() < deadline) {
+			Thread.sleep(POLL_MILLIS);
+		}
+		results.showAll(visitor);
+		assertEquals(3, posted.get());
+		verify(visitor, times(3)).visitMessage(captor.capture());
+		verify(visitor, times(1)).visitException(any(MetaborgException.class));
+		assertEquals("Loaded language org.borg:lang:0.0.0-snap", captor.getValue().toString());
+	}
+
+	/**
+	 * Test that languages that are loaded at the same time are discovered one at a time, but load
+	 * their parse tables at the same time, through the parse service instead of the functions of
+	 * the REPL.
+	 *
+	 * @throws MetaborgException
+	 *             when language discovery fails
+	 */
+	@Test
+	public void testExecuteSeveralConcurrently() throws MetaborgException {
+		AtomicInteger discovering = new AtomicInteger();
+		AtomicBoolean overlapped = new AtomicBoolean();
+		when(langDiscoveryService.scanLanguagesInDirectory(any())).thenAnswer(invocation -> {
+			overlapped.compareAndSet(false, discovering.incrementAndGet() > 1);
+			Thread.sleep(POLL_MILLIS);
+			discovering.decrementAndGet();
+			return Sets.newSet(lang);
+		});
+		when(menuService.menuItems(any())).thenReturn(Lists.newArrayList());
+		FunctionComposer composer = mock(FunctionComposer.class, RETURNS_DEEP_STUBS);
+		when(functionFactory.createComposer(any(), any())).thenReturn(composer);
+		ISpoofaxSyntaxService syntaxService = mock(ISpoofaxSyntaxService.class);
+		CyclicBarrier parsing = new CyclicBarrier(2);
+		when(syntaxService.parse(any())).thenAnswer(invocation -> {
+			parsing.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+			return null;
+		});
+		langCommand.setParser(syntaxService, mock(ISpoofaxUnitService.class));
+		langCommand.setLoadThreads(2);
+
+		langCommand.execute("res:paplj.zip res:paplj.zip").accept(visitor);
+		assertFalse(overlapped.get());
+		assertFalse(parsing.isBroken());
+		verify(syntaxService, times(2)).parse(any());
+		verify(composer, Mockito.never()).parseFunction();
+		verify(visitor, Mockito.never()).visitException(any());
+	}
 }
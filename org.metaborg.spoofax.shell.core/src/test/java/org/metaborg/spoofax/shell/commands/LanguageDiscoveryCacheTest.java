@@ -0,0 +1,155 @@
+package org.metaborg.spoofax.shell.commands;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.VFS;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.metaborg.core.MetaborgException;
+import org.metaborg.core.language.ILanguageComponent;
+import org.metaborg.core.language.ILanguageDiscoveryService;
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.language.LanguageIdentifier;
+import org.metaborg.core.resource.IResourceService;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+
+/**
+ * Test that the {@link LanguageDiscoveryCache} skips scanning unchanged archives.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class LanguageDiscoveryCacheTest {
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    @Mock private ILanguageDiscoveryService discoveryService;
+    @Mock private IResourceService resourceService;
+    @Mock private ILanguageImpl lang;
+    @Mock private ILanguageComponent component;
+
+    private File archive;
+    private String cachePath;
+
+    /**
+     * Set up an archive with one language of one component.
+     *
+     * @throws IOException
+     *             When writing the archive fails.
+     * @throws MetaborgException
+     *             Never, the discovery service is a mock.
+     */
+    @Before
+    public void setup() throws IOException, MetaborgException {
+        archive = new File(folder.getRoot(), "lang.spoofax-language");
+        cachePath = new File(folder.getRoot(), "discovery").getPath();
+        writeArchive("first");
+
+        FileObject root = VFS.getManager().resolveFile(location());
+        when(lang.id()).thenReturn(LanguageIdentifier.parse("org.borg:lang:0.0.0"));
+        Mockito.<Iterable<? extends ILanguageComponent>>when(lang.components())
+            .thenReturn(Collections.singletonList(component));
+        Mockito.<Iterable<? extends ILanguageImpl>>when(component.contributesTo())
+            .thenReturn(Collections.singletonList(lang));
+        when(component.location()).thenReturn(root);
+        when(resourceService.resolve(anyString())).thenReturn(root);
+        when(discoveryService.scanLanguagesInDirectory(any()))
+            .thenReturn(Collections.singleton(lang));
+        when(discoveryService.componentFromDirectory(any())).thenReturn(component);
+    }
+
+    private void writeArchive(String contents) throws IOException {
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(archive))) {
+            out.putNextEntry(new ZipEntry("metaborg.component.yaml"));
+            out.write(contents.getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+    }
+
+    private String location() {
+        return "zip:" + archive.toURI() + "!/";
+    }
+
+    private Set<ILanguageImpl> scan() throws IOException, MetaborgException {
+        // A new cache every time, so that the entries are read back from disk.
+        LanguageDiscoveryCache cache =
+            new LanguageDiscoveryCache(discoveryService, resourceService, cachePath);
+        FileObject file = VFS.getManager().toFileObject(archive);
+        return cache.scanLanguages(file, VFS.getManager().resolveFile(location()),
+                                   LanguageArchiveCache.sha256(file));
+    }
+
+    /**
+     * Test that an unchanged archive is only scanned once.
+     *
+     * @throws IOException
+     *             When resolving the archive fails.
+     * @throws MetaborgException
+     *             Never, the discovery service is a mock.
+     */
+    @Test
+    public void testUnchanged() throws IOException, MetaborgException {
+        assertEquals(Collections.singleton(lang), scan());
+        assertEquals(Collections.singleton(lang), scan());
+
+        verify(discoveryService, times(1)).scanLanguagesInDirectory(any());
+        verify(discoveryService, times(1)).componentFromDirectory(any());
+    }
+
+    /**
+     * Test that a changed archive is scanned again.
+     *
+     * @throws IOException
+     *             When writing or resolving the archive fails.
+     * @throws MetaborgException
+     *             Never, the discovery service is a mock.
+     */
+    @Test
+    public void testChanged() throws IOException, MetaborgException {
+        scan();
+        writeArchive("second, which is longer");
+        scan();
+
+        verify(discoveryService, times(2)).scanLanguagesInDirectory(any());
+        verify(discoveryService, never()).componentFromDirectory(any());
+    }
+
+    /**
+     * Test that an archive of which the caller has no hash is scanned, and not recorded.
+     *
+     * @throws IOException
+     *             When resolving the archive fails.
+     * @throws MetaborgException
+     *             Never, the discovery service is a mock.
+     */
+    @Test
+    public void testWithoutDigest() throws IOException, MetaborgException {
+        LanguageDiscoveryCache cache =
+            new LanguageDiscoveryCache(discoveryService, resourceService, cachePath);
+        FileObject file = VFS.getManager().toFileObject(archive);
+        FileObject root = VFS.getManager().resolveFile(location());
+        assertEquals(Collections.singleton(lang), cache.scanLanguages(file, root, null));
+        assertEquals(Collections.singleton(lang), scan());
+
+        verify(discoveryService, times(2)).scanLanguagesInDirectory(any());
+        verify(discoveryService, never()).componentFromDirectory(any());
+    }
+}
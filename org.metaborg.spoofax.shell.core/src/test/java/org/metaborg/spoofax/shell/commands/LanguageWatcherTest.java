@@ -0,0 +1,138 @@
+package org.metaborg.spoofax.shell.commands;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.language.LanguageIdentifier;
+import org.metaborg.spoofax.shell.client.BackgroundResults;
+import org.metaborg.spoofax.shell.core.IEvaluationStrategy;
+import org.metaborg.spoofax.shell.core.LanguageArtifact;
+import org.metaborg.spoofax.shell.functions.EvaluationMemo;
+import org.metaborg.spoofax.shell.functions.IParseCache;
+import org.metaborg.spoofax.shell.functions.StartSymbolSelector;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+/**
+ * Test that the {@link LanguageWatcher} reloads a rebuilt language once, and only invalidates
+ * what depends on the changed artifacts.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class LanguageWatcherTest {
+    private static final long QUIET_MILLIS = 200;
+    private static final long TIMEOUT_SECONDS = 30;
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    @Mock private IEvaluationStrategy strategy;
+    @Mock private IParseCache parseCache;
+    @Mock private StartSymbolSelector selector;
+    @Mock private EvaluationMemo memo;
+    @Mock private ILanguageImpl lang;
+
+    private Path location;
+    private LanguageWatcher watcher;
+
+    /**
+     * Create the directory of a built language and a watcher.
+     *
+     * @throws IOException
+     *             When the directory cannot be created.
+     */
+    @Before
+    public void setup() throws IOException {
+        when(lang.id()).thenReturn(LanguageIdentifier.parse("org.borg:lang:0.0.0"));
+        location = folder.newFolder("lang").toPath();
+        Files.createDirectories(location.resolve("target/metaborg"));
+        watcher = new LanguageWatcher(() -> Collections.singletonMap("stratego", strategy),
+                                      parseCache, selector, memo, new BackgroundResults(),
+                                      QUIET_MILLIS);
+    }
+
+    /**
+     * Test that rebuilding the parse table and the Stratego code reloads the language once, and
+     * that the cached results are cleared after reloading.
+     *
+     * @throws Exception
+     *             When the watch fails.
+     */
+    @Test
+    public void testReloadOnce() throws Exception {
+        AtomicInteger reloads = new AtomicInteger();
+        AtomicInteger reloadsBeforeClear = new AtomicInteger(-1);
+        doAnswer(invocation -> {
+            reloadsBeforeClear.set(reloads.get());
+            return null;
+        }).when(parseCache).clear(lang);
+        CountDownLatch reloaded = new CountDownLatch(1);
+        watcher.watch(location, lang, () -> {
+            reloads.incrementAndGet();
+            reloaded.countDown();
+            return lang;
+        });
+
+        Path target = location.resolve("target/metaborg");
+        Files.write(target.resolve("sdf.tbl"), new byte[] { 1 });
+        Files.write(target.resolve("stratego.ctree"), new byte[] { 1 });
+        Files.write(location.resolve("README.md"), new byte[] { 1 });
+
+        assertTrue(reloaded.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        Thread.sleep(2 * QUIET_MILLIS);
+        watcher.stop(location);
+
+        assertEquals(1, reloads.get());
+        assertEquals(1, reloadsBeforeClear.get());
+        verify(strategy).invalidate(lang, EnumSet.of(LanguageArtifact.PARSE_TABLE,
+                                                     LanguageArtifact.STRATEGO));
+        verify(selector).forget(lang);
+        verify(memo).clear(lang);
+    }
+
+    /**
+     * Test that changing only the editor services keeps the cached parse and evaluation results.
+     *
+     * @throws Exception
+     *             When the watch fails.
+     */
+    @Test
+    public void testEditorOnly() throws Exception {
+        CountDownLatch reloaded = new CountDownLatch(1);
+        watcher.watch(location, lang, () -> {
+            reloaded.countDown();
+            return lang;
+        });
+
+        Files.write(location.resolve("target/metaborg/editor.esv.af"), new byte[] { 1 });
+
+        assertTrue(reloaded.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        // The state is invalidated after reloading.
+        verify(strategy, timeout(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS)))
+            .invalidate(lang, EnumSet.of(LanguageArtifact.EDITOR));
+        watcher.stop(location);
+
+        verify(parseCache, never()).clear(any(ILanguageImpl.class));
+        verify(selector, never()).forget(any());
+        verify(memo, never()).clear(any(ILanguageImpl.class));
+    }
+}
@@ -0,0 +1,41 @@
+package org.metaborg.spoofax.shell.commands;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.metaborg.spoofax.shell.output.IResult;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+/**
+ * Test that a {@link LazyCommand} is built once, on first use.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class LazyCommandTest {
+    @Mock private IReplCommand command;
+    @Mock private IResult result;
+
+    /**
+     * Test that describing the command does not build it, and that executing it builds it once.
+     */
+    @Test
+    public void testBuiltOnce() {
+        when(command.execute("input")).thenReturn(result);
+        AtomicInteger built = new AtomicInteger();
+        LazyCommand lazy = new LazyCommand("Transform", () -> {
+            built.incrementAndGet();
+            return command;
+        });
+
+        assertEquals("Transform", lazy.description());
+        assertEquals(0, built.get());
+        assertSame(result, lazy.execute("input"));
+        assertSame(result, lazy.execute("input"));
+        assertEquals(1, built.get());
+    }
+}
@@ -0,0 +1,109 @@
+package org.metaborg.spoofax.shell.commands;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.language.LanguageIdentifier;
+import org.metaborg.spoofax.shell.functions.EvaluationMemo;
+import org.metaborg.spoofax.shell.functions.FunctionComposer;
+import org.metaborg.spoofax.shell.output.IResultVisitor;
+import org.metaborg.spoofax.shell.output.StyledText;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.spoofax.interpreter.terms.IStrategoTerm;
+import org.spoofax.interpreter.terms.ITermFactory;
+import org.spoofax.terms.TermFactory;
+
+/**
+ * Test enabling, disabling and resetting the {@link EvaluationMemo} with the {@link MemoCommand},
+ * and the hit rate it shows.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class MemoCommandTest {
+    private static final int ENTRIES = 4;
+
+    private final ITermFactory termFactory = new TermFactory();
+    private final Object environment = new Object();
+
+    @Mock private FunctionComposer composer;
+    @Mock private ILanguageImpl lang;
+    @Mock private IResultVisitor visitor;
+    @Captor private ArgumentCaptor<StyledText> captor;
+
+    private EvaluationMemo memo;
+    private MemoCommand memoCommand;
+
+    /**
+     * Set up a memo command for a language.
+     */
+    @Before
+    public void setup() {
+        when(composer.lang()).thenReturn(lang);
+        when(lang.id()).thenReturn(LanguageIdentifier.parse("org.example:lang:1.0.0"));
+        memo = new EvaluationMemo(ENTRIES);
+        memoCommand = new MemoCommand(memo, composer);
+    }
+
+    private String status(String... args) {
+        memoCommand.execute(args).accept(visitor);
+        verify(visitor, times(1)).visitMessage(captor.capture());
+        return captor.getValue().toString();
+    }
+
+    /**
+     * Test that memoization is off until it is turned on, and can be turned off again.
+     */
+    @Test
+    public void testOnOff() {
+        assertFalse(memo.enabled(lang));
+        assertTrue(status().contains("is off"));
+
+        memoCommand.execute("on");
+        assertTrue(memo.enabled(lang));
+        memoCommand.execute("off");
+        assertFalse(memo.enabled(lang));
+    }
+
+    /**
+     * Test the remembered results and the hit rate, and that resetting forgets them.
+     */
+    @Test
+    public void testHitRateAndReset() {
+        memoCommand.execute("on");
+        IStrategoTerm ast = termFactory.makeString("ast");
+        memo.put(lang, ast, environment, termFactory.makeInt(1));
+        memo.get(lang, ast, environment);
+        memo.get(lang, termFactory.makeString("other"), environment);
+
+        String status = status();
+        assertTrue(status.startsWith("Memoization in org.example:lang:1.0.0 is on."));
+        assertTrue(status.contains("1 result(s) remembered, 1 hit(s) in 2 lookup(s)"));
+
+        memoCommand.execute("reset");
+        assertEquals(0, memo.size());
+        assertEquals(0, memo.hits() + memo.misses());
+        assertTrue(memo.enabled(lang));
+    }
+
+    /**
+     * Test that invalid arguments result in an exception.
+     */
+    @Test
+    public void testInvalid() {
+        memoCommand.execute("maybe").accept(visitor);
+        memoCommand.execute("on", "off").accept(visitor);
+        verify(visitor, times(2)).visitException(any());
+        assertFalse(memo.enabled(lang));
+    }
+}
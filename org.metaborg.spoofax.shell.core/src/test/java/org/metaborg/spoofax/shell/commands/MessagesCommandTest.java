@@ -0,0 +1,72 @@
+package org.metaborg.spoofax.shell.commands;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.metaborg.core.messages.IMessage;
+import org.metaborg.spoofax.shell.client.HiddenMessages;
+import org.metaborg.spoofax.shell.output.IResultVisitor;
+import org.metaborg.spoofax.shell.output.StyledText;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+/**
+ * Test showing the {@link HiddenMessages} with the {@link MessagesCommand}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class MessagesCommandTest {
+    @Mock private IResultVisitor visitor;
+    @Captor private ArgumentCaptor<StyledText> captor;
+
+    private HiddenMessages hidden;
+    private MessagesCommand messagesCommand;
+
+    /**
+     * Set up the command.
+     */
+    @Before
+    public void setup() {
+        hidden = new HiddenMessages();
+        messagesCommand = new MessagesCommand(hidden);
+    }
+
+    private IMessage message(String text) {
+        IMessage message = mock(IMessage.class);
+        when(message.message()).thenReturn(text);
+        return message;
+    }
+
+    /**
+     * Test that the hidden messages are shown once.
+     */
+    @Test
+    public void testShowsOnce() {
+        hidden.keep(Arrays.asList(message("third"), message("fourth")));
+
+        messagesCommand.execute().accept(visitor);
+        messagesCommand.execute().accept(visitor);
+        verify(visitor, times(2)).visitMessage(captor.capture());
+        assertEquals("third\nfourth", captor.getAllValues().get(0).toString());
+        assertEquals("No messages were hidden.", captor.getAllValues().get(1).toString());
+    }
+
+    /**
+     * Test that arguments result in an exception.
+     */
+    @Test
+    public void testInvalid() {
+        messagesCommand.execute("all").accept(visitor);
+        verify(visitor).visitException(any());
+    }
+}
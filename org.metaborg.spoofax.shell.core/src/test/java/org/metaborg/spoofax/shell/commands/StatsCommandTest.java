@@ -0,0 +1,123 @@
+package org.metaborg.spoofax.shell.commands;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.metaborg.spoofax.shell.output.IResultVisitor;
+import org.metaborg.spoofax.shell.output.StyledText;
+import org.metaborg.spoofax.shell.statistics.PipelineStatistics;
+import org.metaborg.spoofax.shell.statistics.StageStatistics;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+/**
+ * Test the output of the {@link StatsCommand} and the control of the {@link PipelineStatistics}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class StatsCommandTest {
+    private static final long NANOS = 2_000_000;
+    private static final long BYTES = 4096;
+
+    @Mock private PipelineStatistics statistics;
+    @Mock private IResultVisitor visitor;
+    @Captor private ArgumentCaptor<StyledText> captor;
+
+    private StatsCommand statsCommand;
+
+    /**
+     * Set up mocks used in the test case.
+     */
+    @Before
+    public void setup() {
+        SortedMap<String, StageStatistics> stages = new TreeMap<>();
+        stages.put("Parse", stage(3));
+        stages.put("Analyze", stage(1));
+        SortedMap<String, StageStatistics> commands = new TreeMap<>();
+        commands.put(":load", stage(1));
+        when(statistics.stages()).thenReturn(stages);
+        when(statistics.commands()).thenReturn(commands);
+        when(statistics.enabled()).thenReturn(true);
+
+        statsCommand = new StatsCommand(statistics);
+    }
+
+    private StageStatistics stage(int count) {
+        StageStatistics stage = new StageStatistics();
+        for (int i = 0; i < count; i++) {
+            stage.record(NANOS, NANOS, BYTES);
+        }
+        return stage;
+    }
+
+    private String[] output(String... args) {
+        statsCommand.execute(args).accept(visitor);
+        verify(visitor, times(1)).visitMessage(captor.capture());
+        return captor.getValue().toString().split("\n");
+    }
+
+    /**
+     * Test that the table has a header, then a row per stage sorted by name, then a row per
+     * command. All samples are equal, so every percentile is exact.
+     */
+    @Test
+    public void testTable() {
+        String[] lines = output();
+
+        assertEquals(4, lines.length);
+        assertTrue(lines[0].startsWith("stage/command"));
+        assertTrue(lines[1].startsWith(String.format("%-16s %8s", "Analyze", 1)));
+        assertTrue(lines[2].startsWith(String.format("%-16s %8s", "Parse", 3)));
+        assertTrue(lines[3].startsWith(String.format("%-16s %8s", ":load", 1)));
+        assertTrue(lines[2].contains("    2.00/    2.00/    2.00"));
+        assertTrue(lines[2].endsWith("    4.00/    4.00/    4.00"));
+    }
+
+    /**
+     * Test that the table says when collection is disabled.
+     */
+    @Test
+    public void testDisabled() {
+        when(statistics.enabled()).thenReturn(false);
+        String[] lines = output();
+
+        assertEquals(5, lines.length);
+        assertTrue(lines[0].contains(":stats on"));
+    }
+
+    /**
+     * Test enabling, disabling and resetting the statistics.
+     */
+    @Test
+    public void testControl() {
+        statsCommand.execute("on");
+        verify(statistics).setEnabled(true);
+        statsCommand.execute("off");
+        verify(statistics).setEnabled(false);
+        statsCommand.execute("reset");
+        verify(statistics).reset();
+    }
+
+    /**
+     * Test that invalid arguments result in an exception.
+     */
+    @Test
+    public void testInvalid() {
+        statsCommand.execute("sometimes").accept(visitor);
+        statsCommand.execute("on", "off").accept(visitor);
+        verify(visitor, times(2)).visitException(any());
+        verify(visitor, never()).visitMessage(any());
+    }
+}
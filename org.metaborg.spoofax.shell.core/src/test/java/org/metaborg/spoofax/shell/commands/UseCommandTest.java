@@ -0,0 +1,116 @@
+package org.metaborg.spoofax.shell.commands;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.metaborg.core.MetaborgException;
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.language.LanguageIdentifier;
+import org.metaborg.spoofax.shell.commands.LoadedLanguages.Language;
+import org.metaborg.spoofax.shell.functions.FunctionComposer;
+import org.metaborg.spoofax.shell.invoker.ICommandInvoker;
+import org.metaborg.spoofax.shell.output.IResultVisitor;
+import org.metaborg.spoofax.shell.output.StyledText;
+import org.metaborg.spoofax.shell.services.IEditorServices;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+/**
+ * Test switching between loaded languages with the {@link UseCommand}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class UseCommandTest {
+    @Mock private ICommandInvoker invoker;
+    @Mock private IEditorServices editorServices;
+    @Mock private IResultVisitor visitor;
+    @Captor private ArgumentCaptor<StyledText> captor;
+
+    @Mock private FunctionComposer dslComposer;
+    @Mock private FunctionComposer targetComposer;
+    @Mock private ILanguageImpl dsl;
+    @Mock private ILanguageImpl target;
+    @Mock private IReplCommand dslEval;
+    @Mock private IReplCommand targetEval;
+
+    private Language dslLanguage;
+    private UseCommand useCommand;
+
+    /**
+     * Load a DSL and then its target language.
+     */
+    @Before
+    public void setup() {
+        when(dsl.id()).thenReturn(LanguageIdentifier.parse("org.borg:dsl:0.0.0"));
+        when(target.id()).thenReturn(LanguageIdentifier.parse("org.borg:target:0.0.0"));
+        when(dslComposer.lang()).thenReturn(dsl);
+        when(targetComposer.lang()).thenReturn(target);
+
+        LoadedLanguages languages = new LoadedLanguages();
+        languages.serve(editorServices);
+        dslLanguage = new Language(dslComposer, Collections.singletonMap("eval", dslEval), dslEval);
+        languages.add(dslLanguage, invoker);
+        languages.add(new Language(targetComposer, Collections.singletonMap("eval", targetEval),
+                                   targetEval), invoker);
+        useCommand = new UseCommand(languages, invoker);
+    }
+
+    /**
+     * Test switching back to the DSL by its name, without loading it again.
+     */
+    @Test
+    public void testUse() {
+        useCommand.execute("dsl").accept(visitor);
+
+        verify(invoker, times(2)).replaceCommands(dslLanguage.commands(), dslEval);
+        verify(editorServices, times(2)).load(dslComposer);
+        verify(visitor).visitMessage(captor.capture());
+        assertEquals("Using language org.borg:dsl:0.0.0", captor.getValue().toString());
+    }
+
+    /**
+     * Test listing the loaded languages, with the one in use marked.
+     */
+    @Test
+    public void testList() {
+        useCommand.execute().accept(visitor);
+
+        verify(visitor).visitMessage(captor.capture());
+        assertEquals("Loaded languages:\n  org.borg:dsl:0.0.0\n* org.borg:target:0.0.0",
+                     captor.getValue().toString());
+    }
+
+    /**
+     * Test that a language that was not loaded cannot be used.
+     */
+    @Test
+    public void testNotLoaded() {
+        useCommand.execute("other").accept(visitor);
+
+        verify(visitor).visitException(any(MetaborgException.class));
+    }
+
+    /**
+     * Test that editor services that are created later on serve the language in use, and that
+     * using a language before does not need them.
+     */
+    @Test
+    public void testServeLater() {
+        LoadedLanguages languages = new LoadedLanguages();
+        languages.add(dslLanguage, invoker);
+        IEditorServices later = mock(IEditorServices.class);
+        languages.serve(later);
+
+        verify(later).load(dslComposer);
+    }
+}
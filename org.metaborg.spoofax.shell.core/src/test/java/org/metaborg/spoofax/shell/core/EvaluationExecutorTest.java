@@ -0,0 +1,137 @@
+package org.metaborg.spoofax.shell.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+import org.metaborg.core.MetaborgException;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/**
+ * Test that the {@link EvaluationExecutor} times out and cancels evaluations.
+ */
+public class EvaluationExecutorTest {
+    private static final long TIMEOUT = 50;
+
+    /**
+     * Test that the result of an evaluation is returned and its failure is rethrown.
+     *
+     * @throws MetaborgException
+     *             When the result is not returned.
+     */
+    @Test
+    public void testResultAndFailure() throws MetaborgException {
+        EvaluationExecutor executor = new EvaluationExecutor(0);
+        assertEquals("result", executor.execute(() -> "result"));
+
+        MetaborgException failure = new MetaborgException("failure");
+        try {
+            executor.execute(() -> {
+                throw failure;
+            });
+            fail("The failure should be rethrown.");
+        } catch (MetaborgException e) {
+            assertSame(failure, e);
+            assertFalse(e instanceof EvaluationAbortedException);
+        }
+    }
+
+    /**
+     * Test that an evaluation that takes too long times out and is reported as aborted, after which
+     * evaluations still run.
+     *
+     * @throws MetaborgException
+     *             When the evaluation after the timeout fails.
+     */
+    @Test
+    public void testTimeout() throws MetaborgException {
+        EvaluationExecutor executor = new EvaluationExecutor(TIMEOUT);
+        try {
+            executor.execute(() -> {
+                Thread.sleep(Long.MAX_VALUE);
+                return null;
+            });
+            fail("The evaluation should time out.");
+        } catch (MetaborgException e) {
+            assertTrue(e instanceof EvaluationAbortedException);
+            assertTrue(e.getMessage().contains("timed out"));
+            assertTrue(((EvaluationAbortedException) e).stopped());
+        }
+        assertEquals("next", executor.execute(() -> "next"));
+    }
+
+    /**
+     * Test that an evaluation that ignores being interrupted is stopped once it is aborted.
+     *
+     * @throws MetaborgException
+     *             When the evaluation after the aborted one fails.
+     */
+    @Test
+    public void testStopsIgnoringEvaluation() throws MetaborgException {
+        EvaluationExecutor executor = new EvaluationExecutor(TIMEOUT);
+        AtomicBoolean running = new AtomicBoolean();
+        try {
+            executor.execute(() -> {
+                while (true) {
+                    running.set(true);
+                    try {
+                        Thread.sleep(TIMEOUT);
+                    } catch (InterruptedException ignored) {
+                        // Keep running, like an interpreter that does not check for interrupts.
+                    }
+                }
+            });
+            fail("The evaluation should time out.");
+        } catch (EvaluationAbortedException e) {
+            assertTrue(e.stopped());
+        }
+
+        running.set(false);
+        Uninterruptibles.sleepUninterruptibly(TIMEOUT * 2, TimeUnit.MILLISECONDS);
+        assertFalse(running.get());
+        assertEquals("next", executor.execute(() -> "next"));
+    }
+
+    /**
+     * Test that a running evaluation can be cancelled from another thread.
+     *
+     * @throws InterruptedException
+     *             When interrupted while waiting for the evaluation to start.
+     */
+    @Test
+    public void testCancel() throws InterruptedException {
+        EvaluationExecutor executor = new EvaluationExecutor(0);
+        assertFalse(executor.cancel());
+
+        CountDownLatch started = new CountDownLatch(1);
+        Thread canceller = new Thread(() -> {
+            try {
+                started.await();
+                executor.cancel();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        canceller.start();
+        try {
+            executor.execute(() -> {
+                started.countDown();
+                Thread.sleep(Long.MAX_VALUE);
+                return null;
+            });
+            fail("The evaluation should be cancelled.");
+        } catch (MetaborgException e) {
+            assertTrue(e instanceof EvaluationAbortedException);
+            assertTrue(e.getMessage().contains("interrupted"));
+        }
+        canceller.join();
+    }
+}
@@ -0,0 +1,172 @@
+package org.metaborg.spoofax.shell.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.metaborg.core.MetaborgException;
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.language.ILanguageService;
+import org.metaborg.core.language.LanguageIdentifier;
+import org.metaborg.spoofax.core.stratego.IStrategoCommon;
+import org.metaborg.spoofax.core.stratego.IStrategoRuntimeService;
+import org.metaborg.spoofax.core.terms.ITermFactoryService;
+import org.metaborg.spoofax.shell.commands.RestoreEnvironmentCommand;
+import org.metaborg.spoofax.shell.commands.SaveEnvironmentCommand;
+import org.metaborg.spoofax.shell.output.IResultVisitor;
+import org.metaborg.spoofax.shell.output.StyledText;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.spoofax.interpreter.terms.IStrategoTerm;
+import org.spoofax.interpreter.terms.ITermFactory;
+import org.spoofax.terms.TermFactory;
+
+/**
+ * Test saving and restoring the environments of a {@link StrategoEvaluationStrategy} with the
+ * {@link StrategoEnvironmentSnapshots}, {@link SaveEnvironmentCommand} and
+ * {@link RestoreEnvironmentCommand}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class StrategoEnvironmentSnapshotsTest {
+    private static final LanguageIdentifier ID1 = LanguageIdentifier.parse("org.example:one:1.0.0");
+    private static final LanguageIdentifier ID2 = LanguageIdentifier.parse("org.example:two:1.0.0");
+
+    private final ITermFactory termFactory = new TermFactory();
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    @Mock private IStrategoCommon strategoCommon;
+    @Mock private IStrategoRuntimeService runtimeService;
+    @Mock private ITermFactoryService termFactoryService;
+    @Mock private ILanguageService languageService;
+    @Mock private ILanguageImpl lang1;
+    @Mock private ILanguageImpl lang2;
+    @Mock private IResultVisitor visitor;
+    @Captor private ArgumentCaptor<StyledText> captor;
+
+    private StrategoEvaluationStrategy strategy;
+    private StrategoEnvironmentSnapshots snapshots;
+    private Path file;
+
+    /**
+     * Set up a strategy with an environment for two languages, of which only the first is loaded.
+     *
+     * @throws IOException
+     *             When the temporary file cannot be created.
+     */
+    @Before
+    public void setup() throws IOException {
+        when(termFactoryService.getGeneric()).thenReturn(termFactory);
+        when(lang1.id()).thenReturn(ID1);
+        when(lang2.id()).thenReturn(ID2);
+        when(languageService.getImpl(ID1)).thenReturn(lang1);
+
+        strategy = new StrategoEvaluationStrategy(strategoCommon, runtimeService,
+                                                  termFactoryService, new EvaluationExecutor(0));
+        strategy.setEnvironment(lang1, termFactory.makeTuple(termFactory.makeString("x"),
+                                                             termFactory.makeInt(1)));
+        strategy.setEnvironment(lang2, termFactory.makeList(termFactory.makeString("y")));
+        snapshots = new StrategoEnvironmentSnapshots(strategy, languageService, termFactoryService);
+        file = folder.newFile("env.saf").toPath();
+    }
+
+    /**
+     * Test that a saved environment is restored as it was, and that the environments of
+     * languages that are not loaded are skipped.
+     *
+     * @throws MetaborgException
+     *             Never.
+     */
+    @Test
+    public void testRoundTrip() throws MetaborgException {
+        IStrategoTerm env = strategy.environments().get(lang1);
+        assertEquals(2, snapshots.save(file));
+
+        strategy.resetEnvironment(lang1);
+        strategy.resetEnvironment(lang2);
+        assertEquals(1, snapshots.restore(file));
+        assertEquals(env, strategy.environments().get(lang1));
+        assertEquals(1, strategy.environments().size());
+    }
+
+    /**
+     * Test the round trip through the {@code :env-save} and {@code :env-restore} commands, also
+     * overwriting an existing file.
+     *
+     * @throws IOException
+     *             When the file cannot be written.
+     */
+    @Test
+    public void testCommands() throws IOException {
+        Files.write(file, new byte[1 << 12]);
+        new SaveEnvironmentCommand(snapshots).execute(file.toString()).accept(visitor);
+        strategy.setEnvironment(lang1, termFactory.makeString("changed"));
+        new RestoreEnvironmentCommand(snapshots).execute(file.toString()).accept(visitor);
+
+        verify(visitor, times(2)).visitMessage(captor.capture());
+        assertEquals("Saved 2 environment(s) to " + file, captor.getAllValues().get(0).toString());
+        assertEquals("Restored 1 environment(s) from " + file,
+                     captor.getAllValues().get(1).toString());
+        assertEquals(termFactory.makeInt(1), strategy.environments().get(lang1).getSubterm(1));
+    }
+
+    /**
+     * Test that restoring a file that is not a snapshot fails and leaves the environments alone.
+     *
+     * @throws IOException
+     *             When the file cannot be written.
+     */
+    @Test
+    public void testMalformed() throws IOException {
+        IStrategoTerm env = strategy.environments().get(lang1);
+        Files.write(file, "[(\"org.example:one:1.0.0\")]".getBytes(StandardCharsets.UTF_8));
+        assertRestoreFails();
+
+        Files.write(file, "not a snapshot".getBytes(StandardCharsets.UTF_8));
+        assertRestoreFails();
+        assertEquals(env, strategy.environments().get(lang1));
+    }
+
+    /**
+     * Test that restoring an empty or truncated snapshot fails.
+     *
+     * @throws IOException
+     *             When the file cannot be written.
+     * @throws MetaborgException
+     *             When saving fails.
+     */
+    @Test
+    public void testTruncated() throws IOException, MetaborgException {
+        Files.write(file, new byte[0]);
+        assertRestoreFails();
+
+        snapshots.save(file);
+        byte[] saved = Files.readAllBytes(file);
+        Files.write(file, new byte[] { saved[0], saved[1] });
+        assertRestoreFails();
+    }
+
+    private void assertRestoreFails() {
+        try {
+            snapshots.restore(file);
+        } catch (MetaborgException e) {
+            assertTrue(e.getMessage().contains(file.toString()));
+            return;
+        }
+        throw new AssertionError("Restoring " + file + " should fail");
+    }
+}
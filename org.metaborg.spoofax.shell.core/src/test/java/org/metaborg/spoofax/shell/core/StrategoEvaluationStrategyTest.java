@@ -0,0 +1,274 @@
+package org.metaborg.spoofax.shell.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.metaborg.core.MetaborgException;
+import org.metaborg.core.context.IContext;
+import org.metaborg.core.language.FacetContribution;
+import org.metaborg.core.language.ILanguageComponent;
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.spoofax.core.stratego.IStrategoCommon;
+import org.metaborg.spoofax.core.stratego.IStrategoRuntimeService;
+import org.metaborg.spoofax.core.stratego.StrategoRuntimeFacet;
+import org.metaborg.spoofax.core.terms.ITermFactoryService;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.spoofax.interpreter.core.Tools;
+import org.spoofax.interpreter.library.ssl.SSLLibrary;
+import org.spoofax.interpreter.terms.IStrategoTerm;
+import org.spoofax.interpreter.terms.ITermFactory;
+import org.spoofax.terms.TermFactory;
+import org.strategoxt.HybridInterpreter;
+
+/**
+ * Test that the {@link StrategoEvaluationStrategy} keeps an environment and a prepared runtime per
+ * language, and no other state across inputs.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class StrategoEvaluationStrategyTest {
+    private static final long TIMEOUT = 50;
+
+    private final ITermFactory termFactory = new TermFactory();
+
+    @Mock private IStrategoCommon strategoCommon;
+    @Mock private IStrategoRuntimeService runtimeService;
+    @Mock private StrategoRuntimeFacet facet;
+    @Mock private ILanguageComponent component1;
+    @Mock private ILanguageComponent component2;
+    @Mock private HybridInterpreter runtime1;
+    @Mock private HybridInterpreter runtime2;
+    @Mock private ITermFactoryService termFactoryService;
+    @Mock private ILanguageImpl lang1;
+    @Mock private ILanguageImpl lang2;
+    @Mock private IContext context1;
+    @Mock private IContext context2;
+    @Mock private org.spoofax.interpreter.core.IContext interpreterContext;
+
+    private SSLLibrary library;
+
+    private EvaluationExecutor executor;
+    private StrategoEvaluationStrategy strategy;
+
+    /**
+     * Set up an evaluation strategy whose evaluation returns the input term, and whose new
+     * environment is the input term as well.
+     *
+     * @throws MetaborgException
+     *             Never.
+     */
+    @Before
+    public void setup() throws MetaborgException {
+        when(termFactoryService.getGeneric()).thenReturn(termFactory);
+        when(context1.language()).thenReturn(lang1);
+        when(context2.language()).thenReturn(lang2);
+        Mockito.<Iterable<FacetContribution<StrategoRuntimeFacet>>>when(
+            lang1.facetContributions(StrategoRuntimeFacet.class))
+            .thenReturn(Collections.singletonList(new FacetContribution<>(facet, component1)));
+        Mockito.<Iterable<FacetContribution<StrategoRuntimeFacet>>>when(
+            lang2.facetContributions(StrategoRuntimeFacet.class))
+            .thenReturn(Collections.singletonList(new FacetContribution<>(facet, component2)));
+        when(runtimeService.runtime(eq(component1), any(IContext.class), anyBoolean()))
+            .thenReturn(runtime1);
+        when(runtimeService.runtime(eq(component2), any(IContext.class), anyBoolean()))
+            .thenReturn(runtime2);
+        when(strategoCommon.invoke(any(HybridInterpreter.class), any(IStrategoTerm.class),
+                                   eq("shell_init")))
+            .thenReturn(termFactory.makeString("init"));
+        when(strategoCommon.invoke(any(HybridInterpreter.class), any(IStrategoTerm.class),
+                                   eq("shell_eval")))
+            .then(invocation -> {
+                IStrategoTerm input = (IStrategoTerm) invocation.getArguments()[1];
+                return termFactory.makeTuple(input.getSubterm(0), input.getSubterm(0));
+            });
+
+        library = new SSLLibrary();
+        when(runtime1.getContext()).thenReturn(interpreterContext);
+        when(runtime2.getContext()).thenReturn(interpreterContext);
+        when(interpreterContext.getOperatorRegistry(SSLLibrary.REGISTRY_NAME)).thenReturn(library);
+
+        executor = new EvaluationExecutor(0);
+        strategy = new StrategoEvaluationStrategy(strategoCommon, runtimeService,
+                                                  termFactoryService, executor);
+    }
+
+    /**
+     * Test that each language gets its own environment, initialised once.
+     *
+     * @throws MetaborgException
+     *             Never.
+     */
+    @Test
+    public void testEnvironmentPerLanguage() throws MetaborgException {
+        IStrategoTerm a = termFactory.makeString("a");
+        IStrategoTerm b = termFactory.makeString("b");
+        IStrategoTerm c = termFactory.makeString("c");
+
+        assertEquals(a, strategy.evaluate(a, context1));
+        assertEquals(b, strategy.evaluate(b, context2));
+        assertEquals(c, strategy.evaluate(c, context1));
+
+        assertEquals(c, strategy.environments().get(lang1));
+        assertEquals(b, strategy.environments().get(lang2));
+        verify(strategoCommon, times(1)).invoke(eq(runtime1), any(IStrategoTerm.class),
+                                                eq("shell_init"));
+        verify(strategoCommon, times(1)).invoke(eq(runtime2), any(IStrategoTerm.class),
+                                                eq("shell_init"));
+    }
+
+    /**
+     * Test that the runtime of a language is prepared once per context, instead of once per
+     * evaluation.
+     *
+     * @throws MetaborgException
+     *             Never.
+     */
+    @Test
+    public void testPreparedRuntime() throws MetaborgException {
+        IStrategoTerm a = termFactory.makeString("a");
+        strategy.evaluate(a, context1);
+        strategy.evaluate(a, context1);
+        strategy.evaluate(a, context1);
+        verify(runtimeService, times(1)).runtime(component1, context1, false);
+        verify(strategoCommon, times(3)).invoke(eq(runtime1), any(IStrategoTerm.class),
+                                                eq("shell_eval"));
+
+        IContext otherContext = Mockito.mock(IContext.class);
+        when(otherContext.language()).thenReturn(lang1);
+        strategy.evaluate(a, otherContext);
+        verify(runtimeService, times(1)).runtime(component1, otherContext, false);
+    }
+
+    /**
+     * Test that the dynamic rules and global hash tables that an invocation leaves behind in the
+     * reused runtime are gone before the next invocation, including those of {@code shell_init},
+     * while the environment term is passed on.
+     *
+     * @throws MetaborgException
+     *             Never.
+     */
+    @Test
+    public void testNoStateAcrossInputs() throws MetaborgException {
+        IStrategoTerm a = termFactory.makeString("a");
+        IStrategoTerm b = termFactory.makeString("b");
+        List<Boolean> empty = new ArrayList<>();
+        doAnswer(invocation -> {
+            empty.add(library.getDynamicRuleTable().isEmpty() && library.getTableTable().isEmpty());
+            library.getDynamicRuleTable().put(a, a);
+            library.getTableTable().put(a, a);
+            IStrategoTerm input = (IStrategoTerm) invocation.getArguments()[1];
+            return Tools.isTermTuple(input) ? termFactory.makeTuple(input.getSubterm(0), input)
+                                            : termFactory.makeString("init");
+        }).when(strategoCommon).invoke(any(HybridInterpreter.class), any(IStrategoTerm.class),
+                                       any(String.class));
+
+        strategy.evaluate(a, context1);
+        IStrategoTerm env = strategy.environments().get(lang1);
+        assertEquals(b, strategy.evaluate(b, context1));
+        assertEquals(termFactory.makeTuple(b, env), strategy.environments().get(lang1));
+        assertEquals(Arrays.asList(true, true, true), empty);
+        verify(runtimeService, times(1)).runtime(component1, context1, false);
+    }
+
+    /**
+     * Test that a failing strategy results in an exception.
+     *
+     * @throws MetaborgException
+     *             Expected.
+     */
+    @Test(expected = MetaborgException.class)
+    public void testFailingStrategy() throws MetaborgException {
+        doReturn(null).when(strategoCommon).invoke(any(HybridInterpreter.class),
+                                                   any(IStrategoTerm.class), eq("shell_eval"));
+        strategy.evaluate(termFactory.makeString("a"), context1);
+    }
+
+    /**
+     * Test that an aborted evaluation keeps the environment from before the evaluation, and that
+     * the runtime of the language is prepared again afterwards.
+     *
+     * @throws MetaborgException
+     *             When the evaluation after the aborted one fails.
+     */
+    @Test
+    public void testAborted() throws MetaborgException {
+        IStrategoTerm a = termFactory.makeString("a");
+        IStrategoTerm loop = termFactory.makeString("loop");
+        strategy.evaluate(a, context1);
+        doAnswer(invocation -> {
+            Thread.sleep(Long.MAX_VALUE);
+            return null;
+        }).when(strategoCommon).invoke(any(HybridInterpreter.class), any(IStrategoTerm.class),
+                                       eq("shell_eval"));
+
+        executor.setTimeout(TIMEOUT);
+        try {
+            strategy.evaluate(loop, context1);
+            fail("The evaluation should time out.");
+        } catch (EvaluationAbortedException e) {
+            assertTrue(e.stopped());
+        }
+        assertEquals(a, strategy.environments().get(lang1));
+
+        doReturn(termFactory.makeTuple(a, a)).when(strategoCommon)
+            .invoke(any(HybridInterpreter.class), any(IStrategoTerm.class), eq("shell_eval"));
+        strategy.evaluate(a, context1);
+        verify(runtimeService, times(2)).runtime(component1, context1, false);
+    }
+
+    /**
+     * Test replacing and resetting the environment of a language.
+     *
+     * @throws MetaborgException
+     *             Never.
+     */
+    @Test
+    public void testSetAndReset() throws MetaborgException {
+        IStrategoTerm restored = termFactory.makeString("restored");
+        strategy.setEnvironment(lang1, restored);
+        assertEquals(restored, strategy.environments().get(lang1));
+
+        strategy.resetEnvironment(lang1);
+        assertFalse(strategy.environments().containsKey(lang1));
+    }
+
+    /**
+     * Test that a forked strategy starts out with the environments of the original, and that
+     * evaluating in either one does not affect the other.
+     *
+     * @throws MetaborgException
+     *             Never.
+     */
+    @Test
+    public void testFork() throws MetaborgException {
+        IStrategoTerm a = termFactory.makeString("a");
+        IStrategoTerm b = termFactory.makeString("b");
+        strategy.evaluate(a, context1);
+
+        StrategoEvaluationStrategy fork = (StrategoEvaluationStrategy) strategy.fork();
+        assertEquals(a, fork.environments().get(lang1));
+
+        fork.evaluate(b, context1);
+        assertEquals(b, fork.environments().get(lang1));
+        assertEquals(a, strategy.environments().get(lang1));
+    }
+}
@@ -98,6 +98,7 @@ public class EvaluateFunctionTest {
     private final String description;
     private final EvaluateResult result;
     private final IReplCommand command;
+    private EvaluateFunction evalFunction;
     private final Function<IResultFactory, EvaluateResult> check;
 
     /**
@@ -184,7 +185,7 @@ public class EvaluateFunctionTest {
         Map<String, IEvaluationStrategy> evalStrategies = new HashMap<>(1);
         evalStrategies.put("mock", evalStrategy);
         evalStrategies.put("anotherOne", null);
-        EvaluateFunction pEvalFunction =
+        evalFunction =
             new EvaluateFunction(evalStrategies, contextService, resultFactory, project, lang);
 
         when(functionFactory.createInputFunction(any(), any()))
@@ -194,7 +195,7 @@ public class EvaluateFunctionTest {
         when(functionFactory.createAnalyzeFunction(any(), any()))
             .thenReturn((input) -> FailOrSuccessResult.successful(analyzeResult));
 
-        when(functionFactory.createEvaluateFunction(any(), any())).thenReturn(pEvalFunction);
+        when(functionFactory.createEvaluateFunction(any(), any())).thenReturn(evalFunction);
 
         FunctionComposer composer = new FunctionComposer(functionFactory, project, lang);
         when(functionFactory.createComposer(any(), any())).thenReturn(composer);
@@ -247,6 +248,74 @@ public class EvaluateFunctionTest {
         verify(result, times(1)).accept(visitor);
     }
 
+    /**
+     * Test that an evaluation that leaves the environment unchanged is remembered, so that
+     * evaluating the same AST again does not invoke the {@link IEvaluationStrategy}.
+     *
+     * @throws MetaborgException
+     *             on unexpected Spoofax exceptions
+     */
+    @Test
+    public void testMemoizedEvaluation() throws MetaborgException {
+        when(result.valid()).thenReturn(true);
+        when(evalStrategy.environmentVersion(any())).thenReturn(new Object());
+        when(evalStrategy.evaluate(any(), any())).thenReturn(mock(IStrategoTerm.class));
+        EvaluationMemo memo = new EvaluationMemo(1);
+        memo.setEnabled(context.language(), true);
+        evalFunction.setMemo(memo);
+
+        command.execute("test");
+        command.execute("test");
+        verify(evalStrategy, times(1)).evaluate(any(), any());
+        assertEquals(1, memo.hits());
+    }
+
+    /**
+     * Test that an evaluation is remembered when the environment after it is equal to the one
+     * before, even when it is not the same object.
+     *
+     * @throws MetaborgException
+     *             on unexpected Spoofax exceptions
+     */
+    @Test
+    public void testMemoizedEqualEnvironment() throws MetaborgException {
+        when(result.valid()).thenReturn(true);
+        when(evalStrategy.environmentVersion(any())).then(invocation -> new String("env"));
+        when(evalStrategy.evaluate(any(), any())).thenReturn(mock(IStrategoTerm.class));
+        EvaluationMemo memo = new EvaluationMemo(1);
+        memo.setEnabled(context.language(), true);
+        evalFunction.setMemo(memo);
+
+        command.execute("test");
+        command.execute("test");
+        verify(evalStrategy, times(1)).evaluate(any(), any());
+    }
+
+    /**
+     * Test that the results of an {@link EvaluateFunction} with forked strategies are not
+     * remembered, since they are evaluated in other environments than the ones of the REPL.
+     *
+     * @throws MetaborgException
+     *             on unexpected Spoofax exceptions
+     */
+    @Test
+    public void testForkedNotMemoized() throws MetaborgException {
+        when(evalStrategy.environmentVersion(any())).thenReturn(new Object());
+        when(evalStrategy.evaluate(any(), any())).thenReturn(mock(IStrategoTerm.class));
+        EvaluationMemo memo = new EvaluationMemo(1);
+        memo.setEnabled(context.language(), true);
+        Map<String, IEvaluationStrategy> forked = new HashMap<>(1);
+        forked.put("mock", evalStrategy);
+        EvaluateFunction forkedFunction =
+            new EvaluateFunction(contextService, resultFactory, project, lang, forked);
+        forkedFunction.setMemo(memo);
+
+        forkedFunction.apply(parseResult);
+        forkedFunction.apply(parseResult);
+        verify(evalStrategy, times(2)).evaluate(any(), any());
+        assertEquals(0, memo.size());
+    }
+
     /**
      * Test creating a valid {@link EvaluateResult} with an existing {@link IContext}.
      *
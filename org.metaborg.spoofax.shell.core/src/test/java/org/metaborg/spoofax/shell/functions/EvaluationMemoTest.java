@@ -0,0 +1,87 @@
+package org.metaborg.spoofax.shell.functions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.metaborg.core.language.ILanguageImpl;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.spoofax.interpreter.terms.IStrategoTerm;
+import org.spoofax.interpreter.terms.ITermFactory;
+import org.spoofax.terms.TermFactory;
+
+/**
+ * Test the keys, eviction and bookkeeping of the {@link EvaluationMemo}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class EvaluationMemoTest {
+    private static final int ENTRIES = 2;
+
+    private final ITermFactory termFactory = new TermFactory();
+    private final Object environment = new Object();
+
+    @Mock private ILanguageImpl lang;
+
+    private IStrategoTerm ast(String name) {
+        return termFactory.makeAppl(termFactory.makeConstructor(name, 0));
+    }
+
+    /**
+     * Test that a result is found for a structurally equal AST in the same environment only.
+     */
+    @Test
+    public void testKey() {
+        EvaluationMemo memo = new EvaluationMemo(ENTRIES);
+        memo.setEnabled(lang, true);
+        IStrategoTerm result = termFactory.makeInt(1);
+
+        memo.put(lang, ast("A"), environment, result);
+        assertEquals(result, memo.get(lang, ast("A"), environment).get());
+        assertFalse(memo.get(lang, ast("B"), environment).isPresent());
+        assertFalse(memo.get(lang, ast("A"), new Object()).isPresent());
+        assertEquals(1, memo.hits());
+        assertEquals(2, memo.misses());
+    }
+
+    /**
+     * Test that the least recently used result is evicted when the memo is full.
+     */
+    @Test
+    public void testEviction() {
+        EvaluationMemo memo = new EvaluationMemo(ENTRIES);
+        memo.setEnabled(lang, true);
+        memo.put(lang, ast("A"), environment, ast("A"));
+        memo.put(lang, ast("B"), environment, ast("B"));
+        memo.get(lang, ast("A"), environment);
+        memo.put(lang, ast("C"), environment, ast("C"));
+
+        assertEquals(ENTRIES, memo.size());
+        assertTrue(memo.get(lang, ast("A"), environment).isPresent());
+        assertFalse(memo.get(lang, ast("B"), environment).isPresent());
+    }
+
+    /**
+     * Test that nothing is remembered for a language for which memoization is disabled, and that
+     * disabling it drops the remembered results.
+     */
+    @Test
+    public void testEnabled() {
+        EvaluationMemo memo = new EvaluationMemo(ENTRIES);
+        memo.put(lang, ast("A"), environment, ast("A"));
+        assertEquals(0, memo.size());
+
+        memo.setEnabled(lang, true);
+        assertTrue(memo.enabled(lang));
+        memo.put(lang, ast("A"), environment, ast("A"));
+        memo.setEnabled(lang, false);
+        assertFalse(memo.enabled(lang));
+        assertEquals(0, memo.size());
+
+        EvaluationMemo disabled = new EvaluationMemo(0);
+        disabled.setEnabled(lang, true);
+        assertFalse(disabled.enabled(lang));
+    }
+}
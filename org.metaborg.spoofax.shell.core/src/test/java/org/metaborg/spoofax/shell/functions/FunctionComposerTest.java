@@ -0,0 +1,69 @@
+package org.metaborg.spoofax.shell.functions;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.metaborg.core.action.ITransformAction;
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.project.IProject;
+import org.metaborg.spoofax.shell.output.FailOrSuccessResult;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+/**
+ * Test that the {@link FunctionComposer} composes each function only once.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class FunctionComposerTest {
+    @Mock private IFunctionFactory functionFactory;
+    @Mock private IProject project;
+    @Mock private ILanguageImpl lang;
+    @Mock private ITransformAction action;
+    @Mock private ITransformAction otherAction;
+
+    private FunctionComposer composer;
+
+    /**
+     * Set up mocks used in the test case.
+     */
+    @Before
+    public void setup() {
+        when(functionFactory.createInputFunction(any(), any()))
+            .thenReturn((input) -> FailOrSuccessResult.failed(null));
+        when(functionFactory.createParseFunction(any(), any()))
+            .thenReturn((input) -> FailOrSuccessResult.failed(null));
+        when(functionFactory.createPTransformFunction(any(), any(), any()))
+            .thenReturn((input) -> FailOrSuccessResult.failed(null));
+
+        composer = new FunctionComposer(functionFactory, project, lang);
+    }
+
+    /**
+     * Test that requesting a composition twice returns the same function.
+     */
+    @Test
+    public void testParseFunctionReused() {
+        assertSame(composer.parseFunction(), composer.parseFunction());
+        verify(functionFactory, times(1)).createInputFunction(project, lang);
+        verify(functionFactory, times(1)).createParseFunction(project, lang);
+    }
+
+    /**
+     * Test that transform functions are composed once per action.
+     */
+    @Test
+    public void testTransformFunctionPerAction() {
+        assertSame(composer.pTransformFunction(action), composer.pTransformFunction(action));
+        assertNotSame(composer.pTransformFunction(action),
+                      composer.pTransformFunction(otherAction));
+        verify(functionFactory, times(1)).createPTransformFunction(project, lang, action);
+        verify(functionFactory, times(1)).createParseFunction(project, lang);
+    }
+}
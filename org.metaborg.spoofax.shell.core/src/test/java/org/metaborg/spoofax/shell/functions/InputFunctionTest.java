@@ -1,7 +1,10 @@
 package org.metaborg.spoofax.shell.functions;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -58,7 +61,9 @@ public class InputFunctionTest {
     @Captor private ArgumentCaptor<FailResult> failCaptor;
     @Captor private ArgumentCaptor<ISpoofaxResult<?>> resultCaptor;
     @Captor private ArgumentCaptor<Exception> exceptionCaptor;
+    @Captor private ArgumentCaptor<FileObject> fileCaptor;
 
+    private FileObject sourceFile;
     private IReplCommand inputCommand;
 
     /**
@@ -67,7 +72,7 @@ public class InputFunctionTest {
      */
     @Before
     public void setup() throws FileSystemException {
-        FileObject sourceFile = VFS.getManager().resolveFile("ram://junit-temp");
+        sourceFile = VFS.getManager().resolveFile("ram://junit-temp");
         when(project.location()).thenReturn(sourceFile);
 
         InputFunction inputFunction = new InputFunction(resultFactory, project, lang);
@@ -126,4 +131,21 @@ public class InputFunctionTest {
         assertEquals(inputResult, failCaptor.getValue().getCause());
     }
 
+    /**
+     * Test that all inputs share one resource in the project, which is never created.
+     * @throws FileSystemException when checking whether the resource exists fails
+     */
+    @Test
+    public void testInputResource() throws FileSystemException {
+        inputCommand.execute("first");
+        inputCommand.execute("second");
+
+        verify(resultFactory, times(2)).createInputResult(any(), fileCaptor.capture(), any(),
+                                                          any());
+        FileObject file = fileCaptor.getAllValues().get(0);
+        assertSame(file, fileCaptor.getAllValues().get(1));
+        assertEquals(sourceFile.getName(), file.getName().getParent());
+        assertFalse(file.exists());
+        verify(resultFactory).createInputResult(any(), eq(file), eq("first"), any());
+    }
 }
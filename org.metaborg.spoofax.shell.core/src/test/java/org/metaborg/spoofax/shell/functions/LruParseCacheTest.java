@@ -0,0 +1,89 @@
+package org.metaborg.spoofax.shell.functions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.metaborg.spoofax.core.unit.ISpoofaxInputUnit;
+import org.metaborg.spoofax.core.unit.ISpoofaxParseUnit;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+/**
+ * Test the eviction and bookkeeping of the {@link LruParseCache}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class LruParseCacheTest {
+    private static final int ENTRIES = 2;
+    private static final long BYTES = 64;
+
+    @Mock private ISpoofaxParseUnit parseUnit;
+
+    private ISpoofaxInputUnit input(String text) {
+        ISpoofaxInputUnit unit = mock(ISpoofaxInputUnit.class);
+        when(unit.text()).thenReturn(text);
+        return unit;
+    }
+
+    /**
+     * Test that a stored result is returned for an input with the same text.
+     */
+    @Test
+    public void testHit() {
+        LruParseCache cache = new LruParseCache(ENTRIES, BYTES);
+        assertFalse(cache.get(input("a")).isPresent());
+
+        cache.put(input("a"), parseUnit);
+        assertEquals(parseUnit, cache.get(input("a")).get());
+        assertFalse(cache.get(input("b")).isPresent());
+        assertEquals(1, cache.hits());
+        assertEquals(2, cache.misses());
+    }
+
+    /**
+     * Test that the least recently used entry is evicted when the cache is full.
+     */
+    @Test
+    public void testEvictEntries() {
+        LruParseCache cache = new LruParseCache(ENTRIES, BYTES);
+        cache.put(input("a"), parseUnit);
+        cache.put(input("b"), parseUnit);
+        cache.get(input("a"));
+        cache.put(input("c"), parseUnit);
+
+        assertEquals(ENTRIES, cache.size());
+        assertTrue(cache.get(input("a")).isPresent());
+        assertFalse(cache.get(input("b")).isPresent());
+    }
+
+    /**
+     * Test that entries are evicted when the text bound is exceeded, and that texts larger than
+     * the bound are never stored.
+     */
+    @Test
+    public void testEvictBytes() {
+        LruParseCache cache = new LruParseCache(ENTRIES, BYTES);
+        String half = new String(new char[(int) BYTES / 4]);
+        cache.put(input(half + "a"), parseUnit);
+        cache.put(input(half + "b"), parseUnit);
+        assertEquals(1, cache.size());
+
+        cache.put(input(new String(new char[(int) BYTES])), parseUnit);
+        assertEquals(1, cache.size());
+    }
+
+    /**
+     * Test that a cache without capacity never stores anything.
+     */
+    @Test
+    public void testDisabled() {
+        LruParseCache cache = new LruParseCache(0, BYTES);
+        cache.put(input("a"), parseUnit);
+        assertFalse(cache.get(input("a")).isPresent());
+        assertEquals(0, cache.size());
+    }
+}
@@ -42,11 +42,14 @@ import org.mockito.runners.MockitoJUnitRunner;
 @RunWith(MockitoJUnitRunner.class)
 public class ParseFunctionTest {
     private static final String DESCRIPTION = "parse";
+    private static final int CACHE_ENTRIES = 8;
+    private static final long CACHE_BYTES = 1024;
 
     @Mock private ISpoofaxSyntaxService syntaxService;
     @Mock private ISpoofaxUnitService unitService;
     @Mock private IFunctionFactory functionFactory;
     @Mock private IResultFactory resultFactory;
+    private IParseCache parseCache;
 
     @Mock private IProject project;
     @Mock private ILanguageImpl lang;
@@ -72,11 +75,13 @@ public class ParseFunctionTest {
      */
     @Before
     public void setup() throws FileSystemException, ParseException {
+        parseCache = new LruParseCache(CACHE_ENTRIES, CACHE_BYTES);
         FileObject sourceFile = VFS.getManager().resolveFile("ram://junit-temp");
         when(project.location()).thenReturn(sourceFile);
 
-        ParseFunction parseFunction = new ParseFunction(syntaxService, unitService,
-                                                        resultFactory, project, lang);
+        ParseFunction parseFunction =
+            new ParseFunction(syntaxService, unitService, parseCache,
+                              new StartSymbolSelector(false), resultFactory, project, lang);
 
         when(functionFactory.createInputFunction(any(), any())).thenReturn((input) ->
             FailOrSuccessResult.successful(inputResult)
@@ -87,6 +92,7 @@ public class ParseFunctionTest {
         when(functionFactory.createComposer(any(), any())).thenReturn(composer);
 
         when(inputResult.unit()).thenReturn(inputUnit);
+        when(inputUnit.text()).thenReturn("test");
         when(parseResult.unit()).thenReturn(parseUnit);
         when(resultFactory.createParseResult(any())).thenReturn(parseResult);
 
@@ -152,4 +158,21 @@ public class ParseFunctionTest {
         verify(visitor, times(1)).visitException(exceptionCaptor.capture());
         assertEquals(parseException, exceptionCaptor.getValue());
     }
+
+    /**
+     * Test that parsing the same input twice only invokes the parser once.
+     * @throws MetaborgException on unexpected Spoofax exceptions
+     */
+    @Test
+    public void testParseCached() throws MetaborgException {
+        when(parseUnit.valid()).thenReturn(true);
+        when(parseResult.valid()).thenReturn(true);
+
+        parseCommand.execute("test");
+        parseCommand.execute("test");
+        verify(syntaxService, times(1)).parse(any());
+        verify(resultFactory, times(2)).createParseResult(parseUnit);
+        assertEquals(1, parseCache.hits());
+        assertEquals(1, parseCache.misses());
+    }
 }
@@ -0,0 +1,220 @@
+package org.metaborg.spoofax.shell.functions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.syntax.ParseException;
+import org.metaborg.spoofax.core.syntax.JSGLRParserConfiguration;
+import org.metaborg.spoofax.core.unit.ISpoofaxInputUnit;
+import org.metaborg.spoofax.core.unit.ISpoofaxParseUnit;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/**
+ * Test the order in which the {@link StartSymbolSelector} tries start symbols, both serially and
+ * in parallel.
+ */
+@RunWith(Parameterized.class)
+public class StartSymbolSelectorTest {
+    private static final String SHELL_SYMBOL = "Shell";
+    private static final long SLOW_PARSE = 50;
+
+    private final boolean parallel;
+
+    @Mock private ILanguageImpl lang;
+    @Mock private ISpoofaxInputUnit input;
+    @Mock private ISpoofaxParseUnit valid;
+    @Mock private ISpoofaxParseUnit invalid;
+
+    private List<String> tried;
+    private StartSymbolSelector selector;
+
+    /**
+     * @return Whether to run the tests serially or in parallel.
+     */
+    @Parameters
+    public static List<Object[]> modes() {
+        return Lists.newArrayList(new Object[] { false }, new Object[] { true });
+    }
+
+    /**
+     * @param parallel
+     *            Whether the selector under test parses in parallel.
+     */
+    public StartSymbolSelectorTest(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * Set up mocks used in the test case.
+     */
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        when(input.langImpl()).thenReturn(lang);
+        when(input.config()).thenReturn(new JSGLRParserConfiguration(SHELL_SYMBOL));
+        when(valid.valid()).thenReturn(true);
+        when(invalid.valid()).thenReturn(false);
+
+        tried = Lists.newArrayList();
+        selector = new StartSymbolSelector(parallel);
+    }
+
+    private ISpoofaxParseUnit parse(String text, String winner) throws ParseException {
+        return parse(selector, text, winner);
+    }
+
+    private ISpoofaxParseUnit parse(StartSymbolSelector selector, String text, String winner)
+        throws ParseException {
+        when(input.text()).thenReturn(text);
+        return selector.parse(input, symbol -> {
+            synchronized (tried) {
+                tried.add(symbol);
+            }
+            return Objects.equals(symbol, winner) ? valid : invalid;
+        });
+    }
+
+    /**
+     * Test that only the default start symbol is tried once the shell start symbol has failed for
+     * an input shape.
+     * @throws ParseException on unexpected parse errors
+     */
+    @Test
+    public void testRemembersWinner() throws ParseException {
+        assertEquals(valid, parse("def x = 1", null));
+        tried.clear();
+
+        assertEquals(valid, parse("def y = 2", null));
+        if (!parallel) {
+            assertEquals(1, tried.size());
+            assertNull(tried.get(0));
+        }
+    }
+
+    /**
+     * Test that the shell start symbol is tried again for an input shape when the default start
+     * symbol fails, and that it is tried first again once it has succeeded.
+     * @throws ParseException on unexpected parse errors
+     */
+    @Test
+    public void testShellSymbolSucceedsAgain() throws ParseException {
+        assertEquals(valid, parse("def x = 1", null));
+        assertEquals(valid, parse("def", SHELL_SYMBOL));
+        tried.clear();
+
+        assertEquals(valid, parse("def y = 2", SHELL_SYMBOL));
+        if (!parallel) {
+            assertEquals(SHELL_SYMBOL, tried.get(0));
+        }
+    }
+
+    /**
+     * Test that the result of the default start symbol is returned when neither symbol parses.
+     * @throws ParseException on unexpected parse errors
+     */
+    @Test
+    public void testNoWinner() throws ParseException {
+        assertEquals(invalid, parse("???", "Other"));
+        assertEquals(2, tried.size());
+    }
+
+    /**
+     * Test that the shell start symbol wins when both start symbols parse the input, even when the
+     * default start symbol won for another input shape before, and even when the default start
+     * symbol parses faster.
+     * @throws ParseException on unexpected parse errors
+     */
+    @Test
+    public void testShellSymbolWins() throws ParseException {
+        assertEquals(valid, parse("def x = 1", null));
+
+        ISpoofaxParseUnit other = mock(ISpoofaxParseUnit.class);
+        when(other.valid()).thenReturn(true);
+        when(input.text()).thenReturn("x");
+        ISpoofaxParseUnit parse = selector.parse(input, symbol -> {
+            if (symbol == null) {
+                return other;
+            }
+            Uninterruptibles.sleepUninterruptibly(SLOW_PARSE, TimeUnit.MILLISECONDS);
+            return valid;
+        });
+        assertEquals(valid, parse);
+    }
+
+    /**
+     * Test that a win of the default start symbol for another shape does not change the order for
+     * the empty input shape.
+     * @throws ParseException on unexpected parse errors
+     */
+    @Test
+    public void testEmptyShape() throws ParseException {
+        assertEquals(valid, parse(" ", SHELL_SYMBOL));
+        assertEquals(valid, parse("def x = 1", null));
+        tried.clear();
+
+        assertEquals(valid, parse(" ", SHELL_SYMBOL));
+        if (!parallel) {
+            assertEquals(SHELL_SYMBOL, tried.get(0));
+        }
+    }
+
+    /**
+     * Test that a view without recording uses the input shapes for which the shell start symbol
+     * failed, but does not remember them itself.
+     * @throws ParseException on unexpected parse errors
+     */
+    @Test
+    public void testWithoutRecording() throws ParseException {
+        StartSymbolSelector view = selector.withoutRecording();
+        assertEquals(valid, parse(view, "def x = 1", null));
+        tried.clear();
+
+        assertEquals(valid, parse("def y = 2", null));
+        if (!parallel) {
+            assertEquals(SHELL_SYMBOL, tried.get(0));
+        }
+        tried.clear();
+
+        assertEquals(valid, parse(view, "def z = 3", null));
+        assertEquals(Collections.singletonList(null), tried);
+    }
+
+    /**
+     * Test that the selector can still parse after it has been closed.
+     * @throws ParseException on unexpected parse errors
+     */
+    @Test
+    public void testClose() throws ParseException {
+        assertEquals(valid, parse("def x = 1", SHELL_SYMBOL));
+        selector.close();
+        assertEquals(valid, parse("def x = 1", SHELL_SYMBOL));
+        selector.close();
+    }
+
+    /**
+     * Test computing the shape of an input.
+     */
+    @Test
+    public void testShape() {
+        assertEquals("def", StartSymbolSelector.shape("  def x = 1"));
+        assertEquals("(", StartSymbolSelector.shape("(1 + 2)"));
+        assertEquals("", StartSymbolSelector.shape(" "));
+    }
+}
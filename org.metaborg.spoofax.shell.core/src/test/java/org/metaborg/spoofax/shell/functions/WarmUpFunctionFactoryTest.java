@@ -0,0 +1,88 @@
+package org.metaborg.spoofax.shell.functions;
+
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.project.IProject;
+import org.metaborg.spoofax.core.syntax.ISpoofaxSyntaxService;
+import org.metaborg.spoofax.core.unit.ISpoofaxInputUnit;
+import org.metaborg.spoofax.core.unit.ISpoofaxParseUnit;
+import org.metaborg.spoofax.core.unit.ISpoofaxUnitService;
+import org.metaborg.spoofax.shell.output.IResultFactory;
+import org.metaborg.spoofax.shell.output.InputResult;
+import org.metaborg.spoofax.shell.statistics.PipelineStatistics;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+/**
+ * Test that the functions created by the {@link WarmUpFunctionFactory} leave no traces in the
+ * state they share with the REPL.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class WarmUpFunctionFactoryTest {
+    @Mock private IFunctionFactory functionFactory;
+    @Mock private ISpoofaxSyntaxService syntaxService;
+    @Mock private ISpoofaxUnitService unitService;
+    @Mock private IResultFactory resultFactory;
+    @Mock private StartSymbolSelector selector;
+    @Mock private StartSymbolSelector view;
+
+    @Mock private IProject project;
+    @Mock private ILanguageImpl lang;
+    @Mock private InputResult inputResult;
+    @Mock private ISpoofaxInputUnit inputUnit;
+    @Mock private ISpoofaxParseUnit parseUnit;
+
+    private WarmUpFunctionFactory factory;
+
+    /**
+     * Set up a factory that creates its functions for the warm-up from mocks.
+     */
+    @Before
+    public void setup() {
+        when(selector.withoutRecording()).thenReturn(view);
+        factory = new WarmUpFunctionFactory(functionFactory, syntaxService, unitService,
+                                            resultFactory, selector);
+    }
+
+    /**
+     * Test that the functions created by the factory of the REPL no longer record statistics.
+     */
+    @Test
+    public void testNoStatistics() {
+        PipelineStatistics statistics = new PipelineStatistics(true);
+        InputFunction input = new InputFunction(resultFactory, project, lang);
+        input.setStatistics(statistics);
+        when(functionFactory.createInputFunction(project, lang)).thenReturn(input);
+
+        factory.createInputFunction(project, lang).apply("1");
+        assertTrue(statistics.stages().isEmpty());
+    }
+
+    /**
+     * Test that parsing uses the non-recording view of the selector, and does not cache its
+     * results.
+     *
+     * @throws Exception
+     *             Never.
+     */
+    @Test
+    public void testParse() throws Exception {
+        when(inputResult.unit()).thenReturn(inputUnit);
+        when(view.parse(any(), any())).thenReturn(parseUnit);
+
+        factory.createParseFunction(project, lang).apply(inputResult);
+        factory.createParseFunction(project, lang).apply(inputResult);
+        verify(view, times(2)).parse(any(), any());
+        verify(selector, never()).parse(any(), any());
+        verify(functionFactory, never()).createParseFunction(any(), any());
+    }
+}
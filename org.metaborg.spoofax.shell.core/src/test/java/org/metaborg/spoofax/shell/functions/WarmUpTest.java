@@ -0,0 +1,148 @@
+package org.metaborg.spoofax.shell.functions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.language.LanguageIdentifier;
+import org.metaborg.core.project.IProject;
+import org.metaborg.spoofax.shell.client.BackgroundResults;
+import org.metaborg.spoofax.shell.client.InputHistory;
+import org.metaborg.spoofax.shell.output.FailOrSuccessResult;
+import org.metaborg.spoofax.shell.output.IResult;
+import org.metaborg.spoofax.shell.output.IResultVisitor;
+import org.metaborg.spoofax.shell.output.StyledText;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+/**
+ * Test picking the sample inputs of a {@link WarmUp} and running them in the background.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class WarmUpTest {
+    private static final int MAX_INPUTS = 2;
+    private static final long TIMEOUT_MILLIS = 5000;
+    private static final long POLL_MILLIS = 10;
+
+    @Mock private FunctionComposer repl;
+    @Mock private FunctionComposer composer;
+    @Mock private IFunctionFactory factory;
+    @Mock private IProject project;
+    @Mock private ILanguageImpl lang;
+    @Mock private IResult failure;
+    @Mock private IResultVisitor visitor;
+
+    private List<String> parsed;
+    private List<StyledText> messages;
+    private InputHistory history;
+    private BackgroundResults results;
+
+    /**
+     * Set up a language without a samples file, of which every input fails to parse in the
+     * pipeline of the warm-up.
+     */
+    @Before
+    public void setup() {
+        parsed = new CopyOnWriteArrayList<>();
+        messages = new CopyOnWriteArrayList<>();
+        history = new InputHistory();
+        results = new BackgroundResults();
+        doAnswer(invocation -> messages.add((StyledText) invocation.getArguments()[0]))
+            .when(visitor).visitMessage(any());
+        when(repl.lang()).thenReturn(lang);
+        when(factory.createComposer(project, lang)).thenReturn(composer);
+        when(lang.locations()).thenReturn(Collections.emptyList());
+        when(lang.id()).thenReturn(LanguageIdentifier.parse("org.borg:lang:0.0.0"));
+        when(composer.parseFunction()).thenReturn(input -> {
+            parsed.add(input);
+            return FailOrSuccessResult.failed(failure);
+        });
+        when(composer.evaluateFunction(any())).thenReturn(input -> FailOrSuccessResult
+            .failed(failure));
+    }
+
+    private WarmUp warmUp(int maxInputs) {
+        return new WarmUp(factory, () -> project, Collections::emptyMap, maxInputs, results);
+    }
+
+    private boolean awaitReport() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS);
+        results.showAll(visitor);
+        while (messages.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(POLL_MILLIS);
+            results.showAll(visitor);
+        }
+        return !messages.isEmpty();
+    }
+
+    /**
+     * Test that the most recent expressions in the history are warmed up, oldest first, and that
+     * the completion is reported once.
+     *
+     * @throws InterruptedException
+     *             When interrupted while waiting for the warm-up.
+     */
+    @Test
+    public void testHistory() throws InterruptedException {
+        Arrays.asList("1", ":load lang", "2", "3", ":help").forEach(history::append);
+        WarmUp warmUp = warmUp(MAX_INPUTS);
+        warmUp.setHistory(history);
+
+        assertTrue(warmUp.start(repl, ":"));
+        assertTrue(awaitReport());
+        assertEquals(Arrays.asList("2", "3"), parsed);
+        results.showAll(visitor);
+        assertEquals(1, messages.size());
+    }
+
+    /**
+     * Test that the inputs go through a pipeline of their own, composed by the factory of the
+     * warm-up, and that the pipeline of the REPL is left alone.
+     *
+     * @throws InterruptedException
+     *             When interrupted while waiting for the warm-up.
+     */
+    @Test
+    public void testSeparatePipeline() throws InterruptedException {
+        history.append("1");
+        WarmUp warmUp = warmUp(MAX_INPUTS);
+        warmUp.setHistory(history);
+
+        assertTrue(warmUp.start(repl, ":"));
+        assertTrue(awaitReport());
+        assertEquals(Collections.singletonList("1"), parsed);
+        verify(factory).createComposer(project, lang);
+        verify(repl, never()).parseFunction();
+        verify(repl, never()).analyzeFunction();
+        verify(repl, never()).evaluateFunction(any());
+    }
+
+    /**
+     * Test that nothing is warmed up without sample inputs, or when warming up is disabled.
+     */
+    @Test
+    public void testNoInputs() {
+        WarmUp warmUp = warmUp(MAX_INPUTS);
+        assertFalse(warmUp.start(repl, ":"));
+
+        history.append("1");
+        WarmUp disabled = warmUp(0);
+        disabled.setHistory(history);
+        assertFalse(disabled.start(repl, ":"));
+    }
+}
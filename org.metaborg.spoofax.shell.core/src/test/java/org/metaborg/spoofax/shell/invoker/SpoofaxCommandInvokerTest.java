@@ -1,5 +1,6 @@
 package org.metaborg.spoofax.shell.invoker;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
@@ -7,8 +8,10 @@ import static org.mockito.Mockito.mock;
 import org.junit.Before;
 import org.junit.Test;
 import org.metaborg.spoofax.shell.commands.IReplCommand;
+import org.metaborg.spoofax.shell.statistics.PipelineStatistics;
 
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 /**
  * Test the default implementation of {@link ICommandInvoker}.
@@ -38,6 +41,27 @@ public class SpoofaxCommandInvokerTest {
         }
     }
 
+    /**
+     * Test that only commands that exist are recorded in the {@link PipelineStatistics}.
+     * @throws CommandNotFoundException when the existing command is not found
+     */
+    @Test
+    public void testRecordsExistingCommands() throws CommandNotFoundException {
+        PipelineStatistics statistics = new PipelineStatistics(true);
+        invoker.setStatistics(statistics);
+        invoker.addCommand("exists", mock(IReplCommand.class));
+
+        invoker.execute(":exists now");
+        invoker.execute("input");
+        try {
+            invoker.execute(":typo");
+            fail("No exceptions thrown, but command does not exist");
+        } catch (CommandNotFoundException e) {
+            assertCommandNameInMessage("typo", e);
+        }
+        assertEquals(Sets.newHashSet(":exists", "<default>"), statistics.commands().keySet());
+    }
+
     private static void assertCommandNameInMessage(String commandName, CommandNotFoundException e) {
         assertTrue("Command name should be present in CommandNotFoundException message",
                    e.getMessage().contains('\"' + commandName + '\"'));
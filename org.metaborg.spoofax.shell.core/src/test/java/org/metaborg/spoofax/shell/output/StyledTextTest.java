@@ -134,4 +134,71 @@ public class StyledTextTest {
         assertEquals("llo, wor", source.get(1).fragment());
         assertEquals("Hello, world", styledText.toString());
     }
+
+    /**
+     * Test that the length and plain text are kept up to date when appending.
+     */
+    @Test
+    public void testLengthAfterAppend() {
+        StyledText styledText = new StyledText("Hello");
+        assertEquals("Hello", styledText.toString());
+        assertEquals("Hello".length(), styledText.length());
+
+        styledText.append(Color.RED, ", world");
+        assertEquals("Hello, world", styledText.toString());
+        assertEquals("Hello, world".length(), styledText.length());
+        assertEquals("Hello".length(), styledText.getSource().get(1).region().startOffset());
+    }
+
+    /**
+     * Test appending another {@link StyledText}, which shifts its regions.
+     */
+    @Test
+    public void testAppendStyledText() {
+        final int worldStart = 7;
+        Style style = new Style(Color.BLUE, Color.CYAN, false, false, false, false);
+        StyledText other = new StyledText(style, "world");
+        StyledText styledText = new StyledText("Hello, ").append(other);
+
+        List<IRegionStyle<String>> source = styledText.getSource();
+        assertEquals(2, source.size());
+        assertEquals(style, source.get(1).style());
+        assertEquals(worldStart, source.get(1).region().startOffset());
+        assertEquals("Hello, world", styledText.toString());
+    }
+
+    /**
+     * Test that the styled strings cannot be modified other than by appending.
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSourceReadOnly() {
+        new StyledText("Hello").getSource().clear();
+    }
+
+    /**
+     * Test that adjacent regions are merged and regions outside the text are clipped.
+     */
+    @Test
+    public void testMultipleRegionsAdjacentAndClipped() {
+        final int numRegions = 3;
+        final int end1 = 3;
+        final int start2 = 4;
+        final int end2 = 5;
+        final int start3 = 7;
+        final int end3 = 100;
+        List<ISourceRegion> regions = Arrays.asList(new SourceRegion(start3, end3),
+                                                    new SourceRegion(-1, end1),
+                                                    new SourceRegion(start2, end2));
+        Style style = new Style(Color.BLUE, Color.CYAN, false, false, false, false);
+
+        StyledText styledText = new StyledText().append(regions, style, "Hello, world");
+
+        List<IRegionStyle<String>> source = styledText.getSource();
+        assertEquals(numRegions + 1, source.size());
+        assertEquals("Hello,", source.get(0).fragment());
+        assertEquals(" ", source.get(1).fragment());
+        assertEquals("world", source.get(2).fragment());
+        assertEquals("", source.get(numRegions).fragment());
+        assertEquals("Hello, world", styledText.toString());
+    }
 }
@@ -2,14 +2,22 @@ package org.metaborg.spoofax.shell.services;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
+import java.util.Collections;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.language.LanguageIdentifier;
+import org.metaborg.spoofax.shell.commands.IReplCommand;
+import org.metaborg.spoofax.shell.commands.LoadedLanguages;
 import org.metaborg.spoofax.shell.functions.FunctionComposer;
+import org.metaborg.spoofax.shell.invoker.ICommandInvoker;
 import org.metaborg.spoofax.shell.output.FailOrSuccessResult;
 import org.metaborg.spoofax.shell.output.IResult;
 import org.metaborg.spoofax.shell.output.StyleResult;
@@ -113,4 +121,27 @@ public class SpoofaxEditorServicesTest {
         verify(loaded).isLoaded();
     }
 
+    /**
+     * Tests that the language in use is only loaded once the services are created, and that the
+     * services follow the language in use afterwards.
+     */
+    @Test
+    public void testServeLoadedLanguages() {
+        ILanguageImpl lang = mock(ILanguageImpl.class);
+        when(lang.id()).thenReturn(LanguageIdentifier.parse("org.borg:lang:0.0.0"));
+        when(composer.lang()).thenReturn(lang);
+        ICommandInvoker invoker = mock(ICommandInvoker.class);
+        IReplCommand eval = mock(IReplCommand.class);
+        LoadedLanguages languages = new LoadedLanguages();
+        LoadedLanguages.Language language =
+            new LoadedLanguages.Language(composer, Collections.singletonMap("eval", eval), eval);
+        languages.add(language, invoker);
+        verify(factory, never()).createLoadedStrategy(any());
+
+        services.setLoadedLanguages(languages);
+        verify(factory).createLoadedStrategy(composer);
+        services.isLoaded();
+        verify(loaded).isLoaded();
+    }
+
 }
@@ -0,0 +1,72 @@
+package org.metaborg.spoofax.shell.statistics;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.metaborg.spoofax.shell.statistics.EvaluationProfile.Frame;
+
+/**
+ * Test the aggregation of samples in an {@link EvaluationProfile}.
+ */
+public class EvaluationProfileTest {
+    private static final long ELAPSED = 10;
+
+    /**
+     * Test the self and total times and the estimated calls of the sampled frames.
+     */
+    @Test
+    public void testFrames() {
+        EvaluationProfile profile = new EvaluationProfile();
+        List<String> first = Arrays.asList("eval", "add");
+        List<String> second = Arrays.asList("eval", "mul");
+        profile.record(first, null, ELAPSED);
+        profile.record(first, first, ELAPSED);
+        profile.record(second, first, ELAPSED);
+
+        List<Frame> frames = profile.frames();
+        assertEquals(3, frames.size());
+        assertEquals(3, profile.samples());
+        assertEquals(3 * ELAPSED, profile.nanos());
+
+        Frame add = frames.get(0);
+        assertEquals("add", add.name());
+        assertEquals(2 * ELAPSED, add.selfNanos());
+        assertEquals(1, add.calls());
+
+        Frame eval = frames.get(2);
+        assertEquals("eval", eval.name());
+        assertEquals(0, eval.selfNanos());
+        assertEquals(3 * ELAPSED, eval.totalNanos());
+        assertEquals(1, eval.calls());
+    }
+
+    /**
+     * Test that a recursive frame is counted once in the total time of a sample.
+     */
+    @Test
+    public void testRecursion() {
+        EvaluationProfile profile = new EvaluationProfile();
+        profile.record(Arrays.asList("eval", "eval", "eval"), null, ELAPSED);
+
+        Frame eval = profile.frames().get(0);
+        assertEquals(ELAPSED, eval.totalNanos());
+        assertEquals(ELAPSED, eval.selfNanos());
+        assertEquals(3, eval.calls());
+    }
+
+    /**
+     * Test the collapsed stacks for flame graphs.
+     */
+    @Test
+    public void testCollapsedStacks() {
+        EvaluationProfile profile = new EvaluationProfile();
+        profile.record(Arrays.asList("eval", "mul"), null, ELAPSED);
+        profile.record(Arrays.asList("eval", "add"), null, ELAPSED);
+        profile.record(Arrays.asList("eval", "add"), null, ELAPSED);
+
+        assertEquals("eval;add 2\neval;mul 1\n", profile.collapsedStacks());
+    }
+}
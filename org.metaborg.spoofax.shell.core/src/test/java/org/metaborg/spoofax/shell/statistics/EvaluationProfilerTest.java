@@ -0,0 +1,79 @@
+package org.metaborg.spoofax.shell.statistics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Test sampling the tracked threads with the {@link EvaluationProfiler}.
+ */
+public class EvaluationProfilerTest {
+    private static final long INTERVAL_MICROS = 100;
+    private static final long SPIN_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+
+    private static String name(StackTraceElement frame) {
+        return "spin".equals(frame.getMethodName()) ? "spin" : null;
+    }
+
+    private static long spin() {
+        long end = System.nanoTime() + SPIN_NANOS;
+        long spins = 0;
+        while (System.nanoTime() < end) {
+            spins++;
+        }
+        return spins;
+    }
+
+    /**
+     * Test that the thread that starts profiling is sampled, and that only named frames are kept.
+     */
+    @Test
+    public void testCurrentThread() {
+        EvaluationProfiler profiler = new EvaluationProfiler(INTERVAL_MICROS);
+        profiler.start(EvaluationProfilerTest::name);
+        spin();
+        EvaluationProfile profile = profiler.stop();
+
+        assertTrue(profile.samples() > 0);
+        assertEquals("spin", profile.frames().get(0).name());
+        assertTrue(profile.collapsedStacks().contains("spin "));
+    }
+
+    /**
+     * Test that a tracked task on another thread is sampled.
+     *
+     * @throws Exception
+     *             When the task fails.
+     */
+    @Test
+    public void testTrackedThread() throws Exception {
+        EvaluationProfiler profiler = new EvaluationProfiler(INTERVAL_MICROS);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Callable<Long> task = profiler.track(EvaluationProfilerTest::spin);
+            profiler.start(EvaluationProfilerTest::name);
+            executor.submit(task).get();
+            EvaluationProfile profile = profiler.stop();
+
+            assertTrue(profile.samples() > 0);
+            assertEquals("spin", profile.frames().get(0).name());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Test that stopping without a running profile results in an empty profile.
+     */
+    @Test
+    public void testStopWithoutStart() {
+        EvaluationProfiler profiler = new EvaluationProfiler(INTERVAL_MICROS);
+        assertEquals(0, profiler.stop().samples());
+    }
+}
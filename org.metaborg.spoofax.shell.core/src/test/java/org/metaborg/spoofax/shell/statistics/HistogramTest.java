@@ -0,0 +1,63 @@
+package org.metaborg.spoofax.shell.statistics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Test the bucketing and percentiles of the {@link Histogram}.
+ */
+public class HistogramTest {
+    private static final int VALUES = 1000;
+    private static final double MAX_ERROR = 1.0 / 32;
+
+    /**
+     * Test that every value falls in a bucket whose lowest value is close to it.
+     */
+    @Test
+    public void testIndex() {
+        long[] values = { 0, 1, 31, 32, 33, 63, 64, 1000, 123456789L, Long.MAX_VALUE };
+        for (long value : values) {
+            long lowest = Histogram.lowestEquivalent(Histogram.index(value));
+            assertTrue(lowest <= value);
+            assertTrue(value - lowest <= value * MAX_ERROR);
+        }
+    }
+
+    /**
+     * Test the percentiles of a uniform distribution.
+     */
+    @Test
+    public void testPercentiles() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= VALUES; i++) {
+            histogram.record(i);
+        }
+
+        assertEquals(VALUES, histogram.count());
+        assertEquals(VALUES, histogram.max());
+        final double[] percentiles = { 50, 95, 99, 100 };
+        for (double percentile : percentiles) {
+            double expected = percentile / 100 * VALUES;
+            long actual = histogram.percentile(percentile);
+            assertTrue(actual >= expected);
+            assertTrue(actual - expected <= expected * MAX_ERROR);
+        }
+    }
+
+    /**
+     * Test that an empty or reset histogram reports zero.
+     */
+    @Test
+    public void testReset() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.percentile(50));
+
+        histogram.record(VALUES);
+        histogram.reset();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.max());
+        assertEquals(0, histogram.percentile(50));
+    }
+}
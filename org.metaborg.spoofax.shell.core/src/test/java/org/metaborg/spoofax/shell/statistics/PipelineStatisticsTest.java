@@ -0,0 +1,86 @@
+package org.metaborg.spoofax.shell.statistics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import org.junit.Test;
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.project.IProject;
+import org.metaborg.spoofax.shell.functions.AbstractSpoofaxFunction;
+import org.metaborg.spoofax.shell.output.FailOrSuccessResult;
+import org.metaborg.spoofax.shell.output.IResult;
+import org.metaborg.spoofax.shell.output.IResultFactory;
+import org.metaborg.spoofax.shell.output.ISpoofaxResult;
+
+/**
+ * Test that the {@link PipelineStatistics} record pipeline stages and commands only while
+ * enabled.
+ */
+public class PipelineStatisticsTest {
+    private static final String STAGE = "Test";
+    private static final String COMMAND = "test";
+
+    /**
+     * A pipeline stage that does nothing.
+     */
+    private static final class TestFunction
+        extends AbstractSpoofaxFunction<String, ISpoofaxResult<?>> {
+        TestFunction(PipelineStatistics statistics) {
+            super(mock(IResultFactory.class), mock(IProject.class), mock(ILanguageImpl.class));
+            setStatistics(statistics);
+        }
+
+        @Override
+        protected FailOrSuccessResult<ISpoofaxResult<?>, IResult> applyThrowing(String a) {
+            return null;
+        }
+    }
+
+    /**
+     * Test that stages and commands are recorded while statistics are enabled.
+     */
+    @Test
+    public void testRecordWhenEnabled() {
+        PipelineStatistics statistics = new PipelineStatistics(true);
+        new TestFunction(statistics).apply("");
+        new TestFunction(statistics).apply("");
+        statistics.recordCommand(COMMAND, statistics.start());
+
+        assertEquals(2, statistics.stages().get(STAGE).wallTime().count());
+        assertEquals(1, statistics.commands().get(COMMAND).wallTime().count());
+    }
+
+    /**
+     * Test that nothing is recorded while statistics are disabled, also not after enabling them
+     * during a measurement.
+     */
+    @Test
+    public void testSkipWhenDisabled() {
+        PipelineStatistics statistics = new PipelineStatistics(false);
+        new TestFunction(statistics).apply("");
+        assertNull(statistics.start());
+
+        PipelineStatistics.Sample sample = statistics.start();
+        statistics.setEnabled(true);
+        statistics.recordCommand(COMMAND, sample);
+
+        assertTrue(statistics.stages().isEmpty());
+        assertTrue(statistics.commands().isEmpty());
+    }
+
+    /**
+     * Test that resetting removes everything that was recorded.
+     */
+    @Test
+    public void testReset() {
+        PipelineStatistics statistics = new PipelineStatistics(true);
+        new TestFunction(statistics).apply("");
+        statistics.recordCommand(COMMAND, statistics.start());
+        statistics.reset();
+
+        assertTrue(statistics.stages().isEmpty());
+        assertTrue(statistics.commands().isEmpty());
+    }
+}
@@ -1,5 +1,7 @@
 package org.metaborg.spoofax.shell.client.eclipse.impl;
 
+import java.util.List;
+
 import org.eclipse.jface.resource.JFaceResources;
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.Document;
@@ -9,12 +11,15 @@ import org.eclipse.jface.text.TextViewer;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.custom.StyleRange;
 import org.eclipse.swt.widgets.Composite;
+import org.metaborg.core.messages.IMessage;
 import org.metaborg.core.style.IStyle;
+import org.metaborg.spoofax.shell.client.HiddenMessages;
 import org.metaborg.spoofax.shell.client.IDisplay;
 import org.metaborg.spoofax.shell.client.eclipse.ColorManager;
 import org.metaborg.spoofax.shell.client.eclipse.EclipseUtil;
 import org.metaborg.spoofax.shell.output.StyledText;
 
+import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
 import com.google.inject.assistedinject.AssistedInject;
 
@@ -30,6 +35,7 @@ public class EclipseDisplay implements IDisplay {
     // input/output combinations.
     private final ITextViewer output;
     private final ColorManager colorManager;
+    private HiddenMessages hidden;
 
     /**
      * Instantiates a new EclipseDisplay.
@@ -51,6 +57,27 @@ public class EclipseDisplay implements IDisplay {
         this.colorManager = colorManager;
     }
 
+    /**
+     * Set the {@link HiddenMessages} in which the messages of a failure that are not shown are
+     * kept. When not set, they are dropped.
+     *
+     * @param hidden
+     *            The {@link HiddenMessages}.
+     */
+    @Inject(optional = true)
+    public void setHiddenMessages(HiddenMessages hidden) {
+        this.hidden = hidden;
+    }
+
+    @Override
+    public boolean keepHiddenMessages(List<IMessage> messages) {
+        if (hidden == null) {
+            return false;
+        }
+        hidden.keep(messages);
+        return true;
+    }
+
     private IDocument getDocument() {
         return this.output.getDocument();
     }